@@ -0,0 +1,104 @@
+package com.streamapp.benchmarks;
+
+import com.streamapp.network.mdns.MDNSConstants;
+import com.streamapp.network.mdns.UserDiscoveryService;
+import org.mockito.ArgumentCaptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceInfo;
+import javax.jmdns.ServiceListener;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Обработка событий mDNS в {@link UserDiscoveryService} с заглушкой JmDNS.
+ * Каждая операция — обнаружение нового узла и уход самого старого,
+ * так что число известных узлов остается равным {@code peers}.
+ * События и их данные подготовлены заранее, чтобы замерять сам сервис.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DiscoveryBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int peers;
+
+    private UserDiscoveryService service;
+    private ServiceListener listener;
+    private ServiceEvent[] resolved;
+    private ServiceEvent[] removed;
+    private int step;
+
+    @Setup(Level.Trial)
+    public void setUp() throws UnknownHostException {
+        JmDNS jmdns = mock(JmDNS.class);
+        service = new UserDiscoveryService(jmdns, "benchmark");
+        service.startDiscovery();
+        ArgumentCaptor<ServiceListener> captor = ArgumentCaptor.forClass(ServiceListener.class);
+        verify(jmdns).addServiceListener(eq(MDNSConstants.SERVICE_TYPE), captor.capture());
+        listener = captor.getValue();
+
+        // Имен вдвое больше, чем узлов: половина в сети, половина ждет своей очереди
+        int names = peers * 2;
+        resolved = new ServiceEvent[names];
+        removed = new ServiceEvent[names];
+        for (int i = 0; i < names; i++) {
+            String name = "peer-" + i;
+            InetAddress address = InetAddress.getByAddress(new byte[]{10, 0, (byte) (i >> 8), (byte) i});
+            ServiceInfo info = mock(ServiceInfo.class);
+            when(info.getName()).thenReturn(name);
+            when(info.getInetAddresses()).thenReturn(new InetAddress[]{address});
+            resolved[i] = event(name, info);
+            removed[i] = event(name, null);
+        }
+        for (int i = 0; i < peers; i++) {
+            listener.serviceResolved(resolved[i]);
+        }
+    }
+
+    private static ServiceEvent event(String name, ServiceInfo info) {
+        ServiceEvent event = mock(ServiceEvent.class);
+        when(event.getName()).thenReturn(name);
+        when(event.getType()).thenReturn(MDNSConstants.SERVICE_TYPE);
+        when(event.getInfo()).thenReturn(info);
+        return event;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public int resolveAndRemovePeer() {
+        int names = resolved.length;
+        listener.serviceRemoved(removed[step % names]);
+        listener.serviceResolved(resolved[(step + peers) % names]);
+        step++;
+        return service.getDiscoveredUsers().size();
+    }
+}
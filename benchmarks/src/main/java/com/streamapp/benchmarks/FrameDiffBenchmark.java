@@ -0,0 +1,91 @@
+package com.streamapp.benchmarks;
+
+import com.streamapp.streaming.StreamingConstants;
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameRing;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.streaming.encode.TileGrid;
+import com.streamapp.streaming.encode.TileHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск изменившихся плиток кадра 1080p: отпечатки всех плиток
+ * и разностное кодирование кадра без изменений и с движущимся объектом.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class FrameDiffBenchmark {
+    private static final int WIDTH = StreamingConstants.FRAME_WIDTH;
+    private static final int HEIGHT = StreamingConstants.FRAME_HEIGHT;
+
+    private TestPatternFrameSource source;
+    private Frame frame;
+    private TileGrid grid;
+    private DeltaEncoder encoder;
+    private long frameId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = new TestPatternFrameSource(WIDTH, HEIGHT);
+        frame = new FrameRing(1, WIDTH, HEIGHT).acquire();
+        source.capture(frame);
+        grid = new TileGrid(WIDTH, HEIGHT, DeltaEncoder.DEFAULT_TILE_SIZE);
+        encoder = new DeltaEncoder(grid, new DeflateTileCodec(), Integer.MAX_VALUE, Integer.MAX_VALUE);
+        encodeNext();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoder.close();
+        frame.release();
+    }
+
+    @Benchmark
+    public long hashAllTiles() {
+        int[] pixels = frame.getPixels();
+        long combined = 0;
+        for (int tile = 0; tile < grid.getTileCount(); tile++) {
+            combined ^= TileHasher.hash(pixels, WIDTH, grid.tileX(tile), grid.tileY(tile),
+                grid.tileWidth(tile), grid.tileHeight(tile));
+        }
+        return combined;
+    }
+
+    @Benchmark
+    public EncodedFrame encodeUnchangedFrame() {
+        return encodeNext();
+    }
+
+    @Benchmark
+    public EncodedFrame captureAndEncodeMovingBox() {
+        source.capture(frame);
+        return encodeNext();
+    }
+
+    private EncodedFrame encodeNext() {
+        frame.stamp(frameId, System.nanoTime());
+        EncodedFrame encoded = encoder.encode(frame);
+        encoder.acknowledge(frameId++);
+        return encoded;
+    }
+}
@@ -0,0 +1,79 @@
+package com.streamapp.benchmarks;
+
+import com.streamapp.network.session.MessageType;
+import com.streamapp.network.session.SessionProtocol;
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameRing;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.streaming.encode.TileGrid;
+import com.streamapp.util.DirectBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кадрирование сообщений сессии: запись кадра в буфер из пула
+ * и разбор кадра из полученного сообщения.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class FramingBenchmark {
+    private static final int HEIGHT = 360;
+
+    /**
+     * Ширина кадра: задает число плиток и размер полезной нагрузки.
+     */
+    @Param({"128", "640", "1920"})
+    public int width;
+
+    private final DirectBufferPool pool = new DirectBufferPool(4);
+    private EncodedFrame frame;
+    private ByteBuffer message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Frame captured = new FrameRing(1, width, HEIGHT).acquire();
+        new TestPatternFrameSource(width, HEIGHT).capture(captured);
+        captured.stamp(1, System.nanoTime());
+        try (DeltaEncoder encoder = new DeltaEncoder(new TileGrid(width, HEIGHT, DeltaEncoder.DEFAULT_TILE_SIZE),
+                new DeflateTileCodec(), DeltaEncoder.DEFAULT_KEYFRAME_INTERVAL, DeltaEncoder.DEFAULT_RESEND_AFTER_FRAMES)) {
+            frame = encoder.encode(captured);
+        }
+        captured.release();
+        message = SessionProtocol.encode(pool, MessageType.FRAME, frame.serializedSize(), frame::writeTo);
+    }
+
+    @Benchmark
+    public int encodeFrameMessage() {
+        ByteBuffer buffer = SessionProtocol.encode(pool, MessageType.FRAME, frame.serializedSize(), frame::writeTo);
+        int size = buffer.remaining();
+        pool.release(buffer);
+        return size;
+    }
+
+    @Benchmark
+    public EncodedFrame decodeFrameMessage() {
+        ByteBuffer payload = message.duplicate();
+        payload.position(SessionProtocol.HEADER_SIZE);
+        return EncodedFrame.readFrom(payload);
+    }
+}
@@ -0,0 +1,238 @@
+package com.streamapp.benchmarks;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.streaming.StreamHost;
+import com.streamapp.streaming.StreamViewerClient;
+import com.streamapp.streaming.StreamingConstants;
+import com.streamapp.streaming.capture.MarkerFrameSource;
+import com.streamapp.streaming.capture.MarkerFrameSource.Workload;
+import com.streamapp.streaming.encode.DeltaDecoder;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import com.streamapp.util.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка «от стекла до стекла» на петлевом интерфейсе.
+ * <p>
+ * Владелец экрана и зритель работают в одном процессе и соединяются через
+ * настоящие сокеты 127.0.0.1, поэтому оба конца видят одни и те же часы
+ * {@link System#nanoTime()}. Источник {@link MarkerFrameSource} вписывает
+ * в пиксели кадра номер и время захвата; зритель декодирует каждый
+ * воспроизводимый кадр в буфер изображения, читает метку из пикселей и
+ * считает задержку от захвата до готового изображения, потерянные кадры и
+ * поток данных. Сценарий — последовательность фаз с разным характером
+ * изменений изображения; перед ним идет неучитываемый прогрев.
+ * <p>
+ * Аргументы: {@code [сценарий] [tcp|udp] [кадров в секунду]}, сценарий
+ * по умолчанию {@value #DEFAULT_SCRIPT} (фаза:секунды через запятую).
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.streamapp.benchmarks.GlassToGlass
+ * </pre>
+ * Последняя строка отчета — итоговый 99-й процентиль задержки по всему
+ * сценарию, число для сравнения между сборками.
+ */
+public final class GlassToGlass {
+    private static final String DEFAULT_SCRIPT = "static:5,typing:5,scrolling:5,video:5";
+    private static final long WARM_UP_SECONDS = 3;
+    private static final int WARM_UP_PHASE = 0;
+
+    private final int width;
+    private final int height;
+    private final DeltaDecoder decoder = new DeltaDecoder();
+    private final IntBuffer picture;
+    private final List<Phase> phases = new ArrayList<>();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private long lastSequence = -1;
+    private long invalid;
+
+    private GlassToGlass(int width, int height, List<Phase> script) {
+        this.width = width;
+        this.height = height;
+        this.picture = IntBuffer.allocate(width * height);
+        phases.add(new Phase("прогрев", Workload.TYPING, WARM_UP_SECONDS));
+        phases.addAll(script);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Phase> script = parseScript(args.length > 0 ? args[0] : DEFAULT_SCRIPT);
+        TransportType transport = args.length > 1
+            ? TransportType.valueOf(args[1].toUpperCase(Locale.ROOT)) : TransportType.TCP;
+        int fps = args.length > 2 ? Integer.parseInt(args[2]) : StreamingConstants.DEFAULT_FPS;
+
+        GlassToGlass harness = new GlassToGlass(StreamingConstants.FRAME_WIDTH, StreamingConstants.FRAME_HEIGHT,
+            script);
+        harness.run(transport, fps);
+        harness.report(System.out, transport, fps);
+    }
+
+    private static List<Phase> parseScript(String script) {
+        List<Phase> phases = new ArrayList<>();
+        for (String step : script.split(",")) {
+            String[] parts = step.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Ожидается фаза:секунды, получено: " + step);
+            }
+            Workload workload = Workload.valueOf(parts[0].toUpperCase(Locale.ROOT));
+            phases.add(new Phase(workload.name().toLowerCase(Locale.ROOT), workload, Long.parseLong(parts[1])));
+        }
+        return phases;
+    }
+
+    private void run(TransportType transport, int fps) throws Exception {
+        MarkerFrameSource source = new MarkerFrameSource(width, height);
+        NioReactor reactor = new NioReactor("g2g-reactor");
+        reactor.start();
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(), () -> source, fps,
+            (viewer, address) -> CompletableFuture.completedFuture(true));
+        host.start(0);
+
+        CountDownLatch accepted = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        StreamViewerClient viewer = new StreamViewerClient(new SessionClient(reactor, DirectBufferPool.shared()),
+            "g2g", transport, new StreamViewerClient.Listener() {
+                @Override
+                public void onAccepted() {
+                    accepted.countDown();
+                }
+
+                @Override
+                public void onRejected(String reason) {
+                    stopped.countDown();
+                }
+
+                @Override
+                public void onFrame(EncodedFrame frame) {
+                    present(frame);
+                }
+
+                @Override
+                public void onStopped() {
+                    stopped.countDown();
+                }
+            }, true);
+        try {
+            viewer.request(new InetSocketAddress("127.0.0.1", host.getPort())).get(5, TimeUnit.SECONDS);
+            if (!accepted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Трансляция не началась");
+            }
+            for (int i = 0; i < phases.size(); i++) {
+                Phase phase = phases.get(i);
+                source.setPhase(i, phase.workload);
+                Thread.sleep(TimeUnit.SECONDS.toMillis(phase.seconds));
+            }
+            // Кадры последней фазы, еще находящиеся в пути
+            Thread.sleep(500);
+        } finally {
+            viewer.stop();
+            stopped.await(2, TimeUnit.SECONDS);
+            host.close();
+            reactor.close();
+            decoder.close();
+        }
+    }
+
+    /**
+     * Показ кадра: декодирование в буфер изображения и чтение метки.
+     * Вызывается в потоке воспроизведения.
+     */
+    private synchronized void present(EncodedFrame frame) {
+        if (frame.getWidth() != width || frame.getHeight() != height) {
+            return;
+        }
+        decoder.decode(frame, picture);
+        long now = System.nanoTime();
+        MarkerFrameSource.Marker marker = MarkerFrameSource.read(picture, width);
+        if (marker == null || marker.getPhase() < 0 || marker.getPhase() >= phases.size()) {
+            invalid++;
+            return;
+        }
+        if (marker.getSequence() <= lastSequence) {
+            // Плитка метки не обновилась: кадр показал старое изображение
+            return;
+        }
+        Phase phase = phases.get(marker.getPhase());
+        if (lastSequence >= 0) {
+            phase.dropped += marker.getSequence() - lastSequence - 1;
+        }
+        lastSequence = marker.getSequence();
+        phase.presented++;
+        phase.bytes += frame.serializedSize();
+        if (phase.firstNanos == 0) {
+            phase.firstNanos = now;
+        }
+        phase.lastNanos = now;
+        phase.latency.recordNanos(now - marker.getCaptureTimeNanos());
+        if (marker.getPhase() != WARM_UP_PHASE) {
+            total.recordNanos(now - marker.getCaptureTimeNanos());
+        }
+    }
+
+    private synchronized void report(PrintStream out, TransportType transport, int fps) {
+        out.printf(Locale.ROOT, "Задержка от захвата до показа, %dx%d, %s, %d кадр/с%n", width, height,
+            transport, fps);
+        out.printf(Locale.ROOT, "%-10s %8s %8s %8s %8s %8s %10s%n", "фаза", "кадров", "потеряно", "p50 мс",
+            "p99 мс", "max мс", "Мбит/с");
+        long presented = 0;
+        long dropped = 0;
+        for (int i = WARM_UP_PHASE + 1; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            LatencyHistogram.Snapshot snapshot = phase.latency.snapshot();
+            double seconds = Math.max(phase.lastNanos - phase.firstNanos, 1) / 1e9;
+            out.printf(Locale.ROOT, "%-10s %8d %8d %8.1f %8.1f %8.1f %10.2f%n", phase.name, phase.presented,
+                phase.dropped, percentile(phase.latency, snapshot, 50), percentile(phase.latency, snapshot, 99),
+                millis(phase.latency.getMaxNanos()), phase.bytes * 8 / seconds / 1e6);
+            presented += phase.presented;
+            dropped += phase.dropped;
+        }
+        if (invalid > 0) {
+            out.printf("Кадров без читаемой метки: %d%n", invalid);
+        }
+        LatencyHistogram.Snapshot snapshot = total.snapshot();
+        out.printf(Locale.ROOT, "Итог: p50 %.1f мс, p99 %.1f мс, потеряно %.2f%% кадров%n",
+            percentile(total, snapshot, 50), percentile(total, snapshot, 99),
+            presented + dropped == 0 ? 0.0 : 100.0 * dropped / (presented + dropped));
+    }
+
+    /**
+     * Процентиль в миллисекундах. Гистограмма отдает верхнюю границу корзины,
+     * поэтому значение ограничивается наибольшим учтенным.
+     */
+    private static double percentile(LatencyHistogram histogram, LatencyHistogram.Snapshot snapshot,
+                                     double percentile) {
+        return millis(Math.min(snapshot.percentileNanos(percentile), histogram.getMaxNanos()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final Workload workload;
+        private final long seconds;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long presented;
+        private long dropped;
+        private long bytes;
+        private long firstNanos;
+        private long lastNanos;
+
+        private Phase(String name, Workload workload, long seconds) {
+            this.name = name;
+            this.workload = workload;
+            this.seconds = seconds;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.streamapp.benchmarks;
+
+import com.streamapp.streaming.StreamingConstants;
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameRing;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.streaming.encode.TileEncoderPool;
+import com.streamapp.streaming.encode.TileGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Опорный кадр 1080p целиком: однопоточное кодирование ({@code threads = 0})
+ * и кодирование в {@link TileEncoderPool} с разным числом потоков.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class KeyframeEncodeBenchmark {
+    private static final int WIDTH = StreamingConstants.FRAME_WIDTH;
+    private static final int HEIGHT = StreamingConstants.FRAME_HEIGHT;
+
+    @Param({"0", "2", "4", "8"})
+    public int threads;
+
+    private TileEncoderPool pool;
+    private DeltaEncoder encoder;
+    private Frame frame;
+    private long frameId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TileGrid grid = new TileGrid(WIDTH, HEIGHT, DeltaEncoder.DEFAULT_TILE_SIZE);
+        if (threads == 0) {
+            encoder = new DeltaEncoder(grid, new DeflateTileCodec(), 1, Integer.MAX_VALUE);
+        } else {
+            pool = new TileEncoderPool(threads, DeflateTileCodec::new);
+            encoder = new DeltaEncoder(grid, pool, 1, Integer.MAX_VALUE);
+        }
+        frame = new FrameRing(1, WIDTH, HEIGHT).acquire();
+        new TestPatternFrameSource(WIDTH, HEIGHT).capture(frame);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoder.close();
+        if (pool != null) {
+            pool.close();
+        }
+        frame.release();
+    }
+
+    @Benchmark
+    public EncodedFrame encodeKeyframe() {
+        // Интервал опорных кадров равен 1: каждый кадр кодируется целиком
+        frame.stamp(frameId++, System.nanoTime());
+        return encoder.encode(frame);
+    }
+}
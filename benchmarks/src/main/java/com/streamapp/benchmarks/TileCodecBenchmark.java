@@ -0,0 +1,93 @@
+package com.streamapp.benchmarks;
+
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameRing;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.TileQuality;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и декодирование одной плитки 64×64 кодеком Deflate
+ * при разных параметрах качества.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileCodecBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+    private static final int TILE = 64;
+    /**
+     * Плитка на границе цветных полос тестовой таблицы.
+     */
+    private static final int TILE_X = 64;
+    private static final int TILE_Y = 128;
+
+    @Param({"0", "3"})
+    public int quantizationBits;
+
+    @Param({"0", "1"})
+    public int scaleShift;
+
+    private DeflateTileCodec codec;
+    private TileQuality quality;
+    private Frame frame;
+    private ByteBuffer encoded;
+    private ByteBuffer scratch;
+    private int encodedLength;
+    private IntBuffer target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = new DeflateTileCodec();
+        quality = new TileQuality(quantizationBits, scaleShift);
+        frame = new FrameRing(1, WIDTH, HEIGHT).acquire();
+        new TestPatternFrameSource(WIDTH, HEIGHT).capture(frame);
+        scratch = ByteBuffer.allocate(codec.maxEncodedSize(TILE, TILE));
+        encoded = ByteBuffer.allocate(codec.maxEncodedSize(TILE, TILE));
+        encodedLength = codec.encode(frame.getPixels(), WIDTH, TILE_X, TILE_Y, TILE, TILE, quality, encoded);
+        target = ByteBuffer.allocateDirect(WIDTH * HEIGHT * Integer.BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asIntBuffer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        codec.close();
+        frame.release();
+    }
+
+    @Benchmark
+    public int encodeTile() {
+        scratch.clear();
+        return codec.encode(frame.getPixels(), WIDTH, TILE_X, TILE_Y, TILE, TILE, quality, scratch);
+    }
+
+    @Benchmark
+    public IntBuffer decodeTileIntoDirectBuffer() {
+        encoded.position(0);
+        codec.decode(encoded, encodedLength, target, WIDTH, TILE_X, TILE_Y, TILE, TILE, scaleShift);
+        return target;
+    }
+}
@@ -0,0 +1,66 @@
+package com.streamapp.benchmarks;
+
+import com.streamapp.core.model.User;
+import com.streamapp.ui.viewmodel.UserListViewModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость изменений списка пользователей в {@link UserListViewModel}
+ * при разном числе узлов в сети.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class UserListViewModelBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int peers;
+
+    private UserListViewModel viewModel;
+    private User[] users;
+    private int step;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        viewModel = new UserListViewModel(null);
+        // Пользователей вдвое больше, чем узлов: половина в списке, половина ждет своей очереди
+        users = new User[peers * 2];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new User("10.0." + (i >> 8) + "." + (i & 0xFF), "peer-" + i, "Онлайн", null);
+        }
+        for (int i = 0; i < peers; i++) {
+            viewModel.addUser(users[i]);
+        }
+    }
+
+    @Benchmark
+    public int addAndRemoveUser() {
+        int count = users.length;
+        viewModel.removeUser(users[step % count].getUserId());
+        viewModel.addUser(users[(step + peers) % count]);
+        step++;
+        return viewModel.getUsers().size();
+    }
+
+    @Benchmark
+    public int updateUserStatus() {
+        User user = users[(step + peers - 1) % users.length];
+        viewModel.updateUserStatus(user.getUserId(), (step++ & 1) == 0 ? "Онлайн" : "Не беспокоить");
+        return viewModel.getUsers().size();
+    }
+}
@@ -1,5 +1,6 @@
 package com.streamapp;
 
+import com.streamapp.util.FlightRecording;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -56,6 +57,7 @@ public class Main extends Application {
     }
 
     public static void main(String[] args) {
+        FlightRecording.startIfRequested();
         launch(args);
     }
 } 
\ No newline at end of file
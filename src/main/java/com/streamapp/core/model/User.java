@@ -1,5 +1,6 @@
 package com.streamapp.core.model;
 
+import com.streamapp.network.model.PeerCapabilities;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.property.ObjectProperty;
@@ -14,9 +15,19 @@ public class User {
     private final StringProperty status;
     private final ObjectProperty<Image> avatar;
     private final StringProperty userId;
+    private final String address;
+    private PeerCapabilities capabilities = PeerCapabilities.UNKNOWN;
 
     public User(String userId, String username, String status, Image avatar) {
+        this(userId, username, status, avatar, null);
+    }
+
+    /**
+     * @param address сетевой адрес пользователя или null, если он неизвестен
+     */
+    public User(String userId, String username, String status, Image avatar, String address) {
         this.userId = new SimpleStringProperty(userId);
+        this.address = address;
         this.username = new SimpleStringProperty(username);
         this.status = new SimpleStringProperty(status);
         this.avatar = new SimpleObjectProperty<>(avatar);
@@ -31,6 +42,21 @@ public class User {
         return userId;
     }
 
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return объявленные возможности узла пользователя
+     */
+    public PeerCapabilities getCapabilities() {
+        return capabilities;
+    }
+
+    public void setCapabilities(PeerCapabilities capabilities) {
+        this.capabilities = capabilities;
+    }
+
     public String getUsername() {
         return username.get();
     }
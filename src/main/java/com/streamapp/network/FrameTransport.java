@@ -0,0 +1,58 @@
+package com.streamapp.network;
+
+import com.streamapp.streaming.encode.EncodedFrame;
+
+/**
+ * Транспорт закодированных кадров от владельца экрана к зрителю.
+ */
+public interface FrameTransport extends AutoCloseable {
+
+    /**
+     * Получатель времени ожидания кадра в очереди отправки.
+     */
+    @FunctionalInterface
+    interface QueueLatencyListener {
+        /**
+         * @param frameId номер кадра
+         * @param queuedNanos время от постановки кадра в очередь до записи в сокет
+         */
+        void onWritten(long frameId, long queuedNanos);
+    }
+
+    /**
+     * Ставит кадр в очередь отправки.
+     *
+     * @param frame закодированный кадр
+     * @return false, если кадр не принят к отправке
+     */
+    boolean sendFrame(EncodedFrame frame);
+
+    /**
+     * Возвращает объем данных, ожидающих отправки.
+     *
+     * @return количество байт
+     */
+    long getQueuedBytes();
+
+    /**
+     * Задает получателя времени, которое кадр провел от постановки в очередь
+     * до записи в сокет. Транспорт может сообщать его не для каждого кадра.
+     *
+     * @param listener получатель задержки; вызывается в сетевом потоке
+     */
+    default void setQueueLatencyListener(QueueLatencyListener listener) {
+    }
+
+    /**
+     * Возвращает тип транспорта.
+     *
+     * @return тип транспорта
+     */
+    TransportType getType();
+
+    /**
+     * Освобождает ресурсы транспорта.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,36 @@
+package com.streamapp.network;
+
+/**
+ * Транспорт для передачи кадров трансляции.
+ */
+public enum TransportType {
+    /**
+     * Кадры передаются сообщениями сессии по TCP.
+     */
+    TCP(0),
+
+    /**
+     * Кадры передаются датаграммами UDP с повторами по NACK и избыточностью.
+     */
+    UDP(1);
+
+    private final byte code;
+
+    TransportType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Находит транспорт по коду.
+     *
+     * @param code код транспорта
+     * @return транспорт; TCP для неизвестного кода
+     */
+    public static TransportType fromCode(byte code) {
+        return code == UDP.code ? UDP : TCP;
+    }
+}
@@ -0,0 +1,126 @@
+package com.streamapp.network.avatar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Файл изображения профиля и его отпечаток SHA-256.
+ * Отпечаток объявляется в mDNS, и зритель получает изображение
+ * только если его еще нет в кэше.
+ */
+public final class AvatarData {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarData.class);
+
+    /**
+     * Системное свойство с путем к собственному изображению профиля.
+     */
+    public static final String AVATAR_PROPERTY = "streamapp.avatar";
+
+    /**
+     * Наибольший размер файла изображения профиля.
+     */
+    public static final int MAX_SIZE = 256 * 1024;
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final String hash;
+    private final byte[] bytes;
+
+    private AvatarData(String hash, byte[] bytes) {
+        this.hash = hash;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Создает изображение профиля из байтов файла.
+     *
+     * @param bytes байты файла изображения
+     * @return изображение профиля
+     */
+    public static AvatarData of(byte[] bytes) {
+        if (bytes.length == 0 || bytes.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер изображения профиля: " + bytes.length);
+        }
+        return new AvatarData(hashOf(bytes), bytes.clone());
+    }
+
+    /**
+     * Загружает собственное изображение профиля из файла, заданного
+     * свойством {@link #AVATAR_PROPERTY}.
+     *
+     * @return изображение профиля или null, если оно не задано или недоступно
+     */
+    public static AvatarData loadLocal() {
+        String path = System.getProperty(AVATAR_PROPERTY);
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        try {
+            return of(Files.readAllBytes(Paths.get(path)));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Не удалось загрузить изображение профиля {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Загружает изображение профиля из файла кэша.
+     *
+     * @param file файл изображения
+     * @param expectedHash ожидаемый отпечаток
+     * @return изображение профиля или null, если файл поврежден
+     * @throws IOException если файл недоступен
+     */
+    public static AvatarData read(Path file, String expectedHash) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length == 0 || bytes.length > MAX_SIZE || !hashOf(bytes).equals(expectedHash)) {
+            return null;
+        }
+        return new AvatarData(expectedHash, bytes);
+    }
+
+    /**
+     * Вычисляет отпечаток изображения.
+     *
+     * @param bytes байты файла изображения
+     * @return отпечаток SHA-256 в шестнадцатеричном виде
+     */
+    public static String hashOf(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Проверяет отпечаток, полученный из сети, прежде чем использовать его,
+     * например, в имени файла кэша.
+     *
+     * @param hash отпечаток
+     * @return true, если это отпечаток SHA-256 в шестнадцатеричном виде
+     */
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return байты файла изображения; массив не копируется и не должен изменяться
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
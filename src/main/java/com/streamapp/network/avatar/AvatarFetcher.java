@@ -0,0 +1,86 @@
+package com.streamapp.network.avatar;
+
+import com.streamapp.network.session.MessageType;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.network.session.SessionConnection;
+import com.streamapp.network.session.SessionHandler;
+import com.streamapp.network.session.SessionProtocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Получает изображение профиля у {@link AvatarServer} другого узла
+ * и проверяет, что оно совпадает с объявленным отпечатком.
+ */
+public class AvatarFetcher {
+    /**
+     * Наибольшее время получения одного изображения.
+     */
+    private static final long FETCH_TIMEOUT_MS = 5000;
+
+    private final SessionClient client;
+
+    /**
+     * @param client клиент сессий
+     */
+    public AvatarFetcher(SessionClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Запрашивает изображение профиля.
+     *
+     * @param address адрес сервера изображения
+     * @param hash объявленный отпечаток изображения
+     * @return изображение; завершается ошибкой, если узел его не отдал или отпечаток не совпал
+     */
+    public CompletableFuture<AvatarData> fetch(InetSocketAddress address, String hash) {
+        CompletableFuture<AvatarData> result = new CompletableFuture<>();
+        SessionHandler handler = new SessionHandler() {
+            @Override
+            public void onConnected(SessionConnection connection) {
+                connection.send(MessageType.AVATAR_REQUEST, SessionProtocol.stringSize(hash),
+                    buffer -> SessionProtocol.writeString(buffer, hash));
+            }
+
+            @Override
+            public void onMessage(SessionConnection connection, MessageType type, ByteBuffer payload) {
+                try {
+                    if (type != MessageType.AVATAR_DATA || !hash.equals(SessionProtocol.readString(payload))) {
+                        throw new IOException("Неожиданный ответ " + type + " от " + address);
+                    }
+                    byte[] bytes = new byte[payload.remaining()];
+                    payload.get(bytes);
+                    if (bytes.length == 0) {
+                        throw new IOException("Узел " + address + " не знает изображения " + hash);
+                    }
+                    AvatarData avatar = AvatarData.of(bytes);
+                    if (!avatar.getHash().equals(hash)) {
+                        throw new IOException("Отпечаток изображения от " + address + " не совпадает");
+                    }
+                    result.complete(avatar);
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+                connection.close();
+            }
+
+            @Override
+            public void onDisconnected(SessionConnection connection) {
+                result.completeExceptionally(new IOException("Соединение с " + address + " закрыто"));
+            }
+        };
+        client.connect(address, handler).whenComplete((connection, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.whenComplete((avatar, failure) -> connection.close());
+            }
+        });
+        return result.orTimeout(FETCH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+}
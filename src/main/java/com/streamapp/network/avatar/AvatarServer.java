@@ -0,0 +1,74 @@
+package com.streamapp.network.avatar;
+
+import com.streamapp.network.session.MessageType;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionConnection;
+import com.streamapp.network.session.SessionHandler;
+import com.streamapp.network.session.SessionProtocol;
+import com.streamapp.network.session.SessionServer;
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Раздает собственное изображение профиля по протоколу сессии.
+ * Каждое соединение — один запрос {@link MessageType#AVATAR_REQUEST}
+ * и один ответ {@link MessageType#AVATAR_DATA}.
+ */
+public class AvatarServer implements SessionHandler, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarServer.class);
+
+    private final SessionServer server;
+    private final AvatarData avatar;
+
+    /**
+     * Создает сервер изображения профиля.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     * @param avatar раздаваемое изображение
+     */
+    public AvatarServer(NioReactor reactor, DirectBufferPool pool, AvatarData avatar) {
+        this.server = new SessionServer(reactor, pool, this);
+        this.avatar = avatar;
+    }
+
+    /**
+     * Начинает принимать запросы.
+     *
+     * @param port порт; 0 — любой свободный
+     * @throws IOException если порт недоступен
+     */
+    public void start(int port) throws IOException {
+        server.bind(port);
+        logger.info("Изображение профиля раздается на порту {}", server.getPort());
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    @Override
+    public void onMessage(SessionConnection connection, MessageType type, ByteBuffer payload) {
+        if (type != MessageType.AVATAR_REQUEST) {
+            logger.warn("Неожиданное сообщение {} от {}", type, connection.getRemoteAddress());
+            connection.close();
+            return;
+        }
+        String hash = SessionProtocol.readString(payload);
+        byte[] bytes = avatar.getHash().equals(hash) ? avatar.getBytes() : new byte[0];
+        connection.send(MessageType.AVATAR_DATA, SessionProtocol.stringSize(hash) + bytes.length, buffer -> {
+            SessionProtocol.writeString(buffer, hash);
+            buffer.put(bytes);
+        });
+        connection.flushAndClose();
+    }
+
+    @Override
+    public void close() {
+        server.close();
+    }
+}
@@ -0,0 +1,149 @@
+package com.streamapp.network.mdns;
+
+import com.streamapp.network.model.PeerKey;
+import com.streamapp.network.model.User;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Журнал изменений списка обнаруженных пользователей между потоками JmDNS
+ * и потоком интерфейса.
+ * <p>
+ * События записываются из любого потока и схлопываются по ключу узла:
+ * до выборки хранится только последнее изменение каждого пользователя, поэтому
+ * повторные объявления и пары «появился — пропал» не доходят до интерфейса.
+ * Получатель уведомляется один раз, когда журнал перестает быть пустым,
+ * и забирает все накопленные изменения одной выборкой.
+ */
+public class DiscoveryChangeLog {
+    private final Map<PeerKey, Change> pending = new LinkedHashMap<>();
+    private final DiscoveryMetrics metrics;
+    private Runnable listener;
+    private boolean drainScheduled;
+    private long firstPendingNanos;
+
+    /**
+     * Создает пустой журнал.
+     */
+    public DiscoveryChangeLog() {
+        this(new DiscoveryMetrics());
+    }
+
+    /**
+     * Создает пустой журнал, учитывающий задержку выборки.
+     *
+     * @param metrics показатели, в которых учитывается время от записи до выборки
+     */
+    public DiscoveryChangeLog(DiscoveryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Записывает появление или обновление пользователя.
+     *
+     * @param user пользователь
+     */
+    public void recordAdded(User user) {
+        record(new Change(user, false));
+    }
+
+    /**
+     * Записывает уход пользователя.
+     *
+     * @param user ушедший пользователь
+     */
+    public void recordRemoved(User user) {
+        record(new Change(user, true));
+    }
+
+    private void record(Change change) {
+        Runnable notify = null;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                firstPendingNanos = System.nanoTime();
+            }
+            pending.put(change.getKey(), change);
+            if (!drainScheduled && listener != null) {
+                drainScheduled = true;
+                notify = listener;
+            }
+        }
+        if (notify != null) {
+            notify.run();
+        }
+    }
+
+    /**
+     * Назначает получателя уведомлений. Получатель вызывается в потоке,
+     * записавшем изменение, и должен лишь запланировать {@link #drain()}.
+     * Если в журнале уже есть изменения, получатель уведомляется сразу.
+     *
+     * @param listener получатель или null
+     */
+    public void setListener(Runnable listener) {
+        boolean notify;
+        synchronized (this) {
+            this.listener = listener;
+            notify = listener != null && !pending.isEmpty();
+            drainScheduled = notify;
+        }
+        if (notify) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Забирает накопленные изменения в порядке первого изменения каждого пользователя.
+     * Следующая запись после выборки снова уведомит получателя.
+     *
+     * @return изменения; пустой список, если изменений нет
+     */
+    public synchronized List<Change> drain() {
+        drainScheduled = false;
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        metrics.uiDelivered(System.nanoTime() - firstPendingNanos);
+        List<Change> changes = new ArrayList<>(pending.values());
+        pending.clear();
+        return changes;
+    }
+
+    /**
+     * @return число пользователей с невыбранными изменениями
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Последнее изменение одного пользователя.
+     */
+    public static final class Change {
+        private final User user;
+        private final boolean removed;
+
+        private Change(User user, boolean removed) {
+            this.user = user;
+            this.removed = removed;
+        }
+
+        public PeerKey getKey() {
+            return user.getKey();
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        /**
+         * @return true, если пользователь ушел из сети
+         */
+        public boolean isRemoved() {
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.streamapp.network.mdns;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.net.InetAddress;
+
+/**
+ * Событие JFR поиска пользователей: объявление, разрешение и удаление
+ * сервиса mDNS на интерфейсе, а также смена доступности и адреса узла.
+ */
+@Name(DiscoveryEvent.NAME)
+@Label("Событие mDNS")
+@Category({"StreamApp", "Поиск"})
+@Description("Событие поиска пользователей через mDNS")
+@StackTrace(false)
+final class DiscoveryEvent extends Event {
+    static final String NAME = "com.streamapp.Discovery";
+
+    @Label("Действие")
+    String action;
+
+    @Label("Имя сервиса")
+    String serviceName;
+
+    @Label("Интерфейс")
+    @Description("Адрес интерфейса, на котором пришло событие mDNS")
+    String networkInterface;
+
+    @Label("Адрес")
+    String address;
+
+    /**
+     * Записывает событие, если оно включено в записи.
+     *
+     * @param action действие: added, resolved, removed, expired, revived, preferred
+     * @param serviceName имя сервиса
+     * @param networkInterface адрес интерфейса или null
+     * @param address адрес узла или null
+     */
+    static void commit(String action, String serviceName, String networkInterface, String address) {
+        DiscoveryEvent event = new DiscoveryEvent();
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.serviceName = serviceName;
+            event.networkInterface = networkInterface;
+            event.address = address;
+            event.commit();
+        }
+    }
+
+    /**
+     * Записывает разрешение сервиса, если событие включено в записи.
+     * Адреса форматируются только для включенного события.
+     *
+     * @param serviceName имя сервиса
+     * @param networkInterface адрес интерфейса или null
+     * @param addresses адреса из разрешения или null
+     */
+    static void commitResolved(String serviceName, String networkInterface, InetAddress[] addresses) {
+        DiscoveryEvent event = new DiscoveryEvent();
+        if (event.shouldCommit()) {
+            event.action = "resolved";
+            event.serviceName = serviceName;
+            event.networkInterface = networkInterface;
+            if (addresses != null) {
+                StringBuilder joined = new StringBuilder();
+                for (InetAddress address : addresses) {
+                    if (joined.length() > 0) {
+                        joined.append(',');
+                    }
+                    joined.append(address.getHostAddress());
+                }
+                event.address = joined.toString();
+            }
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.streamapp.network.mdns;
+
+import com.streamapp.util.LatencyHistogram;
+import com.streamapp.util.RateMeter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики и гистограммы задержек обнаружения пользователей.
+ * <p>
+ * Разделяют задержку появления узла в списке на этапы: сеть (от объявления
+ * до serviceAdded не измеряется, но видна по частоте событий), разрешение
+ * (от serviceAdded до serviceResolved) и интерфейс (от записи изменения
+ * в {@link DiscoveryChangeLog} до его выборки в потоке JavaFX).
+ * Запись не блокирует потоки JmDNS.
+ */
+public final class DiscoveryMetrics implements DiscoveryMetricsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(DiscoveryMetrics.class);
+
+    /**
+     * Имя объекта JMX.
+     */
+    public static final String OBJECT_NAME = "com.streamapp:type=Discovery";
+
+    /**
+     * Окно подсчета частоты событий в секундах.
+     */
+    private static final int RATE_WINDOW_SECONDS = 5;
+
+    private final LongAdder servicesAdded = new LongAdder();
+    private final LongAdder servicesResolved = new LongAdder();
+    private final LongAdder servicesRemoved = new LongAdder();
+    private final LongAdder resolveFailures = new LongAdder();
+    private final LongAdder reRegistrations = new LongAdder();
+    private final LongAdder registrationRetries = new LongAdder();
+    private final LongAdder registrationFailures = new LongAdder();
+    private final RateMeter events = new RateMeter(RATE_WINDOW_SECONDS);
+    private final LatencyHistogram resolveLatency = new LatencyHistogram();
+    private final LatencyHistogram uiDelivery = new LatencyHistogram();
+    /**
+     * Время serviceAdded для сервисов, ожидающих разрешения, по интерфейсу и имени.
+     */
+    private final Map<String, Long> pendingResolves = new ConcurrentHashMap<>();
+
+    /**
+     * Учитывает serviceAdded.
+     *
+     * @param source интерфейс, на котором обнаружен сервис
+     * @param name имя сервиса
+     */
+    public void serviceAdded(Object source, String name) {
+        servicesAdded.increment();
+        events.mark();
+        pendingResolves.putIfAbsent(pendingKey(source, name), System.nanoTime());
+    }
+
+    /**
+     * Учитывает serviceResolved.
+     *
+     * @param source интерфейс, на котором разрешен сервис
+     * @param name имя сервиса
+     */
+    public void serviceResolved(Object source, String name) {
+        servicesResolved.increment();
+        events.mark();
+        Long added = pendingResolves.remove(pendingKey(source, name));
+        if (added != null) {
+            resolveLatency.recordNanos(System.nanoTime() - added);
+        }
+    }
+
+    /**
+     * Учитывает serviceRemoved. Сервис, удаленный до разрешения, считается ошибкой разрешения.
+     *
+     * @param source интерфейс, на котором удален сервис
+     * @param name имя сервиса
+     */
+    public void serviceRemoved(Object source, String name) {
+        servicesRemoved.increment();
+        events.mark();
+        if (pendingResolves.remove(pendingKey(source, name)) != null) {
+            resolveFailures.increment();
+        }
+    }
+
+    /**
+     * Учитывает разрешение, которое не удалось обработать.
+     */
+    public void resolveFailed() {
+        resolveFailures.increment();
+    }
+
+    /**
+     * Учитывает задержку выборки изменений списка интерфейсом.
+     *
+     * @param nanos время от первой невыбранной записи до выборки
+     */
+    public void uiDelivered(long nanos) {
+        uiDelivery.recordNanos(nanos);
+    }
+
+    /**
+     * Учитывает повторную регистрацию после потери собственного сервиса.
+     */
+    public void reRegistered() {
+        reRegistrations.increment();
+    }
+
+    /**
+     * Учитывает повторную попытку регистрации после ошибки.
+     */
+    public void registrationRetried() {
+        registrationRetries.increment();
+    }
+
+    /**
+     * Учитывает регистрацию, не удавшуюся после всех попыток.
+     */
+    public void registrationFailed() {
+        registrationFailures.increment();
+    }
+
+    private static String pendingKey(Object source, String name) {
+        return System.identityHashCode(source) + "/" + name;
+    }
+
+    /**
+     * @return распределение времени от serviceAdded до serviceResolved
+     */
+    public LatencyHistogram getResolveLatency() {
+        return resolveLatency;
+    }
+
+    /**
+     * @return распределение задержки выборки изменений интерфейсом
+     */
+    public LatencyHistogram getUiDelivery() {
+        return uiDelivery;
+    }
+
+    @Override
+    public long getServicesAdded() {
+        return servicesAdded.sum();
+    }
+
+    @Override
+    public long getServicesResolved() {
+        return servicesResolved.sum();
+    }
+
+    @Override
+    public long getServicesRemoved() {
+        return servicesRemoved.sum();
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        return events.perSecond();
+    }
+
+    @Override
+    public long getResolveFailures() {
+        return resolveFailures.sum();
+    }
+
+    @Override
+    public int getPendingResolves() {
+        return pendingResolves.size();
+    }
+
+    @Override
+    public double getResolveLatencyP50Millis() {
+        return millis(resolveLatency.snapshot().percentileNanos(50));
+    }
+
+    @Override
+    public double getResolveLatencyP99Millis() {
+        return millis(resolveLatency.snapshot().percentileNanos(99));
+    }
+
+    @Override
+    public double getResolveLatencyMaxMillis() {
+        return millis(resolveLatency.getMaxNanos());
+    }
+
+    @Override
+    public double getUiDeliveryP99Millis() {
+        return millis(uiDelivery.snapshot().percentileNanos(99));
+    }
+
+    @Override
+    public long getReRegistrations() {
+        return reRegistrations.sum();
+    }
+
+    @Override
+    public long getRegistrationRetries() {
+        return registrationRetries.sum();
+    }
+
+    @Override
+    public long getRegistrationFailures() {
+        return registrationFailures.sum();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Публикует показатели в платформенном сервере JMX. Если объект с таким
+     * именем уже есть, он заменяется.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+            logger.info("Показатели обнаружения доступны через JMX: {}", OBJECT_NAME);
+        } catch (JMException e) {
+            logger.warn("Не удалось опубликовать показатели обнаружения через JMX: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.streamapp.network.mdns;
+
+/**
+ * Показатели обнаружения пользователей, доступные через JMX
+ * ({@value DiscoveryMetrics#OBJECT_NAME}), например в JConsole или JDK Mission Control.
+ * Задержки — в миллисекундах с момента запуска.
+ */
+public interface DiscoveryMetricsMXBean {
+    /**
+     * @return число обнаруженных сервисов (serviceAdded)
+     */
+    long getServicesAdded();
+
+    /**
+     * @return число разрешений сервисов, включая повторные после обновления TXT записи
+     */
+    long getServicesResolved();
+
+    /**
+     * @return число удалений сервисов
+     */
+    long getServicesRemoved();
+
+    /**
+     * @return событий mDNS в секунду за последние секунды
+     */
+    double getEventsPerSecond();
+
+    /**
+     * @return число ошибок разрешения: ошибки обработки, ответы без адресов
+     *         и сервисы, удаленные до разрешения
+     */
+    long getResolveFailures();
+
+    /**
+     * @return число сервисов, ожидающих разрешения
+     */
+    int getPendingResolves();
+
+    /**
+     * @return медиана времени от serviceAdded до serviceResolved
+     */
+    double getResolveLatencyP50Millis();
+
+    /**
+     * @return 99-й процентиль времени от serviceAdded до serviceResolved
+     */
+    double getResolveLatencyP99Millis();
+
+    /**
+     * @return наибольшее время от serviceAdded до serviceResolved
+     */
+    double getResolveLatencyMaxMillis();
+
+    /**
+     * @return 99-й процентиль времени от изменения списка в сети до его выборки интерфейсом
+     */
+    double getUiDeliveryP99Millis();
+
+    /**
+     * @return число повторных регистраций после обнаруженной потери собственного сервиса
+     */
+    long getReRegistrations();
+
+    /**
+     * @return число повторных попыток регистрации после ошибки
+     */
+    long getRegistrationRetries();
+
+    /**
+     * @return число регистраций, не удавшихся после всех попыток
+     */
+    long getRegistrationFailures();
+}
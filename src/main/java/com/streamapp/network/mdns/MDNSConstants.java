@@ -37,4 +37,65 @@ public final class MDNSConstants {
      * Ключ для версии приложения в TXT записи.
      */
     public static final String TXT_VERSION = "version";
-} 
\ No newline at end of file
+
+    /**
+     * Ключ для роли узла в TXT записи.
+     */
+    public static final String TXT_ROLE = "role";
+
+    /**
+     * Роль ретранслятора: узел раздает чужую трансляцию.
+     */
+    public static final String ROLE_RELAY = "relay";
+
+    /**
+     * Ключ для имени источника ретранслируемой трансляции в TXT записи.
+     */
+    public static final String TXT_RELAY_SOURCE = "source";
+
+    /**
+     * Ключ для отпечатка изображения профиля в TXT записи.
+     */
+    public static final String TXT_AVATAR = "avatar";
+
+    /**
+     * Ключ для порта, с которого можно получить изображение профиля, в TXT записи.
+     */
+    public static final String TXT_AVATAR_PORT = "avatar_port";
+
+    /**
+     * Ключ для идентификаторов кодеков плиток через запятую в TXT записи.
+     */
+    public static final String TXT_CODECS = "c";
+
+    /**
+     * Ключ для транспортов кадров через запятую в TXT записи.
+     */
+    public static final String TXT_TRANSPORTS = "t";
+
+    /**
+     * Ключ для наибольшего разрешения кадра (ширина x высота) в TXT записи.
+     */
+    public static final String TXT_MAX_RESOLUTION = "r";
+
+    /**
+     * Ключ для наибольшей частоты кадров в TXT записи.
+     */
+    public static final String TXT_MAX_FPS = "f";
+
+    /**
+     * Ключ для числа зрителей (текущее/наибольшее) в TXT записи.
+     */
+    public static final String TXT_VIEWERS = "n";
+
+    /**
+     * Ключ для загрузки узла в процентах в TXT записи.
+     */
+    public static final String TXT_LOAD = "l";
+
+    /**
+     * Ключ для счетчика признаков жизни в TXT записи: узел периодически
+     * увеличивает его, чтобы его объявления mDNS приходили и без других изменений.
+     */
+    public static final String TXT_BEAT = "b";
+}
@@ -0,0 +1,133 @@
+package com.streamapp.network.mdns;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jmdns.JmDNS;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Выбор сетевых интерфейсов для поиска пользователей.
+ * <p>
+ * {@link JmDNS#create()} привязывается к одному произвольно выбранному
+ * интерфейсу, и на машинах с несколькими сетями (проводная и Wi-Fi, VPN)
+ * узлы других сетей не видны. Здесь JmDNS создается на каждый активный
+ * интерфейс с многоадресной рассылкой, по одному на подсеть: два интерфейса
+ * в одной подсети видят одни и те же узлы, а две регистрации одного узла
+ * в одном сегменте JmDNS принял бы за конфликт имен.
+ */
+public final class MulticastInterfaces {
+    private static final Logger logger = LoggerFactory.getLogger(MulticastInterfaces.class);
+
+    private MulticastInterfaces() {
+        // Запрещаем создание экземпляров
+    }
+
+    /**
+     * Создает JmDNS на каждом выбранном интерфейсе. Все экземпляры объявляют
+     * одно имя хоста, поэтому другие узлы узнают этот узел на любом интерфейсе.
+     * Если подходящих интерфейсов нет, создается один экземпляр по умолчанию.
+     *
+     * @return экземпляры JmDNS, по одному на интерфейс
+     * @throws IOException если не удалось создать ни одного экземпляра
+     */
+    public static List<JmDNS> open() throws IOException {
+        String hostName = localHostName();
+        List<JmDNS> instances = new ArrayList<>();
+        for (InetAddress address : discoveryAddresses()) {
+            try {
+                instances.add(JmDNS.create(address, hostName));
+                logger.info("Поиск пользователей на интерфейсе {}", address.getHostAddress());
+            } catch (IOException e) {
+                logger.warn("Не удалось запустить mDNS на {}: {}", address.getHostAddress(), e.getMessage());
+            }
+        }
+        if (instances.isEmpty()) {
+            instances.add(JmDNS.create());
+        }
+        return instances;
+    }
+
+    /**
+     * Адреса IPv4 активных интерфейсов с многоадресной рассылкой, кроме
+     * петлевого, по одному на подсеть.
+     *
+     * @return адреса для привязки JmDNS; пустой список, если таких нет
+     */
+    public static List<InetAddress> discoveryAddresses() {
+        List<InterfaceAddress> selected = new ArrayList<>();
+        try {
+            for (NetworkInterface nif : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!nif.isUp() || nif.isLoopback() || !nif.supportsMulticast()) {
+                    continue;
+                }
+                for (InterfaceAddress candidate : nif.getInterfaceAddresses()) {
+                    if (candidate.getAddress() instanceof Inet4Address && !coveredBy(candidate, selected)) {
+                        selected.add(candidate);
+                    }
+                }
+            }
+        } catch (SocketException e) {
+            logger.error("Не удалось получить список сетевых интерфейсов: {}", e.getMessage());
+        }
+        List<InetAddress> addresses = new ArrayList<>(selected.size());
+        for (InterfaceAddress address : selected) {
+            addresses.add(address.getAddress());
+        }
+        return addresses;
+    }
+
+    private static boolean coveredBy(InterfaceAddress candidate, List<InterfaceAddress> selected) {
+        for (InterfaceAddress address : selected) {
+            int prefix = Math.min(address.getNetworkPrefixLength(), candidate.getNetworkPrefixLength());
+            if (sameSubnet(address.getAddress(), candidate.getAddress(), prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param a первый адрес
+     * @param b второй адрес
+     * @param prefixLength длина префикса подсети в битах
+     * @return true, если адреса одного семейства и совпадают в первых {@code prefixLength} битах
+     */
+    static boolean sameSubnet(InetAddress a, InetAddress b, int prefixLength) {
+        byte[] left = a.getAddress();
+        byte[] right = b.getAddress();
+        if (left.length != right.length) {
+            return false;
+        }
+        int bits = Math.min(Math.max(prefixLength, 0), left.length * 8);
+        for (int i = 0; i < bits / 8; i++) {
+            if (left[i] != right[i]) {
+                return false;
+            }
+        }
+        int rest = bits % 8;
+        if (rest == 0) {
+            return true;
+        }
+        int mask = 0xFF << (8 - rest) & 0xFF;
+        return (left[bits / 8] & mask) == (right[bits / 8] & mask);
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            // JmDNS возьмет имя по адресу интерфейса
+            logger.warn("Не удалось определить имя хоста: {}", e.getMessage());
+            return null;
+        }
+    }
+}
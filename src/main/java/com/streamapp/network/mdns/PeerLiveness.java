@@ -0,0 +1,321 @@
+package com.streamapp.network.mdns;
+
+import com.streamapp.network.model.PeerKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отслеживание доступности обнаруженных узлов.
+ * <p>
+ * Для каждого узла хранится время, когда он последний раз подавал признаки
+ * жизни: объявление mDNS или ответ на проверку. Узлы с открытым портом сессий
+ * (транслирующие и ретрансляторы) периодически проверяются сообщением через
+ * этот порт и объявляются недоступными после короткого срока молчания.
+ * Остальные узлы проверить нечем: они живут, пока приходят их объявления
+ * mDNS (узлы периодически обновляют TXT запись, см.
+ * {@link StatusPublisher#startBeat(long)}), и объявляются недоступными после
+ * более длинного срока. В обоих случаях это происходит, не дожидаясь
+ * прощального пакета или истечения TTL записей mDNS (минуты).
+ * Недоступный узел проверяется и дальше и при ответе объявляется снова;
+ * узел без порта сессий возвращается с очередным объявлением mDNS.
+ * <p>
+ * Узел, видимый через несколько сетевых интерфейсов, проверяется по всем
+ * своим адресам. Время ответа по каждому адресу сглаживается, и для
+ * подключения предлагается адрес с наименьшей задержкой.
+ */
+public class PeerLiveness implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PeerLiveness.class);
+
+    /**
+     * Срок молчания, после которого узел считается недоступным, по умолчанию.
+     */
+    public static final long DEFAULT_DEADLINE_MS = 6000;
+
+    /**
+     * Срок молчания в mDNS, после которого недоступным считается узел без
+     * порта сессий, по умолчанию.
+     */
+    public static final long DEFAULT_IDLE_DEADLINE_MS = 30_000;
+
+    /**
+     * Сколько проверок приходится на срок молчания.
+     */
+    private static final int PROBES_PER_DEADLINE = 3;
+
+    /**
+     * Проверка узла через его порт сессий.
+     */
+    @FunctionalInterface
+    public interface Probe {
+        /**
+         * @param address адрес сервера сессий узла
+         * @return завершается при ответе узла, ошибкой — если узел не ответил
+         */
+        CompletableFuture<?> probe(InetSocketAddress address);
+    }
+
+    /**
+     * Получатель изменений доступности. Вызывается в потоке проверок.
+     */
+    public interface Listener {
+        /**
+         * Узел молчит дольше срока.
+         *
+         * @param key узел
+         */
+        void onExpired(PeerKey key);
+
+        /**
+         * Недоступный узел снова ответил на проверку.
+         *
+         * @param key узел
+         */
+        void onRevived(PeerKey key);
+
+        /**
+         * Сменился адрес узла с наименьшей задержкой ответа.
+         *
+         * @param key узел
+         * @param address новый предпочтительный адрес сервера сессий
+         */
+        default void onPreferredChanged(PeerKey key, InetSocketAddress address) {
+        }
+    }
+
+    private final Probe probe;
+    private final Listener listener;
+    private final long deadlineNanos;
+    private final long idleDeadlineNanos;
+    private final long probeIntervalNanos;
+    private final Map<PeerKey, Peer> peers = new HashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Создает отслеживание со сроком для узлов без порта сессий по умолчанию.
+     *
+     * @param deadlineMillis срок молчания, после которого недоступен проверяемый узел
+     * @param probe проверка узла; null — все узлы живут только по объявлениям mDNS
+     * @param listener получатель изменений доступности
+     */
+    public PeerLiveness(long deadlineMillis, Probe probe, Listener listener) {
+        this(deadlineMillis, Math.max(deadlineMillis, DEFAULT_IDLE_DEADLINE_MS), probe, listener);
+    }
+
+    /**
+     * Создает отслеживание и запускает периодическую проверку.
+     *
+     * @param deadlineMillis срок молчания, после которого недоступен проверяемый узел
+     * @param idleDeadlineMillis срок молчания в mDNS, после которого недоступен узел
+     *                           без порта сессий
+     * @param probe проверка узла; null — все узлы живут только по объявлениям mDNS
+     * @param listener получатель изменений доступности
+     */
+    public PeerLiveness(long deadlineMillis, long idleDeadlineMillis, Probe probe, Listener listener) {
+        if (deadlineMillis <= 0 || idleDeadlineMillis <= 0) {
+            throw new IllegalArgumentException("Недопустимый срок доступности: " + deadlineMillis
+                + ", " + idleDeadlineMillis);
+        }
+        this.probe = probe;
+        this.listener = listener;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.idleDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(idleDeadlineMillis);
+        this.probeIntervalNanos = Math.min(deadlineNanos, idleDeadlineNanos) / PROBES_PER_DEADLINE;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "peer-liveness");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweep, probeIntervalNanos, probeIntervalNanos,
+            TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Отмечает признак жизни узла из mDNS.
+     *
+     * @param key узел
+     * @param sessionAddresses адреса открытого сервера сессий узла на всех интерфейсах;
+     *                         пустой список, если узел его не объявляет и живет по объявлениям mDNS
+     */
+    public synchronized void seen(PeerKey key, List<InetSocketAddress> sessionAddresses) {
+        Peer peer = peers.computeIfAbsent(key, Peer::new);
+        peer.lastSeenNanos = System.nanoTime();
+        peer.expired = false;
+        addresses(peer, sessionAddresses);
+    }
+
+    /**
+     * Меняет адреса узла, не отмечая признака жизни, например когда узел
+     * пропал с одного из интерфейсов.
+     *
+     * @param key узел
+     * @param sessionAddresses оставшиеся адреса сервера сессий
+     */
+    synchronized void addresses(PeerKey key, List<InetSocketAddress> sessionAddresses) {
+        Peer peer = peers.get(key);
+        if (peer != null) {
+            addresses(peer, sessionAddresses);
+        }
+    }
+
+    private void addresses(Peer peer, List<InetSocketAddress> sessionAddresses) {
+        if (peer.sessionAddresses.equals(sessionAddresses)) {
+            return;
+        }
+        peer.sessionAddresses = List.copyOf(sessionAddresses);
+        peer.rttNanos.keySet().retainAll(peer.sessionAddresses);
+        if (peer.sessionAddresses.size() > 1 && probe != null && !scheduler.isShutdown()) {
+            // Новые адреса измеряются сразу, не дожидаясь очередной проверки
+            peer.ranked = false;
+            scheduler.execute(this::sweep);
+        }
+    }
+
+    /**
+     * Прекращает отслеживание ушедшего узла.
+     *
+     * @param key узел
+     */
+    public synchronized void forget(PeerKey key) {
+        peers.remove(key);
+    }
+
+    /**
+     * @param key узел
+     * @return true, если узел отслеживается и объявлен недоступным
+     */
+    public synchronized boolean isExpired(PeerKey key) {
+        Peer peer = peers.get(key);
+        return peer != null && peer.expired;
+    }
+
+    /**
+     * @param key узел
+     * @return адрес сервера сессий узла с наименьшей задержкой ответа
+     *         или null, если ни один адрес еще не ответил
+     */
+    public synchronized InetSocketAddress preferred(PeerKey key) {
+        Peer peer = peers.get(key);
+        return peer != null ? peer.preferred : null;
+    }
+
+    /**
+     * Проверяет узлы, давно не подававшие признаков жизни, и объявляет
+     * недоступными молчащие дольше срока.
+     */
+    void sweep() {
+        long now = System.nanoTime();
+        Map<Peer, List<InetSocketAddress>> toProbe = new HashMap<>();
+        List<PeerKey> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Peer peer : peers.values()) {
+                boolean probed = probe != null && !peer.sessionAddresses.isEmpty();
+                long deadline = probed ? deadlineNanos : idleDeadlineNanos;
+                if (!peer.expired && now - peer.lastSeenNanos > deadline) {
+                    peer.expired = true;
+                    expired.add(peer.key);
+                }
+                if (probed && (now - peer.lastSeenNanos >= probeIntervalNanos || !peer.ranked)
+                        && peer.probing == 0) {
+                    peer.probing = peer.sessionAddresses.size();
+                    toProbe.put(peer, peer.sessionAddresses);
+                }
+            }
+        }
+        for (PeerKey key : expired) {
+            logger.info("Узел {} молчит дольше срока доступности", key);
+            listener.onExpired(key);
+        }
+        for (Map.Entry<Peer, List<InetSocketAddress>> entry : toProbe.entrySet()) {
+            Peer peer = entry.getKey();
+            for (InetSocketAddress address : entry.getValue()) {
+                long start = System.nanoTime();
+                probe.probe(address).whenComplete((reply, error) ->
+                    answered(peer, address, error == null ? System.nanoTime() - start : -1));
+            }
+        }
+    }
+
+    /**
+     * Учитывает ответ узла по одному адресу.
+     *
+     * @param rttNanos время ответа или -1, если узел не ответил
+     */
+    private void answered(Peer peer, InetSocketAddress address, long rttNanos) {
+        boolean revived = false;
+        InetSocketAddress preferred = null;
+        synchronized (this) {
+            peer.probing--;
+            if (peers.get(peer.key) != peer || !peer.sessionAddresses.contains(address)) {
+                return;
+            }
+            if (rttNanos >= 0) {
+                Long previous = peer.rttNanos.get(address);
+                peer.rttNanos.put(address, previous == null ? rttNanos : (previous * 3 + rttNanos) / 4);
+                peer.lastSeenNanos = System.nanoTime();
+                revived = peer.expired;
+                peer.expired = false;
+            } else {
+                peer.rttNanos.remove(address);
+            }
+            if (peer.probing <= 0) {
+                peer.ranked = true;
+                InetSocketAddress fastest = fastest(peer);
+                if (fastest != null && !fastest.equals(peer.preferred)) {
+                    preferred = fastest;
+                }
+                peer.preferred = fastest;
+            }
+        }
+        if (revived) {
+            logger.info("Узел {} снова отвечает", peer.key);
+            listener.onRevived(peer.key);
+        }
+        if (preferred != null && peer.sessionAddresses.size() > 1) {
+            logger.debug("Предпочтительный адрес узла {}: {}", peer.key, preferred);
+            listener.onPreferredChanged(peer.key, preferred);
+        }
+    }
+
+    private static InetSocketAddress fastest(Peer peer) {
+        InetSocketAddress fastest = null;
+        long best = Long.MAX_VALUE;
+        for (InetSocketAddress address : peer.sessionAddresses) {
+            Long rtt = peer.rttNanos.get(address);
+            if (rtt != null && rtt < best) {
+                best = rtt;
+                fastest = address;
+            }
+        }
+        return fastest;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Peer {
+        private final PeerKey key;
+        private final Map<InetSocketAddress, Long> rttNanos = new HashMap<>();
+        private List<InetSocketAddress> sessionAddresses = List.of();
+        private InetSocketAddress preferred;
+        private long lastSeenNanos;
+        private boolean expired;
+        private boolean ranked;
+        private int probing;
+
+        private Peer(PeerKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.streamapp.network.mdns;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR одной попытки регистрации собственного сервиса mDNS.
+ * Длительность события — время попытки, включая проверку имени в сети.
+ */
+@Name(RegistrationEvent.NAME)
+@Label("Регистрация mDNS")
+@Category({"StreamApp", "Поиск"})
+@Description("Попытка регистрации собственного сервиса mDNS")
+@StackTrace(false)
+final class RegistrationEvent extends Event {
+    static final String NAME = "com.streamapp.Registration";
+
+    @Label("Имя сервиса")
+    String serviceName;
+
+    @Label("Попытка")
+    int attempt;
+
+    @Label("Повторная регистрация")
+    @Description("Регистрация после потери сервиса в сети")
+    boolean reRegistration;
+
+    @Label("Успешно")
+    boolean succeeded;
+
+    @Label("Ошибка")
+    String error;
+}
@@ -5,31 +5,68 @@ import org.slf4j.LoggerFactory;
 import javax.jmdns.ServiceInfo;
 import javax.jmdns.JmDNS;
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Менеджер регистрации сервисов mDNS
+ * <p>
+ * После регистрации менеджер периодически проверяет, что собственный сервис
+ * виден в сети, и при потере регистрирует его заново. Проверка не ждет
+ * ответов: JmDNS отдает уже собранный список сервисов.
  */
 public class ServiceRegistrationManager {
     private static final Logger logger = LoggerFactory.getLogger(ServiceRegistrationManager.class);
     private static final int MAX_RETRIES = 3;
     private static final int RETRY_DELAY_MS = 1000;
-    private static final int MONITOR_INTERVAL_MS = 5000;
-    private static final int INITIAL_DELAY_MS = 2000;
+    private static final long MONITOR_INTERVAL_MS = 5000;
+
+    /**
+     * Сколько проверок подряд сервис должен отсутствовать в списке, чтобы
+     * считаться потерянным: первая проверка может прийти раньше, чем список
+     * наполнится.
+     */
+    private static final int MISSES_BEFORE_LOSS = 2;
 
     private final JmDNS jmdns;
+    private final DiscoveryMetrics metrics;
     private final AtomicBoolean isRegistered = new AtomicBoolean(false);
     private final AtomicBoolean isRegistering = new AtomicBoolean(false);
     private final AtomicInteger retryCount = new AtomicInteger(0);
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private ServiceInfo currentService;
+    private final ScheduledExecutorService scheduler;
+    private final long monitorIntervalMs;
+    private volatile ServiceInfo currentService;
+    private ScheduledFuture<?> monitor;
+    private int misses;
+    private volatile boolean recovering;
 
     public ServiceRegistrationManager(JmDNS jmdns) {
+        this(jmdns, new DiscoveryMetrics());
+    }
+
+    /**
+     * @param jmdns экземпляр JmDNS
+     * @param metrics показатели, в которых учитываются повторные попытки и регистрации
+     */
+    public ServiceRegistrationManager(JmDNS jmdns, DiscoveryMetrics metrics) {
+        this(jmdns, metrics, MONITOR_INTERVAL_MS);
+    }
+
+    ServiceRegistrationManager(JmDNS jmdns, DiscoveryMetrics metrics, long monitorIntervalMs) {
         this.jmdns = jmdns;
+        this.metrics = metrics;
+        this.monitorIntervalMs = monitorIntervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mdns-registration");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -55,37 +92,43 @@ public class ServiceRegistrationManager {
 
         isRegistering.set(true);
         retryCount.set(0);
+        recovering = false;
         currentService = serviceInfo;
 
         try {
-            // Даем время на инициализацию
-            Thread.sleep(INITIAL_DELAY_MS);
-            
-            boolean success = doRegisterService(serviceInfo);
+            // JmDNS.create() возвращает уже запущенный экземпляр, ждать его инициализации не нужно
+            boolean success = doRegisterService(serviceInfo, false);
             if (success) {
                 startMonitoring();
             }
             return success;
-        } catch (InterruptedException e) {
-            logger.error("Регистрация прервана: {}", e.getMessage());
-            return false;
         } finally {
             isRegistering.set(false);
         }
     }
 
-    private boolean doRegisterService(ServiceInfo serviceInfo) {
+    private boolean doRegisterService(ServiceInfo serviceInfo, boolean reRegistration) {
         while (retryCount.get() < MAX_RETRIES) {
+            RegistrationEvent event = new RegistrationEvent();
+            event.begin();
+            event.serviceName = serviceInfo.getName();
+            event.attempt = retryCount.get() + 1;
+            event.reRegistration = reRegistration;
             try {
                 jmdns.registerService(serviceInfo);
                 isRegistered.set(true);
+                event.succeeded = true;
+                event.commit();
                 logger.info("Сервис успешно зарегистрирован с именем: {}", serviceInfo.getName());
                 return true;
             } catch (IOException e) {
+                event.error = e.getMessage();
+                event.commit();
                 retryCount.incrementAndGet();
                 if (retryCount.get() < MAX_RETRIES) {
                     logger.error("Ошибка при регистрации сервиса (попытка {}/{}): {}", 
                         retryCount.get(), MAX_RETRIES, e.getMessage());
+                    metrics.registrationRetried();
                     try {
                         Thread.sleep(RETRY_DELAY_MS);
                     } catch (InterruptedException ie) {
@@ -95,48 +138,126 @@ public class ServiceRegistrationManager {
                 }
             }
         }
+        metrics.registrationFailed();
         return false;
     }
 
-    private void startMonitoring() {
-        scheduler.scheduleAtFixedRate(() -> {
-            if (!isRegistered.get() || currentService == null) {
+    private synchronized void startMonitoring() {
+        if (monitor == null && !scheduler.isShutdown()) {
+            monitor = scheduler.scheduleWithFixedDelay(this::checkRegistration, monitorIntervalMs,
+                monitorIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Проверяет, что собственный сервис все еще виден в сети.
+     * Выполняется в потоке менеджера.
+     */
+    void checkRegistration() {
+        ServiceInfo service = currentService;
+        if (service == null || isRegistering.get()) {
+            misses = 0;
+            return;
+        }
+        try {
+            if (recovering) {
+                // Повторная регистрация после потери не удалась: пробуем снова
+                retryCount.set(0);
+                recovering = !doRegisterService(service, true);
                 return;
             }
-
-            try {
-                // Проверяем, что сервис все еще зарегистрирован
-                ServiceInfo[] services = jmdns.list(currentService.getType());
-                boolean found = false;
-                for (ServiceInfo service : services) {
-                    if (service.getName().equals(currentService.getName())) {
-                        found = true;
-                        break;
+            if (!isRegistered.get()) {
+                return;
+            }
+            // Нулевое ожидание: только уже собранный JmDNS список
+            ServiceInfo[] services = jmdns.list(service.getType(), 0);
+            if (services != null) {
+                for (ServiceInfo candidate : services) {
+                    if (service.getName().equals(candidate.getName())) {
+                        misses = 0;
+                        return;
                     }
                 }
+            }
+            if (++misses >= MISSES_BEFORE_LOSS) {
+                misses = 0;
+                lost(service);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при проверке регистрации сервиса: {}", e.getMessage());
+        }
+    }
 
-                if (!found) {
-                    logger.warn("Обнаружена потеря регистрации сервиса");
-                    if (!isRegistering.get()) {
-                        isRegistered.set(false);
-                        doRegisterService(currentService);
-                    }
+    /**
+     * Сообщает об удалении сервиса из сети. Если удален собственный сервис,
+     * он регистрируется заново в фоне, не дожидаясь очередной проверки.
+     *
+     * @param name имя удаленного сервиса
+     */
+    public void onServiceRemoved(String name) {
+        ServiceInfo service = currentService;
+        if (service == null || !isRegistered.get() || !service.getName().equals(name)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                try {
+                    lost(service);
+                } catch (RuntimeException e) {
+                    logger.error("Ошибка при повторной регистрации сервиса: {}", e.getMessage());
                 }
-            } catch (Exception e) {
-                logger.error("Ошибка при мониторинге сервиса: {}", e.getMessage());
-            }
-        }, MONITOR_INTERVAL_MS, MONITOR_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Менеджер регистрации остановлен");
+        }
+    }
+
+    /**
+     * Регистрирует потерянный сервис заново. Выполняется в потоке менеджера.
+     */
+    private void lost(ServiceInfo service) {
+        if (isRegistering.get() || currentService != service || !isRegistered.compareAndSet(true, false)) {
+            return;
+        }
+        logger.warn("Обнаружена потеря регистрации сервиса");
+        metrics.reRegistered();
+        try {
+            // JmDNS не принимает повторную регистрацию уже известного ему описания
+            jmdns.unregisterService(service);
+        } catch (RuntimeException e) {
+            logger.debug("Не удалось отменить потерянную регистрацию: {}", e.getMessage());
+        }
+        retryCount.set(0);
+        recovering = !doRegisterService(service, true);
+    }
+
+    /**
+     * Обновляет TXT запись зарегистрированного сервиса без повторной регистрации.
+     * JmDNS объявляет новую запись, и слушатели получают повторное разрешение сервиса.
+     *
+     * @param properties новые свойства TXT записи
+     * @return false, если сервис не зарегистрирован
+     */
+    public boolean updateText(Map<String, ?> properties) {
+        ServiceInfo service = currentService;
+        if (service == null) {
+            return false;
+        }
+        service.setText(properties);
+        return true;
     }
 
     /**
      * Отменяет регистрацию сервиса
      */
     public void unregisterService() {
-        if (currentService != null) {
+        ServiceInfo service = currentService;
+        if (service != null) {
             try {
-                jmdns.unregisterService(currentService);
+                // Сбрасываем состояние до отмены, чтобы прощальное событие не вызвало повторную регистрацию
                 isRegistered.set(false);
                 currentService = null;
+                jmdns.unregisterService(service);
                 logger.info("Регистрация сервиса отменена");
             } catch (Exception e) {
                 logger.error("Ошибка при отмене регистрации: {}", e.getMessage());
@@ -0,0 +1,176 @@
+package com.streamapp.network.mdns;
+
+import com.streamapp.network.model.UserStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Публикация изменяющихся свойств узла (статус, число зрителей, загрузка)
+ * обновлением TXT записи уже зарегистрированного сервиса.
+ * <p>
+ * Повторная регистрация сервиса запускает проверку имени и объявление
+ * заново, а у всех слушателей — удаление и добавление пользователя.
+ * Обновление TXT записи приходит слушателям как повторное разрешение
+ * сервиса. Изменения копятся {@link #DEBOUNCE_MS} и публикуются не чаще
+ * раза в {@link #MIN_INTERVAL_MS}, как требует RFC 6762 для одной записи;
+ * промежуточные значения пропускаются.
+ */
+public class StatusPublisher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StatusPublisher.class);
+
+    /**
+     * Задержка публикации после первого изменения.
+     */
+    public static final long DEBOUNCE_MS = 250;
+
+    /**
+     * Наименьший интервал между публикациями.
+     */
+    public static final long MIN_INTERVAL_MS = 1000;
+
+    private final Consumer<Map<String, String>> sink;
+    private final long debounceNanos;
+    private final long minIntervalNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, String> properties;
+    private Map<String, String> published;
+    private ScheduledFuture<?> pending;
+    private long lastPublishNanos;
+    private long beats;
+
+    /**
+     * Создает публикацию.
+     *
+     * @param initial свойства, с которыми сервис зарегистрирован
+     * @param sink применение новых свойств к TXT записи; вызывается в потоке публикации
+     */
+    public StatusPublisher(Map<String, String> initial, Consumer<Map<String, String>> sink) {
+        this(initial, sink, DEBOUNCE_MS, MIN_INTERVAL_MS);
+    }
+
+    StatusPublisher(Map<String, String> initial, Consumer<Map<String, String>> sink, long debounceMs,
+                    long minIntervalMs) {
+        this.sink = sink;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMs);
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+        this.properties = new HashMap<>(initial);
+        this.published = Map.copyOf(initial);
+        this.lastPublishNanos = System.nanoTime() - minIntervalNanos;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mdns-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param status статус пользователя для TXT записи
+     * @return значение свойства {@link MDNSConstants#TXT_STATUS}
+     */
+    public static String statusValue(UserStatus status) {
+        return status.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Читает статус из TXT записи.
+     *
+     * @param value значение свойства {@link MDNSConstants#TXT_STATUS} или null
+     * @return статус; {@link UserStatus#ONLINE}, если он не объявлен или неизвестен
+     */
+    public static UserStatus parseStatus(String value) {
+        if (value != null) {
+            for (UserStatus status : UserStatus.values()) {
+                if (status.name().equalsIgnoreCase(value)) {
+                    return status;
+                }
+            }
+        }
+        return UserStatus.ONLINE;
+    }
+
+    /**
+     * Меняет статус пользователя.
+     *
+     * @param status новый статус
+     */
+    public void publishStatus(UserStatus status) {
+        publish(Map.of(MDNSConstants.TXT_STATUS, statusValue(status)));
+    }
+
+    /**
+     * Меняет свойства TXT записи; остальные свойства сохраняются.
+     *
+     * @param changes новые значения свойств
+     */
+    public synchronized void publish(Map<String, String> changes) {
+        properties.putAll(changes);
+        if (pending != null || properties.equals(published)) {
+            return;
+        }
+        long earliest = lastPublishNanos + minIntervalNanos - System.nanoTime();
+        long delay = Math.max(debounceNanos, earliest);
+        try {
+            pending = scheduler.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Публикация статуса остановлена");
+        }
+    }
+
+    private void flush() {
+        Map<String, String> snapshot;
+        synchronized (this) {
+            pending = null;
+            if (properties.equals(published)) {
+                return;
+            }
+            snapshot = Map.copyOf(properties);
+            published = snapshot;
+            lastPublishNanos = System.nanoTime();
+        }
+        try {
+            sink.accept(snapshot);
+            logger.debug("TXT запись обновлена: {}", snapshot);
+        } catch (RuntimeException e) {
+            logger.error("Не удалось обновить TXT запись: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Начинает периодически менять свойство {@link MDNSConstants#TXT_BEAT}.
+     * Каждое изменение объявляется в mDNS, и другие узлы видят этот узел
+     * живым, даже когда его статус и свойства не меняются.
+     *
+     * @param intervalMillis интервал между признаками жизни
+     */
+    public void startBeat(long intervalMillis) {
+        try {
+            scheduler.scheduleWithFixedDelay(
+                () -> publish(Map.of(MDNSConstants.TXT_BEAT, Long.toString(++beats))),
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Публикация статуса остановлена");
+        }
+    }
+
+    /**
+     * @return свойства, которые будут опубликованы
+     */
+    public synchronized Map<String, String> getProperties() {
+        return Map.copyOf(properties);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
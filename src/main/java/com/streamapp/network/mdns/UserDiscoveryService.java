@@ -1,9 +1,10 @@
 package com.streamapp.network.mdns;
 
+import com.streamapp.network.avatar.AvatarData;
+import com.streamapp.network.model.PeerCapabilities;
+import com.streamapp.network.model.PeerKey;
 import com.streamapp.network.model.User;
 import com.streamapp.network.model.UserStatus;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,19 +12,57 @@ import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceEvent;
 import javax.jmdns.ServiceInfo;
 import javax.jmdns.ServiceListener;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Сервис для обнаружения пользователей в локальной сети с использованием JmDNS.
  * Обеспечивает регистрацию и обнаружение пользователей в локальной сети.
+ * <p>
+ * События JmDNS приходят в его собственных потоках, поэтому сервис не трогает
+ * наблюдаемые списки JavaFX: изменения копятся в {@link DiscoveryChangeLog},
+ * который интерфейс выбирает в своем потоке.
+ * <p>
+ * Сервис может работать через несколько экземпляров JmDNS, по одному на
+ * сетевой интерфейс ({@link MulticastInterfaces#open()}). Узел, видимый на
+ * нескольких интерфейсах, остается одним пользователем со всеми своими
+ * адресами; для подключения выбирается адрес с наименьшей задержкой ответа.
+ * <p>
+ * Пользователи различаются по {@link PeerKey}, как в реестре узлов: два хоста,
+ * объявившие одно имя сервиса (например, в разных сетях), остаются двумя
+ * пользователями и не вытесняют друг друга.
  */
 public class UserDiscoveryService {
     private static final Logger logger = LoggerFactory.getLogger(UserDiscoveryService.class);
     
-    private final JmDNS jmdns;
-    private final ObservableList<User> discoveredUsers;
-    private final ConcurrentHashMap<String, User> userMap;
-    private final ServiceRegistrationManager registrationManager;
+    private final DiscoveryMetrics metrics = new DiscoveryMetrics();
+    private final Map<JmDNS, ServiceRegistrationManager> registrations;
+    private final Map<JmDNS, ServiceListener> listeners = new LinkedHashMap<>();
+    private final ConcurrentHashMap<PeerKey, User> userMap;
+    /**
+     * Адреса узлов по интерфейсам, через которые они видны.
+     */
+    private final Map<PeerKey, Sighting> sightings = new HashMap<>();
+    private final DiscoveryChangeLog changeLog;
+    private final StatusPublisher statusPublisher;
+    private final PeerLiveness liveness;
+    /**
+     * Пользователи, объявленные недоступными проверкой; возвращаются, если снова ответят.
+     */
+    private final ConcurrentHashMap<PeerKey, User> expiredUsers = new ConcurrentHashMap<>();
     private boolean isDiscoveryStarted = false;
 
     /**
@@ -33,29 +72,124 @@ public class UserDiscoveryService {
      * @param username имя пользователя для регистрации
      */
     public UserDiscoveryService(JmDNS jmdns, String username) {
-        this.jmdns = jmdns;
-        this.discoveredUsers = FXCollections.observableArrayList();
+        this(jmdns, username, Map.of());
+    }
+
+    /**
+     * Создает сервис, объявляющий свойства пользователя в TXT записи,
+     * например возможности узла ({@link PeerCapabilities#toProperties()})
+     * и отпечаток изображения профиля.
+     *
+     * @param jmdns экземпляр JmDNS
+     * @param username имя пользователя для регистрации
+     * @param properties свойства TXT записи
+     */
+    public UserDiscoveryService(JmDNS jmdns, String username, Map<String, String> properties) {
+        this(List.of(jmdns), username, properties, null, PeerLiveness.DEFAULT_DEADLINE_MS);
+    }
+
+    /**
+     * Создает сервис с проверкой доступности узлов: транслирующие узлы
+     * и ретрансляторы, не ответившие на проверку за срок, убираются из списка.
+     * Остальные узлы убираются, если от них за {@link PeerLiveness#DEFAULT_IDLE_DEADLINE_MS}
+     * не было объявлений mDNS.
+     *
+     * @param jmdns экземпляр JmDNS
+     * @param username имя пользователя для регистрации
+     * @param properties свойства TXT записи
+     * @param probe проверка узла через порт сессий; null — без проверки
+     * @param livenessDeadlineMillis срок молчания, после которого узел недоступен
+     */
+    public UserDiscoveryService(JmDNS jmdns, String username, Map<String, String> properties,
+                                PeerLiveness.Probe probe, long livenessDeadlineMillis) {
+        this(List.of(jmdns), username, properties, probe, livenessDeadlineMillis);
+    }
+
+    /**
+     * Создает сервис, работающий на нескольких сетевых интерфейсах: узел
+     * регистрируется и ищет пользователей через каждый экземпляр JmDNS.
+     *
+     * @param interfaces экземпляры JmDNS, по одному на интерфейс
+     * @param username имя пользователя для регистрации
+     * @param properties свойства TXT записи
+     * @param probe проверка узла через порт сессий; null — без проверки
+     * @param livenessDeadlineMillis срок молчания, после которого узел недоступен
+     */
+    public UserDiscoveryService(List<JmDNS> interfaces, String username, Map<String, String> properties,
+                                PeerLiveness.Probe probe, long livenessDeadlineMillis) {
+        this(interfaces, username, properties, probe, livenessDeadlineMillis,
+            Math.max(livenessDeadlineMillis, PeerLiveness.DEFAULT_IDLE_DEADLINE_MS));
+    }
+
+    /**
+     * @param idleDeadlineMillis срок молчания в mDNS, после которого недоступен узел
+     *                           без порта сессий; этот узел подает признаки жизни
+     *                           втрое чаще
+     */
+    UserDiscoveryService(List<JmDNS> interfaces, String username, Map<String, String> properties,
+                         PeerLiveness.Probe probe, long livenessDeadlineMillis, long idleDeadlineMillis) {
+        if (interfaces.isEmpty()) {
+            throw new IllegalArgumentException("Не задан ни один экземпляр JmDNS");
+        }
         this.userMap = new ConcurrentHashMap<>();
-        this.registrationManager = new ServiceRegistrationManager(jmdns);
-        
-        registerService(username);
+        this.changeLog = new DiscoveryChangeLog(metrics);
+        Map<JmDNS, ServiceRegistrationManager> managers = new LinkedHashMap<>();
+        for (JmDNS jmdns : interfaces) {
+            managers.put(jmdns, new ServiceRegistrationManager(jmdns, metrics));
+        }
+        this.registrations = Collections.unmodifiableMap(managers);
+        Map<String, String> initial = new HashMap<>(properties);
+        initial.putIfAbsent(MDNSConstants.TXT_STATUS, StatusPublisher.statusValue(UserStatus.ONLINE));
+        this.statusPublisher = new StatusPublisher(initial, text -> {
+            for (ServiceRegistrationManager manager : registrations.values()) {
+                manager.updateText(text);
+            }
+        });
+        this.liveness = new PeerLiveness(livenessDeadlineMillis, idleDeadlineMillis, probe, new PeerLiveness.Listener() {
+            @Override
+            public void onExpired(PeerKey key) {
+                expire(key);
+            }
+
+            @Override
+            public void onRevived(PeerKey key) {
+                revive(key);
+            }
+
+            @Override
+            public void onPreferredChanged(PeerKey key, InetSocketAddress address) {
+                prefer(key, address.getHostString());
+            }
+        });
+
+        for (ServiceRegistrationManager manager : registrations.values()) {
+            registerService(manager, username, initial);
+        }
+        // Узлы без порта сессий видят этот узел живым по его объявлениям mDNS
+        statusPublisher.startBeat(idleDeadlineMillis / 3);
     }
 
     /**
-     * Регистрирует сервис в локальной сети.
+     * Регистрирует сервис в локальной сети через один экземпляр JmDNS.
+     * У каждого экземпляра своя копия описания сервиса.
      *
+     * @param manager менеджер регистрации экземпляра
      * @param username имя пользователя
+     * @param properties свойства TXT записи
      */
-    private void registerService(String username) {
+    private void registerService(ServiceRegistrationManager manager, String username,
+                                 Map<String, String> properties) {
         try {
             ServiceInfo serviceInfo = ServiceInfo.create(
                 MDNSConstants.SERVICE_TYPE,
                 username,
                 MDNSConstants.DEFAULT_PORT,
-                "StreamApp User"
+                0,
+                0,
+                properties
             );
             
-            if (!registrationManager.registerService(serviceInfo)) {
+            if (!manager.registerService(serviceInfo)) {
                 logger.error("Не удалось зарегистрировать сервис для пользователя: {}", username);
             } else {
                 logger.info("Сервис успешно зарегистрирован для пользователя: {}", username);
@@ -69,68 +203,338 @@ public class UserDiscoveryService {
      * Начинает поиск других пользователей в сети.
      * Если поиск уже запущен, метод не выполняет никаких действий.
      */
-    public void startDiscovery() {
+    public synchronized void startDiscovery() {
         if (isDiscoveryStarted) {
             logger.warn("Поиск пользователей уже запущен");
             return;
         }
 
         try {
-            ServiceListener listener = new ServiceListener() {
-                @Override
-                public void serviceAdded(ServiceEvent event) {
-                    try {
-                        logger.debug("Обнаружен новый сервис: {}", event.getName());
-                        jmdns.requestServiceInfo(event.getType(), event.getName());
-                    } catch (Exception e) {
-                        logger.error("Ошибка при запросе информации о сервисе: {}", e.getMessage(), e);
-                    }
+            for (JmDNS jmdns : registrations.keySet()) {
+                ServiceListener listener = new InterfaceListener(jmdns);
+                jmdns.addServiceListener(MDNSConstants.SERVICE_TYPE, listener);
+                listeners.put(jmdns, listener);
+            }
+            isDiscoveryStarted = true;
+            logger.info("Поиск пользователей успешно запущен на {} интерфейсах", listeners.size());
+        } catch (Exception e) {
+            logger.error("Ошибка при запуске поиска пользователей: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * События одного экземпляра JmDNS.
+     */
+    private final class InterfaceListener implements ServiceListener {
+        private final JmDNS jmdns;
+        private final String networkInterface;
+
+        private InterfaceListener(JmDNS jmdns) {
+            this.jmdns = jmdns;
+            this.networkInterface = interfaceAddress(jmdns);
+        }
+
+        @Override
+        public void serviceAdded(ServiceEvent event) {
+            metrics.serviceAdded(jmdns, event.getName());
+            DiscoveryEvent.commit("added", event.getName(), networkInterface, null);
+            try {
+                logger.debug("Обнаружен новый сервис: {}", event.getName());
+                jmdns.requestServiceInfo(event.getType(), event.getName());
+            } catch (Exception e) {
+                logger.error("Ошибка при запросе информации о сервисе: {}", e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void serviceRemoved(ServiceEvent event) {
+            metrics.serviceRemoved(jmdns, event.getName());
+            DiscoveryEvent.commit("removed", event.getName(), networkInterface, null);
+            registrations.get(jmdns).onServiceRemoved(event.getName());
+            ServiceInfo info = event.getInfo();
+            String server = info != null ? info.getServer() : null;
+            removed(jmdns, event.getName(), server != null && !server.isEmpty() ? server : null);
+        }
+
+        @Override
+        public void serviceResolved(ServiceEvent event) {
+            metrics.serviceResolved(jmdns, event.getName());
+            ServiceInfo info = event.getInfo();
+            DiscoveryEvent.commitResolved(event.getName(), networkInterface,
+                info != null ? info.getInetAddresses() : null);
+            try {
+                if (!resolved(jmdns, info)) {
+                    metrics.resolveFailed();
                 }
+            } catch (Exception e) {
+                metrics.resolveFailed();
+                logger.error("Ошибка при обработке информации о сервисе: {}", e.getMessage(), e);
+            }
+        }
+    }
 
-                @Override
-                public void serviceRemoved(ServiceEvent event) {
-                    String name = event.getName();
-                    User user = userMap.remove(name);
-                    if (user != null) {
-                        discoveredUsers.remove(user);
-                        logger.info("Пользователь отключился: {}", name);
-                    }
+    private static String interfaceAddress(JmDNS jmdns) {
+        try {
+            InetAddress address = jmdns.getInetAddress();
+            return address != null ? address.getHostAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Учитывает разрешение сервиса на одном из интерфейсов.
+     *
+     * @return false, если в разрешении нет адресов
+     */
+    private synchronized boolean resolved(JmDNS source, ServiceInfo info) {
+        String name = info.getName();
+        List<String> addresses = addresses(info.getInetAddresses());
+        if (addresses.isEmpty()) {
+            logger.debug("Сервис {} разрешен без адресов", name);
+            return false;
+        }
+        String server = info.getServer();
+        String host = server != null && !server.isEmpty() ? server : addresses.get(0);
+
+        String avatarHash = info.getPropertyString(MDNSConstants.TXT_AVATAR);
+        int avatarPort = parsePort(info.getPropertyString(MDNSConstants.TXT_AVATAR_PORT));
+        if (!AvatarData.isValidHash(avatarHash) || avatarPort == 0) {
+            avatarHash = null;
+            avatarPort = 0;
+        }
+
+        PeerCapabilities capabilities = PeerCapabilities.fromProperties(info::getPropertyString,
+            info.getPort());
+
+        PeerKey key = new PeerKey(name, host);
+        Sighting sighting = sightings.computeIfAbsent(key, k -> new Sighting());
+        sighting.addresses.put(source, addresses);
+        List<String> candidates = sighting.candidates();
+
+        User user = new User(name, host, preferredAddress(key, candidates), avatarHash, avatarPort, capabilities);
+        user.setStatus(StatusPublisher.parseStatus(info.getPropertyString(MDNSConstants.TXT_STATUS)));
+
+        liveness.seen(key, sessionAddresses(user, candidates));
+        expiredUsers.remove(key);
+
+        User known = userMap.get(key);
+        if (known != null && known.equals(user) && known.getIpAddress().equals(user.getIpAddress())
+                && Objects.equals(known.getAvatarHash(), avatarHash)
+                && known.getAvatarPort() == avatarPort
+                && known.getCapabilities().equals(capabilities)
+                && known.getStatus() == user.getStatus()) {
+            // Повторное объявление уже известного пользователя, в том числе на другом интерфейсе
+            return true;
+        }
+        userMap.put(key, user);
+        changeLog.recordAdded(user);
+        logger.info("Обнаружен новый пользователь: {} ({})", name, user.getIpAddress());
+        return true;
+    }
+
+    /**
+     * Учитывает удаление сервиса на одном из интерфейсов. Пользователь
+     * убирается, только когда он не виден ни на одном интерфейсе.
+     *
+     * @param server имя хоста из события удаления; если оно неизвестно или не
+     *               совпадает ни с одним узлом, удаляются все хосты,
+     *               объявлявшие это имя через данный интерфейс
+     */
+    private synchronized void removed(JmDNS source, String name, String server) {
+        List<PeerKey> keys = new ArrayList<>();
+        PeerKey only = server != null ? new PeerKey(name, server) : null;
+        if (only != null && sightings.containsKey(only)) {
+            keys.add(only);
+        } else {
+            for (PeerKey key : sightings.keySet()) {
+                if (key.getServiceName().equals(name)) {
+                    keys.add(key);
                 }
+            }
+        }
+        for (PeerKey key : keys) {
+            removed(source, key);
+        }
+    }
 
-                @Override
-                public void serviceResolved(ServiceEvent event) {
-                    try {
-                        ServiceInfo info = event.getInfo();
-                        String name = info.getName();
-                        String ipAddress = info.getInetAddresses()[0].getHostAddress();
-                        
-                        User user = new User(name, name, ipAddress);
-                        user.setStatus(UserStatus.ONLINE);
-                        
-                        userMap.put(name, user);
-                        discoveredUsers.add(user);
-                        logger.info("Обнаружен новый пользователь: {} ({})", name, ipAddress);
-                    } catch (Exception e) {
-                        logger.error("Ошибка при обработке информации о сервисе: {}", e.getMessage(), e);
-                    }
+    private void removed(JmDNS source, PeerKey key) {
+        Sighting sighting = sightings.get(key);
+        if (sighting != null) {
+            sighting.addresses.remove(source);
+            if (!sighting.addresses.isEmpty()) {
+                List<String> candidates = sighting.candidates();
+                User user = userMap.get(key);
+                if (user != null) {
+                    liveness.addresses(key, sessionAddresses(user, candidates));
+                    prefer(key, preferredAddress(key, candidates));
                 }
-            };
+                logger.debug("Пользователь {} больше не виден на одном из интерфейсов", key);
+                return;
+            }
+            sightings.remove(key);
+        }
+        if (expiredUsers.remove(key) != null) {
+            liveness.forget(key);
+        }
+        User user = userMap.remove(key);
+        if (user != null) {
+            liveness.forget(key);
+            changeLog.recordRemoved(user);
+            logger.info("Пользователь отключился: {}", key);
+        }
+    }
 
-            jmdns.addServiceListener(MDNSConstants.SERVICE_TYPE, listener);
-            isDiscoveryStarted = true;
-            logger.info("Поиск пользователей успешно запущен");
-        } catch (Exception e) {
-            logger.error("Ошибка при запуске поиска пользователей: {}", e.getMessage(), e);
+    /**
+     * Адреса из записей A и AAAA: сначала IPv4, без повторов.
+     */
+    private static List<String> addresses(InetAddress[] resolved) {
+        if (resolved == null) {
+            return List.of();
+        }
+        List<String> ipv4 = new ArrayList<>();
+        List<String> other = new ArrayList<>();
+        for (InetAddress address : resolved) {
+            List<String> target = address instanceof Inet4Address ? ipv4 : other;
+            String host = address.getHostAddress();
+            if (!target.contains(host)) {
+                target.add(host);
+            }
+        }
+        ipv4.addAll(other);
+        return ipv4;
+    }
+
+    /**
+     * Адрес с наименьшей задержкой по проверкам, а пока задержка не измерена —
+     * первый адрес с первого интерфейса, на котором виден узел.
+     */
+    private String preferredAddress(PeerKey key, List<String> candidates) {
+        InetSocketAddress fastest = liveness.preferred(key);
+        if (fastest != null && candidates.contains(fastest.getHostString())) {
+            return fastest.getHostString();
+        }
+        return candidates.get(0);
+    }
+
+    /**
+     * Переводит пользователя на другой адрес, например более быстрый.
+     */
+    private synchronized void prefer(PeerKey key, String address) {
+        String name = key.getServiceName();
+        User user = userMap.get(key);
+        Sighting sighting = sightings.get(key);
+        if (user == null || address.equals(user.getIpAddress())
+                || sighting == null || !sighting.candidates().contains(address)) {
+            return;
+        }
+        User moved = new User(user.getUsername(), user.getHostname(), address, user.getAvatarHash(),
+            user.getAvatarPort(), user.getCapabilities());
+        moved.setStatus(user.getStatus());
+        userMap.put(key, moved);
+        changeLog.recordAdded(moved);
+        DiscoveryEvent.commit("preferred", name, null, address);
+        logger.info("Пользователь {} доступен быстрее по адресу {}", name, address);
+    }
+
+    /**
+     * Адреса сервера сессий, если узел держит его открытым: транслирует
+     * или ретранслирует. Остальные узлы проверить через него нельзя.
+     */
+    private static List<InetSocketAddress> sessionAddresses(User user, List<String> candidates) {
+        PeerCapabilities capabilities = user.getCapabilities();
+        if (user.getStatus() != UserStatus.STREAMING && capabilities.getRelaySource() == null) {
+            return List.of();
+        }
+        int port = capabilities.getSessionPort() > 0 ? capabilities.getSessionPort() : MDNSConstants.DEFAULT_PORT;
+        List<InetSocketAddress> addresses = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            addresses.add(new InetSocketAddress(candidate, port));
+        }
+        return addresses;
+    }
+
+    /**
+     * Убирает из списка узел, не ответивший на проверку.
+     */
+    private synchronized void expire(PeerKey key) {
+        String name = key.getServiceName();
+        User user = userMap.remove(key);
+        if (user != null) {
+            expiredUsers.put(key, user);
+            changeLog.recordRemoved(user);
+            DiscoveryEvent.commit("expired", name, null, user.getIpAddress());
+            logger.info("Пользователь недоступен: {}", name);
         }
     }
 
     /**
-     * Возвращает список обнаруженных пользователей.
+     * Возвращает в список узел, снова ответивший на проверку.
+     */
+    private synchronized void revive(PeerKey key) {
+        String name = key.getServiceName();
+        User user = expiredUsers.remove(key);
+        if (user != null && userMap.putIfAbsent(key, user) == null) {
+            changeLog.recordAdded(user);
+            DiscoveryEvent.commit("revived", name, null, user.getIpAddress());
+            logger.info("Пользователь снова доступен: {}", name);
+        }
+    }
+
+    private static int parsePort(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            int port = Integer.parseInt(value);
+            return port > 0 && port <= 0xFFFF ? port : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Возвращает обнаруженных пользователей. Коллекция отражает текущее
+     * состояние и безопасна для чтения из любого потока.
+     *
+     * @return неизменяемое представление обнаруженных пользователей
+     */
+    public Collection<User> getDiscoveredUsers() {
+        return Collections.unmodifiableCollection(userMap.values());
+    }
+
+    /**
+     * Возвращает журнал изменений для применения в потоке интерфейса.
+     *
+     * @return журнал изменений
+     */
+    public DiscoveryChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    /**
+     * @return показатели обнаружения и регистрации
+     */
+    public DiscoveryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Публикует статус пользователя обновлением TXT записи.
+     *
+     * @param status новый статус
+     */
+    public void publishStatus(UserStatus status) {
+        statusPublisher.publishStatus(status);
+    }
+
+    /**
+     * Публикует изменившиеся свойства TXT записи, например число зрителей и загрузку.
      *
-     * @return список пользователей
+     * @param properties новые значения свойств
      */
-    public ObservableList<User> getDiscoveredUsers() {
-        return discoveredUsers;
+    public void publishProperties(Map<String, String> properties) {
+        statusPublisher.publish(properties);
     }
 
     /**
@@ -138,7 +542,7 @@ public class UserDiscoveryService {
      *
      * @return true, если поиск запущен
      */
-    public boolean isDiscoveryStarted() {
+    public synchronized boolean isDiscoveryStarted() {
         return isDiscoveryStarted;
     }
 
@@ -147,15 +551,40 @@ public class UserDiscoveryService {
      */
     public void shutdown() {
         try {
-            if (isDiscoveryStarted) {
-                jmdns.removeServiceListener(MDNSConstants.SERVICE_TYPE, null);
+            synchronized (this) {
+                for (Map.Entry<JmDNS, ServiceListener> entry : listeners.entrySet()) {
+                    entry.getKey().removeServiceListener(MDNSConstants.SERVICE_TYPE, entry.getValue());
+                }
+                listeners.clear();
                 isDiscoveryStarted = false;
             }
-            registrationManager.unregisterService();
-            registrationManager.close();
+            statusPublisher.close();
+            liveness.close();
+            for (ServiceRegistrationManager manager : registrations.values()) {
+                manager.unregisterService();
+                manager.close();
+            }
             logger.info("Сервис обнаружения успешно остановлен");
         } catch (Exception e) {
             logger.error("Ошибка при остановке сервиса: {}", e.getMessage(), e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Узел, видимый на одном или нескольких интерфейсах.
+     */
+    private static final class Sighting {
+        private final Map<JmDNS, List<String>> addresses = new LinkedHashMap<>();
+
+        /**
+         * @return адреса узла со всех интерфейсов без повторов, в порядке интерфейсов
+         */
+        private List<String> candidates() {
+            Set<String> candidates = new LinkedHashSet<>();
+            for (List<String> list : addresses.values()) {
+                candidates.addAll(list);
+            }
+            return new ArrayList<>(candidates);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.streamapp.network.model;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.network.mdns.MDNSConstants;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Возможности и загрузка узла, объявляемые в TXT записи mDNS.
+ * <p>
+ * По ним зритель выбирает узел и параметры трансляции до подключения:
+ * кодеки плиток, транспорты кадров, наибольшие разрешение и частоту кадров,
+ * текущее число зрителей и загрузку, порт сервера сессий. Значения
+ * записываются короткими ключами, чтобы запись помещалась в один пакет mDNS.
+ * Порт сессий берется из SRV записи и в TXT не дублируется.
+ */
+public final class PeerCapabilities {
+    /**
+     * Возможности узла без TXT записи (старая версия приложения):
+     * ограничения неизвестны, поэтому не применяются.
+     */
+    public static final PeerCapabilities UNKNOWN = new PeerCapabilities(0, EnumSet.allOf(TransportType.class),
+        0, 0, 0, 0, 0, 0, 0, null);
+
+    /**
+     * Порядок выбора узла: сначала узлы со свободными местами, затем менее
+     * загруженные, затем с меньшим числом зрителей.
+     */
+    public static final Comparator<PeerCapabilities> BEST_FIRST = Comparator
+        .comparing((PeerCapabilities capabilities) -> !capabilities.hasCapacity())
+        .thenComparingInt(PeerCapabilities::getLoad)
+        .thenComparingInt(PeerCapabilities::getViewers);
+
+    private final int codecMask;
+    private final Set<TransportType> transports;
+    private final int maxWidth;
+    private final int maxHeight;
+    private final int maxFps;
+    private final int viewers;
+    private final int maxViewers;
+    private final int load;
+    private final int sessionPort;
+    private final String relaySource;
+
+    /**
+     * Создает описание возможностей узла.
+     *
+     * @param codecMask битовая маска идентификаторов кодеков плиток; 0 — неизвестно
+     * @param transports поддерживаемые транспорты кадров
+     * @param maxWidth наибольшая ширина кадра; 0 — неизвестно
+     * @param maxHeight наибольшая высота кадра; 0 — неизвестно
+     * @param maxFps наибольшая частота кадров; 0 — неизвестно
+     * @param viewers текущее число зрителей
+     * @param maxViewers наибольшее число зрителей; 0 — неизвестно
+     * @param load загрузка узла в процентах
+     * @param sessionPort порт сервера сессий; 0 — порт по умолчанию
+     * @param relaySource имя ретранслируемого владельца экрана или null
+     */
+    public PeerCapabilities(int codecMask, Set<TransportType> transports, int maxWidth, int maxHeight, int maxFps,
+                            int viewers, int maxViewers, int load, int sessionPort, String relaySource) {
+        this.codecMask = codecMask;
+        this.transports = transports.isEmpty()
+            ? EnumSet.noneOf(TransportType.class)
+            : EnumSet.copyOf(transports);
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.maxFps = maxFps;
+        this.viewers = viewers;
+        this.maxViewers = maxViewers;
+        this.load = Math.max(0, Math.min(100, load));
+        this.sessionPort = sessionPort;
+        this.relaySource = relaySource;
+    }
+
+    /**
+     * @param codecId идентификатор кодека плиток
+     * @return битовая маска с одним кодеком
+     */
+    public static int codecBit(byte codecId) {
+        return 1 << codecId;
+    }
+
+    /**
+     * Возвращает копию с новыми числом зрителей и загрузкой.
+     *
+     * @param viewers текущее число зрителей
+     * @param load загрузка в процентах
+     * @return обновленные возможности
+     */
+    public PeerCapabilities withLoad(int viewers, int load) {
+        return new PeerCapabilities(codecMask, transports, maxWidth, maxHeight, maxFps, viewers, maxViewers, load,
+            sessionPort, relaySource);
+    }
+
+    /**
+     * @param codecId идентификатор кодека плиток
+     * @return true, если узел кодирует плитки этим кодеком или кодеки неизвестны
+     */
+    public boolean supportsCodec(byte codecId) {
+        return codecMask == 0 || (codecMask & codecBit(codecId)) != 0;
+    }
+
+    public boolean supports(TransportType transport) {
+        return transports.contains(transport);
+    }
+
+    /**
+     * @return UDP, если узел его поддерживает, иначе TCP
+     */
+    public TransportType preferredTransport() {
+        return supports(TransportType.UDP) ? TransportType.UDP : TransportType.TCP;
+    }
+
+    /**
+     * @return true, если узел может принять еще одного зрителя
+     */
+    public boolean hasCapacity() {
+        return maxViewers == 0 || viewers < maxViewers;
+    }
+
+    public int getCodecMask() {
+        return codecMask;
+    }
+
+    public Set<TransportType> getTransports() {
+        return transports;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public int getMaxFps() {
+        return maxFps;
+    }
+
+    public int getViewers() {
+        return viewers;
+    }
+
+    public int getMaxViewers() {
+        return maxViewers;
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    public int getSessionPort() {
+        return sessionPort;
+    }
+
+    /**
+     * @return имя ретранслируемого владельца экрана или null, если узел не ретранслятор
+     */
+    public String getRelaySource() {
+        return relaySource;
+    }
+
+    /**
+     * Записывает возможности в свойства TXT записи. Неизвестные значения пропускаются.
+     *
+     * @return свойства TXT записи
+     */
+    public Map<String, String> toProperties() {
+        Map<String, String> properties = new HashMap<>();
+        if (codecMask != 0) {
+            StringBuilder codecs = new StringBuilder();
+            for (int id = 0; id < Integer.SIZE; id++) {
+                if ((codecMask & (1 << id)) != 0) {
+                    codecs.append(codecs.length() > 0 ? "," : "").append(id);
+                }
+            }
+            properties.put(MDNSConstants.TXT_CODECS, codecs.toString());
+        }
+        StringBuilder names = new StringBuilder();
+        for (TransportType transport : transports) {
+            names.append(names.length() > 0 ? "," : "").append(transport.name().toLowerCase(Locale.ROOT));
+        }
+        properties.put(MDNSConstants.TXT_TRANSPORTS, names.toString());
+        if (maxWidth > 0 && maxHeight > 0) {
+            properties.put(MDNSConstants.TXT_MAX_RESOLUTION, maxWidth + "x" + maxHeight);
+        }
+        if (maxFps > 0) {
+            properties.put(MDNSConstants.TXT_MAX_FPS, String.valueOf(maxFps));
+        }
+        properties.put(MDNSConstants.TXT_VIEWERS, maxViewers > 0 ? viewers + "/" + maxViewers : String.valueOf(viewers));
+        properties.put(MDNSConstants.TXT_LOAD, String.valueOf(load));
+        if (relaySource != null) {
+            properties.put(MDNSConstants.TXT_ROLE, MDNSConstants.ROLE_RELAY);
+            properties.put(MDNSConstants.TXT_RELAY_SOURCE, relaySource);
+        }
+        return properties;
+    }
+
+    /**
+     * Читает возможности из свойств TXT записи. Некорректные значения
+     * считаются неизвестными.
+     *
+     * @param properties чтение свойства по ключу; null для отсутствующего
+     * @param sessionPort порт сервера сессий из SRV записи
+     * @return возможности узла; {@link #UNKNOWN} с портом, если записи возможностей нет
+     */
+    public static PeerCapabilities fromProperties(Function<String, String> properties, int sessionPort) {
+        String transportList = properties.apply(MDNSConstants.TXT_TRANSPORTS);
+        String relaySource = MDNSConstants.ROLE_RELAY.equals(properties.apply(MDNSConstants.TXT_ROLE))
+            ? properties.apply(MDNSConstants.TXT_RELAY_SOURCE)
+            : null;
+        if (transportList == null) {
+            return new PeerCapabilities(0, UNKNOWN.transports, 0, 0, 0, 0, 0, 0, sessionPort, relaySource);
+        }
+        int codecMask = 0;
+        for (String id : split(properties.apply(MDNSConstants.TXT_CODECS))) {
+            int value = parse(id);
+            if (value >= 0 && value < Integer.SIZE) {
+                codecMask |= 1 << value;
+            }
+        }
+        Set<TransportType> transports = EnumSet.noneOf(TransportType.class);
+        for (String name : split(transportList)) {
+            for (TransportType transport : TransportType.values()) {
+                if (transport.name().equalsIgnoreCase(name)) {
+                    transports.add(transport);
+                }
+            }
+        }
+        int maxWidth = 0;
+        int maxHeight = 0;
+        String resolution = properties.apply(MDNSConstants.TXT_MAX_RESOLUTION);
+        int separator = resolution != null ? resolution.indexOf('x') : -1;
+        if (separator > 0) {
+            maxWidth = Math.max(0, parse(resolution.substring(0, separator)));
+            maxHeight = Math.max(0, parse(resolution.substring(separator + 1)));
+        }
+        int viewers = 0;
+        int maxViewers = 0;
+        String viewerCount = properties.apply(MDNSConstants.TXT_VIEWERS);
+        if (viewerCount != null) {
+            int slash = viewerCount.indexOf('/');
+            viewers = Math.max(0, parse(slash >= 0 ? viewerCount.substring(0, slash) : viewerCount));
+            maxViewers = slash >= 0 ? Math.max(0, parse(viewerCount.substring(slash + 1))) : 0;
+        }
+        return new PeerCapabilities(codecMask, transports, maxWidth, maxHeight,
+            Math.max(0, parse(properties.apply(MDNSConstants.TXT_MAX_FPS))), viewers, maxViewers,
+            parse(properties.apply(MDNSConstants.TXT_LOAD)), sessionPort, relaySource);
+    }
+
+    private static String[] split(String list) {
+        return list == null || list.isEmpty() ? new String[0] : list.split(",");
+    }
+
+    private static int parse(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PeerCapabilities that = (PeerCapabilities) o;
+        return codecMask == that.codecMask &&
+                maxWidth == that.maxWidth &&
+                maxHeight == that.maxHeight &&
+                maxFps == that.maxFps &&
+                viewers == that.viewers &&
+                maxViewers == that.maxViewers &&
+                load == that.load &&
+                sessionPort == that.sessionPort &&
+                transports.equals(that.transports) &&
+                Objects.equals(relaySource, that.relaySource);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(codecMask, transports, maxWidth, maxHeight, maxFps, viewers, maxViewers, load,
+            sessionPort, relaySource);
+    }
+
+    @Override
+    public String toString() {
+        return "PeerCapabilities{" +
+                "codecMask=" + codecMask +
+                ", transports=" + transports +
+                ", maxResolution=" + maxWidth + "x" + maxHeight +
+                ", maxFps=" + maxFps +
+                ", viewers=" + viewers + "/" + maxViewers +
+                ", load=" + load +
+                ", sessionPort=" + sessionPort +
+                ", relaySource=" + relaySource +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.streamapp.network.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Постоянный ключ узла в сети: имя сервиса mDNS и имя хоста.
+ * Не меняется при повторных разрешениях сервиса, поэтому по нему
+ * узнается уже известный пользователь.
+ */
+public final class PeerKey {
+    private final String serviceName;
+    private final String host;
+    private final int hash;
+
+    /**
+     * Создает ключ узла.
+     *
+     * @param serviceName имя сервиса mDNS
+     * @param host имя хоста; регистр и завершающая точка не учитываются
+     */
+    public PeerKey(String serviceName, String host) {
+        this.serviceName = Objects.requireNonNull(serviceName, "serviceName");
+        this.host = normalizeHost(Objects.requireNonNull(host, "host"));
+        this.hash = Objects.hash(this.serviceName, this.host);
+    }
+
+    private static String normalizeHost(String host) {
+        String normalized = host.toLowerCase(Locale.ROOT);
+        return normalized.endsWith(".") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return идентификатор, одинаковый для всех разрешений одного узла
+     */
+    public UUID toUuid() {
+        return UUID.nameUUIDFromBytes(toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PeerKey that = (PeerKey) o;
+        return serviceName.equals(that.serviceName) && host.equals(that.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return serviceName + "@" + host;
+    }
+}
@@ -3,23 +3,46 @@ package com.streamapp.network.model;
 import java.util.UUID;
 
 /**
- * Класс, представляющий информацию о пользователе в сети
+ * Класс, представляющий информацию о пользователе в сети.
+ * Пользователи равны, если совпадает их {@link PeerKey}.
  */
 public class User {
+    private final PeerKey key;
     private final UUID id;
     private final String username;
     private final String hostname;
     private final String ipAddress;
+    private final String avatarHash;
+    private final int avatarPort;
+    private final PeerCapabilities capabilities;
     private UserStatus status;
 
     public User(String username, String hostname, String ipAddress) {
-        this.id = UUID.randomUUID();
+        this(username, hostname, ipAddress, null, 0, PeerCapabilities.UNKNOWN);
+    }
+
+    /**
+     * @param avatarHash объявленный отпечаток изображения профиля или null
+     * @param avatarPort порт сервера изображения профиля; 0, если изображения нет
+     * @param capabilities объявленные возможности узла
+     */
+    public User(String username, String hostname, String ipAddress, String avatarHash, int avatarPort,
+                PeerCapabilities capabilities) {
+        this.key = new PeerKey(username, hostname);
+        this.id = key.toUuid();
         this.username = username;
         this.hostname = hostname;
         this.ipAddress = ipAddress;
+        this.avatarHash = avatarHash;
+        this.avatarPort = avatarPort;
+        this.capabilities = capabilities;
         this.status = UserStatus.OFFLINE;
     }
 
+    public PeerKey getKey() {
+        return key;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -36,6 +59,18 @@ public class User {
         return ipAddress;
     }
 
+    public String getAvatarHash() {
+        return avatarHash;
+    }
+
+    public int getAvatarPort() {
+        return avatarPort;
+    }
+
+    public PeerCapabilities getCapabilities() {
+        return capabilities;
+    }
+
     public UserStatus getStatus() {
         return status;
     }
@@ -49,11 +84,11 @@ public class User {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         User user = (User) o;
-        return id.equals(user.id);
+        return key.equals(user.key);
     }
 
     @Override
     public int hashCode() {
-        return id.hashCode();
+        return key.hashCode();
     }
 } 
\ No newline at end of file
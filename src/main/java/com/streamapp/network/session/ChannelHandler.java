@@ -0,0 +1,34 @@
+package com.streamapp.network.session;
+
+import java.io.IOException;
+
+/**
+ * Обработчик событий готовности канала, зарегистрированного в {@link NioReactor}.
+ * Все методы вызываются в потоке реактора.
+ */
+public interface ChannelHandler {
+
+    default void onAcceptable() throws IOException {
+    }
+
+    default void onConnectable() throws IOException {
+    }
+
+    default void onReadable() throws IOException {
+    }
+
+    default void onWritable() throws IOException {
+    }
+
+    /**
+     * Вызывается при ошибке ввода-вывода в одном из обработчиков.
+     *
+     * @param e возникшая ошибка
+     */
+    void onError(IOException e);
+
+    /**
+     * Закрывает канал при остановке реактора.
+     */
+    void close();
+}
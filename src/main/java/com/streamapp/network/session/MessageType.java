@@ -0,0 +1,113 @@
+package com.streamapp.network.session;
+
+/**
+ * Типы сообщений бинарного протокола сессии трансляции.
+ */
+public enum MessageType {
+    /**
+     * Запрос трансляции от зрителя. Полезная нагрузка: имя пользователя.
+     */
+    STREAM_REQUEST(1),
+
+    /**
+     * Подтверждение запроса владельцем экрана. Полезная нагрузка: транспорт кадров
+     * (1 байт), маркер сессии (int64) для возобновления после обрыва, UDP-порт
+     * отправителя кадров (uint16, 0 для TCP) и наибольший размер кадра (int32,
+     * 0 — неизвестен). Последние два поля старые владельцы экрана не передают.
+     */
+    STREAM_ACCEPT(2),
+
+    /**
+     * Отказ в трансляции. Полезная нагрузка: причина.
+     */
+    STREAM_REJECT(3),
+
+    /**
+     * Завершение трансляции любой из сторон.
+     */
+    STREAM_STOP(4),
+
+    /**
+     * Закодированный кадр (см. {@link com.streamapp.streaming.encode.EncodedFrame}).
+     */
+    FRAME(5),
+
+    /**
+     * Подтверждение получения кадра. Полезная нагрузка: номер кадра (int64).
+     */
+    FRAME_ACK(6),
+
+    /**
+     * Запрос опорного кадра от зрителя.
+     */
+    KEYFRAME_REQUEST(7),
+
+    /**
+     * Замер задержки. Полезная нагрузка: метка времени отправителя (int64).
+     */
+    PING(8),
+
+    /**
+     * Ответ на {@link #PING} с той же меткой времени.
+     */
+    PONG(9),
+
+    /**
+     * Возобновление трансляции после обрыва соединения без повторного подтверждения.
+     * Полезная нагрузка: см. {@link com.streamapp.streaming.StreamResume}.
+     * Ответ — {@link #STREAM_ACCEPT} или {@link #STREAM_REJECT}.
+     */
+    STREAM_RESUME(10),
+
+    /**
+     * Положение указателя мыши (см. {@link com.streamapp.streaming.cursor.CursorState}).
+     * Передается отдельно от кадров, как только указатель сдвинется.
+     */
+    CURSOR_POSITION(11),
+
+    /**
+     * Изображение указателя мыши (см. {@link com.streamapp.streaming.cursor.CursorShape}).
+     * Передается зрителю один раз перед первым положением с этим изображением.
+     */
+    CURSOR_SHAPE(12),
+
+    /**
+     * Запрос изображения профиля. Полезная нагрузка: отпечаток изображения.
+     * Ответ — {@link #AVATAR_DATA}, после которого соединение закрывается.
+     */
+    AVATAR_REQUEST(13),
+
+    /**
+     * Изображение профиля. Полезная нагрузка: отпечаток и байты файла
+     * изображения до конца сообщения; без байтов, если отпечаток неизвестен.
+     */
+    AVATAR_DATA(14);
+
+    private static final MessageType[] BY_CODE = new MessageType[128];
+
+    static {
+        for (MessageType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    MessageType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Находит тип сообщения по коду.
+     *
+     * @param code код из заголовка сообщения
+     * @return тип сообщения или null для неизвестного кода
+     */
+    public static MessageType fromCode(byte code) {
+        return code >= 0 ? BY_CODE[code] : null;
+    }
+}
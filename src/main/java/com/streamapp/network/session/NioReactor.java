@@ -0,0 +1,270 @@
+package com.streamapp.network.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Однопоточный цикл {@link Selector}, обслуживающий все сетевые каналы сессий.
+ * Управляющие сообщения и кадры всех сессий обрабатываются одним потоком,
+ * без выделения потока на соединение.
+ */
+public class NioReactor implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NioReactor.class);
+
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<TimedTask> timers =
+        new PriorityQueue<>(Comparator.comparingLong((TimedTask t) -> t.deadline));
+    private volatile boolean running;
+
+    /**
+     * Создает реактор.
+     *
+     * @param name имя потока реактора
+     * @throws IOException если не удалось открыть селектор
+     */
+    public NioReactor(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Запускает поток реактора.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread.start();
+        logger.info("Сетевой реактор {} запущен", thread.getName());
+    }
+
+    /**
+     * Проверяет, что вызов выполняется в потоке реактора.
+     *
+     * @return true для потока реактора
+     */
+    public boolean inReactorThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Выполняет задачу в потоке реактора.
+     *
+     * @param task задача
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (!inReactorThread()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Выполняет задачу в потоке реактора и возвращает ее результат.
+     * В потоке реактора задача выполняется сразу, поэтому ожидание результата
+     * не блокирует реактор, например при открытии транспорта из обработчика сообщения.
+     *
+     * @param task задача
+     * @param <T> тип результата
+     * @return будущий результат задачи
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable run = () -> {
+            try {
+                future.complete(task.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+        if (inReactorThread()) {
+            run.run();
+        } else {
+            execute(run);
+        }
+        return future;
+    }
+
+    /**
+     * Регистрирует канал в селекторе. Вызывается только из потока реактора.
+     *
+     * @param channel неблокирующий канал
+     * @param ops интересующие операции
+     * @param handler обработчик событий канала
+     * @return ключ регистрации
+     * @throws ClosedChannelException если канал закрыт
+     */
+    public SelectionKey register(SelectableChannel channel, int ops, ChannelHandler handler)
+            throws ClosedChannelException {
+        return channel.register(selector, ops, handler);
+    }
+
+    /**
+     * Выполняет задачу в потоке реактора через заданное время.
+     *
+     * @param task задача
+     * @param delay задержка
+     * @param unit единица измерения задержки
+     * @return отменяемая запланированная задача
+     */
+    public TimedTask schedule(Runnable task, long delay, TimeUnit unit) {
+        TimedTask timed = new TimedTask(task, System.nanoTime() + unit.toNanos(delay));
+        execute(() -> timers.add(timed));
+        return timed;
+    }
+
+    private long nextTimerDelayMillis() {
+        TimedTask next = timers.peek();
+        if (next == null) {
+            return 0;
+        }
+        long delayNanos = next.deadline - System.nanoTime();
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos + 999_999));
+    }
+
+    private void runTimers() {
+        long now = System.nanoTime();
+        TimedTask next;
+        while ((next = timers.peek()) != null && next.deadline - now <= 0) {
+            timers.poll();
+            if (!next.cancelled) {
+                try {
+                    next.task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Ошибка при выполнении отложенной задачи: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                // Задачи, поставленные из самого потока реактора, не будят селектор
+                if (!tasks.isEmpty()) {
+                    selector.selectNow();
+                } else if (timers.isEmpty()) {
+                    selector.select();
+                } else {
+                    selector.select(nextTimerDelayMillis());
+                }
+                runTasks();
+                runTimers();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    dispatch(key);
+                }
+            } catch (IOException e) {
+                logger.error("Ошибка в цикле сетевого реактора: {}", e.getMessage(), e);
+            } catch (RuntimeException e) {
+                logger.error("Необработанное исключение в сетевом реакторе: {}", e.getMessage(), e);
+            }
+        }
+        runTasks();
+        closeChannels();
+    }
+
+    private void dispatch(SelectionKey key) {
+        ChannelHandler handler = (ChannelHandler) key.attachment();
+        try {
+            if (key.isValid() && key.isAcceptable()) {
+                handler.onAcceptable();
+            }
+            if (key.isValid() && key.isConnectable()) {
+                handler.onConnectable();
+            }
+            if (key.isValid() && key.isReadable()) {
+                handler.onReadable();
+            }
+            if (key.isValid() && key.isWritable()) {
+                handler.onWritable();
+            }
+        } catch (IOException e) {
+            handler.onError(e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Ошибка при выполнении задачи реактора: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void closeChannels() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof ChannelHandler handler) {
+                handler.close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Ошибка при закрытии селектора: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Останавливает реактор и закрывает все каналы.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        if (!inReactorThread()) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("Сетевой реактор {} остановлен", thread.getName());
+    }
+
+    /**
+     * Задача, запланированная через {@link #schedule(Runnable, long, TimeUnit)}.
+     */
+    public static final class TimedTask {
+        private final Runnable task;
+        private final long deadline;
+        private volatile boolean cancelled;
+
+        private TimedTask(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Отменяет задачу, если она еще не выполнена.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.streamapp.network.session;
+
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Неблокирующий клиент сессий. Соединения обслуживаются тем же реактором,
+ * что и серверные, поэтому отдельный поток на соединение не нужен.
+ */
+public class SessionClient {
+    private static final Logger logger = LoggerFactory.getLogger(SessionClient.class);
+
+    /**
+     * Наибольшее время установки соединения. Без него подключение
+     * к выключенному узлу ждет таймаута TCP операционной системы.
+     */
+    public static final long CONNECT_TIMEOUT_MS = 3000;
+
+    private final NioReactor reactor;
+    private final DirectBufferPool pool;
+
+    /**
+     * Создает клиент.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     */
+    public SessionClient(NioReactor reactor, DirectBufferPool pool) {
+        this.reactor = reactor;
+        this.pool = pool;
+    }
+
+    public NioReactor getReactor() {
+        return reactor;
+    }
+
+    /**
+     * Открывает соединение с удаленным узлом.
+     *
+     * @param address адрес узла
+     * @param handler обработчик событий соединения
+     * @return соединение, завершаемое после установки связи; ошибкой, если связь
+     *         не установлена за {@link #CONNECT_TIMEOUT_MS}
+     */
+    public CompletableFuture<SessionConnection> connect(InetSocketAddress address, SessionHandler handler) {
+        CompletableFuture<SessionConnection> result = new CompletableFuture<>();
+        SessionHandler completing = new SessionHandler() {
+            @Override
+            public void onConnected(SessionConnection connection) {
+                result.complete(connection);
+                handler.onConnected(connection);
+            }
+
+            @Override
+            public void onMessage(SessionConnection connection, MessageType type, ByteBuffer payload) {
+                handler.onMessage(connection, type, payload);
+            }
+
+            @Override
+            public void onDisconnected(SessionConnection connection) {
+                if (result.completeExceptionally(new IOException("Не удалось подключиться к " + address))) {
+                    return;
+                }
+                handler.onDisconnected(connection);
+            }
+        };
+
+        reactor.execute(() -> {
+            try {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SessionConnection connection = new SessionConnection(channel, reactor, pool, completing, address);
+                if (channel.connect(address)) {
+                    connection.register(SelectionKey.OP_READ);
+                    connection.connected();
+                } else {
+                    connection.register(SelectionKey.OP_CONNECT);
+                    reactor.schedule(() -> {
+                        if (!result.isDone()) {
+                            logger.debug("Узел {} не ответил на подключение", address);
+                            connection.close();
+                        }
+                    }, CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException e) {
+                logger.error("Ошибка подключения к {}: {}", address, e.getMessage());
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+}
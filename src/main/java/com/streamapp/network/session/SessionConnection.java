@@ -0,0 +1,376 @@
+package com.streamapp.network.session;
+
+import com.streamapp.network.FrameTransport;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Неблокирующее соединение сессии поверх {@link SocketChannel}.
+ * Сообщения кодируются прямо в буферы из {@link DirectBufferPool} и
+ * декодируются из постоянного прямого буфера чтения без промежуточных копий.
+ * Методы отправки потокобезопасны.
+ */
+public class SessionConnection implements ChannelHandler {
+    private static final Logger logger = LoggerFactory.getLogger(SessionConnection.class);
+    private static final int INITIAL_READ_BUFFER = 64 * 1024;
+    private static final long NOT_MARKED = Long.MIN_VALUE;
+
+    private final SocketChannel channel;
+    private final NioReactor reactor;
+    private final DirectBufferPool pool;
+    private final SessionHandler handler;
+    private final ConcurrentLinkedQueue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicLong enqueuedTotal = new AtomicLong();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean closeAfterFlush;
+    private final SocketAddress remoteAddress;
+    private SelectionKey key;
+    private ByteBuffer readBuffer;
+    private volatile Object attachment;
+    private volatile FrameTransport.QueueLatencyListener queueLatencyListener;
+    /**
+     * Отмеченный кадр или null. Время ожидания измеряется выборочно, по одному
+     * кадру за раз, чтобы не хранить время каждого буфера очереди. Отметку
+     * ставит поток отправителя, снимает поток реактора; она публикуется целиком
+     * через ссылку, поэтому реактор не видит номер одного кадра со временем другого.
+     */
+    private final AtomicReference<QueueMark> mark = new AtomicReference<>();
+    // Только поток реактора
+    private long writtenTotal;
+
+    SessionConnection(SocketChannel channel, NioReactor reactor, DirectBufferPool pool, SessionHandler handler,
+                      SocketAddress remoteAddress) {
+        this.channel = channel;
+        this.reactor = reactor;
+        this.pool = pool;
+        this.handler = handler;
+        this.remoteAddress = remoteAddress;
+    }
+
+    void register(int ops) throws IOException {
+        readBuffer = pool.acquire(INITIAL_READ_BUFFER);
+        key = reactor.register(channel, ops, this);
+    }
+
+    void connected() {
+        handler.onConnected(this);
+    }
+
+    /**
+     * Отправляет сообщение без полезной нагрузки.
+     *
+     * @param type тип сообщения
+     */
+    public void send(MessageType type) {
+        send(type, 0, null);
+    }
+
+    /**
+     * Отправляет сообщение, полезная нагрузка которого записывается
+     * прямо в выходной буфер.
+     *
+     * @param type тип сообщения
+     * @param payloadSize точный размер полезной нагрузки
+     * @param writer запись полезной нагрузки; может быть null при нулевом размере
+     */
+    public void send(MessageType type, int payloadSize, Consumer<ByteBuffer> writer) {
+        if (payloadSize < 0 || payloadSize > SessionProtocol.MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер сообщения: " + payloadSize);
+        }
+        if (closed.get()) {
+            return;
+        }
+        enqueue(SessionProtocol.encode(pool, type, payloadSize, writer), NOT_MARKED, 0);
+    }
+
+    /**
+     * Отправляет закодированный кадр.
+     *
+     * @param frame кадр
+     */
+    public void sendFrame(EncodedFrame frame) {
+        int payloadSize = frame.serializedSize();
+        if (closed.get()) {
+            return;
+        }
+        long start = System.nanoTime();
+        ByteBuffer buffer = SessionProtocol.encode(pool, MessageType.FRAME, payloadSize, frame::writeTo);
+        boolean marking = queueLatencyListener != null && mark.get() == null;
+        enqueue(buffer, marking ? frame.getFrameId() : NOT_MARKED, start);
+    }
+
+    /**
+     * Отправляет подтверждение получения кадра.
+     *
+     * @param frameId номер кадра
+     */
+    public void sendAck(long frameId) {
+        send(MessageType.FRAME_ACK, Long.BYTES, buffer -> buffer.putLong(frameId));
+    }
+
+    /**
+     * @param markFrameId номер кадра для отметки или {@link #NOT_MARKED}
+     */
+    private void enqueue(ByteBuffer buffer, long markFrameId, long startNanos) {
+        queuedBytes.addAndGet(buffer.remaining());
+        long endOffset = enqueuedTotal.addAndGet(buffer.remaining());
+        if (markFrameId != NOT_MARKED) {
+            // Отметка ставится до того, как буфер станет виден реактору; из
+            // нескольких отправителей отмечает только первый
+            mark.compareAndSet(null, new QueueMark(endOffset, startNanos, markFrameId));
+        }
+        writeQueue.offer(buffer);
+        if (closed.get()) {
+            // Соединение закрылось, пока сообщение кодировалось: close() мог уже
+            // опустошить очередь, и этот буфер больше никто не освободит
+            discardQueued();
+            return;
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            reactor.execute(this::enableWrite);
+        }
+    }
+
+    private void enableWrite() {
+        if (key != null && key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    @Override
+    public void onConnectable() throws IOException {
+        channel.finishConnect();
+        int ops = SelectionKey.OP_READ;
+        if (!writeQueue.isEmpty()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+        connected();
+    }
+
+    @Override
+    public void onWritable() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.peek()) != null) {
+            int written = channel.write(buffer);
+            queuedBytes.addAndGet(-written);
+            writtenTotal += written;
+            QueueMark marked = mark.get();
+            if (marked != null && writtenTotal >= marked.endOffset) {
+                long waited = System.nanoTime() - marked.enqueuedNanos;
+                mark.set(null);
+                FrameTransport.QueueLatencyListener listener = queueLatencyListener;
+                if (listener != null) {
+                    listener.onWritten(marked.frameId, waited);
+                }
+            }
+            if (buffer.hasRemaining()) {
+                // Буфер сокета заполнен: ждем следующей готовности на запись
+                return;
+            }
+            writeQueue.poll();
+            pool.release(buffer);
+        }
+        if (closeAfterFlush) {
+            close();
+            return;
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        writeScheduled.set(false);
+        if (!writeQueue.isEmpty() && writeScheduled.compareAndSet(false, true)) {
+            enableWrite();
+        }
+    }
+
+    @Override
+    public void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            close();
+            return;
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= SessionProtocol.HEADER_SIZE) {
+            int start = readBuffer.position();
+            int length = readBuffer.getInt(start);
+            if (length < 1 || length > SessionProtocol.MAX_PAYLOAD_SIZE + 1) {
+                throw new IOException("Некорректная длина сообщения: " + length);
+            }
+            int total = SessionProtocol.LENGTH_SIZE + length;
+            if (readBuffer.remaining() < total) {
+                if (readBuffer.capacity() < total) {
+                    growReadBuffer(total);
+                    return;
+                }
+                break;
+            }
+            dispatch(readBuffer.get(start + SessionProtocol.LENGTH_SIZE), start + SessionProtocol.HEADER_SIZE,
+                start + total);
+            if (closed.get()) {
+                return;
+            }
+            readBuffer.position(start + total);
+        }
+        readBuffer.compact();
+    }
+
+    private void dispatch(byte code, int payloadStart, int payloadEnd) {
+        MessageType type = MessageType.fromCode(code);
+        if (type == null) {
+            logger.warn("Неизвестный тип сообщения {} от {}", code, remoteAddress);
+            return;
+        }
+        int limit = readBuffer.limit();
+        readBuffer.limit(payloadEnd).position(payloadStart);
+        try {
+            handler.onMessage(this, type, readBuffer);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при обработке сообщения {} от {}: {}", type, remoteAddress, e.getMessage(), e);
+        } finally {
+            readBuffer.limit(limit);
+        }
+    }
+
+    private void growReadBuffer(int required) {
+        ByteBuffer larger = pool.acquire(required);
+        larger.put(readBuffer);
+        pool.release(readBuffer);
+        readBuffer = larger;
+    }
+
+    @Override
+    public void onError(IOException e) {
+        if (!closed.get()) {
+            logger.warn("Ошибка соединения с {}: {}", remoteAddress, e.getMessage());
+        }
+        close();
+    }
+
+    /**
+     * Закрывает соединение после отправки всех сообщений из очереди.
+     */
+    public void flushAndClose() {
+        closeAfterFlush = true;
+        reactor.execute(() -> {
+            if (writeQueue.isEmpty()) {
+                close();
+            } else {
+                enableWrite();
+            }
+        });
+    }
+
+    /**
+     * Закрывает соединение. Неотправленные сообщения отбрасываются.
+     */
+    @Override
+    public void close() {
+        if (!reactor.inReactorThread()) {
+            reactor.execute(this::close);
+            return;
+        }
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Ошибка при закрытии канала: {}", e.getMessage());
+        }
+        discardQueued();
+        ByteBuffer released = readBuffer;
+        if (released != null) {
+            // Соединение могло быть закрыто из обработчика сообщения, который еще читает буфер
+            reactor.execute(() -> pool.release(released));
+        }
+        logger.info("Соединение с {} закрыто", remoteAddress);
+        handler.onDisconnected(this);
+    }
+
+    /**
+     * Освобождает неотправленные буферы. После закрытия реактор в очередь
+     * уже не пишет, поэтому вызывается из любого потока.
+     */
+    private void discardQueued() {
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.poll()) != null) {
+            queuedBytes.addAndGet(-buffer.remaining());
+            pool.release(buffer);
+        }
+    }
+
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    /**
+     * Возвращает объем данных, ожидающих отправки.
+     *
+     * @return количество байт в очереди записи
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    /**
+     * Задает получателя времени, которое кадр провел от отправки до записи
+     * в сокет. Время измеряется выборочно: следующий кадр отмечается только
+     * после того, как записан предыдущий отмеченный.
+     *
+     * @param listener получатель задержки; вызывается в потоке реактора
+     */
+    public void setQueueLatencyListener(FrameTransport.QueueLatencyListener listener) {
+        this.queueLatencyListener = listener;
+    }
+
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Возвращает прикрепленное к соединению состояние сессии.
+     *
+     * @return состояние или null
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * Отметка кадра в очереди: смещение его конца в потоке записи, время
+     * постановки в очередь и номер.
+     */
+    private static final class QueueMark {
+        final long endOffset;
+        final long enqueuedNanos;
+        final long frameId;
+
+        QueueMark(long endOffset, long enqueuedNanos, long frameId) {
+            this.endOffset = endOffset;
+            this.enqueuedNanos = enqueuedNanos;
+            this.frameId = frameId;
+        }
+    }
+}
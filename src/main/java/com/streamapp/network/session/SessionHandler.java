@@ -0,0 +1,36 @@
+package com.streamapp.network.session;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Обработчик событий сессии. Все методы вызываются в потоке реактора
+ * и не должны блокироваться.
+ */
+public interface SessionHandler {
+
+    /**
+     * Соединение установлено.
+     *
+     * @param connection соединение
+     */
+    default void onConnected(SessionConnection connection) {
+    }
+
+    /**
+     * Получено сообщение. Буфер полезной нагрузки принадлежит соединению
+     * и действителен только до возврата из метода.
+     *
+     * @param connection соединение
+     * @param type тип сообщения
+     * @param payload полезная нагрузка от позиции до лимита
+     */
+    void onMessage(SessionConnection connection, MessageType type, ByteBuffer payload);
+
+    /**
+     * Соединение закрыто.
+     *
+     * @param connection соединение
+     */
+    default void onDisconnected(SessionConnection connection) {
+    }
+}
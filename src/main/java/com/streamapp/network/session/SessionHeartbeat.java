@@ -0,0 +1,138 @@
+package com.streamapp.network.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Проверка доступности узлов сообщениями {@link MessageType#PING} через
+ * порт сессий. К каждому узлу держится одно соединение, поэтому проверка
+ * стоит одного короткого сообщения в каждую сторону, а не установки TCP.
+ */
+public class SessionHeartbeat implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SessionHeartbeat.class);
+
+    private final SessionClient client;
+    private final long timeoutMillis;
+    private final Map<InetSocketAddress, Link> links = new ConcurrentHashMap<>();
+    private final AtomicLong nextToken = new AtomicLong();
+
+    /**
+     * Создает проверку доступности.
+     *
+     * @param client клиент сессий
+     * @param timeoutMillis наибольшее время ожидания ответа
+     */
+    public SessionHeartbeat(SessionClient client, long timeoutMillis) {
+        this.client = client;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Отправляет узлу проверочное сообщение, при необходимости подключаясь.
+     *
+     * @param address адрес сервера сессий узла
+     * @return завершается при ответе; ошибкой, если узел недоступен или не ответил вовремя
+     */
+    public CompletableFuture<Void> ping(InetSocketAddress address) {
+        Link link = links.computeIfAbsent(address, Link::new);
+        long token = nextToken.incrementAndGet();
+        CompletableFuture<Void> reply = new CompletableFuture<>();
+        link.pending.put(token, reply);
+        link.connection().whenComplete((connection, error) -> {
+            if (error != null) {
+                reply.completeExceptionally(error);
+            } else {
+                connection.send(MessageType.PING, Long.BYTES, buffer -> buffer.putLong(token));
+            }
+        });
+        return reply.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+            .whenComplete((ignored, error) -> {
+                link.pending.remove(token);
+                if (error instanceof TimeoutException && links.remove(address, link)) {
+                    // Соединение могло зависнуть: следующая проверка подключится заново
+                    link.close();
+                }
+            });
+    }
+
+    /**
+     * Закрывает соединение с узлом, который больше не проверяется.
+     *
+     * @param address адрес сервера сессий узла
+     */
+    public void forget(InetSocketAddress address) {
+        Link link = links.remove(address);
+        if (link != null) {
+            link.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (InetSocketAddress address : links.keySet()) {
+            forget(address);
+        }
+    }
+
+    /**
+     * Соединение с одним узлом и ожидающие ответа проверки.
+     */
+    private final class Link implements SessionHandler {
+        private final InetSocketAddress address;
+        private final Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+        private CompletableFuture<SessionConnection> connection;
+
+        private Link(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        private synchronized CompletableFuture<SessionConnection> connection() {
+            if (connection == null) {
+                connection = client.connect(address, this);
+                connection.whenComplete((connected, error) -> {
+                    if (error != null) {
+                        // Следующая проверка подключится заново
+                        links.remove(address, this);
+                    }
+                });
+            }
+            return connection;
+        }
+
+        @Override
+        public void onMessage(SessionConnection conn, MessageType type, ByteBuffer payload) {
+            if (type == MessageType.PONG) {
+                CompletableFuture<Void> reply = pending.remove(payload.getLong());
+                if (reply != null) {
+                    reply.complete(null);
+                }
+            }
+        }
+
+        @Override
+        public void onDisconnected(SessionConnection conn) {
+            links.remove(address, this);
+            IOException closed = new IOException("Соединение с " + address + " закрыто");
+            for (CompletableFuture<Void> reply : pending.values()) {
+                reply.completeExceptionally(closed);
+            }
+            logger.debug("Проверочное соединение с {} закрыто", address);
+        }
+
+        private synchronized void close() {
+            if (connection != null) {
+                connection.thenAccept(SessionConnection::close);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.streamapp.network.session;
+
+import com.streamapp.util.DirectBufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Формат кадрирования сообщений сессии.
+ * Каждое сообщение: длина (int32, тип + полезная нагрузка), тип (1 байт),
+ * полезная нагрузка. Порядок байт сетевой (big-endian).
+ */
+public final class SessionProtocol {
+    private SessionProtocol() {
+        // Запрещаем создание экземпляров
+    }
+
+    /**
+     * Размер префикса длины.
+     */
+    public static final int LENGTH_SIZE = 4;
+
+    /**
+     * Полный размер заголовка сообщения.
+     */
+    public static final int HEADER_SIZE = LENGTH_SIZE + 1;
+
+    /**
+     * Максимальный размер полезной нагрузки одного сообщения.
+     */
+    public static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Максимальная длина строки в сообщении в байтах UTF-8.
+     */
+    public static final int MAX_STRING_BYTES = 1024;
+
+    /**
+     * Формирует сообщение в буфере из пула: заголовок и полезная нагрузка,
+     * записанная прямо в буфер без промежуточных копий.
+     *
+     * @param pool пул буферов
+     * @param type тип сообщения
+     * @param payloadSize точный размер полезной нагрузки
+     * @param writer запись полезной нагрузки; может быть null при нулевом размере
+     * @return буфер из пула в режиме чтения; возвращается в пул после отправки
+     */
+    public static ByteBuffer encode(DirectBufferPool pool, MessageType type, int payloadSize,
+                                    Consumer<ByteBuffer> writer) {
+        if (payloadSize < 0 || payloadSize > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер сообщения: " + payloadSize);
+        }
+        ByteBuffer buffer = pool.acquire(HEADER_SIZE + payloadSize);
+        buffer.putInt(payloadSize + 1);
+        buffer.put(type.getCode());
+        if (writer != null) {
+            int start = buffer.position();
+            try {
+                writer.accept(buffer);
+            } catch (RuntimeException e) {
+                pool.release(buffer);
+                throw e;
+            }
+            if (buffer.position() - start != payloadSize) {
+                pool.release(buffer);
+                throw new IllegalStateException("Размер полезной нагрузки не совпадает с заявленным");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Возвращает размер строки в сериализованном виде.
+     *
+     * @param value строка
+     * @return размер в байтах
+     */
+    public static int stringSize(String value) {
+        return 2 + Math.min(MAX_STRING_BYTES, value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    /**
+     * Записывает строку: длина (uint16), байты UTF-8.
+     *
+     * @param dst буфер назначения
+     * @param value строка
+     */
+    public static void writeString(ByteBuffer dst, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(MAX_STRING_BYTES, bytes.length);
+        dst.putShort((short) length);
+        dst.put(bytes, 0, length);
+    }
+
+    /**
+     * Читает строку, записанную {@link #writeString(ByteBuffer, String)}.
+     *
+     * @param src буфер с данными
+     * @return прочитанная строка
+     */
+    public static String readString(ByteBuffer src) {
+        int length = Short.toUnsignedInt(src.getShort());
+        if (length > MAX_STRING_BYTES || length > src.remaining()) {
+            throw new IllegalArgumentException("Некорректная длина строки: " + length);
+        }
+        byte[] bytes = new byte[length];
+        src.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
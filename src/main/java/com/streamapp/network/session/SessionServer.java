@@ -0,0 +1,114 @@
+package com.streamapp.network.session;
+
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Неблокирующий сервер сессий на порту, объявленном через mDNS.
+ * Принимает соединения в потоке реактора и передает их общему обработчику.
+ */
+public class SessionServer implements ChannelHandler, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SessionServer.class);
+
+    private final NioReactor reactor;
+    private final DirectBufferPool pool;
+    private final SessionHandler handler;
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Создает сервер.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     * @param handler обработчик событий всех принятых соединений
+     */
+    public SessionServer(NioReactor reactor, DirectBufferPool pool, SessionHandler handler) {
+        this.reactor = reactor;
+        this.pool = pool;
+        this.handler = handler;
+    }
+
+    /**
+     * Открывает порт и начинает принимать соединения.
+     *
+     * @param port номер порта; 0 для выбора свободного порта
+     * @throws IOException если порт недоступен
+     */
+    public void bind(int port) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(port));
+            reactor.submit(() -> {
+                try {
+                    return reactor.register(channel, SelectionKey.OP_ACCEPT, this);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).join();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw new IOException("Не удалось зарегистрировать сервер сессий", e);
+        }
+        serverChannel = channel;
+        logger.info("Сервер сессий слушает порт {}", getPort());
+    }
+
+    @Override
+    public void onAcceptable() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SessionConnection connection = new SessionConnection(channel, reactor, pool, handler,
+                channel.getRemoteAddress());
+            connection.register(SelectionKey.OP_READ);
+            logger.info("Принято соединение от {}", connection.getRemoteAddress());
+            connection.connected();
+        }
+    }
+
+    @Override
+    public void onError(IOException e) {
+        logger.error("Ошибка сервера сессий: {}", e.getMessage());
+    }
+
+    /**
+     * Возвращает фактический порт сервера.
+     *
+     * @return номер порта или -1, если сервер не запущен
+     */
+    public int getPort() {
+        ServerSocketChannel channel = serverChannel;
+        return channel == null ? -1 : channel.socket().getLocalPort();
+    }
+
+    /**
+     * Прекращает прием новых соединений. Уже принятые соединения не закрываются.
+     */
+    @Override
+    public void close() {
+        ServerSocketChannel channel = serverChannel;
+        if (channel == null) {
+            return;
+        }
+        serverChannel = null;
+        try {
+            channel.close();
+            logger.info("Сервер сессий остановлен");
+        } catch (IOException e) {
+            logger.error("Ошибка при остановке сервера сессий: {}", e.getMessage());
+        }
+    }
+}
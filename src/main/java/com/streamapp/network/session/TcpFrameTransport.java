@@ -0,0 +1,53 @@
+package com.streamapp.network.session;
+
+import com.streamapp.network.FrameTransport;
+import com.streamapp.network.TransportType;
+import com.streamapp.streaming.encode.EncodedFrame;
+
+/**
+ * Передача кадров сообщениями {@link MessageType#FRAME} внутри TCP-сессии.
+ * Соединение принадлежит сессии, поэтому транспорт его не закрывает.
+ */
+public class TcpFrameTransport implements FrameTransport {
+    private final SessionConnection connection;
+    private final long maxQueuedBytes;
+
+    /**
+     * Создает транспорт поверх соединения сессии.
+     *
+     * @param connection соединение сессии
+     * @param maxQueuedBytes предел очереди, после которого кадры не принимаются
+     */
+    public TcpFrameTransport(SessionConnection connection, long maxQueuedBytes) {
+        this.connection = connection;
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    @Override
+    public boolean sendFrame(EncodedFrame frame) {
+        if (!connection.isOpen() || connection.getQueuedBytes() > maxQueuedBytes) {
+            return false;
+        }
+        connection.sendFrame(frame);
+        return true;
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return connection.getQueuedBytes();
+    }
+
+    @Override
+    public void setQueueLatencyListener(QueueLatencyListener listener) {
+        connection.setQueueLatencyListener(listener);
+    }
+
+    @Override
+    public TransportType getType() {
+        return TransportType.TCP;
+    }
+
+    @Override
+    public void close() {
+    }
+}
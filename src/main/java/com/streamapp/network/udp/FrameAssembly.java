@@ -0,0 +1,201 @@
+package com.streamapp.network.udp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Сборка одного кадра из UDP-фрагментов с восстановлением по XOR-паритету.
+ * Используется только потоком реактора.
+ * <p>
+ * Количество фрагментов берется из датаграммы, поэтому память под данные
+ * выделяется блоками по мере прихода фрагментов, а не сразу на весь
+ * объявленный кадр: одна чужая датаграмма не заставит выделить мегабайты.
+ */
+final class FrameAssembly {
+    /**
+     * Фрагментов в одном блоке данных.
+     */
+    private static final int BLOCK_FRAGMENTS = 64;
+
+    private final long frameId;
+    private final int count;
+    private final int groupSize;
+    private final byte[][] blocks;
+    private final int[] lengths;
+    private final boolean[] present;
+    private final byte[][] parity;
+    private final int[] parityLengthXor;
+    private final long firstSeenNanos;
+    private int received;
+    private long lastNackNanos;
+    private int nackCount;
+
+    FrameAssembly(long frameId, int count, int groupSize, long nowNanos) {
+        this.frameId = frameId;
+        this.count = count;
+        this.groupSize = Math.max(1, groupSize);
+        this.blocks = new byte[(count + BLOCK_FRAGMENTS - 1) / BLOCK_FRAGMENTS][];
+        this.lengths = new int[count];
+        this.present = new boolean[count];
+        int groups = (count + this.groupSize - 1) / this.groupSize;
+        this.parity = new byte[groups][];
+        this.parityLengthXor = new int[groups];
+        this.firstSeenNanos = nowNanos;
+    }
+
+    long getFrameId() {
+        return frameId;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getFirstSeenNanos() {
+        return firstSeenNanos;
+    }
+
+    boolean isComplete() {
+        return received == count;
+    }
+
+    /**
+     * Добавляет фрагмент данных.
+     *
+     * @return true, если фрагмент новый
+     */
+    boolean addData(int index, ByteBuffer src, int length) {
+        if (index >= count || present[index] || length > UdpProtocol.MAX_FRAGMENT_PAYLOAD
+                || length > src.remaining()) {
+            return false;
+        }
+        src.get(block(index), offset(index), length);
+        lengths[index] = length;
+        present[index] = true;
+        received++;
+        return true;
+    }
+
+    void addParity(int group, int lengthXor, ByteBuffer src, int length) {
+        if (group >= parity.length || parity[group] != null || length > src.remaining()
+                || length > UdpProtocol.MAX_FRAGMENT_PAYLOAD) {
+            return;
+        }
+        byte[] bytes = new byte[length];
+        src.get(bytes);
+        parity[group] = bytes;
+        parityLengthXor[group] = lengthXor;
+    }
+
+    /**
+     * Восстанавливает единственный потерянный фрагмент группы по паритету.
+     *
+     * @return true, если фрагмент восстановлен
+     */
+    boolean tryRecover(int group) {
+        byte[] bytes = parity[group];
+        if (bytes == null) {
+            return false;
+        }
+        int start = group * groupSize;
+        int end = Math.min(count, start + groupSize);
+        int missing = -1;
+        for (int i = start; i < end; i++) {
+            if (!present[i]) {
+                if (missing >= 0) {
+                    return false;
+                }
+                missing = i;
+            }
+        }
+        if (missing < 0) {
+            return false;
+        }
+        int length = parityLengthXor[group];
+        byte[] target = block(missing);
+        int targetOffset = offset(missing);
+        System.arraycopy(bytes, 0, target, targetOffset, bytes.length);
+        for (int i = start; i < end; i++) {
+            if (i == missing) {
+                continue;
+            }
+            length ^= lengths[i];
+            byte[] source = block(i);
+            int offset = offset(i);
+            for (int j = 0; j < lengths[i]; j++) {
+                target[targetOffset + j] ^= source[offset + j];
+            }
+        }
+        if (length < 0 || length > bytes.length) {
+            return false;
+        }
+        lengths[missing] = length;
+        present[missing] = true;
+        received++;
+        return true;
+    }
+
+    private byte[] block(int index) {
+        int block = index / BLOCK_FRAGMENTS;
+        if (blocks[block] == null) {
+            int fragments = Math.min(BLOCK_FRAGMENTS, count - block * BLOCK_FRAGMENTS);
+            blocks[block] = new byte[fragments * UdpProtocol.MAX_FRAGMENT_PAYLOAD];
+        }
+        return blocks[block];
+    }
+
+    private static int offset(int index) {
+        return index % BLOCK_FRAGMENTS * UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+    }
+
+    int groupOf(int index) {
+        return index / groupSize;
+    }
+
+    int groupCount() {
+        return parity.length;
+    }
+
+    /**
+     * Записывает индексы недостающих фрагментов.
+     *
+     * @return количество записанных индексов
+     */
+    int missing(int[] out) {
+        int n = 0;
+        for (int i = 0; i < count && n < out.length; i++) {
+            if (!present[i]) {
+                out[n++] = i;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Возвращает собранные данные кадра. Вызывается только для полного кадра.
+     */
+    ByteBuffer assembled() {
+        int size = (count - 1) * UdpProtocol.MAX_FRAGMENT_PAYLOAD + lengths[count - 1];
+        if (blocks.length == 1) {
+            return ByteBuffer.wrap(blocks[0], 0, size);
+        }
+        byte[] data = new byte[size];
+        int blockSize = BLOCK_FRAGMENTS * UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * blockSize;
+            System.arraycopy(blocks[i], 0, data, offset, Math.min(blockSize, size - offset));
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    boolean shouldNack(long nowNanos, long delayNanos, long intervalNanos, int maxNacks) {
+        if (nackCount >= maxNacks || nowNanos - firstSeenNanos < delayNanos) {
+            return false;
+        }
+        return nackCount == 0 || nowNanos - lastNackNanos >= intervalNanos;
+    }
+
+    void nacked(long nowNanos) {
+        lastNackNanos = nowNanos;
+        nackCount++;
+    }
+}
@@ -0,0 +1,359 @@
+package com.streamapp.network.udp;
+
+import com.streamapp.network.session.ChannelHandler;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.streaming.encode.EncodedFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Прием кадров, переданных {@link UdpFrameSender}.
+ * Собирает кадры из фрагментов, восстанавливает одиночные потери по паритету,
+ * запрашивает остальные потери через NACK и подтверждает собранные кадры.
+ * Кадр старше уже выданного не выдается: его плитки перезаписали бы более
+ * новое изображение, а неподтвержденные плитки отправитель повторит сам.
+ * <p>
+ * Датаграммы принимаются только с адреса владельца экрана, известного по
+ * сессии, а после подтверждения трансляции — только с его UDP-порта
+ * ({@link #expectSender(InetSocketAddress)}). Остальные отбрасываются, чтобы
+ * чужой узел не перенаправил подтверждения и NACK. Кадр, объявивший больше
+ * фрагментов, чем помещается в наибольший допустимый кадр, не собирается.
+ */
+public class UdpFrameReceiver implements ChannelHandler, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(UdpFrameReceiver.class);
+
+    private static final int RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final long CHECK_INTERVAL_MS = 5;
+    private static final long NACK_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long NACK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(40);
+    private static final long MAX_ASSEMBLY_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final int MAX_NACKS = 5;
+
+    private final NioReactor reactor;
+    private final Consumer<EncodedFrame> listener;
+    private final int fecGroupSize;
+    private final DatagramChannel channel;
+    private final Map<Long, FrameAssembly> assemblies = new HashMap<>();
+    private final ByteBuffer datagram = ByteBuffer.allocateDirect(UdpProtocol.MAX_DATAGRAM_SIZE);
+    private final ByteBuffer reply = ByteBuffer.allocateDirect(UdpProtocol.MAX_DATAGRAM_SIZE);
+    private final int[] missing = new int[UdpProtocol.MAX_NACK_INDICES];
+    private final AtomicLong deliveredFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong recoveredFragments = new AtomicLong();
+    private final AtomicLong nacksSent = new AtomicLong();
+    private final AtomicLong rejectedDatagrams = new AtomicLong();
+    private volatile InetAddress expectedAddress;
+    private volatile InetSocketAddress expectedSender;
+    private volatile int maxFragments = UdpProtocol.MAX_FRAGMENTS;
+    private SocketAddress sender;
+    private volatile int localPort;
+    private long lastDeliveredId = Long.MIN_VALUE;
+    private NioReactor.TimedTask checkTask;
+    private volatile boolean closed;
+
+    /**
+     * Создает получатель.
+     *
+     * @param reactor сетевой реактор
+     * @param fecGroupSize размер группы паритета, совпадающий с отправителем
+     * @param host адрес владельца экрана; датаграммы с других адресов отбрасываются
+     * @param listener получатель собранных кадров; вызывается в потоке реактора
+     * @throws IOException если не удалось открыть канал
+     */
+    public UdpFrameReceiver(NioReactor reactor, int fecGroupSize, InetAddress host, Consumer<EncodedFrame> listener)
+            throws IOException {
+        if (host == null) {
+            throw new IOException("Адрес владельца экрана не разрешен");
+        }
+        this.reactor = reactor;
+        this.fecGroupSize = fecGroupSize;
+        this.expectedAddress = host;
+        this.listener = listener;
+        this.channel = DatagramChannel.open();
+    }
+
+    /**
+     * Открывает порт и начинает прием датаграмм.
+     *
+     * @param port номер порта; 0 для выбора свободного порта
+     * @return фактический номер порта
+     * @throws IOException если порт недоступен
+     */
+    public int bind(int port) throws IOException {
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+            channel.bind(new InetSocketAddress(port));
+            reactor.submit(() -> {
+                try {
+                    SelectionKey key = reactor.register(channel, SelectionKey.OP_READ, this);
+                    scheduleCheck();
+                    return key;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).join();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw new IOException("Не удалось зарегистрировать UDP-канал", e);
+        }
+        localPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        logger.info("Прием кадров по UDP на порту {}", localPort);
+        return localPort;
+    }
+
+    /**
+     * @return номер открытого порта; 0 до вызова {@link #bind(int)}
+     */
+    public int getPort() {
+        return localPort;
+    }
+
+    /**
+     * Принимает датаграммы только с UDP-адреса отправителя, сообщенного
+     * владельцем экрана при подтверждении трансляции.
+     *
+     * @param address адрес и порт отправителя кадров
+     */
+    public void expectSender(InetSocketAddress address) {
+        expectedAddress = address.getAddress();
+        expectedSender = address;
+    }
+
+    /**
+     * Снова принимает датаграммы с любого порта владельца экрана, например
+     * перед возобновлением: новый отправитель откроет другой порт и сообщит
+     * его при подтверждении.
+     *
+     * @param host адрес владельца экрана
+     */
+    public void expectHost(InetAddress host) {
+        expectedAddress = host;
+        expectedSender = null;
+    }
+
+    /**
+     * Ограничивает размер собираемых кадров наибольшим кадром трансляции.
+     *
+     * @param frameSize наибольший размер сериализованного кадра в байтах
+     */
+    public void setMaxFrameSize(int frameSize) {
+        maxFragments = Math.min(UdpProtocol.MAX_FRAGMENTS, UdpProtocol.fragmentCount(frameSize));
+    }
+
+    private boolean accepts(SocketAddress source) {
+        InetSocketAddress pinned = expectedSender;
+        if (pinned != null) {
+            return pinned.equals(source);
+        }
+        return source instanceof InetSocketAddress address && address.getAddress().equals(expectedAddress);
+    }
+
+    @Override
+    public void onReadable() throws IOException {
+        while (true) {
+            datagram.clear();
+            SocketAddress source = channel.receive(datagram);
+            if (source == null) {
+                return;
+            }
+            datagram.flip();
+            if (!accepts(source)) {
+                if (rejectedDatagrams.getAndIncrement() == 0) {
+                    logger.warn("Отброшена датаграмма с чужого адреса {}", source);
+                }
+                continue;
+            }
+            if (datagram.remaining() < UdpProtocol.DATA_HEADER_SIZE) {
+                continue;
+            }
+            sender = source;
+            byte type = datagram.get();
+            long frameId = datagram.getLong();
+            if (frameId <= lastDeliveredId) {
+                continue;
+            }
+            int indexOrGroup = Short.toUnsignedInt(datagram.getShort());
+            int count = Short.toUnsignedInt(datagram.getShort());
+            if (count == 0 || count > maxFragments) {
+                rejectedDatagrams.incrementAndGet();
+                continue;
+            }
+            FrameAssembly assembly = assemblies.get(frameId);
+            if (assembly == null) {
+                assembly = new FrameAssembly(frameId, count, fecGroupSize, System.nanoTime());
+                assemblies.put(frameId, assembly);
+            } else if (assembly.getCount() != count) {
+                continue;
+            }
+
+            if (type == UdpProtocol.TYPE_DATA) {
+                int length = Short.toUnsignedInt(datagram.getShort());
+                if (assembly.addData(indexOrGroup, datagram, length)) {
+                    recover(assembly, assembly.groupOf(indexOrGroup));
+                }
+            } else if (type == UdpProtocol.TYPE_PARITY && datagram.remaining() >= 4) {
+                int lengthXor = Short.toUnsignedInt(datagram.getShort());
+                int length = Short.toUnsignedInt(datagram.getShort());
+                assembly.addParity(indexOrGroup, lengthXor, datagram, length);
+                recover(assembly, indexOrGroup);
+            }
+
+            if (assembly.isComplete()) {
+                deliver(assembly);
+            }
+        }
+    }
+
+    private void recover(FrameAssembly assembly, int group) {
+        if (group < assembly.groupCount() && assembly.tryRecover(group)) {
+            recoveredFragments.incrementAndGet();
+        }
+    }
+
+    private void deliver(FrameAssembly assembly) {
+        long frameId = assembly.getFrameId();
+        assemblies.remove(frameId);
+        EncodedFrame frame;
+        try {
+            frame = EncodedFrame.readFrom(assembly.assembled());
+        } catch (RuntimeException e) {
+            logger.warn("Поврежденный кадр {}: {}", frameId, e.getMessage());
+            return;
+        }
+        lastDeliveredId = frameId;
+        // Незавершенные кадры старше выданного больше не нужны
+        Iterator<FrameAssembly> iterator = assemblies.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getFrameId() < frameId) {
+                iterator.remove();
+                droppedFrames.incrementAndGet();
+            }
+        }
+        sendAck(frameId);
+        deliveredFrames.incrementAndGet();
+        listener.accept(frame);
+    }
+
+    private void scheduleCheck() {
+        if (!closed) {
+            checkTask = reactor.schedule(this::checkLosses, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkLosses() {
+        long now = System.nanoTime();
+        Iterator<FrameAssembly> iterator = assemblies.values().iterator();
+        while (iterator.hasNext()) {
+            FrameAssembly assembly = iterator.next();
+            if (now - assembly.getFirstSeenNanos() > MAX_ASSEMBLY_AGE_NANOS) {
+                iterator.remove();
+                droppedFrames.incrementAndGet();
+                logger.debug("Кадр {} не собран вовремя и отброшен", assembly.getFrameId());
+            } else if (assembly.shouldNack(now, NACK_DELAY_NANOS, NACK_INTERVAL_NANOS, MAX_NACKS)) {
+                sendNack(assembly);
+                assembly.nacked(now);
+            }
+        }
+        scheduleCheck();
+    }
+
+    private void sendNack(FrameAssembly assembly) {
+        int n = assembly.missing(missing);
+        if (n == 0 || sender == null) {
+            return;
+        }
+        reply.clear();
+        reply.put(UdpProtocol.TYPE_NACK);
+        reply.putLong(assembly.getFrameId());
+        reply.putShort((short) n);
+        for (int i = 0; i < n; i++) {
+            reply.putShort((short) missing[i]);
+        }
+        reply.flip();
+        sendReply();
+        nacksSent.incrementAndGet();
+    }
+
+    private void sendAck(long frameId) {
+        reply.clear();
+        reply.put(UdpProtocol.TYPE_ACK);
+        reply.putLong(frameId);
+        reply.flip();
+        sendReply();
+    }
+
+    private void sendReply() {
+        try {
+            channel.send(reply, sender);
+        } catch (IOException e) {
+            logger.debug("Ошибка отправки ответа по UDP: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onError(IOException e) {
+        logger.debug("Ошибка UDP-канала: {}", e.getMessage());
+    }
+
+    public long getDeliveredFrames() {
+        return deliveredFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getRecoveredFragments() {
+        return recoveredFragments.get();
+    }
+
+    public long getNacksSent() {
+        return nacksSent.get();
+    }
+
+    /**
+     * @return число датаграмм с чужого адреса или с недопустимым числом фрагментов
+     */
+    public long getRejectedDatagrams() {
+        return rejectedDatagrams.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reactor.execute(() -> {
+            if (checkTask != null) {
+                checkTask.cancel();
+            }
+            assemblies.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Ошибка при закрытии UDP-канала: {}", e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,444 @@
+package com.streamapp.network.udp;
+
+import com.streamapp.network.FrameTransport;
+import com.streamapp.network.TransportType;
+import com.streamapp.network.session.ChannelHandler;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Отправка кадров датаграммами UDP.
+ * Кадр режется на фрагменты размером с MTU, к каждой группе фрагментов
+ * добавляется XOR-паритет, а последние кадры хранятся для выборочного
+ * повтора фрагментов по NACK от получателя.
+ * Датаграммы кадра пишутся в сокет потоком реактора из очереди отправки:
+ * то, что сокет не принял, ждет готовности на запись, а объем очереди
+ * виден контроллеру битрейта через {@link #getQueuedBytes()}.
+ */
+public class UdpFrameSender implements FrameTransport, ChannelHandler {
+    private static final Logger logger = LoggerFactory.getLogger(UdpFrameSender.class);
+
+    /**
+     * Сколько последних кадров хранится для повторной отправки.
+     */
+    static final int HISTORY_SIZE = 64;
+
+    private static final int SEND_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final long RETRANSMIT = Long.MIN_VALUE;
+
+    private final NioReactor reactor;
+    private final DirectBufferPool pool;
+    private final DatagramChannel channel;
+    private final int fecGroupSize;
+    private final LongConsumer ackListener;
+    private final long maxQueuedBytes;
+    private final SelectionKey key;
+    private final SentFrame[] history = new SentFrame[HISTORY_SIZE];
+    private final ConcurrentLinkedQueue<Batch> sendQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final ByteBuffer receiveDatagram = ByteBuffer.allocateDirect(UdpProtocol.MAX_DATAGRAM_SIZE);
+    private final byte[] fragment = new byte[UdpProtocol.MAX_FRAGMENT_PAYLOAD];
+    private final byte[] parity = new byte[UdpProtocol.MAX_FRAGMENT_PAYLOAD];
+    private final AtomicLong sentPackets = new AtomicLong();
+    private final AtomicLong retransmittedPackets = new AtomicLong();
+    private final AtomicLong droppedPackets = new AtomicLong();
+    private volatile boolean closed;
+    private volatile QueueLatencyListener queueLatencyListener;
+
+    private static final class SentFrame {
+        private final long frameId;
+        private final ByteBuffer data;
+        private final int fragments;
+
+        private SentFrame(long frameId, ByteBuffer data, int fragments) {
+            this.frameId = frameId;
+            this.data = data;
+            this.fragments = fragments;
+        }
+    }
+
+    /**
+     * Датаграммы одного кадра или одного NACK, уложенные подряд в буфер из пула.
+     */
+    private static final class Batch {
+        private final ByteBuffer buffer;
+        private final int[] ends;
+        private final int count;
+        private final long frameId;
+        private final long enqueuedNanos;
+        // Только поток реактора
+        private int next;
+
+        /**
+         * @param frameId номер кадра или {@link #RETRANSMIT} для повторной отправки
+         */
+        private Batch(ByteBuffer buffer, int[] ends, int count, long frameId, long enqueuedNanos) {
+            this.buffer = buffer;
+            this.ends = ends;
+            this.count = count;
+            this.frameId = frameId;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        private int start() {
+            return next == 0 ? 0 : ends[next - 1];
+        }
+
+        private int remaining() {
+            return count == 0 ? 0 : ends[count - 1] - start();
+        }
+    }
+
+    /**
+     * Создает отправитель и регистрирует его в реакторе для приема NACK и подтверждений.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     * @param remote адрес получателя
+     * @param fecGroupSize количество фрагментов на один пакет паритета; 0 отключает паритет
+     * @param ackListener получатель подтверждений кадров
+     * @param maxQueuedBytes предел очереди отправки, после которого кадры не принимаются
+     * @throws IOException если не удалось открыть канал
+     */
+    public UdpFrameSender(NioReactor reactor, DirectBufferPool pool, InetSocketAddress remote, int fecGroupSize,
+                          LongConsumer ackListener, long maxQueuedBytes) throws IOException {
+        this.reactor = reactor;
+        this.pool = pool;
+        this.fecGroupSize = fecGroupSize;
+        this.ackListener = ackListener;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_SIZE);
+            channel.connect(remote);
+            this.key = reactor.submit(() -> {
+                try {
+                    return reactor.register(channel, SelectionKey.OP_READ, this);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).join();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw new IOException("Не удалось зарегистрировать UDP-канал", e);
+        }
+        logger.info("UDP-транспорт кадров: {} -> {}", channel.getLocalAddress(), remote);
+    }
+
+    @Override
+    public boolean sendFrame(EncodedFrame frame) {
+        if (closed || queuedBytes.get() > maxQueuedBytes) {
+            return false;
+        }
+        int size = frame.serializedSize();
+        int count = UdpProtocol.fragmentCount(size);
+        if (count > UdpProtocol.MAX_FRAGMENTS) {
+            logger.warn("Кадр {} слишком велик для UDP: {} байт", frame.getFrameId(), size);
+            return false;
+        }
+        long start = System.nanoTime();
+        ByteBuffer data = pool.acquire(size);
+        frame.writeTo(data);
+        data.flip();
+        remember(new SentFrame(frame.getFrameId(), data, count));
+
+        int parityCount = fecGroupSize > 1 ? (count + fecGroupSize - 1) / fecGroupSize : 0;
+        int[] ends = new int[count + parityCount];
+        ByteBuffer out = pool.acquire(ends.length * UdpProtocol.MAX_DATAGRAM_SIZE);
+        int datagrams = 0;
+        // Кадры могут отправляться из нескольких потоков кодирования, а буферы фрагмента и паритета общие
+        synchronized (fragment) {
+            int groupLengthXor = 0;
+            int groupLength = 0;
+            for (int index = 0; index < count; index++) {
+                int length = copyFragment(data, index, count);
+                putData(out, frame.getFrameId(), index, count, fragment, length);
+                ends[datagrams++] = out.position();
+                if (fecGroupSize > 1) {
+                    int inGroup = index % fecGroupSize;
+                    if (inGroup == 0) {
+                        System.arraycopy(fragment, 0, parity, 0, length);
+                        groupLength = length;
+                        groupLengthXor = length;
+                    } else {
+                        for (int i = 0; i < length; i++) {
+                            parity[i] ^= fragment[i];
+                        }
+                        groupLengthXor ^= length;
+                    }
+                    boolean lastInGroup = inGroup == fecGroupSize - 1 || index == count - 1;
+                    if (lastInGroup && inGroup > 0) {
+                        putParity(out, frame.getFrameId(), index / fecGroupSize, count, groupLengthXor, groupLength);
+                        ends[datagrams++] = out.position();
+                    }
+                }
+            }
+        }
+        enqueue(new Batch(out, ends, datagrams, frame.getFrameId(), start));
+        return true;
+    }
+
+    @Override
+    public void setQueueLatencyListener(QueueLatencyListener listener) {
+        this.queueLatencyListener = listener;
+    }
+
+    private int copyFragment(ByteBuffer data, int index, int count) {
+        int offset = index * UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+        int length = index == count - 1 ? data.limit() - offset : UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+        data.get(offset, fragment, 0, length);
+        return length;
+    }
+
+    private static void putData(ByteBuffer out, long frameId, int index, int count, byte[] payload, int length) {
+        out.put(UdpProtocol.TYPE_DATA);
+        out.putLong(frameId);
+        out.putShort((short) index);
+        out.putShort((short) count);
+        out.putShort((short) length);
+        out.put(payload, 0, length);
+    }
+
+    private void putParity(ByteBuffer out, long frameId, int group, int count, int lengthXor, int length) {
+        out.put(UdpProtocol.TYPE_PARITY);
+        out.putLong(frameId);
+        out.putShort((short) group);
+        out.putShort((short) count);
+        out.putShort((short) lengthXor);
+        out.putShort((short) length);
+        out.put(parity, 0, length);
+    }
+
+    private void enqueue(Batch batch) {
+        queuedBytes.addAndGet(batch.remaining());
+        sendQueue.offer(batch);
+        if (closed) {
+            // Закрытие могло уже опустошить очередь: пакет освобождает реактор
+            reactor.execute(this::discardQueued);
+            return;
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            reactor.execute(this::enableWrite);
+        }
+    }
+
+    private void enableWrite() {
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    @Override
+    public void onWritable() {
+        Batch batch;
+        while ((batch = sendQueue.peek()) != null) {
+            if (!flush(batch)) {
+                // Буфер сокета заполнен: ждем следующей готовности на запись
+                return;
+            }
+            sendQueue.poll();
+            pool.release(batch.buffer);
+            QueueLatencyListener listener = queueLatencyListener;
+            if (listener != null && batch.frameId != RETRANSMIT) {
+                listener.onWritten(batch.frameId, System.nanoTime() - batch.enqueuedNanos);
+            }
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        writeScheduled.set(false);
+        if (!sendQueue.isEmpty() && writeScheduled.compareAndSet(false, true)) {
+            enableWrite();
+        }
+    }
+
+    /**
+     * Пишет оставшиеся датаграммы пакета.
+     *
+     * @return false, если сокет не принял очередную датаграмму
+     */
+    private boolean flush(Batch batch) {
+        ByteBuffer buffer = batch.buffer;
+        while (batch.next < batch.count) {
+            int start = batch.start();
+            int end = batch.ends[batch.next];
+            buffer.limit(end).position(start);
+            try {
+                if (channel.write(buffer) == 0) {
+                    return false;
+                }
+                sentPackets.incrementAndGet();
+            } catch (IOException e) {
+                // Датаграмма теряется: восстановит паритет или NACK
+                droppedPackets.incrementAndGet();
+                logger.debug("Ошибка отправки датаграммы: {}", e.getMessage());
+            }
+            queuedBytes.addAndGet(start - end);
+            batch.next++;
+        }
+        return true;
+    }
+
+    private void discardQueued() {
+        Batch batch;
+        while ((batch = sendQueue.poll()) != null) {
+            queuedBytes.addAndGet(-batch.remaining());
+            pool.release(batch.buffer);
+        }
+    }
+
+    private void remember(SentFrame sent) {
+        synchronized (history) {
+            int slot = (int) Math.floorMod(sent.frameId, (long) HISTORY_SIZE);
+            SentFrame evicted = history[slot];
+            history[slot] = sent;
+            if (evicted != null) {
+                pool.release(evicted.data);
+            }
+        }
+    }
+
+    @Override
+    public void onReadable() throws IOException {
+        while (true) {
+            receiveDatagram.clear();
+            int read = channel.read(receiveDatagram);
+            if (read <= 0) {
+                return;
+            }
+            receiveDatagram.flip();
+            if (receiveDatagram.remaining() < 1 + Long.BYTES) {
+                continue;
+            }
+            byte type = receiveDatagram.get();
+            long frameId = receiveDatagram.getLong();
+            if (type == UdpProtocol.TYPE_ACK) {
+                ackListener.accept(frameId);
+            } else if (type == UdpProtocol.TYPE_NACK && receiveDatagram.remaining() >= 2) {
+                retransmit(frameId, receiveDatagram);
+            }
+        }
+    }
+
+    private void retransmit(long frameId, ByteBuffer nack) {
+        int n = Math.min(Short.toUnsignedInt(nack.getShort()), nack.remaining() / 2);
+        synchronized (history) {
+            SentFrame sent = history[(int) Math.floorMod(frameId, (long) HISTORY_SIZE)];
+            if (sent == null || sent.frameId != frameId) {
+                logger.debug("NACK для кадра {}, которого уже нет в истории", frameId);
+                return;
+            }
+            int[] ends = new int[n];
+            ByteBuffer out = pool.acquire(n * UdpProtocol.MAX_DATAGRAM_SIZE);
+            int datagrams = 0;
+            for (int i = 0; i < n; i++) {
+                int index = Short.toUnsignedInt(nack.getShort());
+                if (index >= sent.fragments) {
+                    continue;
+                }
+                int offset = index * UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+                int length = index == sent.fragments - 1
+                    ? sent.data.limit() - offset
+                    : UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+                out.put(UdpProtocol.TYPE_DATA);
+                out.putLong(frameId);
+                out.putShort((short) index);
+                out.putShort((short) sent.fragments);
+                out.putShort((short) length);
+                out.put(sent.data.slice(offset, length));
+                ends[datagrams++] = out.position();
+                retransmittedPackets.incrementAndGet();
+            }
+            if (datagrams == 0) {
+                pool.release(out);
+                return;
+            }
+            enqueue(new Batch(out, ends, datagrams, RETRANSMIT, 0));
+        }
+    }
+
+    @Override
+    public void onError(IOException e) {
+        logger.debug("Ошибка UDP-канала: {}", e.getMessage());
+    }
+
+    /**
+     * Возвращает объем датаграмм, ожидающих записи в сокет.
+     *
+     * @return количество байт в очереди отправки
+     */
+    @Override
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    @Override
+    public TransportType getType() {
+        return TransportType.UDP;
+    }
+
+    /**
+     * @return локальный порт, с которого уходят датаграммы; 0, если канал закрыт
+     */
+    public int getLocalPort() {
+        try {
+            return channel.getLocalAddress() instanceof InetSocketAddress local ? local.getPort() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public long getSentPackets() {
+        return sentPackets.get();
+    }
+
+    public long getRetransmittedPackets() {
+        return retransmittedPackets.get();
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reactor.execute(() -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Ошибка при закрытии UDP-канала: {}", e.getMessage());
+            }
+            discardQueued();
+            synchronized (history) {
+                for (int i = 0; i < history.length; i++) {
+                    if (history[i] != null) {
+                        pool.release(history[i].data);
+                        history[i] = null;
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.streamapp.network.udp;
+
+import com.streamapp.network.session.SessionProtocol;
+
+/**
+ * Формат датаграмм UDP-транспорта кадров. Порядок байт сетевой.
+ *
+ * <pre>
+ * DATA:   тип(1) frameId(8) индекс(2) количество(2) длина(2) данные
+ * PARITY: тип(1) frameId(8) группа(2) количество(2) xor длин(2) длина(2) данные
+ * NACK:   тип(1) frameId(8) n(2) индексы(2 * n)
+ * ACK:    тип(1) frameId(8)
+ * </pre>
+ *
+ * Кадр сериализуется через {@link com.streamapp.streaming.encode.EncodedFrame#writeTo}
+ * и режется на фрагменты. На каждую группу из {@link #DEFAULT_FEC_GROUP_SIZE}
+ * фрагментов отправляется XOR-паритет, восстанавливающий один потерянный фрагмент группы.
+ */
+public final class UdpProtocol {
+    private UdpProtocol() {
+        // Запрещаем создание экземпляров
+    }
+
+    public static final byte TYPE_DATA = 1;
+    public static final byte TYPE_PARITY = 2;
+    public static final byte TYPE_NACK = 3;
+    public static final byte TYPE_ACK = 4;
+
+    /**
+     * Размер заголовка фрагмента данных.
+     */
+    public static final int DATA_HEADER_SIZE = 1 + 8 + 2 + 2 + 2;
+
+    /**
+     * Размер заголовка паритета.
+     */
+    public static final int PARITY_HEADER_SIZE = 1 + 8 + 2 + 2 + 2 + 2;
+
+    /**
+     * Размер датаграммы, безопасный для Ethernet MTU 1500 с заголовками IP/UDP.
+     */
+    public static final int MAX_DATAGRAM_SIZE = 1400;
+
+    /**
+     * Максимальный размер данных в одном фрагменте.
+     */
+    public static final int MAX_FRAGMENT_PAYLOAD = MAX_DATAGRAM_SIZE - PARITY_HEADER_SIZE;
+
+    /**
+     * Максимальное количество фрагментов кадра: кадр не больше сообщения сессии,
+     * как и при передаче по TCP.
+     */
+    public static final int MAX_FRAGMENTS = fragmentCount(SessionProtocol.MAX_PAYLOAD_SIZE);
+
+    /**
+     * Количество фрагментов данных на один пакет паритета.
+     */
+    public static final int DEFAULT_FEC_GROUP_SIZE = 8;
+
+    /**
+     * Максимальное количество индексов в одном NACK.
+     */
+    public static final int MAX_NACK_INDICES = (MAX_DATAGRAM_SIZE - 1 - 8 - 2) / 2;
+
+    /**
+     * Возвращает количество фрагментов кадра заданного размера.
+     *
+     * @param frameSize размер сериализованного кадра в байтах
+     * @return количество фрагментов
+     */
+    public static int fragmentCount(int frameSize) {
+        return (frameSize + MAX_FRAGMENT_PAYLOAD - 1) / MAX_FRAGMENT_PAYLOAD;
+    }
+}
@@ -0,0 +1,34 @@
+package com.streamapp.streaming;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JFR этапа пути кадра. Записывается в конце этапа, задержка
+ * этапа — в поле {@link #latency}, поэтому события одного кадра на обеих
+ * сторонах связываются по номеру кадра.
+ */
+@Name(FrameStageEvent.NAME)
+@Label("Этап кадра")
+@Category({"StreamApp", "Трансляция"})
+@Description("Завершение этапа пути кадра с его задержкой")
+@StackTrace(false)
+final class FrameStageEvent extends Event {
+    static final String NAME = "com.streamapp.FrameStage";
+
+    @Label("Номер кадра")
+    @Description("-1, если этап не относится к кадру")
+    long frameId;
+
+    @Label("Этап")
+    String stage;
+
+    @Label("Задержка")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
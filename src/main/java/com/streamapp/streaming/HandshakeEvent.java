@@ -0,0 +1,63 @@
+package com.streamapp.streaming;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR шага установления или возобновления трансляции.
+ * Шаг подтверждения у владельца экрана длится, пока пользователь решает.
+ */
+@Name(HandshakeEvent.NAME)
+@Label("Шаг сессии трансляции")
+@Category({"StreamApp", "Сессия"})
+@Description("Шаг установления, возобновления или завершения трансляции")
+@StackTrace(false)
+final class HandshakeEvent extends Event {
+    static final String NAME = "com.streamapp.Handshake";
+
+    /**
+     * Сторона владельца экрана.
+     */
+    static final String HOST = "host";
+
+    /**
+     * Сторона зрителя.
+     */
+    static final String VIEWER = "viewer";
+
+    @Label("Сторона")
+    String side;
+
+    @Label("Шаг")
+    String step;
+
+    @Label("Узел")
+    @Description("Адрес другой стороны")
+    String peer;
+
+    @Label("Подробности")
+    String detail;
+
+    /**
+     * Записывает мгновенное событие, если оно включено в записи.
+     *
+     * @param side {@link #HOST} или {@link #VIEWER}
+     * @param step шаг: request, approval, accept, reject, resume, resumed, stop
+     * @param peer адрес другой стороны
+     * @param detail транспорт, причина отказа и т.п.; может быть null
+     */
+    static void commit(String side, String step, Object peer, String detail) {
+        HandshakeEvent event = new HandshakeEvent();
+        if (event.shouldCommit()) {
+            event.side = side;
+            event.step = step;
+            event.peer = String.valueOf(peer);
+            event.detail = detail;
+            event.commit();
+        }
+    }
+}
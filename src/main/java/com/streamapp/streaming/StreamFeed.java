@@ -0,0 +1,85 @@
+package com.streamapp.streaming;
+
+import com.streamapp.streaming.control.QualityLevel;
+import com.streamapp.streaming.encode.EncodedFrame;
+
+import java.util.function.Predicate;
+
+/**
+ * Источник закодированных кадров для {@link StreamHost}: собственный захват
+ * экрана ({@link StreamPipeline}) или трансляция, принятая от другого узла
+ * и раздаваемая дальше ретранслятором.
+ *
+ * <p>Кадры выдаются каждому получателю отдельно, с учетом его подтверждений
+ * и ступени качества.
+ */
+public interface StreamFeed {
+    /**
+     * Добавляет получателя кадров. Первый кадр для него будет опорным.
+     *
+     * @param sink получатель закодированных кадров; возвращает false, если кадр не отправлен
+     * @return подписка получателя
+     */
+    Subscription subscribe(Predicate<EncodedFrame> sink);
+
+    /**
+     * Начинает выдачу кадров.
+     */
+    void start();
+
+    /**
+     * Возвращает наибольший размер сериализованного кадра, который может
+     * выдать источник. Зритель не собирает кадры больше этого размера.
+     *
+     * @return размер в байтах или 0, если он заранее неизвестен
+     */
+    default int getMaxFrameSize() {
+        return 0;
+    }
+
+    /**
+     * Прекращает выдачу кадров и отключает всех получателей.
+     */
+    void stop();
+
+    /**
+     * Получатель кадров со своим состоянием подтверждений и качеством.
+     */
+    interface Subscription {
+        /**
+         * Передает подтверждение получения кадра.
+         *
+         * @param frameId номер подтвержденного кадра
+         */
+        void acknowledge(long frameId);
+
+        /**
+         * Запрашивает опорный кадр.
+         */
+        void requestKeyframe();
+
+        /**
+         * Применяет ступень качества получателя.
+         *
+         * @param level новая ступень качества
+         */
+        void applyQuality(QualityLevel level);
+
+        /**
+         * Приостанавливает отправку, сохраняя состояние подтверждений,
+         * например пока зритель переподключается.
+         */
+        void pause();
+
+        /**
+         * Продолжает отправку после {@link #pause()}. Плитки, получение которых
+         * не подтверждено, отправляются в первом же кадре.
+         */
+        void resume();
+
+        /**
+         * Отключает получателя.
+         */
+        void cancel();
+    }
+}
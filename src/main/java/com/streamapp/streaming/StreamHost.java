@@ -0,0 +1,673 @@
+package com.streamapp.streaming;
+
+import com.streamapp.network.FrameTransport;
+import com.streamapp.network.TransportType;
+import com.streamapp.network.model.PeerCapabilities;
+import com.streamapp.network.session.MessageType;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionConnection;
+import com.streamapp.network.session.SessionHandler;
+import com.streamapp.network.session.SessionProtocol;
+import com.streamapp.network.session.SessionServer;
+import com.streamapp.network.session.TcpFrameTransport;
+import com.streamapp.network.udp.UdpFrameSender;
+import com.streamapp.network.udp.UdpProtocol;
+import com.streamapp.streaming.capture.FrameSource;
+import com.streamapp.streaming.control.AdaptiveBitrateConfig;
+import com.streamapp.streaming.control.AdaptiveBitrateController;
+import com.streamapp.streaming.control.SessionStats;
+import com.streamapp.streaming.control.StreamQuality;
+import com.streamapp.streaming.cursor.CursorShape;
+import com.streamapp.streaming.cursor.CursorSource;
+import com.streamapp.streaming.cursor.CursorState;
+import com.streamapp.streaming.cursor.CursorTracker;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Сторона владельца экрана: принимает запросы трансляции, спрашивает
+ * пользователя о подтверждении и отправляет кадры одобренным зрителям.
+ *
+ * <p>Все зрители получают кадры из одного конвейера: экран захватывается
+ * и кодируется один раз. У каждого зрителя своя очередь отправки, свои
+ * подтверждения и своя ступень качества, поэтому медленный зритель
+ * получает кадры реже и не задерживает остальных. Вместо захвата экрана
+ * источником может быть любой {@link StreamFeed}, например ретранслятор.
+ *
+ * <p>При обрыве соединения трансляция не завершается сразу: захват
+ * приостанавливается, а состояние кодировщика хранится
+ * {@link StreamingConstants#SESSION_RESUME_TIMEOUT_MS}. Зритель с маркером
+ * сессии может за это время переподключиться без повторного подтверждения
+ * и получить только неподтвержденные плитки вместо опорного кадра.
+ *
+ * <p>Указатель мыши не входит в кадр: его положение опрашивается
+ * с частотой {@link StreamingConstants#CURSOR_RATE_HZ} и передается зрителям
+ * маленькими отдельными сообщениями, а изображение указателя — один раз
+ * на зрителя. Движение указателя не меняет плитки и не требует кодирования.
+ */
+public class StreamHost implements SessionHandler, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StreamHost.class);
+
+    /**
+     * Предел очереди отправки, после которого кадры пропускаются.
+     * Пропущенные плитки не подтверждаются и будут отправлены повторно.
+     */
+    static final long MAX_QUEUED_BYTES = 8L * 1024 * 1024;
+
+    /**
+     * Наибольшее число одновременных зрителей по умолчанию.
+     */
+    public static final int DEFAULT_MAX_VIEWERS = 16;
+
+    /**
+     * Причина отказа в запросе по соединению, которому трансляция уже идет.
+     */
+    private static final String ALREADY_STREAMING = "Трансляция по этому соединению уже идет";
+
+    /**
+     * Подтверждение запроса трансляции пользователем.
+     */
+    @FunctionalInterface
+    public interface RequestApprover {
+        /**
+         * Спрашивает пользователя, разрешить ли трансляцию.
+         *
+         * @param viewerName имя запросившего пользователя
+         * @param address адрес запросившего узла
+         * @return решение пользователя
+         */
+        CompletionStage<Boolean> approve(String viewerName, String address);
+    }
+
+    private final NioReactor reactor;
+    private final DirectBufferPool pool;
+    private final SessionServer server;
+    private final Supplier<? extends StreamFeed> feedFactory;
+    private final RequestApprover approver;
+    private final AdaptiveBitrateConfig bitrateConfig;
+    private final int maxViewers;
+    private final SecureRandom random = new SecureRandom();
+    private final List<Viewer> viewers = new ArrayList<>();
+    private volatile Consumer<StreamQuality> qualityListener = quality -> { };
+    private volatile IntConsumer viewerCountListener = count -> { };
+    private volatile CursorSource cursorSource;
+    private CursorTracker cursorTracker;
+    private StreamFeed feed;
+
+    /**
+     * Создает сторону владельца экрана.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     * @param sourceFactory фабрика источников кадров
+     * @param fps наибольшая частота захвата
+     * @param approver подтверждение запросов
+     */
+    public StreamHost(NioReactor reactor, DirectBufferPool pool, Supplier<FrameSource> sourceFactory, int fps,
+                      RequestApprover approver) {
+        this(reactor, pool, sourceFactory, fps, DEFAULT_MAX_VIEWERS, approver);
+    }
+
+    /**
+     * Создает сторону владельца экрана.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     * @param sourceFactory фабрика источников кадров
+     * @param fps наибольшая частота захвата
+     * @param maxViewers наибольшее число одновременных зрителей
+     * @param approver подтверждение запросов
+     */
+    public StreamHost(NioReactor reactor, DirectBufferPool pool, Supplier<FrameSource> sourceFactory, int fps,
+                      int maxViewers, RequestApprover approver) {
+        this(reactor, pool, fps, maxViewers, () -> new StreamPipeline(sourceFactory.get(), fps), approver);
+    }
+
+    /**
+     * Создает сторону, раздающую кадры произвольного источника,
+     * например ретранслятора.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     * @param fps наибольшая частота кадров для зрителя
+     * @param maxViewers наибольшее число одновременных зрителей
+     * @param feedFactory фабрика источников кадров; вызывается при подключении первого зрителя
+     * @param approver подтверждение запросов
+     */
+    public StreamHost(NioReactor reactor, DirectBufferPool pool, int fps, int maxViewers,
+                      Supplier<? extends StreamFeed> feedFactory, RequestApprover approver) {
+        if (maxViewers <= 0) {
+            throw new IllegalArgumentException("Недопустимое число зрителей: " + maxViewers);
+        }
+        this.reactor = reactor;
+        this.pool = pool;
+        this.server = new SessionServer(reactor, pool, this);
+        this.feedFactory = feedFactory;
+        this.approver = approver;
+        this.maxViewers = maxViewers;
+        this.bitrateConfig = AdaptiveBitrateConfig.defaults().withMaxFps(fps);
+    }
+
+    /**
+     * Возможности владельца экрана для объявления в mDNS до начала трансляции.
+     *
+     * @param width ширина захватываемой области; 0 — неизвестна
+     * @param height высота захватываемой области; 0 — неизвестна
+     * @param port порт сервера сессий
+     * @return возможности без зрителей и загрузки
+     */
+    public static PeerCapabilities localCapabilities(int width, int height, int port) {
+        return new PeerCapabilities(PeerCapabilities.codecBit(DeflateTileCodec.ID), EnumSet.allOf(TransportType.class),
+            width, height, StreamingConstants.DEFAULT_FPS, 0, DEFAULT_MAX_VIEWERS, 0, port, null);
+    }
+
+    /**
+     * Задает получателя изменений качества трансляции для индикатора в интерфейсе.
+     * Сообщается худшее качество среди зрителей. Вызывается в сетевом потоке.
+     *
+     * @param listener получатель оценки качества
+     */
+    public void setQualityListener(Consumer<StreamQuality> listener) {
+        this.qualityListener = listener;
+    }
+
+    /**
+     * Задает получателя числа зрителей, например для объявления загрузки
+     * в mDNS. Вызывается в сетевом потоке и не должен блокироваться.
+     *
+     * @param listener получатель числа зрителей
+     */
+    public void setViewerCountListener(IntConsumer listener) {
+        this.viewerCountListener = listener;
+    }
+
+    /**
+     * Задает источник положения указателя мыши. Указатель опрашивается,
+     * пока идет трансляция; без источника указатель зрителям не передается.
+     *
+     * @param source источник положения указателя или null
+     */
+    public void setCursorSource(CursorSource source) {
+        this.cursorSource = source;
+    }
+
+    /**
+     * Начинает принимать запросы трансляции.
+     *
+     * @param port порт сервера сессий
+     * @throws IOException если порт недоступен
+     */
+    public void start(int port) throws IOException {
+        server.bind(port);
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    @Override
+    public void onMessage(SessionConnection connection, MessageType type, ByteBuffer payload) {
+        if (connection.getAttachment() instanceof Viewer viewer) {
+            viewer.lastHeardNanos = System.nanoTime();
+        }
+        switch (type) {
+            case STREAM_REQUEST -> onStreamRequest(connection, StreamRequest.read(payload));
+            case STREAM_RESUME -> onStreamResume(connection, StreamResume.read(payload));
+            case FRAME_ACK -> onFrameAck(connection, payload.getLong());
+            case PONG -> {
+                Viewer viewer = viewerFor(connection);
+                SessionStats current = viewer != null ? viewer.stats : null;
+                if (current != null) {
+                    current.recordRtt(System.nanoTime() - payload.getLong());
+                }
+            }
+            case PING -> {
+                // Проверка доступности: отвечаем любому соединению, в том числе без трансляции
+                long timestamp = payload.getLong();
+                connection.send(MessageType.PONG, Long.BYTES, buffer -> buffer.putLong(timestamp));
+            }
+            case KEYFRAME_REQUEST -> {
+                Viewer viewer = viewerFor(connection);
+                if (viewer != null) {
+                    viewer.subscription.requestKeyframe();
+                }
+            }
+            case STREAM_STOP -> {
+                logger.info("Зритель {} завершил трансляцию", connection.getRemoteAddress());
+                HandshakeEvent.commit(HandshakeEvent.HOST, "stop", connection.getRemoteAddress(), null);
+                Viewer viewer = viewerFor(connection);
+                if (viewer != null) {
+                    stopStreaming(viewer);
+                }
+                connection.flushAndClose();
+            }
+            default -> logger.warn("Неожиданное сообщение {} от {}", type, connection.getRemoteAddress());
+        }
+    }
+
+    private void onStreamRequest(SessionConnection connection, StreamRequest request) {
+        String viewerName = request.getUsername();
+        logger.info("Запрос трансляции от {} ({}, транспорт {})", viewerName, connection.getRemoteAddress(),
+            request.getTransport());
+        HandshakeEvent.commit(HandshakeEvent.HOST, "request", connection.getRemoteAddress(),
+            viewerName + ", " + request.getTransport());
+        synchronized (this) {
+            if (viewerFor(connection) != null) {
+                reject(connection, ALREADY_STREAMING);
+                return;
+            }
+            if (viewers.size() >= maxViewers) {
+                reject(connection, "Достигнуто наибольшее число зрителей");
+                return;
+            }
+        }
+        // Шаг подтверждения длится, пока пользователь решает
+        HandshakeEvent approval = new HandshakeEvent();
+        approval.begin();
+        approver.approve(viewerName, String.valueOf(connection.getRemoteAddress()))
+            .whenComplete((approved, error) -> {
+                approval.end();
+                if (approval.shouldCommit()) {
+                    approval.side = HandshakeEvent.HOST;
+                    approval.step = "approval";
+                    approval.peer = String.valueOf(connection.getRemoteAddress());
+                    approval.detail = error != null ? error.getMessage() : String.valueOf(approved);
+                    approval.commit();
+                }
+                if (error != null || !Boolean.TRUE.equals(approved)) {
+                    reject(connection, "Запрос отклонен");
+                    return;
+                }
+                startStreaming(connection, request);
+            });
+    }
+
+    private void reject(SessionConnection connection, String reason) {
+        connection.send(MessageType.STREAM_REJECT, SessionProtocol.stringSize(reason),
+            buffer -> SessionProtocol.writeString(buffer, reason));
+        logger.info("Запрос от {} отклонен: {}", connection.getRemoteAddress(), reason);
+        HandshakeEvent.commit(HandshakeEvent.HOST, "reject", connection.getRemoteAddress(), reason);
+    }
+
+    private synchronized void startStreaming(SessionConnection connection, StreamRequest request) {
+        if (!connection.isOpen()) {
+            return;
+        }
+        if (viewerFor(connection) != null) {
+            // Повторный запрос, одобренный, пока шла трансляция по первому
+            reject(connection, ALREADY_STREAMING);
+            return;
+        }
+        if (viewers.size() >= maxViewers) {
+            reject(connection, "Достигнуто наибольшее число зрителей");
+            return;
+        }
+        if (feed == null) {
+            feed = feedFactory.get();
+            feed.start();
+            CursorSource source = cursorSource;
+            if (source != null) {
+                cursorTracker = new CursorTracker(source, StreamingConstants.CURSOR_RATE_HZ, this::onCursor);
+                cursorTracker.start();
+            }
+        }
+        Viewer viewer = new Viewer(request.getUsername(), random.nextLong());
+        viewer.subscription = feed.subscribe(viewer::sendFrame);
+        viewers.add(viewer);
+        viewerCountListener.accept(viewers.size());
+        attach(viewer, connection, request.getTransport(), request.getUdpPort());
+        reportQuality();
+        logger.info("Трансляция для {} начата ({}), зрителей: {}", request.getUsername(),
+            viewer.transport.getType(), viewers.size());
+    }
+
+    /**
+     * Подключает зрителя к соединению: транспорт, подтверждение с маркером сессии и оценка канала.
+     */
+    private void attach(Viewer viewer, SessionConnection connection, TransportType requested, int udpPort) {
+        FrameTransport chosen = openTransport(connection, requested, udpPort);
+        chosen.setQueueLatencyListener((frameId, nanos) ->
+            StreamLatency.shared().record(StreamLatency.Stage.SEND_QUEUE, frameId, nanos));
+        viewer.connection = connection;
+        viewer.lastHeardNanos = System.nanoTime();
+        viewer.detached = false;
+        viewer.transport = chosen;
+        viewer.stats = new SessionStats();
+        connection.setAttachment(viewer);
+        long token = viewer.token;
+        // Зритель принимает кадры только с этого порта и не больше этого размера
+        int udpSourcePort = chosen instanceof UdpFrameSender udp ? udp.getLocalPort() : 0;
+        int maxFrameSize = feed != null ? feed.getMaxFrameSize() : 0;
+        connection.send(MessageType.STREAM_ACCEPT, 1 + Long.BYTES + Short.BYTES + Integer.BYTES,
+            buffer -> buffer.put(chosen.getType().getCode()).putLong(token)
+                .putShort((short) udpSourcePort).putInt(maxFrameSize));
+        HandshakeEvent.commit(HandshakeEvent.HOST, "accept", connection.getRemoteAddress(),
+            chosen.getType().name());
+        // Изображения указателя могли потеряться вместе с прежним соединением
+        viewer.sentShapes.clear();
+        viewer.sentCursor = null;
+        if (cursorTracker != null) {
+            sendCursor(viewer, cursorTracker.getLast());
+        }
+        scheduleEvaluation(viewer, connection);
+    }
+
+    private synchronized void onStreamResume(SessionConnection connection, StreamResume resume) {
+        if (viewerFor(connection) != null) {
+            reject(connection, ALREADY_STREAMING);
+            return;
+        }
+        Viewer viewer = null;
+        for (Viewer candidate : viewers) {
+            if (candidate.token == resume.getSessionToken()) {
+                viewer = candidate;
+            }
+        }
+        if (viewer == null) {
+            reject(connection, "Сессия трансляции не найдена");
+            return;
+        }
+        if (!viewer.detached) {
+            // Владелец еще не заметил обрыв, а зритель уже переподключился
+            SessionConnection previous = viewer.connection;
+            detach(viewer);
+            previous.close();
+        }
+        if (viewer.resumeTimeoutTask != null) {
+            viewer.resumeTimeoutTask.cancel();
+            viewer.resumeTimeoutTask = null;
+        }
+        attach(viewer, connection, resume.getTransport(), resume.getUdpPort());
+        if (resume.getLastFrameId() >= 0) {
+            viewer.subscription.acknowledge(resume.getLastFrameId());
+        }
+        viewer.subscription.resume();
+        HandshakeEvent.commit(HandshakeEvent.HOST, "resumed", connection.getRemoteAddress(),
+            "последний кадр " + resume.getLastFrameId());
+        logger.info("Трансляция для {} возобновлена ({}), последний полученный кадр {}",
+            viewer.name, viewer.transport.getType(), resume.getLastFrameId());
+    }
+
+    private synchronized void onCursor(CursorState state) {
+        for (Viewer viewer : viewers) {
+            if (!viewer.detached) {
+                sendCursor(viewer, state);
+            }
+        }
+    }
+
+    private void sendCursor(Viewer viewer, CursorState state) {
+        if (viewer.sentCursor != null && viewer.sentCursor.sameAs(state)) {
+            return;
+        }
+        viewer.sentCursor = state;
+        SessionConnection connection = viewer.connection;
+        CursorShape shape = state.getShape();
+        if (shape != null && viewer.sentShapes.add(shape.getHash())) {
+            connection.send(MessageType.CURSOR_SHAPE, shape.serializedSize(), shape::writeTo);
+        }
+        connection.send(MessageType.CURSOR_POSITION, CursorState.POSITION_SIZE, state::writePosition);
+    }
+
+    private FrameTransport openTransport(SessionConnection connection, TransportType requested, int udpPort) {
+        if (requested == TransportType.UDP
+                && connection.getRemoteAddress() instanceof InetSocketAddress remote) {
+            try {
+                return new UdpFrameSender(reactor, pool, new InetSocketAddress(remote.getAddress(), udpPort),
+                    UdpProtocol.DEFAULT_FEC_GROUP_SIZE, frameId -> onFrameAck(connection, frameId), MAX_QUEUED_BYTES);
+            } catch (IOException e) {
+                logger.warn("Не удалось открыть UDP-транспорт, используется TCP: {}", e.getMessage());
+            }
+        }
+        return new TcpFrameTransport(connection, MAX_QUEUED_BYTES);
+    }
+
+    private void onFrameAck(SessionConnection connection, long frameId) {
+        Viewer viewer = viewerFor(connection);
+        SessionStats currentStats = viewer != null ? viewer.stats : null;
+        if (currentStats == null) {
+            return;
+        }
+        currentStats.recordAck(frameId);
+        viewer.subscription.acknowledge(frameId);
+    }
+
+    /**
+     * Периодически замеряет задержку и оценивает канал зрителя. Выполняется в сетевом потоке.
+     */
+    private void scheduleEvaluation(Viewer viewer, SessionConnection connection) {
+        viewer.evaluationTask = reactor.schedule(() -> evaluate(viewer, connection),
+            bitrateConfig.getEvaluationIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void evaluate(Viewer viewer, SessionConnection connection) {
+        SessionStats currentStats;
+        long queuedBytes;
+        synchronized (this) {
+            if (viewer.connection != connection || viewer.detached || !viewers.contains(viewer)) {
+                return;
+            }
+            if (System.nanoTime() - viewer.lastHeardNanos
+                    > TimeUnit.MILLISECONDS.toNanos(StreamingConstants.PEER_TIMEOUT_MS)) {
+                // Закрытие переводит зрителя в ожидание возобновления, как при обрыве
+                logger.info("Зритель {} не отвечает {} мс", viewer.name, StreamingConstants.PEER_TIMEOUT_MS);
+                connection.close();
+                return;
+            }
+            currentStats = viewer.stats;
+            queuedBytes = viewer.transport.getQueuedBytes();
+            scheduleEvaluation(viewer, connection);
+        }
+        long now = System.nanoTime();
+        connection.send(MessageType.PING, Long.BYTES, buffer -> buffer.putLong(now));
+        viewer.controller.evaluate(currentStats, queuedBytes);
+    }
+
+    private synchronized Viewer viewerFor(SessionConnection connection) {
+        if (connection.getAttachment() instanceof Viewer viewer
+                && viewer.connection == connection && !viewer.detached && viewers.contains(viewer)) {
+            return viewer;
+        }
+        return null;
+    }
+
+    private synchronized void reportQuality() {
+        StreamQuality worst = StreamQuality.GOOD;
+        for (Viewer viewer : viewers) {
+            if (viewer.quality.ordinal() > worst.ordinal()) {
+                worst = viewer.quality;
+            }
+        }
+        qualityListener.accept(worst);
+    }
+
+    /**
+     * Отключает зрителя от соединения, сохраняя его состояние для возобновления.
+     */
+    private void detach(Viewer viewer) {
+        viewer.detached = true;
+        if (viewer.evaluationTask != null) {
+            viewer.evaluationTask.cancel();
+            viewer.evaluationTask = null;
+        }
+        viewer.subscription.pause();
+        FrameTransport closing = viewer.transport;
+        viewer.transport = null;
+        viewer.stats = null;
+        closing.close();
+    }
+
+    private synchronized void stopStreaming(Viewer viewer) {
+        if (!viewers.remove(viewer)) {
+            return;
+        }
+        viewerCountListener.accept(viewers.size());
+        if (viewer.evaluationTask != null) {
+            viewer.evaluationTask.cancel();
+            viewer.evaluationTask = null;
+        }
+        if (viewer.resumeTimeoutTask != null) {
+            viewer.resumeTimeoutTask.cancel();
+            viewer.resumeTimeoutTask = null;
+        }
+        viewer.subscription.cancel();
+        FrameTransport closing = viewer.transport;
+        viewer.transport = null;
+        viewer.stats = null;
+        if (closing != null) {
+            closing.close();
+        }
+        logger.info("Трансляция для {} остановлена, зрителей: {}", viewer.name, viewers.size());
+        if (viewers.isEmpty()) {
+            feed.stop();
+            feed = null;
+            if (cursorTracker != null) {
+                cursorTracker.stop();
+                cursorTracker = null;
+            }
+            logger.info("Трансляция остановлена");
+        } else {
+            reportQuality();
+        }
+    }
+
+    @Override
+    public synchronized void onDisconnected(SessionConnection connection) {
+        Viewer viewer = viewerFor(connection);
+        if (viewer == null) {
+            return;
+        }
+        detach(viewer);
+        viewer.resumeTimeoutTask = reactor.schedule(() -> expire(viewer),
+            StreamingConstants.SESSION_RESUME_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        logger.info("Соединение со зрителем {} потеряно, ожидание переподключения", viewer.name);
+    }
+
+    private synchronized void expire(Viewer viewer) {
+        if (viewer.detached) {
+            logger.info("Зритель {} не переподключился", viewer.name);
+            stopStreaming(viewer);
+        }
+    }
+
+    /**
+     * Проверяет, идет ли трансляция.
+     *
+     * @return true, если есть одобренные зрители, в том числе переподключающиеся
+     */
+    public synchronized boolean isStreaming() {
+        return !viewers.isEmpty();
+    }
+
+    /**
+     * @return число одобренных зрителей, в том числе переподключающихся
+     */
+    public synchronized int getViewerCount() {
+        return viewers.size();
+    }
+
+    public int getMaxViewers() {
+        return maxViewers;
+    }
+
+    /**
+     * Завершает трансляцию для всех зрителей по инициативе владельца экрана.
+     */
+    public void stopCurrentStream() {
+        List<Viewer> current;
+        synchronized (this) {
+            current = new ArrayList<>(viewers);
+        }
+        for (Viewer viewer : current) {
+            SessionConnection connection = viewer.connection;
+            if (!viewer.detached) {
+                connection.send(MessageType.STREAM_STOP);
+            }
+            stopStreaming(viewer);
+        }
+    }
+
+    /**
+     * Завершает трансляцию и прекращает прием запросов.
+     */
+    @Override
+    public void close() {
+        stopCurrentStream();
+        server.close();
+    }
+
+    /**
+     * Одобренный зритель: соединение, транспорт, подтверждения и ступень качества.
+     * Изменяемые поля защищены блокировкой владельца экрана, кроме транспорта
+     * и статистики, которые поток захвата читает без блокировки.
+     */
+    private final class Viewer {
+        private final String name;
+        private final long token;
+        private final AdaptiveBitrateController controller;
+        /**
+         * Отпечатки изображений указателя, уже переданных в текущее соединение.
+         */
+        private final Set<Long> sentShapes = new HashSet<>();
+        private CursorState sentCursor;
+        private StreamFeed.Subscription subscription;
+        private SessionConnection connection;
+        private boolean detached;
+        private NioReactor.TimedTask evaluationTask;
+        private NioReactor.TimedTask resumeTimeoutTask;
+        /**
+         * Время последнего сообщения от зрителя; пишется в сетевом потоке без блокировки.
+         */
+        private volatile long lastHeardNanos;
+        private volatile FrameTransport transport;
+        private volatile SessionStats stats;
+        private volatile StreamQuality quality = StreamQuality.GOOD;
+
+        private Viewer(String name, long token) {
+            this.name = name;
+            this.token = token;
+            this.controller = new AdaptiveBitrateController(bitrateConfig,
+                level -> subscription.applyQuality(level),
+                changed -> {
+                    quality = changed;
+                    reportQuality();
+                });
+        }
+
+        private boolean sendFrame(EncodedFrame frame) {
+            if (frame.isEmpty() && !frame.isKeyframe()) {
+                return true;
+            }
+            FrameTransport target = transport;
+            SessionStats sessionStats = stats;
+            if (target == null || sessionStats == null) {
+                // Зритель переподключается: плитки кадра уйдут после возобновления
+                return false;
+            }
+            if (!target.sendFrame(frame)) {
+                logger.debug("Очередь отправки {} переполнена, кадр {} пропущен", name, frame.getFrameId());
+                return false;
+            }
+            sessionStats.recordSent(frame.getFrameId(), frame.serializedSize());
+            return true;
+        }
+    }
+}
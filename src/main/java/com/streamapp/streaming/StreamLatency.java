@@ -0,0 +1,212 @@
+package com.streamapp.streaming;
+
+import com.streamapp.util.LatencyHistogram;
+import com.streamapp.util.RateMeter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гистограммы задержек этапов трансляции.
+ * <p>
+ * Этапы отправителя пишет конвейер и владелец экрана, этапы зрителя — клиент
+ * и поверхность отображения. Часы отправителя и зрителя разные, поэтому
+ * каждая сторона измеряет только свои этапы, а сеть оценивается половиной
+ * времени кругового обхода. Один экземпляр на процесс ({@link #shared()}),
+ * как и пул буферов: когда трансляция и просмотр идут в одном процессе,
+ * видны все этапы пути кадра. Запись не блокирует и не создает объектов.
+ * <p>
+ * Каждый замер с номером кадра также записывается событием JFR
+ * {@value FrameStageEvent#NAME}, если оно включено в записи; выключенное
+ * событие JIT убирает вместе с созданием объекта.
+ */
+public final class StreamLatency implements StreamLatencyMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(StreamLatency.class);
+
+    /**
+     * Имя объекта JMX.
+     */
+    public static final String OBJECT_NAME = "com.streamapp:type=StreamLatency";
+
+    /**
+     * Номер кадра для замеров, не относящихся к кадру.
+     */
+    public static final long NO_FRAME = -1;
+
+    /**
+     * Окно подсчета частоты кадров в секундах.
+     */
+    private static final int FPS_WINDOW_SECONDS = 2;
+
+    private static final StreamLatency SHARED = new StreamLatency();
+
+    /**
+     * Этапы пути кадра в порядке прохождения.
+     */
+    public enum Stage {
+        /** Захват экрана в буфер кадра. */
+        CAPTURE("Захват"),
+        /** Сравнение плиток с предыдущим кадром. */
+        DIFF("Сравнение"),
+        /** Кодирование измененных плиток и сборка кадра. */
+        ENCODE("Кодирование"),
+        /** Ожидание в очереди отправки до записи в сокет. */
+        SEND_QUEUE("Очередь отправки"),
+        /** Половина времени кругового обхода до владельца экрана. */
+        NETWORK("Сеть"),
+        /** От получения кадра до выдачи из буфера выравнивания. */
+        RECEIVE("Прием"),
+        /** Декодирование плиток в буфер изображения. */
+        DECODE("Декодирование"),
+        /** От декодирования до передачи грязной области JavaFX. */
+        UPLOAD("Загрузка"),
+        /** От передачи JavaFX до импульса отрисовки. */
+        PRESENT("Показ");
+
+        private final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final RateMeter captured = new RateMeter(FPS_WINDOW_SECONDS);
+    private final RateMeter presented = new RateMeter(FPS_WINDOW_SECONDS);
+
+    /**
+     * Создает пустые гистограммы. В приложении используется {@link #shared()}.
+     */
+    public StreamLatency() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return общий экземпляр процесса
+     */
+    public static StreamLatency shared() {
+        return SHARED;
+    }
+
+    /**
+     * Учитывает задержку этапа.
+     *
+     * @param stage этап
+     * @param nanos задержка в наносекундах
+     */
+    public void record(Stage stage, long nanos) {
+        record(stage, NO_FRAME, nanos);
+    }
+
+    /**
+     * Учитывает задержку этапа кадра.
+     *
+     * @param stage этап
+     * @param frameId номер кадра или {@link #NO_FRAME}
+     * @param nanos задержка в наносекундах
+     */
+    public void record(Stage stage, long frameId, long nanos) {
+        histograms[stage.ordinal()].recordNanos(nanos);
+        FrameStageEvent event = new FrameStageEvent();
+        if (event.shouldCommit()) {
+            event.frameId = frameId;
+            event.stage = stage.name();
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Учитывает захваченный для отправки кадр.
+     */
+    public void frameCaptured() {
+        captured.mark();
+    }
+
+    /**
+     * Учитывает показанный кадр.
+     */
+    public void framePresented() {
+        presented.mark();
+    }
+
+    /**
+     * @param stage этап
+     * @return гистограмма этапа
+     */
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    @Override
+    public Map<String, Double> getP50Millis() {
+        return percentiles(50);
+    }
+
+    @Override
+    public Map<String, Double> getP99Millis() {
+        return percentiles(99);
+    }
+
+    private Map<String, Double> percentiles(double percentile) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            result.put(stage.name(), histogram(stage).snapshot().percentileNanos(percentile)
+                / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getSamples() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            result.put(stage.name(), histogram(stage).snapshot().getCount());
+        }
+        return result;
+    }
+
+    @Override
+    public double getCapturedFps() {
+        return captured.perSecond();
+    }
+
+    @Override
+    public double getPresentedFps() {
+        return presented.perSecond();
+    }
+
+    /**
+     * Публикует задержки в платформенном сервере JMX. Если объект с таким
+     * именем уже есть, он заменяется.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+            logger.info("Задержки трансляции доступны через JMX: {}", OBJECT_NAME);
+        } catch (JMException e) {
+            logger.warn("Не удалось опубликовать задержки трансляции через JMX: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.streamapp.streaming;
+
+import java.util.Map;
+
+/**
+ * Задержки этапов трансляции в этом процессе, доступные через JMX
+ * ({@value StreamLatency#OBJECT_NAME}). Значения — в миллисекундах
+ * с момента запуска, ключи — имена этапов {@link StreamLatency.Stage}.
+ */
+public interface StreamLatencyMXBean {
+    /**
+     * @return медиана задержки по этапам
+     */
+    Map<String, Double> getP50Millis();
+
+    /**
+     * @return 99-й процентиль задержки по этапам
+     */
+    Map<String, Double> getP99Millis();
+
+    /**
+     * @return число замеров по этапам
+     */
+    Map<String, Long> getSamples();
+
+    /**
+     * @return кадров в секунду, захваченных для отправки
+     */
+    double getCapturedFps();
+
+    /**
+     * @return кадров в секунду, показанных зрителю
+     */
+    double getPresentedFps();
+}
@@ -0,0 +1,279 @@
+package com.streamapp.streaming;
+
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameSource;
+import com.streamapp.streaming.capture.ScreenCaptureService;
+import com.streamapp.streaming.control.QualityLevel;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.streaming.encode.EncodedFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Конвейер трансляции на стороне отправителя: захват, разностное кодирование
+ * и передача закодированных кадров получателям.
+ *
+ * <p>Кадр захватывается и кодируется один раз для всех получателей
+ * ({@link Subscription}), а кадр для каждого собирается из кэша плиток
+ * с учетом его подтверждений. У каждого получателя своя ступень качества:
+ * захват идет с наибольшей частотой среди получателей, а медленным
+ * получателям кадры отправляются реже и собираются из плиток их качества,
+ * которые кодировщик кэширует отдельно для каждого запрошенного качества.
+ * Кадр, не принятый очередью получателя, не задерживает остальных: его
+ * плитки войдут в следующий кадр этого получателя.
+ *
+ * <p>Время захвата, сравнения и кодирования каждого кадра учитывается
+ * в {@link StreamLatency}.
+ */
+public class StreamPipeline implements StreamFeed {
+    private static final Logger logger = LoggerFactory.getLogger(StreamPipeline.class);
+
+    private final ScreenCaptureService captureService;
+    private final DeltaEncoder encoder;
+    private final int maxFps;
+    private final StreamLatency latency;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private boolean started;
+    private boolean capturing;
+
+    /**
+     * Создает конвейер.
+     *
+     * @param source источник кадров
+     * @param maxFps наибольшая частота захвата
+     */
+    public StreamPipeline(FrameSource source, int maxFps) {
+        this(source, maxFps, StreamLatency.shared());
+    }
+
+    /**
+     * Создает конвейер с отдельным учетом задержек.
+     *
+     * @param source источник кадров
+     * @param maxFps наибольшая частота захвата
+     * @param latency учет задержек этапов
+     */
+    public StreamPipeline(FrameSource source, int maxFps, StreamLatency latency) {
+        this.latency = latency;
+        this.encoder = new DeltaEncoder(source.getWidth(), source.getHeight());
+        this.maxFps = maxFps;
+        this.captureService = new ScreenCaptureService(source, maxFps, this::onFrame);
+    }
+
+    /**
+     * Добавляет получателя кадров. Первый кадр для него будет опорным.
+     *
+     * @param sink получатель закодированных кадров; возвращает false, если кадр не отправлен
+     * @return подписка получателя
+     */
+    @Override
+    public Subscription subscribe(Predicate<EncodedFrame> sink) {
+        Subscription subscription = new Subscription(encoder.newReceiver(), sink);
+        subscriptions.add(subscription);
+        reconfigure();
+        return subscription;
+    }
+
+    private void onFrame(Frame frame) {
+        long captureTime = frame.getCaptureTimeNanos();
+        long frameId = frame.getFrameId();
+        // Время кадра отмечается до захвата, поэтому сюда входит и передача из потока захвата
+        latency.record(StreamLatency.Stage.CAPTURE, frameId, System.nanoTime() - captureTime);
+        latency.frameCaptured();
+        long tolerance = TimeUnit.SECONDS.toNanos(1) / captureService.getFps() / 2;
+        boolean due = false;
+        for (Subscription subscription : subscriptions) {
+            due |= subscription.isDue(captureTime, tolerance);
+        }
+        try {
+            if (!due) {
+                return;
+            }
+            encoder.update(frame);
+        } finally {
+            frame.release();
+        }
+        latency.record(StreamLatency.Stage.DIFF, frameId, encoder.getLastDiffNanos());
+        long encodeNanos = encoder.getLastEncodeNanos();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isDue(captureTime, tolerance)) {
+                subscription.send(captureTime, encodeNanos);
+            }
+        }
+    }
+
+    /**
+     * Запускает захват и кодирование. Захват идет, пока есть активные получатели.
+     */
+    @Override
+    public synchronized void start() {
+        started = true;
+        reconfigure();
+    }
+
+    /**
+     * Пересчитывает частоту захвата по активным получателям: наибольшую из их частот.
+     */
+    private synchronized void reconfigure() {
+        int fps = 0;
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.paused) {
+                fps = Math.max(fps, subscription.fps);
+            }
+        }
+        if (!started) {
+            return;
+        }
+        if (fps == 0) {
+            if (capturing) {
+                captureService.pause();
+                capturing = false;
+            }
+            return;
+        }
+        captureService.setFps(fps);
+        if (!capturing) {
+            captureService.start();
+            capturing = true;
+        }
+    }
+
+    /**
+     * Останавливает конвейер и освобождает ресурсы кодировщика.
+     */
+    @Override
+    public synchronized void stop() {
+        started = false;
+        capturing = false;
+        subscriptions.clear();
+        captureService.stop();
+        encoder.close();
+    }
+
+    @Override
+    public int getMaxFrameSize() {
+        return encoder.getMaxFrameSize();
+    }
+
+    /**
+     * @return число получателей, включая приостановленных
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    public ScreenCaptureService getCaptureService() {
+        return captureService;
+    }
+
+    /**
+     * Получатель кадров конвейера со своим состоянием подтверждений и качеством.
+     */
+    public final class Subscription implements StreamFeed.Subscription {
+        private final DeltaEncoder.Receiver receiver;
+        private final Predicate<EncodedFrame> sink;
+        private volatile boolean paused;
+        private volatile int fps = maxFps;
+        // Только поток захвата
+        private long lastSentNanos = Long.MIN_VALUE;
+
+        private Subscription(DeltaEncoder.Receiver receiver, Predicate<EncodedFrame> sink) {
+            this.receiver = receiver;
+            this.sink = sink;
+        }
+
+        private boolean isDue(long captureTime, long tolerance) {
+            if (paused) {
+                return false;
+            }
+            if (lastSentNanos == Long.MIN_VALUE) {
+                return true;
+            }
+            long period = TimeUnit.SECONDS.toNanos(1) / fps;
+            return captureTime - lastSentNanos >= period - tolerance;
+        }
+
+        /**
+         * @param encodeNanos время кодирования плиток кадра; к нему добавляется сборка кадра получателя
+         */
+        private void send(long captureTime, long encodeNanos) {
+            lastSentNanos = captureTime;
+            long start = System.nanoTime();
+            EncodedFrame encoded = receiver.assemble();
+            latency.record(StreamLatency.Stage.ENCODE, encoded.getFrameId(), encodeNanos + System.nanoTime() - start);
+            if (encoded.isKeyframe() || !encoded.isEmpty()) {
+                logger.trace("Закодирован кадр {}", encoded);
+            }
+            if (!sink.test(encoded)) {
+                // Кадр не ушел в сеть: его плитки войдут в следующий кадр
+                receiver.discard(encoded.getFrameId());
+            }
+        }
+
+        /**
+         * Передает подтверждение получения кадра.
+         *
+         * @param frameId номер подтвержденного кадра
+         */
+        @Override
+        public void acknowledge(long frameId) {
+            receiver.acknowledge(frameId);
+        }
+
+        /**
+         * Запрашивает опорный кадр.
+         */
+        @Override
+        public void requestKeyframe() {
+            receiver.requestKeyframe();
+        }
+
+        /**
+         * Применяет ступень качества получателя: частоту отправки и качество его плиток.
+         *
+         * @param level новая ступень качества
+         */
+        @Override
+        public void applyQuality(QualityLevel level) {
+            fps = Math.min(level.getFps(), maxFps);
+            receiver.setQuality(level.getTileQuality());
+            reconfigure();
+        }
+
+        /**
+         * Приостанавливает отправку, сохраняя состояние подтверждений,
+         * например пока зритель переподключается.
+         */
+        @Override
+        public void pause() {
+            paused = true;
+            reconfigure();
+        }
+
+        /**
+         * Продолжает отправку после {@link #pause()}. Плитки, получение которых
+         * не подтверждено, отправляются в первом же кадре.
+         */
+        @Override
+        public void resume() {
+            receiver.resendUnacknowledged();
+            paused = false;
+            reconfigure();
+        }
+
+        /**
+         * Отключает получателя от конвейера.
+         */
+        @Override
+        public void cancel() {
+            subscriptions.remove(this);
+            receiver.remove();
+            reconfigure();
+        }
+    }
+}
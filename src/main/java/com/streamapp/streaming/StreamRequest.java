@@ -0,0 +1,81 @@
+package com.streamapp.streaming;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.network.session.SessionProtocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Полезная нагрузка запроса трансляции.
+ * Формат: имя пользователя, затем необязательные транспорт (1 байт)
+ * и UDP-порт зрителя (uint16). Старые клиенты передают только имя.
+ */
+public final class StreamRequest {
+    private final String username;
+    private final TransportType transport;
+    private final int udpPort;
+
+    /**
+     * Создает запрос.
+     *
+     * @param username имя пользователя
+     * @param transport предпочтительный транспорт кадров
+     * @param udpPort UDP-порт зрителя; 0 для TCP
+     */
+    public StreamRequest(String username, TransportType transport, int udpPort) {
+        this.username = username;
+        this.transport = transport;
+        this.udpPort = udpPort;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public TransportType getTransport() {
+        return transport;
+    }
+
+    public int getUdpPort() {
+        return udpPort;
+    }
+
+    /**
+     * Возвращает размер запроса в сериализованном виде.
+     *
+     * @return размер в байтах
+     */
+    public int serializedSize() {
+        return SessionProtocol.stringSize(username) + 1 + 2;
+    }
+
+    /**
+     * Записывает запрос в буфер.
+     *
+     * @param dst буфер назначения
+     */
+    public void writeTo(ByteBuffer dst) {
+        SessionProtocol.writeString(dst, username);
+        dst.put(transport.getCode());
+        dst.putShort((short) udpPort);
+    }
+
+    /**
+     * Читает запрос из буфера.
+     *
+     * @param src полезная нагрузка сообщения
+     * @return запрос
+     */
+    public static StreamRequest read(ByteBuffer src) {
+        String username = SessionProtocol.readString(src);
+        if (src.remaining() < 3) {
+            return new StreamRequest(username, TransportType.TCP, 0);
+        }
+        TransportType transport = TransportType.fromCode(src.get());
+        int udpPort = Short.toUnsignedInt(src.getShort());
+        if (transport == TransportType.UDP && udpPort == 0) {
+            transport = TransportType.TCP;
+        }
+        return new StreamRequest(username, transport, udpPort);
+    }
+}
@@ -0,0 +1,85 @@
+package com.streamapp.streaming;
+
+import com.streamapp.network.TransportType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Полезная нагрузка запроса на возобновление трансляции.
+ * Формат: маркер сессии (int64), номер последнего полученного кадра (int64),
+ * транспорт (1 байт) и UDP-порт зрителя (uint16).
+ */
+public final class StreamResume {
+    /**
+     * Размер запроса в сериализованном виде.
+     */
+    public static final int SERIALIZED_SIZE = 8 + 8 + 1 + 2;
+
+    private final long sessionToken;
+    private final long lastFrameId;
+    private final TransportType transport;
+    private final int udpPort;
+
+    /**
+     * Создает запрос.
+     *
+     * @param sessionToken маркер сессии из подтверждения трансляции
+     * @param lastFrameId номер последнего полученного кадра; -1, если кадров не было
+     * @param transport предпочтительный транспорт кадров
+     * @param udpPort UDP-порт зрителя; 0 для TCP
+     */
+    public StreamResume(long sessionToken, long lastFrameId, TransportType transport, int udpPort) {
+        this.sessionToken = sessionToken;
+        this.lastFrameId = lastFrameId;
+        this.transport = transport;
+        this.udpPort = udpPort;
+    }
+
+    public long getSessionToken() {
+        return sessionToken;
+    }
+
+    public long getLastFrameId() {
+        return lastFrameId;
+    }
+
+    public TransportType getTransport() {
+        return transport;
+    }
+
+    public int getUdpPort() {
+        return udpPort;
+    }
+
+    /**
+     * Записывает запрос в буфер.
+     *
+     * @param dst буфер назначения
+     */
+    public void writeTo(ByteBuffer dst) {
+        dst.putLong(sessionToken);
+        dst.putLong(lastFrameId);
+        dst.put(transport.getCode());
+        dst.putShort((short) udpPort);
+    }
+
+    /**
+     * Читает запрос из буфера.
+     *
+     * @param src полезная нагрузка сообщения
+     * @return запрос
+     */
+    public static StreamResume read(ByteBuffer src) {
+        if (src.remaining() < SERIALIZED_SIZE) {
+            throw new IllegalArgumentException("Некорректный запрос на возобновление: " + src.remaining() + " байт");
+        }
+        long sessionToken = src.getLong();
+        long lastFrameId = src.getLong();
+        TransportType transport = TransportType.fromCode(src.get());
+        int udpPort = Short.toUnsignedInt(src.getShort());
+        if (transport == TransportType.UDP && udpPort == 0) {
+            transport = TransportType.TCP;
+        }
+        return new StreamResume(sessionToken, lastFrameId, transport, udpPort);
+    }
+}
@@ -0,0 +1,503 @@
+package com.streamapp.streaming;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.network.session.MessageType;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.network.session.SessionConnection;
+import com.streamapp.network.session.SessionHandler;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionProtocol;
+import com.streamapp.network.udp.UdpFrameReceiver;
+import com.streamapp.network.udp.UdpProtocol;
+import com.streamapp.streaming.cursor.CursorShape;
+import com.streamapp.streaming.cursor.CursorState;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.streaming.playout.JitterBuffer;
+import com.streamapp.streaming.playout.PlayoutScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Сторона зрителя: запрашивает трансляцию у владельца экрана,
+ * принимает кадры и подтверждает их получение. Полученные кадры проходят
+ * через буфер выравнивания и выдаются в темпе воспроизведения.
+ *
+ * <p>При обрыве соединения зритель сам переподключается к тому же адресу
+ * и возобновляет трансляцию по маркеру сессии, сообщая номер последнего
+ * полученного кадра. Буфер воспроизведения и UDP-порт при этом сохраняются.
+ *
+ * <p>Ретранслятор не показывает кадры, а раздает их дальше, поэтому
+ * принимает их без выравнивания: в режиме без буфера кадры выдаются
+ * в сетевом потоке сразу по получении.
+ */
+public class StreamViewerClient implements SessionHandler {
+    private static final Logger logger = LoggerFactory.getLogger(StreamViewerClient.class);
+
+    /**
+     * Получатель событий трансляции. Кадры выдаются в потоке воспроизведения
+     * (в режиме без буфера — в сетевом потоке), остальные события — в сетевом потоке.
+     */
+    public interface Listener {
+        /**
+         * Владелец экрана подтвердил запрос.
+         */
+        void onAccepted();
+
+        /**
+         * Владелец экрана отклонил запрос.
+         *
+         * @param reason причина отказа
+         */
+        void onRejected(String reason);
+
+        /**
+         * Наступило время воспроизведения кадра; в режиме без буфера — кадр получен.
+         *
+         * @param frame закодированный кадр
+         */
+        void onFrame(EncodedFrame frame);
+
+        /**
+         * Трансляция завершена или соединение потеряно.
+         */
+        void onStopped();
+
+        /**
+         * Соединение оборвалось, идет попытка возобновить трансляцию.
+         */
+        default void onReconnecting() {
+        }
+
+        /**
+         * Трансляция возобновлена после обрыва соединения.
+         */
+        default void onResumed() {
+        }
+
+        /**
+         * Указатель мыши владельца экрана сдвинулся или сменил изображение.
+         * Приходит сразу, минуя буфер воспроизведения.
+         *
+         * @param state положение указателя в координатах кадра
+         */
+        default void onCursor(CursorState state) {
+        }
+    }
+
+    /**
+     * Первая пауза между попытками переподключения; далее удваивается.
+     */
+    private static final long RESUME_RETRY_INITIAL_MS = 50;
+
+    /**
+     * Наибольшая пауза между попытками переподключения.
+     */
+    private static final long RESUME_RETRY_MAX_MS = 1000;
+
+    /**
+     * Номер кадра до получения первого кадра.
+     */
+    private static final long NO_FRAME = -1;
+
+    /**
+     * Сколько последних кадров хранят время получения: с запасом больше
+     * емкости буфера выравнивания.
+     */
+    private static final int ARRIVAL_SLOTS = JitterBuffer.DEFAULT_CAPACITY * 2;
+
+    private final SessionClient client;
+    private final String username;
+    private final Listener listener;
+    private final TransportType preferredTransport;
+    /**
+     * Планировщик воспроизведения; null в режиме без буфера.
+     */
+    private final PlayoutScheduler playout;
+    /**
+     * Полученные изображения указателя по отпечаткам; только поток реактора.
+     */
+    private final Map<Long, CursorShape> cursorShapes = new HashMap<>();
+    /**
+     * Время получения последних кадров по номеру кадра по модулю
+     * {@link #ARRIVAL_SLOTS}: пишет сетевой поток, читает поток воспроизведения.
+     */
+    private final AtomicLongArray arrivalFrameIds = new AtomicLongArray(ARRIVAL_SLOTS);
+    private final AtomicLongArray arrivalNanos = new AtomicLongArray(ARRIVAL_SLOTS);
+    private final StreamLatency latency = StreamLatency.shared();
+    private volatile SessionConnection connection;
+    private volatile UdpFrameReceiver udpReceiver;
+    private volatile boolean stopped;
+    private volatile InetSocketAddress host;
+    private volatile long lastFrameId = NO_FRAME;
+    private volatile long lastHeardNanos;
+    // Состояние возобновления меняется только в потоке реактора
+    private long sessionToken;
+    private boolean resumable;
+    private boolean resuming;
+    private long resumeDeadlineNanos;
+
+    /**
+     * Создает сторону зрителя с передачей кадров по TCP.
+     *
+     * @param client клиент сессий
+     * @param username имя пользователя, передаваемое в запросе
+     * @param listener получатель событий
+     */
+    public StreamViewerClient(SessionClient client, String username, Listener listener) {
+        this(client, username, TransportType.TCP, listener);
+    }
+
+    /**
+     * Создает сторону зрителя.
+     *
+     * @param client клиент сессий
+     * @param username имя пользователя, передаваемое в запросе
+     * @param preferredTransport предпочтительный транспорт кадров
+     * @param listener получатель событий
+     */
+    public StreamViewerClient(SessionClient client, String username, TransportType preferredTransport,
+                              Listener listener) {
+        this(client, username, preferredTransport, listener, true);
+    }
+
+    /**
+     * Создает сторону зрителя.
+     *
+     * @param client клиент сессий
+     * @param username имя пользователя, передаваемое в запросе
+     * @param preferredTransport предпочтительный транспорт кадров
+     * @param listener получатель событий
+     * @param paced выдавать кадры через буфер выравнивания в темпе воспроизведения;
+     *              false — сразу по получении в сетевом потоке
+     */
+    public StreamViewerClient(SessionClient client, String username, TransportType preferredTransport,
+                              Listener listener, boolean paced) {
+        this.client = client;
+        this.username = username;
+        this.preferredTransport = preferredTransport;
+        this.listener = listener;
+        this.playout = paced ? new PlayoutScheduler(this::deliver) : null;
+    }
+
+    /**
+     * Подключается к владельцу экрана и отправляет запрос трансляции.
+     *
+     * @param host адрес сервера сессий владельца экрана
+     * @return завершается после отправки запроса
+     */
+    public CompletableFuture<Void> request(InetSocketAddress host) {
+        StreamRequest request;
+        try {
+            request = new StreamRequest(username, preferredTransport, openUdpReceiver(host));
+        } catch (IOException e) {
+            logger.warn("Не удалось открыть UDP-порт, кадры пойдут по TCP: {}", e.getMessage());
+            request = new StreamRequest(username, TransportType.TCP, 0);
+        }
+        StreamRequest message = request;
+        this.host = host;
+        if (playout != null) {
+            playout.start();
+        }
+        return client.connect(host, this).thenAccept(conn -> {
+            connection = conn;
+            conn.send(MessageType.STREAM_REQUEST, message.serializedSize(), message::writeTo);
+            logger.info("Запрос трансляции отправлен на {} ({})", host, message.getTransport());
+            HandshakeEvent.commit(HandshakeEvent.VIEWER, "request", host, message.getTransport().name());
+        });
+    }
+
+    private int openUdpReceiver(InetSocketAddress host) throws IOException {
+        if (preferredTransport != TransportType.UDP) {
+            return 0;
+        }
+        NioReactor reactor = client.getReactor();
+        UdpFrameReceiver receiver = new UdpFrameReceiver(reactor, UdpProtocol.DEFAULT_FEC_GROUP_SIZE,
+            host.getAddress(), this::onFrameReceived);
+        int port = receiver.bind(0);
+        udpReceiver = receiver;
+        return port;
+    }
+
+    private void closeUdpReceiver() {
+        UdpFrameReceiver receiver = udpReceiver;
+        udpReceiver = null;
+        if (receiver != null) {
+            receiver.close();
+        }
+    }
+
+    private void closePlayout() {
+        if (playout != null) {
+            playout.close();
+        }
+    }
+
+    private void onFrameReceived(EncodedFrame frame) {
+        lastFrameId = frame.getFrameId();
+        int slot = (int) Math.floorMod(frame.getFrameId(), (long) ARRIVAL_SLOTS);
+        // Сначала время, затем номер: читатель сверяет номер и берет время
+        arrivalNanos.set(slot, System.nanoTime());
+        arrivalFrameIds.set(slot, frame.getFrameId());
+        if (playout != null) {
+            playout.submit(frame);
+        } else {
+            deliver(frame);
+        }
+    }
+
+    /**
+     * Передает кадр получателю, учитывая время от получения до выдачи.
+     */
+    private void deliver(EncodedFrame frame) {
+        int slot = (int) Math.floorMod(frame.getFrameId(), (long) ARRIVAL_SLOTS);
+        long arrived = arrivalNanos.get(slot);
+        if (arrivalFrameIds.get(slot) == frame.getFrameId()) {
+            latency.record(StreamLatency.Stage.RECEIVE, frame.getFrameId(), System.nanoTime() - arrived);
+        }
+        listener.onFrame(frame);
+    }
+
+    @Override
+    public void onConnected(SessionConnection conn) {
+        lastHeardNanos = System.nanoTime();
+        scheduleHeartbeat(conn);
+    }
+
+    private void scheduleHeartbeat(SessionConnection conn) {
+        client.getReactor().schedule(() -> heartbeat(conn), StreamingConstants.HEARTBEAT_INTERVAL_MS,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Проверяет, что владелец экрана отвечает, и отправляет ему проверочное
+     * сообщение. Молчащее дольше {@link StreamingConstants#PEER_TIMEOUT_MS}
+     * соединение закрывается, и начинается возобновление трансляции.
+     * Выполняется в потоке реактора.
+     */
+    private void heartbeat(SessionConnection conn) {
+        if (conn != connection || !conn.isOpen() || stopped) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastHeardNanos > TimeUnit.MILLISECONDS.toNanos(StreamingConstants.PEER_TIMEOUT_MS)) {
+            logger.info("Владелец экрана {} не отвечает {} мс", host, StreamingConstants.PEER_TIMEOUT_MS);
+            conn.close();
+            return;
+        }
+        conn.send(MessageType.PING, Long.BYTES, buffer -> buffer.putLong(now));
+        scheduleHeartbeat(conn);
+    }
+
+    @Override
+    public void onMessage(SessionConnection conn, MessageType type, ByteBuffer payload) {
+        lastHeardNanos = System.nanoTime();
+        switch (type) {
+            case STREAM_ACCEPT -> {
+                TransportType transport = payload.hasRemaining()
+                    ? TransportType.fromCode(payload.get())
+                    : TransportType.TCP;
+                if (transport != TransportType.UDP) {
+                    closeUdpReceiver();
+                }
+                // Владелец экрана без поддержки возобновления маркер не передает
+                resumable = payload.remaining() >= Long.BYTES;
+                if (resumable) {
+                    sessionToken = payload.getLong();
+                }
+                UdpFrameReceiver receiver = udpReceiver;
+                if (receiver != null && payload.remaining() >= Short.BYTES + Integer.BYTES) {
+                    int udpSourcePort = Short.toUnsignedInt(payload.getShort());
+                    int maxFrameSize = payload.getInt();
+                    if (udpSourcePort != 0) {
+                        receiver.expectSender(new InetSocketAddress(host.getAddress(), udpSourcePort));
+                    }
+                    if (maxFrameSize > 0) {
+                        receiver.setMaxFrameSize(maxFrameSize);
+                    }
+                }
+                if (resuming) {
+                    resuming = false;
+                    logger.info("Трансляция возобновлена, транспорт {}", transport);
+                    HandshakeEvent.commit(HandshakeEvent.VIEWER, "resumed", host, String.valueOf(transport));
+                    listener.onResumed();
+                } else {
+                    logger.info("Запрос трансляции принят, транспорт {}", transport);
+                    HandshakeEvent.commit(HandshakeEvent.VIEWER, "accept", host, String.valueOf(transport));
+                    listener.onAccepted();
+                }
+            }
+            case STREAM_REJECT -> {
+                String reason = SessionProtocol.readString(payload);
+                HandshakeEvent.commit(HandshakeEvent.VIEWER, "reject", host, reason);
+                stopped = true;
+                closeUdpReceiver();
+                closePlayout();
+                if (resuming) {
+                    logger.info("Возобновить трансляцию не удалось: {}", reason);
+                    listener.onStopped();
+                } else {
+                    logger.info("Запрос трансляции отклонен: {}", reason);
+                    listener.onRejected(reason);
+                }
+                conn.close();
+            }
+            case FRAME -> {
+                EncodedFrame frame = EncodedFrame.readFrom(payload);
+                conn.sendAck(frame.getFrameId());
+                onFrameReceived(frame);
+            }
+            case CURSOR_SHAPE -> {
+                CursorShape shape = CursorShape.readFrom(payload);
+                cursorShapes.put(shape.getHash(), shape);
+            }
+            case CURSOR_POSITION -> {
+                CursorState state = CursorState.readPosition(payload, cursorShapes);
+                if (state != null) {
+                    listener.onCursor(state);
+                } else {
+                    logger.debug("Положение указателя с неизвестным изображением пропущено");
+                }
+            }
+            case PING -> {
+                long timestamp = payload.getLong();
+                conn.send(MessageType.PONG, Long.BYTES, buffer -> buffer.putLong(timestamp));
+            }
+            case PONG -> {
+                // Ответ на проверочное сообщение несет время отправки: сеть — половина обхода
+                if (payload.remaining() >= Long.BYTES) {
+                    latency.record(StreamLatency.Stage.NETWORK, (System.nanoTime() - payload.getLong()) / 2);
+                }
+            }
+            case STREAM_STOP -> {
+                logger.info("Владелец экрана завершил трансляцию");
+                HandshakeEvent.commit(HandshakeEvent.VIEWER, "stop", host, null);
+                resumable = false;
+                conn.close();
+            }
+            default -> logger.warn("Неожиданное сообщение {} от {}", type, conn.getRemoteAddress());
+        }
+    }
+
+    /**
+     * Запрашивает опорный кадр, например после ошибки декодирования.
+     */
+    public void requestKeyframe() {
+        SessionConnection current = connection;
+        if (current != null) {
+            current.send(MessageType.KEYFRAME_REQUEST);
+        }
+    }
+
+    /**
+     * @return текущее соединение с владельцем экрана
+     */
+    SessionConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return число кадров, ожидающих воспроизведения в буфере выравнивания
+     */
+    public int getBufferDepth() {
+        return playout != null ? playout.getBufferDepth() : 0;
+    }
+
+    /**
+     * @return текущая целевая задержка воспроизведения в миллисекундах
+     */
+    public long getPlayoutDelayMillis() {
+        return playout != null ? TimeUnit.NANOSECONDS.toMillis(playout.getBuffer().getTargetDelayNanos()) : 0;
+    }
+
+    @Override
+    public void onDisconnected(SessionConnection conn) {
+        if (conn != connection) {
+            return;
+        }
+        if (!stopped && resumable) {
+            if (!resuming) {
+                resuming = true;
+                resumeDeadlineNanos = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(StreamingConstants.SESSION_RESUME_TIMEOUT_MS);
+                logger.info("Соединение с владельцем экрана потеряно, возобновление трансляции");
+                listener.onReconnecting();
+            }
+            attemptResume(RESUME_RETRY_INITIAL_MS);
+            return;
+        }
+        finish();
+    }
+
+    private void finish() {
+        boolean wasStopped = stopped;
+        stopped = true;
+        closeUdpReceiver();
+        closePlayout();
+        if (!wasStopped) {
+            listener.onStopped();
+        }
+    }
+
+    /**
+     * Переподключается и отправляет запрос на возобновление.
+     * Выполняется в потоке реактора.
+     *
+     * @param retryDelayMillis пауза перед следующей попыткой при неудаче
+     */
+    private void attemptResume(long retryDelayMillis) {
+        if (stopped) {
+            return;
+        }
+        UdpFrameReceiver receiver = udpReceiver;
+        if (receiver != null) {
+            // Новый отправитель откроет другой порт и сообщит его в подтверждении
+            receiver.expectHost(host.getAddress());
+        }
+        StreamResume resume = receiver != null
+            ? new StreamResume(sessionToken, lastFrameId, TransportType.UDP, receiver.getPort())
+            : new StreamResume(sessionToken, lastFrameId, TransportType.TCP, 0);
+        client.connect(host, this).whenComplete((conn, error) -> {
+            if (error == null) {
+                connection = conn;
+                if (stopped) {
+                    conn.close();
+                    return;
+                }
+                conn.send(MessageType.STREAM_RESUME, StreamResume.SERIALIZED_SIZE, resume::writeTo);
+                HandshakeEvent.commit(HandshakeEvent.VIEWER, "resume", host,
+                    "последний кадр " + resume.getLastFrameId());
+                logger.info("Запрос на возобновление отправлен на {}, последний кадр {}", host,
+                    resume.getLastFrameId());
+                return;
+            }
+            if (System.nanoTime() - resumeDeadlineNanos >= 0) {
+                logger.info("Не удалось возобновить трансляцию: {}", error.getMessage());
+                finish();
+                return;
+            }
+            client.getReactor().schedule(() -> attemptResume(Math.min(retryDelayMillis * 2, RESUME_RETRY_MAX_MS)),
+                retryDelayMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Завершает трансляцию по инициативе зрителя.
+     */
+    public void stop() {
+        stopped = true;
+        SessionConnection current = connection;
+        if (current != null && current.isOpen()) {
+            current.send(MessageType.STREAM_STOP);
+            current.flushAndClose();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.streamapp.streaming;
+
+/**
+ * Константы конвейера трансляции экрана.
+ */
+public final class StreamingConstants {
+    private StreamingConstants() {
+        // Запрещаем создание экземпляров
+    }
+
+    /**
+     * Ширина кадра трансляции (1080p).
+     */
+    public static final int FRAME_WIDTH = 1920;
+
+    /**
+     * Высота кадра трансляции (1080p).
+     */
+    public static final int FRAME_HEIGHT = 1080;
+
+    /**
+     * Частота захвата кадров по умолчанию.
+     */
+    public static final int DEFAULT_FPS = 30;
+
+    /**
+     * Количество переиспользуемых буферов кадров в кольце захвата.
+     */
+    public static final int FRAME_RING_SIZE = 3;
+
+    /**
+     * Сколько владелец экрана хранит состояние прерванной трансляции
+     * и сколько зритель пытается ее возобновить.
+     */
+    public static final long SESSION_RESUME_TIMEOUT_MS = 10_000;
+
+    /**
+     * Период проверочных сообщений в сессии трансляции.
+     */
+    public static final long HEARTBEAT_INTERVAL_MS = 1000;
+
+    /**
+     * Сколько узел в сессии может молчать, прежде чем соединение с ним
+     * считается потерянным. Без этого обрыв без закрытия TCP-соединения
+     * (выключение питания, потеря сети) обнаруживался бы за минуты.
+     */
+    public static final long PEER_TIMEOUT_MS = 3000;
+
+    /**
+     * Частота опроса указателя мыши. Выше частоты кадров, чтобы указатель
+     * двигался плавно даже на неподвижном экране.
+     */
+    public static final int CURSOR_RATE_HZ = 120;
+}
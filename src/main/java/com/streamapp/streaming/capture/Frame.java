@@ -0,0 +1,76 @@
+package com.streamapp.streaming.capture;
+
+/**
+ * Переиспользуемый буфер кадра в формате 0xRRGGBB (по одному int на пиксель).
+ * Экземпляры принадлежат {@link FrameRing} и не должны удерживаться после вызова
+ * {@link #release()}.
+ */
+public final class Frame {
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int slot;
+    private final FrameRing ring;
+    private long frameId;
+    private long captureTimeNanos;
+
+    Frame(FrameRing ring, int width, int height, int slot) {
+        this.ring = ring;
+        this.width = width;
+        this.height = height;
+        this.slot = slot;
+        this.pixels = new int[width * height];
+    }
+
+    /**
+     * Возвращает массив пикселей кадра (построчно, без выравнивания строк).
+     *
+     * @return массив пикселей
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Возвращает номер ячейки кольца, которой принадлежит буфер.
+     *
+     * @return номер ячейки
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    public long getFrameId() {
+        return frameId;
+    }
+
+    public long getCaptureTimeNanos() {
+        return captureTimeNanos;
+    }
+
+    /**
+     * Возвращает буфер в кольцо, которому он принадлежит.
+     */
+    public void release() {
+        ring.release(this);
+    }
+
+    /**
+     * Задает номер кадра и время захвата.
+     *
+     * @param frameId номер кадра
+     * @param captureTimeNanos время захвата по {@link System#nanoTime()}
+     */
+    public void stamp(long frameId, long captureTimeNanos) {
+        this.frameId = frameId;
+        this.captureTimeNanos = captureTimeNanos;
+    }
+}
@@ -0,0 +1,97 @@
+package com.streamapp.streaming.capture;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Фиксированное кольцо переиспользуемых буферов кадров.
+ * Все буферы выделяются один раз при создании, поэтому само кольцо не создает
+ * нагрузки на сборщик мусора независимо от частоты кадров. Источник кадров
+ * может выделять память сам (см. {@link RobotFrameSource}).
+ */
+public final class FrameRing {
+    private final ArrayBlockingQueue<Frame> free;
+    private final Frame[] frames;
+    /**
+     * Признак выданного буфера по номеру ячейки: 1 — буфер у производителя или потребителя.
+     */
+    private final AtomicIntegerArray inUse;
+    private final int capacity;
+    private final int width;
+    private final int height;
+
+    /**
+     * Создает кольцо буферов заданного размера.
+     *
+     * @param capacity количество буферов
+     * @param width ширина кадра
+     * @param height высота кадра
+     */
+    public FrameRing(int capacity, int width, int height) {
+        if (capacity <= 0 || width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры кольца кадров");
+        }
+        this.capacity = capacity;
+        this.width = width;
+        this.height = height;
+        this.free = new ArrayBlockingQueue<>(capacity);
+        this.frames = new Frame[capacity];
+        this.inUse = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            frames[i] = new Frame(this, width, height, i);
+            free.add(frames[i]);
+        }
+    }
+
+    /**
+     * Забирает свободный буфер без ожидания.
+     *
+     * @return свободный буфер или null, если все буферы заняты
+     */
+    public Frame acquire() {
+        Frame frame = free.poll();
+        if (frame != null) {
+            inUse.set(frame.getSlot(), 1);
+        }
+        return frame;
+    }
+
+    /**
+     * Возвращает буфер в кольцо.
+     *
+     * @param frame буфер, ранее полученный из {@link #acquire()}
+     * @throws IllegalStateException если буфер уже возвращен или принадлежит другому кольцу
+     */
+    public void release(Frame frame) {
+        int slot = frame.getSlot();
+        if (slot >= capacity || frames[slot] != frame) {
+            throw new IllegalStateException("Буфер кадра принадлежит другому кольцу: " + slot);
+        }
+        // Повторный возврат отдал бы один буфер двум производителям
+        if (!inUse.compareAndSet(slot, 1, 0)) {
+            throw new IllegalStateException("Буфер кадра возвращен повторно: " + slot);
+        }
+        free.add(frame);
+    }
+
+    /**
+     * Возвращает количество свободных буферов.
+     *
+     * @return количество свободных буферов
+     */
+    public int available() {
+        return free.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
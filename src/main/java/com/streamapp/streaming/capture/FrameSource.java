@@ -0,0 +1,39 @@
+package com.streamapp.streaming.capture;
+
+/**
+ * Источник кадров для трансляции.
+ * Реализация заполняет переданный буфер на месте и не должна выделять
+ * новые буферы пикселей на каждый кадр. Это выполняют
+ * {@link TestPatternFrameSource} и {@link MarkerFrameSource};
+ * {@link RobotFrameSource} — исключение, его захват выделяет растр на каждый кадр.
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /**
+     * Возвращает ширину кадров источника.
+     *
+     * @return ширина в пикселях
+     */
+    int getWidth();
+
+    /**
+     * Возвращает высоту кадров источника.
+     *
+     * @return высота в пикселях
+     */
+    int getHeight();
+
+    /**
+     * Заполняет буфер текущим изображением.
+     *
+     * @param target буфер кадра с размерами источника
+     */
+    void capture(Frame target);
+
+    /**
+     * Освобождает ресурсы источника.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,273 @@
+package com.streamapp.streaming.capture;
+
+import java.nio.IntBuffer;
+
+/**
+ * Синтетический источник кадров с меткой для замера задержки от захвата
+ * до показа.
+ * <p>
+ * В левом верхнем углу каждого кадра рисуется метка: номер кадра источника,
+ * время захвата по {@link System#nanoTime()}, номер фазы сценария и
+ * контрольное значение — по биту на черную или белую клетку
+ * {@value #CELL_SIZE}x{@value #CELL_SIZE}. Клетки выровнены по блокам
+ * уменьшения плиток и переживают любое качество кодирования, поэтому
+ * зритель читает метку из декодированных пикселей ({@link #read(IntBuffer, int)}).
+ * Остальная часть кадра меняется по {@link Workload}: от статичного
+ * рабочего стола до полноэкранного видео.
+ */
+public class MarkerFrameSource implements FrameSource {
+    /**
+     * Сторона клетки метки. Кратна наибольшему уменьшению плиток.
+     */
+    public static final int CELL_SIZE = 8;
+
+    /**
+     * Бит в строке метки.
+     */
+    private static final int BITS_PER_ROW = Long.SIZE;
+
+    /**
+     * Строки метки: номер, время, фаза с контрольным значением.
+     */
+    private static final int MARKER_ROWS = 3;
+
+    /**
+     * Ширина метки в пикселях.
+     */
+    public static final int MARKER_WIDTH = BITS_PER_ROW * CELL_SIZE;
+
+    /**
+     * Высота метки в пикселях.
+     */
+    public static final int MARKER_HEIGHT = MARKER_ROWS * CELL_SIZE;
+
+    private static final int CHECK_SALT = 0x5A3C96E1;
+
+    private static final int WHITE = 0xFFFFFF;
+    private static final int BLACK = 0x000000;
+    private static final int PAPER = 0xF2F2F2;
+    private static final int INK = 0x202020;
+    private static final int GLYPH_WIDTH = 8;
+    private static final int GLYPH_HEIGHT = 16;
+    private static final int SCROLL_STEP = 4;
+
+    /**
+     * Характер изменений изображения между кадрами.
+     */
+    public enum Workload {
+        /** Меняется только метка. */
+        STATIC,
+        /** Набор текста: по одному знаку за кадр. */
+        TYPING,
+        /** Прокрутка документа: сдвигается все изображение. */
+        SCROLLING,
+        /** Видео: каждый кадр меняется целиком и плохо сжимается. */
+        VIDEO
+    }
+
+    private final int width;
+    private final int height;
+    private volatile Workload workload = Workload.STATIC;
+    private volatile int phase;
+    private Workload drawn;
+    private long sequence;
+    private long tick;
+
+    /**
+     * Создает источник.
+     *
+     * @param width ширина кадра, не меньше {@link #MARKER_WIDTH}
+     * @param height высота кадра, не меньше {@link #MARKER_HEIGHT}
+     */
+    public MarkerFrameSource(int width, int height) {
+        if (width < MARKER_WIDTH || height < MARKER_HEIGHT) {
+            throw new IllegalArgumentException("Кадр меньше метки: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Переключает сценарий на новую фазу. Применяется со следующего кадра.
+     *
+     * @param phase номер фазы, записываемый в метку
+     * @param workload характер изменений изображения
+     */
+    public void setPhase(int phase, Workload workload) {
+        this.phase = phase;
+        this.workload = workload;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void capture(Frame target) {
+        int[] pixels = target.getPixels();
+        Workload current = workload;
+        if (current != drawn) {
+            // Новая фаза начинается с чистого листа
+            fill(pixels, 0, height);
+            drawn = current;
+            tick = 0;
+        }
+        switch (current) {
+            case STATIC -> {
+            }
+            case TYPING -> type(pixels);
+            case SCROLLING -> scroll(pixels);
+            case VIDEO -> noise(pixels);
+        }
+        tick++;
+        long now = System.nanoTime();
+        int currentPhase = phase;
+        writeRow(pixels, 0, sequence);
+        writeRow(pixels, 1, now);
+        writeRow(pixels, 2, ((long) currentPhase << 32) | (check(sequence, now, currentPhase) & 0xFFFFFFFFL));
+        sequence++;
+    }
+
+    private void fill(int[] pixels, int fromRow, int toRow) {
+        for (int y = fromRow; y < toRow; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = document(x, y + tick * SCROLL_STEP);
+            }
+        }
+    }
+
+    /**
+     * Строки «документа»: светлый фон со штрихами текста.
+     */
+    private static int document(int x, long y) {
+        long line = y / GLYPH_HEIGHT;
+        int inLine = (int) (y % GLYPH_HEIGHT);
+        long word = (x / GLYPH_WIDTH + line * 7) % 11;
+        return inLine >= 4 && inLine < 12 && word < 8 && (x % GLYPH_WIDTH) < 6 ? INK : PAPER;
+    }
+
+    private void type(int[] pixels) {
+        int columns = width / GLYPH_WIDTH;
+        int lines = (height - MARKER_HEIGHT) / GLYPH_HEIGHT;
+        long position = tick % ((long) columns * lines);
+        int glyphX = (int) (position % columns) * GLYPH_WIDTH;
+        int glyphY = MARKER_HEIGHT + (int) (position / columns) * GLYPH_HEIGHT;
+        int color = 0x100000 * (int) (tick % 15) + INK;
+        for (int y = glyphY + 2; y < glyphY + GLYPH_HEIGHT - 2; y++) {
+            for (int x = glyphX + 1; x < glyphX + GLYPH_WIDTH - 1; x++) {
+                pixels[y * width + x] = ((x + y + tick) & 3) == 0 ? PAPER : color;
+            }
+        }
+    }
+
+    private void scroll(int[] pixels) {
+        System.arraycopy(pixels, SCROLL_STEP * width, pixels, 0, (height - SCROLL_STEP) * width);
+        fill(pixels, height - SCROLL_STEP, height);
+    }
+
+    private void noise(int[] pixels) {
+        long state = tick * 0x9E3779B97F4A7C15L + 1;
+        for (int i = 0; i < pixels.length; i++) {
+            // xorshift: быстро и без создания объектов
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            pixels[i] = (int) state & 0xFFFFFF;
+        }
+    }
+
+    private void writeRow(int[] pixels, int row, long value) {
+        int top = row * CELL_SIZE;
+        for (int bit = 0; bit < BITS_PER_ROW; bit++) {
+            int color = (value >>> (BITS_PER_ROW - 1 - bit) & 1) != 0 ? WHITE : BLACK;
+            int left = bit * CELL_SIZE;
+            for (int y = top; y < top + CELL_SIZE; y++) {
+                int offset = y * width + left;
+                for (int x = 0; x < CELL_SIZE; x++) {
+                    pixels[offset + x] = color;
+                }
+            }
+        }
+    }
+
+    private static int check(long sequence, long timestamp, int phase) {
+        long mixed = (sequence * 0x9E3779B97F4A7C15L) ^ timestamp ^ ((long) phase << 17);
+        // Соль отличает метку от сплошь черного или белого угла
+        return (int) (mixed ^ (mixed >>> 32)) ^ CHECK_SALT;
+    }
+
+    /**
+     * Читает метку из декодированного изображения.
+     *
+     * @param pixels пиксели кадра построчно
+     * @param width ширина кадра
+     * @return метка или null, если метки нет или она повреждена
+     */
+    public static Marker read(IntBuffer pixels, int width) {
+        if (width < MARKER_WIDTH || pixels.limit() < MARKER_HEIGHT * width) {
+            return null;
+        }
+        long sequence = readRow(pixels, width, 0);
+        long timestamp = readRow(pixels, width, 1);
+        long tail = readRow(pixels, width, 2);
+        int phase = (int) (tail >>> 32);
+        if ((int) tail != check(sequence, timestamp, phase)) {
+            return null;
+        }
+        return new Marker(sequence, timestamp, phase);
+    }
+
+    private static long readRow(IntBuffer pixels, int width, int row) {
+        int y = row * CELL_SIZE + CELL_SIZE / 2;
+        long value = 0;
+        for (int bit = 0; bit < BITS_PER_ROW; bit++) {
+            int pixel = pixels.get(y * width + bit * CELL_SIZE + CELL_SIZE / 2);
+            // Зеленый канал: яркость без учета порядка красного и синего
+            value = value << 1 | ((pixel >>> 8 & 0xFF) >= 0x80 ? 1 : 0);
+        }
+        return value;
+    }
+
+    /**
+     * Метка кадра, прочитанная из пикселей.
+     */
+    public static final class Marker {
+        private final long sequence;
+        private final long captureTimeNanos;
+        private final int phase;
+
+        private Marker(long sequence, long captureTimeNanos, int phase) {
+            this.sequence = sequence;
+            this.captureTimeNanos = captureTimeNanos;
+            this.phase = phase;
+        }
+
+        /**
+         * @return номер кадра источника, с 0 без пропусков
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return время захвата по {@link System#nanoTime()} процесса отправителя
+         */
+        public long getCaptureTimeNanos() {
+            return captureTimeNanos;
+        }
+
+        /**
+         * @return номер фазы сценария
+         */
+        public int getPhase() {
+            return phase;
+        }
+    }
+}
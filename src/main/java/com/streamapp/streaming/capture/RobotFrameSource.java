@@ -0,0 +1,149 @@
+package com.streamapp.streaming.capture;
+
+import com.streamapp.streaming.StreamingConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.AWTException;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Источник кадров на основе {@link Robot}.
+ * Захватывает основной экран (не больше 1080p) и копирует пиксели в буфер кольца.
+ * <p>
+ * Захват без выделения памяти этим источником недостижим:
+ * {@link Robot#createScreenCapture(Rectangle)} на каждый кадр создает новый
+ * растр {@code int[ширина * высота]}, и передать ему свой буфер средствами JDK
+ * нельзя. Для 1080p это 8 294 400 байт на кадр, около 250 МБ/с при 30 кадр/с.
+ * В G1 массив такого размера больше половины региона и размещается как
+ * гигантский объект сразу в регионах старого поколения, минуя молодое;
+ * каждое такое выделение идет медленным путем и может запускать
+ * параллельную разметку. Фактический объем выделения на кадр измеряется
+ * и доступен через {@link #getAllocatedBytesPerCapture()}.
+ * <p>
+ * Без выделений работает только остальная часть пути кадра: кольцо буферов,
+ * сравнение и кодирование. Захват прямо в буфер кольца требует платформенного
+ * источника (XShm, DXGI или ScreenCaptureKit через JNI), а в Java 17 нет
+ * стандартного доступа к нативным функциям без своей библиотеки, поэтому
+ * такого источника в приложении нет и этот остается единственным для экрана.
+ */
+public class RobotFrameSource implements FrameSource {
+    private static final Logger logger = LoggerFactory.getLogger(RobotFrameSource.class);
+
+    private final Robot robot;
+    private final Rectangle area;
+    private volatile long allocatedBytesPerCapture = -1;
+
+    /**
+     * Создает источник для основного экрана.
+     *
+     * @throws AWTException если захват экрана недоступен
+     */
+    public RobotFrameSource() throws AWTException {
+        this(primaryScreenArea());
+    }
+
+    /**
+     * Создает источник для заданной области экрана.
+     *
+     * @param area область захвата
+     * @throws AWTException если захват экрана недоступен
+     */
+    public RobotFrameSource(Rectangle area) throws AWTException {
+        if (GraphicsEnvironment.isHeadless()) {
+            throw new AWTException("Захват экрана недоступен в headless-режиме");
+        }
+        this.robot = new Robot();
+        this.area = new Rectangle(area);
+        logger.info("Источник захвата экрана: {}x{} @ ({}, {})", area.width, area.height, area.x, area.y);
+    }
+
+    /**
+     * Возвращает область захвата основного экрана по умолчанию: не больше 1080p
+     * от левого верхнего угла.
+     *
+     * @return область захвата
+     */
+    public static Rectangle primaryScreenArea() {
+        Rectangle bounds = GraphicsEnvironment.getLocalGraphicsEnvironment()
+            .getDefaultScreenDevice()
+            .getDefaultConfiguration()
+            .getBounds();
+        return new Rectangle(bounds.x, bounds.y,
+            Math.min(bounds.width, StreamingConstants.FRAME_WIDTH),
+            Math.min(bounds.height, StreamingConstants.FRAME_HEIGHT));
+    }
+
+    @Override
+    public int getWidth() {
+        return area.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return area.height;
+    }
+
+    @Override
+    public void capture(Frame target) {
+        // Robot всегда возвращает новый BufferedImage; в кольцо копируются только пиксели
+        long allocatedBefore = allocatedBytes();
+        BufferedImage image = robot.createScreenCapture(area);
+        measured(allocatedBefore);
+        int width = area.width;
+        int height = area.height;
+        int[] dst = target.getPixels();
+
+        if (image.getRaster().getDataBuffer() instanceof DataBufferInt dataBuffer
+                && image.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+                && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            int[] src = dataBuffer.getData();
+            int stride = sampleModel.getScanlineStride();
+            int offset = dataBuffer.getOffset();
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(src, offset + y * stride, dst, y * width, width);
+            }
+        } else {
+            image.getRGB(0, 0, width, height, dst, 0, width);
+        }
+    }
+
+    /**
+     * Объем памяти, выделяемой {@link Robot} на один захват, по последнему замеру.
+     *
+     * @return байт на кадр или -1, если JVM не поддерживает учет выделений потока
+     */
+    public long getAllocatedBytesPerCapture() {
+        return allocatedBytesPerCapture;
+    }
+
+    private void measured(long allocatedBefore) {
+        if (allocatedBefore < 0) {
+            return;
+        }
+        long bytes = allocatedBytes() - allocatedBefore;
+        if (allocatedBytesPerCapture < 0) {
+            logger.warn("Robot выделяет {} байт на кадр {}x{}: около {} МБ/с при {} кадр/с", bytes,
+                area.width, area.height, bytes * StreamingConstants.DEFAULT_FPS / (1024 * 1024),
+                StreamingConstants.DEFAULT_FPS);
+        }
+        allocatedBytesPerCapture = bytes;
+    }
+
+    /**
+     * @return байт, выделенных текущим потоком, или -1, если учет недоступен
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
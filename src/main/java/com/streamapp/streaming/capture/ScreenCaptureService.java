@@ -0,0 +1,184 @@
+package com.streamapp.streaming.capture;
+
+import com.streamapp.streaming.StreamingConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Сервис периодического захвата кадров.
+ * Каждый тик берет свободный буфер из {@link FrameRing}, заполняет его из
+ * {@link FrameSource} и передает потребителю. Потребитель становится владельцем
+ * буфера и обязан вернуть его через {@link Frame#release()}. Если свободных
+ * буферов нет, тик пропускается: потребитель не успевает, и копить кадры бессмысленно.
+ */
+public class ScreenCaptureService {
+    private static final Logger logger = LoggerFactory.getLogger(ScreenCaptureService.class);
+
+    private final FrameSource source;
+    private final FrameRing ring;
+    private final Consumer<Frame> consumer;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong capturedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile ScheduledFuture<?> task;
+    private volatile int fps;
+    private long nextFrameId;
+
+    /**
+     * Создает сервис захвата с кольцом буферов по умолчанию.
+     *
+     * @param source источник кадров
+     * @param fps частота захвата
+     * @param consumer получатель заполненных кадров
+     */
+    public ScreenCaptureService(FrameSource source, int fps, Consumer<Frame> consumer) {
+        this(source, new FrameRing(StreamingConstants.FRAME_RING_SIZE, source.getWidth(), source.getHeight()),
+            fps, consumer);
+    }
+
+    /**
+     * Создает сервис захвата с заданным кольцом буферов.
+     *
+     * @param source источник кадров
+     * @param ring кольцо буферов с размерами источника
+     * @param fps частота захвата
+     * @param consumer получатель заполненных кадров
+     */
+    public ScreenCaptureService(FrameSource source, FrameRing ring, int fps, Consumer<Frame> consumer) {
+        if (ring.getWidth() != source.getWidth() || ring.getHeight() != source.getHeight()) {
+            throw new IllegalArgumentException("Размеры кольца не совпадают с размерами источника");
+        }
+        this.source = source;
+        this.ring = ring;
+        this.fps = checkFps(fps);
+        this.consumer = consumer;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "screen-capture");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает захват, в том числе после {@link #pause()}. Повторный вызов ничего не делает.
+     */
+    public synchronized void start() {
+        if (task != null) {
+            logger.warn("Захват экрана уже запущен");
+            return;
+        }
+        schedule();
+        logger.info("Захват экрана запущен: {}x{} @ {} fps", source.getWidth(), source.getHeight(), fps);
+    }
+
+    /**
+     * Меняет частоту захвата на лету.
+     *
+     * @param fps новая частота захвата
+     */
+    public synchronized void setFps(int fps) {
+        int checked = checkFps(fps);
+        if (checked == this.fps) {
+            return;
+        }
+        this.fps = checked;
+        if (task != null) {
+            task.cancel(false);
+            schedule();
+        }
+        logger.debug("Частота захвата изменена на {} fps", checked);
+    }
+
+    private void schedule() {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / fps;
+        task = scheduler.scheduleAtFixedRate(this::tick, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void tick() {
+        Frame frame = ring.acquire();
+        if (frame == null) {
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        try {
+            long timestamp = System.nanoTime();
+            source.capture(frame);
+            frame.stamp(nextFrameId++, timestamp);
+        } catch (Exception e) {
+            frame.release();
+            logger.error("Ошибка при захвате кадра: {}", e.getMessage());
+            return;
+        }
+        capturedFrames.incrementAndGet();
+        try {
+            consumer.accept(frame);
+        } catch (Exception e) {
+            logger.error("Ошибка при обработке кадра: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Приостанавливает захват, не освобождая источник.
+     * Захват продолжается вызовом {@link #start()}.
+     */
+    public synchronized void pause() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            logger.info("Захват экрана приостановлен");
+        }
+    }
+
+    /**
+     * Останавливает захват и освобождает источник.
+     * Остановленный сервис повторно не запускается.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(2, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+        logger.info("Захват экрана остановлен: захвачено {}, пропущено {}",
+            capturedFrames.get(), droppedFrames.get());
+    }
+
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    public long getCapturedFrames() {
+        return capturedFrames.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    private static int checkFps(int fps) {
+        if (fps <= 0 || fps > 240) {
+            throw new IllegalArgumentException("Недопустимая частота кадров: " + fps);
+        }
+        return fps;
+    }
+}
@@ -0,0 +1,71 @@
+package com.streamapp.streaming.capture;
+
+/**
+ * Синтетический источник кадров с тестовой таблицей.
+ * Рисует статичный фон и движущийся квадрат, поэтому от кадра к кадру
+ * меняется лишь небольшая область изображения, как на обычном рабочем столе.
+ */
+public class TestPatternFrameSource implements FrameSource {
+    private static final int BOX_SIZE = 96;
+    private static final int BOX_COLOR = 0xFF5722;
+    private static final int BOX_STEP = 8;
+
+    private final int width;
+    private final int height;
+    private long tick;
+
+    /**
+     * Создает тестовый источник заданного размера.
+     *
+     * @param width ширина кадра
+     * @param height высота кадра
+     */
+    public TestPatternFrameSource(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void capture(Frame target) {
+        int[] pixels = target.getPixels();
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = background(x, y);
+            }
+        }
+
+        int span = Math.max(1, width - BOX_SIZE);
+        int boxX = (int) ((tick * BOX_STEP) % span);
+        int boxY = Math.max(0, (height - BOX_SIZE) / 2);
+        int boxBottom = Math.min(height, boxY + BOX_SIZE);
+        int boxRight = Math.min(width, boxX + BOX_SIZE);
+        for (int y = boxY; y < boxBottom; y++) {
+            int row = y * width;
+            for (int x = boxX; x < boxRight; x++) {
+                pixels[row + x] = BOX_COLOR;
+            }
+        }
+        tick++;
+    }
+
+    private static int background(int x, int y) {
+        // Вертикальные цветные полосы в духе телевизионной таблицы
+        int band = (x >> 7) & 7;
+        int r = (band & 1) != 0 ? 0xC0 : 0x20;
+        int g = (band & 2) != 0 ? 0xC0 : 0x20;
+        int b = (band & 4) != 0 ? 0xC0 : 0x20;
+        int shade = (y >> 4) & 0x0F;
+        return ((r + shade) << 16) | ((g + shade) << 8) | (b + shade);
+    }
+}
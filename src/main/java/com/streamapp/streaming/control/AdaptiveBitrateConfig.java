@@ -0,0 +1,94 @@
+package com.streamapp.streaming.control;
+
+import com.streamapp.streaming.StreamingConstants;
+import com.streamapp.streaming.encode.TileQuality;
+
+/**
+ * Границы и пороги адаптации качества трансляции.
+ */
+public final class AdaptiveBitrateConfig {
+    private final int minFps;
+    private final int maxFps;
+    private final int maxQuantizationBits;
+    private final int maxScaleShift;
+    private final long maxQueueDelayMillis;
+    private final long maxQueuedBytes;
+    private final long evaluationIntervalMillis;
+
+    /**
+     * Создает конфигурацию.
+     *
+     * @param minFps минимальная частота захвата
+     * @param maxFps максимальная частота захвата
+     * @param maxQuantizationBits наибольшая допустимая квантизация цвета
+     * @param maxScaleShift наибольшее допустимое уменьшение разрешения плиток
+     * @param maxQueueDelayMillis превышение задержки над наименьшей измеренной, выше которого канал считается перегруженным
+     * @param maxQueuedBytes объем очереди отправки, выше которого канал считается перегруженным
+     * @param evaluationIntervalMillis период оценки канала
+     */
+    public AdaptiveBitrateConfig(int minFps, int maxFps, int maxQuantizationBits, int maxScaleShift,
+                                 long maxQueueDelayMillis, long maxQueuedBytes, long evaluationIntervalMillis) {
+        if (minFps <= 0 || maxFps < minFps
+                || maxQuantizationBits < 0 || maxQuantizationBits > TileQuality.MAX_QUANTIZATION_BITS
+                || maxScaleShift < 0 || maxScaleShift > TileQuality.MAX_SCALE_SHIFT
+                || maxQueueDelayMillis <= 0 || maxQueuedBytes <= 0 || evaluationIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры адаптации качества");
+        }
+        this.minFps = minFps;
+        this.maxFps = maxFps;
+        this.maxQuantizationBits = maxQuantizationBits;
+        this.maxScaleShift = maxScaleShift;
+        this.maxQueueDelayMillis = maxQueueDelayMillis;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.evaluationIntervalMillis = evaluationIntervalMillis;
+    }
+
+    /**
+     * Возвращает конфигурацию по умолчанию для локальной сети.
+     *
+     * @return конфигурация по умолчанию
+     */
+    public static AdaptiveBitrateConfig defaults() {
+        return new AdaptiveBitrateConfig(5, StreamingConstants.DEFAULT_FPS, TileQuality.MAX_QUANTIZATION_BITS,
+            TileQuality.MAX_SCALE_SHIFT, 60, 2L * 1024 * 1024, 500);
+    }
+
+    /**
+     * Возвращает копию конфигурации с другой максимальной частотой захвата.
+     *
+     * @param fps максимальная частота захвата
+     * @return новая конфигурация
+     */
+    public AdaptiveBitrateConfig withMaxFps(int fps) {
+        return new AdaptiveBitrateConfig(Math.min(minFps, fps), fps, maxQuantizationBits, maxScaleShift,
+            maxQueueDelayMillis, maxQueuedBytes, evaluationIntervalMillis);
+    }
+
+    public int getMinFps() {
+        return minFps;
+    }
+
+    public int getMaxFps() {
+        return maxFps;
+    }
+
+    public int getMaxQuantizationBits() {
+        return maxQuantizationBits;
+    }
+
+    public int getMaxScaleShift() {
+        return maxScaleShift;
+    }
+
+    public long getMaxQueueDelayMillis() {
+        return maxQueueDelayMillis;
+    }
+
+    public long getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    public long getEvaluationIntervalMillis() {
+        return evaluationIntervalMillis;
+    }
+}
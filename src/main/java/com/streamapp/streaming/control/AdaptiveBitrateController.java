@@ -0,0 +1,171 @@
+package com.streamapp.streaming.control;
+
+import com.streamapp.streaming.encode.TileQuality;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Адаптация частоты кадров и качества плиток к состоянию канала.
+ * <p>
+ * Качество выбирается из лестницы ступеней: от максимальной частоты без потерь
+ * до минимальной частоты с сильной квантизацией и уменьшенным разрешением.
+ * При признаках перегрузки (рост задержки относительно наименьшей за последние
+ * 10 с, переполнение очереди отправки, подтверждается заметно меньше отправленного)
+ * контроллер сразу опускается на ступень ниже, а поднимается только после нескольких подряд
+ * благополучных оценок.
+ */
+public class AdaptiveBitrateController {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBitrateController.class);
+
+    /**
+     * Сколько благополучных оценок подряд нужно для повышения качества.
+     */
+    static final int UPGRADE_AFTER_GOOD_SAMPLES = 4;
+
+    /**
+     * Доля подтвержденных данных, ниже которой канал считается перегруженным.
+     */
+    private static final double MIN_DELIVERY_RATIO = 0.5;
+
+    /**
+     * Объем отправки за период, меньше которого доля подтвержденных данных не оценивается.
+     */
+    private static final long MIN_SENT_FOR_RATIO = 64 * 1024;
+
+    private final AdaptiveBitrateConfig config;
+    private final List<QualityLevel> ladder;
+    private final Consumer<QualityLevel> levelListener;
+    private final Consumer<StreamQuality> qualityListener;
+    private int levelIndex;
+    private int goodSamples;
+    private long lastSentBytes;
+    private long lastDeliveredBytes;
+    private StreamQuality quality = StreamQuality.GOOD;
+
+    /**
+     * Создает контроллер, начинающий с наилучшей ступени.
+     *
+     * @param config границы и пороги адаптации
+     * @param levelListener получатель новых ступеней качества
+     * @param qualityListener получатель изменений обобщенной оценки качества
+     */
+    public AdaptiveBitrateController(AdaptiveBitrateConfig config, Consumer<QualityLevel> levelListener,
+                                     Consumer<StreamQuality> qualityListener) {
+        this.config = config;
+        this.ladder = buildLadder(config);
+        this.levelListener = levelListener;
+        this.qualityListener = qualityListener;
+    }
+
+    private static List<QualityLevel> buildLadder(AdaptiveBitrateConfig config) {
+        int max = config.getMaxFps();
+        int min = config.getMinFps();
+        int[][] steps = {
+            // {fps, quantizationBits, scaleShift}
+            {max, 0, 0},
+            {max, 2, 0},
+            {max * 2 / 3, 3, 0},
+            {max / 2, 4, 1},
+            {max / 3, 5, 1},
+            {min, 6, 2},
+        };
+        List<QualityLevel> levels = new ArrayList<>();
+        for (int[] step : steps) {
+            QualityLevel level = new QualityLevel(Math.max(min, step[0]),
+                new TileQuality(Math.min(step[1], config.getMaxQuantizationBits()),
+                    Math.min(step[2], config.getMaxScaleShift())));
+            if (levels.isEmpty() || !levels.get(levels.size() - 1).equals(level)) {
+                levels.add(level);
+            }
+        }
+        return Collections.unmodifiableList(levels);
+    }
+
+    /**
+     * Оценивает канал за прошедший период и при необходимости меняет ступень качества.
+     * Вызывается с периодом {@link AdaptiveBitrateConfig#getEvaluationIntervalMillis()}.
+     *
+     * @param stats статистика трансляции
+     * @param queuedBytes текущий объем очереди отправки
+     * @return текущая ступень качества
+     */
+    public synchronized QualityLevel evaluate(SessionStats stats, long queuedBytes) {
+        long sent = stats.getSentBytes() - lastSentBytes;
+        long delivered = stats.getDeliveredBytes() - lastDeliveredBytes;
+        lastSentBytes = stats.getSentBytes();
+        lastDeliveredBytes = stats.getDeliveredBytes();
+
+        long queueDelayNanos = 0;
+        long rtt = stats.getSmoothedRttNanos();
+        if (rtt >= 0) {
+            queueDelayNanos = rtt - stats.getMinRttNanos();
+        }
+        boolean delayed = queueDelayNanos > TimeUnit.MILLISECONDS.toNanos(config.getMaxQueueDelayMillis());
+        boolean queued = queuedBytes > config.getMaxQueuedBytes();
+        boolean undelivered = sent >= MIN_SENT_FOR_RATIO && delivered < sent * MIN_DELIVERY_RATIO;
+        boolean congested = delayed || queued || undelivered;
+
+        int previous = levelIndex;
+        if (congested) {
+            goodSamples = 0;
+            if (levelIndex < ladder.size() - 1) {
+                levelIndex++;
+            }
+            logger.debug("Перегрузка канала (задержка очереди {} мс, очередь {} байт, отправлено {}, подтверждено {})",
+                TimeUnit.NANOSECONDS.toMillis(queueDelayNanos), queuedBytes, sent, delivered);
+        } else if (++goodSamples >= UPGRADE_AFTER_GOOD_SAMPLES && levelIndex > 0) {
+            goodSamples = 0;
+            levelIndex--;
+        }
+
+        QualityLevel level = ladder.get(levelIndex);
+        if (levelIndex != previous) {
+            logger.info("Качество трансляции изменено: {}", level);
+            levelListener.accept(level);
+        }
+        updateQuality(congested);
+        return level;
+    }
+
+    private void updateQuality(boolean congested) {
+        StreamQuality next;
+        if (levelIndex == 0 && !congested) {
+            next = StreamQuality.GOOD;
+        } else if (levelIndex >= ladder.size() - 1 || (congested && levelIndex >= ladder.size() / 2)) {
+            next = StreamQuality.POOR;
+        } else {
+            next = StreamQuality.FAIR;
+        }
+        if (next != quality) {
+            quality = next;
+            qualityListener.accept(next);
+        }
+    }
+
+    /**
+     * @return текущая ступень качества
+     */
+    public synchronized QualityLevel getLevel() {
+        return ladder.get(levelIndex);
+    }
+
+    /**
+     * @return текущая обобщенная оценка качества
+     */
+    public synchronized StreamQuality getQuality() {
+        return quality;
+    }
+
+    /**
+     * @return лестница ступеней качества от наилучшей к наихудшей
+     */
+    public List<QualityLevel> getLadder() {
+        return ladder;
+    }
+}
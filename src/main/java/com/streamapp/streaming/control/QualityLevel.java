@@ -0,0 +1,54 @@
+package com.streamapp.streaming.control;
+
+import com.streamapp.streaming.encode.TileQuality;
+
+import java.util.Objects;
+
+/**
+ * Ступень качества трансляции: частота захвата и качество плиток.
+ */
+public final class QualityLevel {
+    private final int fps;
+    private final TileQuality tileQuality;
+
+    /**
+     * Создает ступень качества.
+     *
+     * @param fps частота захвата
+     * @param tileQuality качество плиток
+     */
+    public QualityLevel(int fps, TileQuality tileQuality) {
+        this.fps = fps;
+        this.tileQuality = tileQuality;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    public TileQuality getTileQuality() {
+        return tileQuality;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QualityLevel that = (QualityLevel) o;
+        return fps == that.fps && tileQuality.equals(that.tileQuality);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fps, tileQuality);
+    }
+
+    @Override
+    public String toString() {
+        return "QualityLevel{" +
+                "fps=" + fps +
+                ", quantizationBits=" + tileQuality.getQuantizationBits() +
+                ", scaleShift=" + tileQuality.getScaleShift() +
+                '}';
+    }
+}
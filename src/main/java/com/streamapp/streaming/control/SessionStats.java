@@ -0,0 +1,149 @@
+package com.streamapp.streaming.control;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика канала одной трансляции: задержка, объем отправленных
+ * и подтвержденных данных.
+ * <p>
+ * Отправка учитывается в потоке захвата, подтверждения и замеры задержки —
+ * в сетевом потоке, поэтому все методы синхронизированы.
+ */
+public class SessionStats {
+    /**
+     * Сколько последних отправленных кадров помнится для учета подтверждений.
+     */
+    private static final int HISTORY_SIZE = 256;
+
+    /**
+     * Вес нового замера в сглаженной задержке.
+     */
+    private static final double RTT_SMOOTHING = 0.25;
+
+    /**
+     * Окно, за которое берется наименьшая задержка. Наименьшая задержка служит
+     * оценкой пустого канала; за всю трансляцию она устаревает, если маршрут
+     * сменился и базовая задержка выросла, и тогда вся прибавка навсегда
+     * принималась бы за очередь.
+     */
+    static final long MIN_RTT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Число интервалов окна: для каждого хранится свой минимум, поэтому память
+     * постоянна, а окно сдвигается с точностью до одного интервала.
+     */
+    private static final int MIN_RTT_BUCKETS = 10;
+    private static final long MIN_RTT_BUCKET_NANOS = MIN_RTT_WINDOW_NANOS / MIN_RTT_BUCKETS;
+
+    private final long[] historyIds = new long[HISTORY_SIZE];
+    private final int[] historySizes = new int[HISTORY_SIZE];
+    private long sentBytes;
+    private long deliveredBytes;
+    private long smoothedRttNanos = -1;
+    private final long[] minRttEpochs = new long[MIN_RTT_BUCKETS];
+    private final long[] minRttValues = new long[MIN_RTT_BUCKETS];
+    private long lastRttEpoch = Long.MIN_VALUE;
+
+    /**
+     * Создает пустую статистику.
+     */
+    public SessionStats() {
+        Arrays.fill(historyIds, -1);
+        Arrays.fill(minRttEpochs, Long.MIN_VALUE);
+    }
+
+    /**
+     * Учитывает отправленный кадр.
+     *
+     * @param frameId номер кадра
+     * @param bytes размер кадра в байтах
+     */
+    public synchronized void recordSent(long frameId, int bytes) {
+        int slot = (int) (frameId % HISTORY_SIZE);
+        historyIds[slot] = frameId;
+        historySizes[slot] = bytes;
+        sentBytes += bytes;
+    }
+
+    /**
+     * Учитывает подтверждение кадра получателем.
+     *
+     * @param frameId номер подтвержденного кадра
+     */
+    public synchronized void recordAck(long frameId) {
+        int slot = (int) (frameId % HISTORY_SIZE);
+        if (historyIds[slot] == frameId) {
+            deliveredBytes += historySizes[slot];
+            historyIds[slot] = -1;
+        }
+    }
+
+    /**
+     * Учитывает замер времени кругового обхода.
+     *
+     * @param rttNanos время кругового обхода в наносекундах
+     */
+    public void recordRtt(long rttNanos) {
+        recordRtt(rttNanos, System.nanoTime());
+    }
+
+    /**
+     * Учитывает замер времени кругового обхода, полученный в заданный момент.
+     *
+     * @param rttNanos время кругового обхода в наносекундах
+     * @param nowNanos момент замера по {@link System#nanoTime()}
+     */
+    synchronized void recordRtt(long rttNanos, long nowNanos) {
+        if (rttNanos < 0) {
+            return;
+        }
+        long epoch = Math.floorDiv(nowNanos, MIN_RTT_BUCKET_NANOS);
+        int slot = (int) Math.floorMod(epoch, (long) MIN_RTT_BUCKETS);
+        if (minRttEpochs[slot] != epoch) {
+            minRttEpochs[slot] = epoch;
+            minRttValues[slot] = rttNanos;
+        } else {
+            minRttValues[slot] = Math.min(minRttValues[slot], rttNanos);
+        }
+        lastRttEpoch = Math.max(lastRttEpoch, epoch);
+        smoothedRttNanos = smoothedRttNanos < 0
+            ? rttNanos
+            : (long) (smoothedRttNanos + RTT_SMOOTHING * (rttNanos - smoothedRttNanos));
+    }
+
+    /**
+     * @return всего отправлено байт
+     */
+    public synchronized long getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * @return всего подтверждено байт
+     */
+    public synchronized long getDeliveredBytes() {
+        return deliveredBytes;
+    }
+
+    /**
+     * @return сглаженное время кругового обхода или -1, если замеров еще не было
+     */
+    public synchronized long getSmoothedRttNanos() {
+        return smoothedRttNanos;
+    }
+
+    /**
+     * @return наименьшее время кругового обхода за последние {@link #MIN_RTT_WINDOW_NANOS}
+     *     до последнего замера или -1, если замеров еще не было
+     */
+    public synchronized long getMinRttNanos() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < MIN_RTT_BUCKETS; i++) {
+            if (minRttEpochs[i] != Long.MIN_VALUE && lastRttEpoch - minRttEpochs[i] < MIN_RTT_BUCKETS) {
+                min = Math.min(min, minRttValues[i]);
+            }
+        }
+        return min == Long.MAX_VALUE ? -1 : min;
+    }
+}
@@ -0,0 +1,20 @@
+package com.streamapp.streaming.control;
+
+/**
+ * Обобщенная оценка качества потока для индикатора в интерфейсе.
+ */
+public enum StreamQuality {
+    GOOD("Хорошее"),
+    FAIR("Среднее"),
+    POOR("Плохое");
+
+    private final String displayName;
+
+    StreamQuality(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
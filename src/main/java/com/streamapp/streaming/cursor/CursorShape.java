@@ -0,0 +1,191 @@
+package com.streamapp.streaming.cursor;
+
+import com.streamapp.streaming.encode.TileHasher;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Изображение указателя мыши с точкой касания.
+ * Передается зрителю один раз и дальше указывается в положениях указателя
+ * по отпечатку {@link #getHash()}.
+ *
+ * <p>Формат: отпечаток (int64), ширина, высота, точка касания x и y (uint16),
+ * пиксели ARGB построчно (int32).
+ */
+public final class CursorShape {
+    /**
+     * Наибольшая сторона изображения указателя.
+     */
+    public static final int MAX_SIZE = 256;
+
+    /**
+     * Размер заголовка изображения в сериализованном виде.
+     */
+    public static final int HEADER_SIZE = 8 + 2 + 2 + 2 + 2;
+
+    private static final String[] ARROW_PATTERN = {
+        "X           ",
+        "XX          ",
+        "X.X         ",
+        "X..X        ",
+        "X...X       ",
+        "X....X      ",
+        "X.....X     ",
+        "X......X    ",
+        "X.......X   ",
+        "X........X  ",
+        "X.........X ",
+        "X......XXXXX",
+        "X...X..X    ",
+        "X..XX..X    ",
+        "X.X  X..X   ",
+        "XX   X..X   ",
+        "X     X..X  ",
+        "      X..X  ",
+        "       XX   ",
+    };
+
+    /**
+     * Стандартная стрелка: используется, когда изображение системного указателя недоступно.
+     */
+    public static final CursorShape ARROW = arrow();
+
+    private final int width;
+    private final int height;
+    private final int hotspotX;
+    private final int hotspotY;
+    private final int[] pixels;
+    private final long hash;
+
+    /**
+     * Создает изображение указателя.
+     *
+     * @param width ширина
+     * @param height высота
+     * @param hotspotX точка касания по горизонтали
+     * @param hotspotY точка касания по вертикали
+     * @param pixels пиксели ARGB построчно; массив копируется
+     */
+    public CursorShape(int width, int height, int hotspotX, int hotspotY, int[] pixels) {
+        if (width <= 0 || height <= 0 || width > MAX_SIZE || height > MAX_SIZE
+                || hotspotX < 0 || hotspotX >= width || hotspotY < 0 || hotspotY >= height
+                || pixels.length != width * height) {
+            throw new IllegalArgumentException("Некорректное изображение указателя " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.hotspotX = hotspotX;
+        this.hotspotY = hotspotY;
+        this.pixels = pixels.clone();
+        long pixelHash = TileHasher.hash(this.pixels, width, 0, 0, width, height);
+        // Отпечаток 0 в положении указателя означает, что указатель скрыт
+        long mixed = pixelHash * 31 + ((long) hotspotX << 16 | hotspotY);
+        this.hash = mixed != 0 ? mixed : 1;
+    }
+
+    private static CursorShape arrow() {
+        int width = ARROW_PATTERN[0].length();
+        int height = ARROW_PATTERN.length;
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                char c = ARROW_PATTERN[y].charAt(x);
+                pixels[y * width + x] = c == 'X' ? 0xFF000000 : c == '.' ? 0xFFFFFFFF : 0;
+            }
+        }
+        return new CursorShape(width, height, 0, 0, pixels);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getHotspotX() {
+        return hotspotX;
+    }
+
+    public int getHotspotY() {
+        return hotspotY;
+    }
+
+    /**
+     * @return копия пикселей ARGB построчно
+     */
+    public int[] getPixels() {
+        return pixels.clone();
+    }
+
+    /**
+     * @return отпечаток изображения, не равный 0
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return размер изображения в сериализованном виде
+     */
+    public int serializedSize() {
+        return HEADER_SIZE + pixels.length * Integer.BYTES;
+    }
+
+    /**
+     * Записывает изображение в буфер.
+     *
+     * @param dst буфер назначения
+     */
+    public void writeTo(ByteBuffer dst) {
+        dst.putLong(hash);
+        dst.putShort((short) width);
+        dst.putShort((short) height);
+        dst.putShort((short) hotspotX);
+        dst.putShort((short) hotspotY);
+        for (int pixel : pixels) {
+            dst.putInt(pixel);
+        }
+    }
+
+    /**
+     * Читает изображение из буфера.
+     *
+     * @param src полезная нагрузка сообщения
+     * @return изображение указателя
+     */
+    public static CursorShape readFrom(ByteBuffer src) {
+        if (src.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Некорректное изображение указателя: " + src.remaining() + " байт");
+        }
+        src.getLong();
+        int width = Short.toUnsignedInt(src.getShort());
+        int height = Short.toUnsignedInt(src.getShort());
+        int hotspotX = Short.toUnsignedInt(src.getShort());
+        int hotspotY = Short.toUnsignedInt(src.getShort());
+        if (width > MAX_SIZE || height > MAX_SIZE || src.remaining() < width * height * Integer.BYTES) {
+            throw new IllegalArgumentException("Некорректное изображение указателя " + width + "x" + height);
+        }
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = src.getInt();
+        }
+        return new CursorShape(width, height, hotspotX, hotspotY, pixels);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CursorShape other = (CursorShape) o;
+        return width == other.width && height == other.height && hotspotX == other.hotspotX
+            && hotspotY == other.hotspotY && Arrays.equals(pixels, other.pixels);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+}
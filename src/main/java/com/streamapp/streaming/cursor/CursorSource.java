@@ -0,0 +1,15 @@
+package com.streamapp.streaming.cursor;
+
+/**
+ * Источник положения и изображения указателя мыши.
+ * Опрашивается с высокой частотой, поэтому вызов должен быть дешевым.
+ */
+@FunctionalInterface
+public interface CursorSource {
+    /**
+     * Возвращает текущее состояние указателя.
+     *
+     * @return состояние указателя в координатах кадра
+     */
+    CursorState sample();
+}
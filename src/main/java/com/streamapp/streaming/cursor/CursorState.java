@@ -0,0 +1,110 @@
+package com.streamapp.streaming.cursor;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Положение и изображение указателя мыши в координатах кадра.
+ *
+ * <p>Положение передается отдельным маленьким сообщением: координаты x и y
+ * (int16) и отпечаток изображения (int64), 0 — указатель скрыт.
+ * Само изображение передается заранее ({@link CursorShape}).
+ */
+public final class CursorState {
+    /**
+     * Размер положения указателя в сериализованном виде.
+     */
+    public static final int POSITION_SIZE = 2 + 2 + 8;
+
+    /**
+     * Указатель скрыт или находится вне захватываемой области.
+     */
+    public static final CursorState HIDDEN = new CursorState(0, 0, null);
+
+    private final int x;
+    private final int y;
+    private final CursorShape shape;
+
+    /**
+     * Создает состояние указателя.
+     *
+     * @param x координата точки касания в пикселях кадра
+     * @param y координата точки касания в пикселях кадра
+     * @param shape изображение указателя; null — указатель скрыт
+     */
+    public CursorState(int x, int y, CursorShape shape) {
+        this.x = x;
+        this.y = y;
+        this.shape = shape;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return изображение указателя или null, если указатель скрыт
+     */
+    public CursorShape getShape() {
+        return shape;
+    }
+
+    public boolean isVisible() {
+        return shape != null;
+    }
+
+    /**
+     * Проверяет, что зритель увидит то же самое: скрытые указатели равны
+     * независимо от координат.
+     *
+     * @param other другое состояние
+     * @return true, если состояния совпадают
+     */
+    public boolean sameAs(CursorState other) {
+        if (!isVisible() || !other.isVisible()) {
+            return isVisible() == other.isVisible();
+        }
+        return x == other.x && y == other.y && shape.getHash() == other.shape.getHash();
+    }
+
+    /**
+     * Записывает положение указателя в буфер.
+     *
+     * @param dst буфер назначения
+     */
+    public void writePosition(ByteBuffer dst) {
+        dst.putShort((short) x);
+        dst.putShort((short) y);
+        dst.putLong(shape != null ? shape.getHash() : 0);
+    }
+
+    /**
+     * Читает положение указателя из буфера.
+     *
+     * @param src полезная нагрузка сообщения
+     * @param shapes полученные ранее изображения по отпечаткам
+     * @return состояние указателя или null, если изображение еще не получено
+     */
+    public static CursorState readPosition(ByteBuffer src, Map<Long, CursorShape> shapes) {
+        if (src.remaining() < POSITION_SIZE) {
+            throw new IllegalArgumentException("Некорректное положение указателя: " + src.remaining() + " байт");
+        }
+        int x = src.getShort();
+        int y = src.getShort();
+        long hash = src.getLong();
+        if (hash == 0) {
+            return HIDDEN;
+        }
+        CursorShape shape = shapes.get(hash);
+        return shape != null ? new CursorState(x, y, shape) : null;
+    }
+
+    @Override
+    public String toString() {
+        return isVisible() ? "CursorState{x=" + x + ", y=" + y + '}' : "CursorState{hidden}";
+    }
+}
@@ -0,0 +1,80 @@
+package com.streamapp.streaming.cursor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Опрос указателя мыши с высокой частотой в отдельном потоке.
+ * Получатель уведомляется только об изменениях, поэтому неподвижный
+ * указатель не порождает сообщений.
+ */
+public class CursorTracker {
+    private static final Logger logger = LoggerFactory.getLogger(CursorTracker.class);
+
+    private final CursorSource source;
+    private final int rateHz;
+    private final Consumer<CursorState> listener;
+    private final ScheduledExecutorService scheduler;
+    private volatile CursorState last = CursorState.HIDDEN;
+
+    /**
+     * Создает опрос указателя.
+     *
+     * @param source источник состояния указателя
+     * @param rateHz частота опроса
+     * @param listener получатель изменившихся состояний; вызывается в потоке опроса
+     */
+    public CursorTracker(CursorSource source, int rateHz, Consumer<CursorState> listener) {
+        if (rateHz <= 0) {
+            throw new IllegalArgumentException("Недопустимая частота опроса указателя: " + rateHz);
+        }
+        this.source = source;
+        this.rateHz = rateHz;
+        this.listener = listener;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cursor-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает опрос.
+     */
+    public void start() {
+        long period = TimeUnit.SECONDS.toNanos(1) / rateHz;
+        scheduler.scheduleAtFixedRate(this::poll, 0, period, TimeUnit.NANOSECONDS);
+        logger.info("Опрос указателя запущен: {} Гц", rateHz);
+    }
+
+    private void poll() {
+        try {
+            CursorState state = source.sample();
+            if (!state.sameAs(last)) {
+                last = state;
+                listener.accept(state);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Ошибка опроса указателя: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return последнее опрошенное состояние указателя
+     */
+    public CursorState getLast() {
+        return last;
+    }
+
+    /**
+     * Останавливает опрос, не дожидаясь завершения текущего вызова.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,45 @@
+package com.streamapp.streaming.cursor;
+
+import java.awt.AWTException;
+import java.awt.GraphicsEnvironment;
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.PointerInfo;
+import java.awt.Rectangle;
+
+/**
+ * Источник положения системного указателя через {@link MouseInfo}.
+ * Изображение системного указателя средствами JDK недоступно,
+ * поэтому зрителю показывается стандартная стрелка.
+ */
+public class PointerCursorSource implements CursorSource {
+    private final Rectangle area;
+    private final CursorShape shape;
+
+    /**
+     * Создает источник для области захвата экрана.
+     *
+     * @param area область захвата; координаты указателя отсчитываются от ее угла
+     * @throws AWTException если положение указателя недоступно
+     */
+    public PointerCursorSource(Rectangle area) throws AWTException {
+        if (GraphicsEnvironment.isHeadless()) {
+            throw new AWTException("Положение указателя недоступно в headless-режиме");
+        }
+        this.area = new Rectangle(area);
+        this.shape = CursorShape.ARROW;
+    }
+
+    @Override
+    public CursorState sample() {
+        PointerInfo info = MouseInfo.getPointerInfo();
+        if (info == null) {
+            return CursorState.HIDDEN;
+        }
+        Point location = info.getLocation();
+        if (!area.contains(location)) {
+            return CursorState.HIDDEN;
+        }
+        return new CursorState(location.x - area.x, location.y - area.y, shape);
+    }
+}
@@ -0,0 +1,189 @@
+package com.streamapp.streaming.encode;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Кодек плиток на основе Deflate.
+ * Перед сжатием к строкам применяется разностный фильтр по горизонтали,
+ * что хорошо сжимает однотонные области и градиенты интерфейса.
+ * Качество снижается квантизацией каналов цвета и уменьшением разрешения
+ * плитки; при {@link TileQuality#LOSSLESS} кодирование идет без потерь.
+ * Декодированные пиксели получают непрозрачный альфа-канал (0xFFRRGGBB).
+ */
+public class DeflateTileCodec implements TileCodec {
+    /**
+     * Идентификатор кодека в заголовке кадра.
+     */
+    public static final byte ID = 1;
+
+    private static final int BYTES_PER_PIXEL = 3;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final Inflater inflater = new Inflater(true);
+    private byte[] scratch = new byte[0];
+    private int[] row = new int[0];
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public int maxEncodedSize(int width, int height) {
+        int raw = width * height * BYTES_PER_PIXEL;
+        // Оценка zlib deflateBound для несжимаемых данных
+        return raw + (raw >> 12) + (raw >> 14) + (raw >> 25) + 13;
+    }
+
+    @Override
+    public int encode(int[] pixels, int stride, int x, int y, int width, int height, TileQuality quality,
+                      ByteBuffer dst) {
+        int shift = quality.getScaleShift();
+        int scaledWidth = scaled(width, shift);
+        int scaledHeight = scaled(height, shift);
+        int rawLength = scaledWidth * scaledHeight * BYTES_PER_PIXEL;
+        byte[] raw = scratch(rawLength);
+        int bits = quality.getQuantizationBits();
+        int mask = (0xFF << bits) & 0xFF;
+        int round = bits > 0 ? 1 << (bits - 1) : 0;
+
+        int out = 0;
+        for (int row = 0; row < scaledHeight; row++) {
+            int left = 0;
+            for (int col = 0; col < scaledWidth; col++) {
+                int pixel = shift == 0
+                    ? pixels[(y + row) * stride + x + col]
+                    : average(pixels, stride, x, y, width, height, col << shift, row << shift, 1 << shift);
+                if (bits > 0) {
+                    pixel = quantize(pixel >> 16, mask, round) << 16
+                        | quantize(pixel >> 8, mask, round) << 8
+                        | quantize(pixel, mask, round);
+                }
+                raw[out++] = (byte) ((pixel >> 16) - (left >> 16));
+                raw[out++] = (byte) ((pixel >> 8) - (left >> 8));
+                raw[out++] = (byte) (pixel - left);
+                left = pixel;
+            }
+        }
+
+        int start = dst.position();
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (deflater.deflate(dst) == 0 && !dst.hasRemaining()) {
+                throw new IllegalStateException("Недостаточно места для сжатой плитки");
+            }
+        }
+        return dst.position() - start;
+    }
+
+    private static int quantize(int channel, int mask, int round) {
+        return Math.min(0xFF, (channel & 0xFF) + round) & mask;
+    }
+
+    private static int average(int[] pixels, int stride, int x, int y, int width, int height,
+                               int blockX, int blockY, int block) {
+        int endX = Math.min(width, blockX + block);
+        int endY = Math.min(height, blockY + block);
+        int r = 0;
+        int g = 0;
+        int b = 0;
+        int n = 0;
+        for (int row = blockY; row < endY; row++) {
+            int offset = (y + row) * stride + x;
+            for (int col = blockX; col < endX; col++) {
+                int pixel = pixels[offset + col];
+                r += (pixel >> 16) & 0xFF;
+                g += (pixel >> 8) & 0xFF;
+                b += pixel & 0xFF;
+                n++;
+            }
+        }
+        return (r / n) << 16 | (g / n) << 8 | (b / n);
+    }
+
+    @Override
+    public void decode(ByteBuffer src, int length, IntBuffer pixels, int stride, int x, int y, int width, int height,
+                       int scaleShift) {
+        int scaledWidth = scaled(width, scaleShift);
+        int scaledHeight = scaled(height, scaleShift);
+        int rawLength = scaledWidth * scaledHeight * BYTES_PER_PIXEL;
+        byte[] raw = scratch(rawLength);
+        int start = src.position();
+        int limit = src.limit();
+        src.limit(start + length);
+        try {
+            inflater.reset();
+            inflater.setInput(src);
+            int filled = 0;
+            while (filled < rawLength) {
+                int n = inflater.inflate(raw, filled, rawLength - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalArgumentException("Поврежденные данные плитки");
+                }
+                filled += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Поврежденные данные плитки", e);
+        } finally {
+            src.limit(limit);
+            src.position(start + length);
+        }
+
+        // Строка собирается в массиве и записывается в кадр одной операцией:
+        // кадр может быть прямым буфером, где поштучная запись заметно дороже
+        int[] line = row(width);
+        int block = 1 << scaleShift;
+        int in = 0;
+        for (int scaledRow = 0; scaledRow < scaledHeight; scaledRow++) {
+            int r = 0;
+            int g = 0;
+            int b = 0;
+            for (int col = 0; col < scaledWidth; col++) {
+                r = (r + raw[in++]) & 0xFF;
+                g = (g + raw[in++]) & 0xFF;
+                b = (b + raw[in++]) & 0xFF;
+                int pixel = 0xFF000000 | (r << 16) | (g << 8) | b;
+                if (scaleShift == 0) {
+                    line[col] = pixel;
+                } else {
+                    Arrays.fill(line, col * block, Math.min(width, (col + 1) * block), pixel);
+                }
+            }
+            int endRow = Math.min(height, (scaledRow + 1) * block);
+            for (int dstRow = scaledRow * block; dstRow < endRow; dstRow++) {
+                pixels.put((y + dstRow) * stride + x, line, 0, width);
+            }
+        }
+    }
+
+    private static int scaled(int size, int shift) {
+        return (size + (1 << shift) - 1) >> shift;
+    }
+
+    private int[] row(int length) {
+        if (row.length < length) {
+            row = new int[length];
+        }
+        return row;
+    }
+
+    private byte[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[length];
+        }
+        return scratch;
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+        inflater.end();
+    }
+}
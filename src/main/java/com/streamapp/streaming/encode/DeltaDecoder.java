@@ -0,0 +1,95 @@
+package com.streamapp.streaming.encode;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Декодер разностных кадров.
+ * Накладывает плитки закодированного кадра на постоянный буфер изображения
+ * и сообщает ограничивающий прямоугольник измененной области.
+ *
+ * <p>Класс не потокобезопасен.
+ */
+public class DeltaDecoder implements AutoCloseable {
+    private final TileCodec codec;
+    private final DirtyRegion dirty = new DirtyRegion();
+    private TileGrid grid;
+
+    /**
+     * Создает декодер с кодеком плиток по умолчанию.
+     */
+    public DeltaDecoder() {
+        this(new DeflateTileCodec());
+    }
+
+    /**
+     * Создает декодер с заданным кодеком плиток.
+     *
+     * @param codec кодек плиток
+     */
+    public DeltaDecoder(TileCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Декодирует кадр в буфер изображения.
+     *
+     * @param frame закодированный кадр
+     * @param pixels буфер изображения размером ширина × высота кадра
+     * @return измененная область; объект переиспользуется следующим вызовом
+     */
+    public DirtyRegion decode(EncodedFrame frame, int[] pixels) {
+        return decode(frame, IntBuffer.wrap(pixels));
+    }
+
+    /**
+     * Декодирует кадр в буфер изображения, например в прямой буфер,
+     * разделяемый с отрисовкой. Позиция буфера не меняется.
+     *
+     * @param frame закодированный кадр
+     * @param pixels буфер изображения емкостью не меньше ширина × высота кадра
+     * @return измененная область; объект переиспользуется следующим вызовом
+     */
+    public DirtyRegion decode(EncodedFrame frame, IntBuffer pixels) {
+        if (frame.getCodecId() != codec.getId()) {
+            throw new IllegalArgumentException("Неподдерживаемый кодек плиток: " + frame.getCodecId());
+        }
+        if (pixels.capacity() < frame.getWidth() * frame.getHeight()) {
+            throw new IllegalArgumentException("Буфер изображения меньше кадра");
+        }
+        TileGrid grid = gridFor(frame);
+        int stride = grid.getWidth();
+        dirty.reset();
+
+        ByteBuffer payload = frame.payload();
+        for (int i = 0; i < frame.getTileCount(); i++) {
+            int tile = Short.toUnsignedInt(payload.getShort());
+            int length = payload.getInt();
+            if (tile >= grid.getTileCount() || length < 0 || length > payload.remaining()) {
+                throw new IllegalArgumentException("Некорректная плитка в кадре " + frame.getFrameId());
+            }
+            int x = grid.tileX(tile);
+            int y = grid.tileY(tile);
+            int w = grid.tileWidth(tile);
+            int h = grid.tileHeight(tile);
+            codec.decode(payload, length, pixels, stride, x, y, w, h, frame.getScaleShift());
+            dirty.add(x, y, w, h);
+        }
+        return dirty;
+    }
+
+    private TileGrid gridFor(EncodedFrame frame) {
+        if (grid == null
+                || grid.getWidth() != frame.getWidth()
+                || grid.getHeight() != frame.getHeight()
+                || grid.getTileSize() != frame.getTileSize()) {
+            grid = new TileGrid(frame.getWidth(), frame.getHeight(), frame.getTileSize());
+        }
+        return grid;
+    }
+
+    @Override
+    public void close() {
+        codec.close();
+    }
+}
@@ -0,0 +1,755 @@
+package com.streamapp.streaming.encode;
+
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameRing;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Разностный кодировщик кадров на основе плиток.
+ * Последняя закодированная версия каждой плитки хранится в кэше и кодируется
+ * заново, только когда плитка изменилась или понадобилась в другом качестве.
+ *
+ * <p>Кадры собираются из кэша отдельно для каждого получателя ({@link Receiver}):
+ * у каждого свои отправленные и подтвержденные версии плиток. В кадр попадают
+ * плитки, изменившиеся с момента отправки этому получателю, и плитки, отправка
+ * которых не была подтверждена вовремя. Опорный кадр со всеми плитками
+ * формируется периодически и по запросу. Поэтому один проход кодирования
+ * обслуживает любое число зрителей, а отставший зритель получает накопившиеся
+ * изменения одним кадром, не задерживая остальных.
+ *
+ * <p>У каждого получателя свое качество плиток ({@link Receiver#setQuality(TileQuality)}).
+ * Для каждого качества, в котором есть получатели, кэш плиток ведется отдельно
+ * (ступень кэша): изменившаяся плитка кодируется один раз на ступень, и медленный
+ * получатель получает плитки своего качества, то есть действительно меньше
+ * байт, а не копию кадра для самого быстрого. Ступень без получателей
+ * освобождается при следующем обновлении.
+ *
+ * <p>Методы {@link #encode(Frame)}, {@link #acknowledge(long)} и подобные
+ * работают с единственным получателем по умолчанию; для нескольких получателей
+ * используются {@link #newReceiver()}, {@link #update(Frame)} и {@link Receiver#assemble()}.
+ *
+ * <p>С {@link TileEncoderPool} отпечатки и кодирование плиток считаются
+ * параллельно: каждая плитка пишется в свою ячейку общего буфера, а затем
+ * изменившиеся плитки собираются в кадр по порядку номеров. Следующий кадр
+ * кодируется только после сборки предыдущего, поэтому порядок кадров сохраняется.
+ *
+ * <p>Каждый участок сначала считает отпечатки своих плиток, а затем кодирует
+ * изменившиеся; время обоих проходов суммируется по участкам, и время
+ * {@link #update(Frame)} делится между сравнением и кодированием в той же
+ * пропорции ({@link #getLastDiffNanos()}, {@link #getLastEncodeNanos()}).
+ *
+ * <p>Методы синхронизированы: кадры кодируются в потоке захвата,
+ * а подтверждения и запросы опорных кадров приходят из сетевого потока.
+ */
+public class DeltaEncoder implements AutoCloseable {
+    /**
+     * Сторона плитки по умолчанию.
+     */
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    /**
+     * Интервал опорных кадров по умолчанию (в кадрах).
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 300;
+
+    /**
+     * Через сколько кадров неподтвержденная плитка отправляется повторно.
+     */
+    public static final int DEFAULT_RESEND_AFTER_FRAMES = 30;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Сколько участков плиток приходится на поток пула: мелкие участки
+     * позволяют свободным потокам забирать работу у занятых.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final Receiver[] NO_RECEIVERS = new Receiver[0];
+
+    private static final Tier[] NO_TIERS = new Tier[0];
+
+    private final TileGrid grid;
+    private final TileCodec codec;
+    private final TileEncoderPool pool;
+    private final byte codecId;
+    private final int keyframeInterval;
+    private final int resendAfterFrames;
+    private final long[] tileHash;
+    /**
+     * Версия плитки: номер кадра, в котором изменилось ее содержимое.
+     */
+    private final long[] tileVersion;
+    private final int slotSize;
+    private final TileChunk[] chunks;
+    private final FrameTask frameTask;
+    private final List<Receiver> receivers = new ArrayList<>();
+    private Receiver[] active = NO_RECEIVERS;
+    /**
+     * Ступени кэша текущего кадра; пересобираются при обновлении, если
+     * получатели или их качество изменились.
+     */
+    private Tier[] tiers = NO_TIERS;
+    private boolean tiersChanged;
+    private Receiver primary;
+    private TileQuality quality = TileQuality.LOSSLESS;
+    private int[] framePixels;
+    private long frameId = NEVER;
+    private long captureTimeNanos;
+    private long lastDiffNanos;
+    private long lastEncodeNanos;
+
+    /**
+     * Создает кодировщик с параметрами по умолчанию.
+     *
+     * @param width ширина кадра
+     * @param height высота кадра
+     */
+    public DeltaEncoder(int width, int height) {
+        this(new TileGrid(width, height, DEFAULT_TILE_SIZE), TileEncoderPool.shared(),
+            DEFAULT_KEYFRAME_INTERVAL, DEFAULT_RESEND_AFTER_FRAMES);
+    }
+
+    /**
+     * Создает однопоточный кодировщик.
+     *
+     * @param grid сетка плиток
+     * @param codec кодек плиток
+     * @param keyframeInterval интервал опорных кадров
+     * @param resendAfterFrames через сколько кадров повторять неподтвержденную плитку
+     */
+    public DeltaEncoder(TileGrid grid, TileCodec codec, int keyframeInterval, int resendAfterFrames) {
+        this(grid, codec, null, codec.getId(), codec.maxEncodedSize(grid.getTileSize(), grid.getTileSize()),
+            keyframeInterval, resendAfterFrames);
+    }
+
+    /**
+     * Создает кодировщик, кодирующий плитки в пуле потоков.
+     * Пул может быть общим для нескольких кодировщиков и не закрывается вместе с ними.
+     *
+     * @param grid сетка плиток
+     * @param pool пул кодирования плиток
+     * @param keyframeInterval интервал опорных кадров
+     * @param resendAfterFrames через сколько кадров повторять неподтвержденную плитку
+     */
+    public DeltaEncoder(TileGrid grid, TileEncoderPool pool, int keyframeInterval, int resendAfterFrames) {
+        this(grid, null, pool, pool.getCodecId(), pool.maxEncodedSize(grid.getTileSize(), grid.getTileSize()),
+            keyframeInterval, resendAfterFrames);
+    }
+
+    private DeltaEncoder(TileGrid grid, TileCodec codec, TileEncoderPool pool, byte codecId, int slotSize,
+                         int keyframeInterval, int resendAfterFrames) {
+        if (keyframeInterval <= 0 || resendAfterFrames <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры кодировщика");
+        }
+        this.grid = grid;
+        this.codec = codec;
+        this.pool = pool;
+        this.codecId = codecId;
+        this.keyframeInterval = keyframeInterval;
+        this.resendAfterFrames = resendAfterFrames;
+        int tiles = grid.getTileCount();
+        this.tileHash = new long[tiles];
+        this.tileVersion = new long[tiles];
+        Arrays.fill(tileVersion, NEVER);
+        this.slotSize = slotSize;
+        if (pool == null) {
+            this.chunks = null;
+            this.frameTask = null;
+        } else {
+            int count = Math.min(tiles, pool.getParallelism() * CHUNKS_PER_THREAD);
+            this.chunks = new TileChunk[count];
+            for (int i = 0; i < count; i++) {
+                chunks[i] = new TileChunk(i, i * tiles / count, (i + 1) * tiles / count);
+            }
+            this.frameTask = new FrameTask();
+        }
+    }
+
+    /**
+     * Прогревает кодирование до первой трансляции: создает общий пул
+     * кодирования, загружает zlib и дает JIT скомпилировать горячие циклы
+     * на нескольких кадрах тестовой таблицы в разном качестве.
+     */
+    public static void warmUp() {
+        int size = DEFAULT_TILE_SIZE * 4;
+        FrameRing ring = new FrameRing(1, size, size);
+        TestPatternFrameSource source = new TestPatternFrameSource(size, size);
+        try (DeltaEncoder encoder = new DeltaEncoder(size, size)) {
+            TileQuality[] qualities = {TileQuality.LOSSLESS, new TileQuality(2, 0),
+                new TileQuality(TileQuality.MAX_QUANTIZATION_BITS, TileQuality.MAX_SCALE_SHIFT)};
+            for (int i = 0; i < qualities.length * 4; i++) {
+                Frame frame = ring.acquire();
+                try {
+                    source.capture(frame);
+                    encoder.setQuality(qualities[i % qualities.length]);
+                    encoder.encode(frame);
+                } finally {
+                    frame.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Кодирует кадр для получателя по умолчанию.
+     * Буфер кадра после вызова можно сразу вернуть в кольцо.
+     *
+     * @param frame захваченный кадр с размерами сетки
+     * @return закодированный кадр, возможно без плиток
+     */
+    public synchronized EncodedFrame encode(Frame frame) {
+        Receiver receiver = primary();
+        update(frame);
+        return receiver.assemble();
+    }
+
+    /**
+     * Добавляет получателя со своим состоянием подтверждений.
+     * Первый собранный для него кадр будет опорным.
+     *
+     * @return новый получатель
+     */
+    public synchronized Receiver newReceiver() {
+        Receiver receiver = new Receiver(quality);
+        receivers.add(receiver);
+        active = receivers.toArray(NO_RECEIVERS);
+        tiersChanged = true;
+        return receiver;
+    }
+
+    private Receiver primary() {
+        if (primary == null) {
+            primary = newReceiver();
+        }
+        return primary;
+    }
+
+    /**
+     * Обновляет кэш плиток по захваченному кадру. После вызова кадры для
+     * получателей собираются через {@link Receiver#assemble()}.
+     * Буфер кадра после вызова можно сразу вернуть в кольцо.
+     *
+     * @param frame захваченный кадр с размерами сетки
+     */
+    public synchronized void update(Frame frame) {
+        if (frame.getWidth() != grid.getWidth() || frame.getHeight() != grid.getHeight()) {
+            throw new IllegalArgumentException("Размер кадра не совпадает с сеткой плиток");
+        }
+        frameId = frame.getFrameId();
+        captureTimeNanos = frame.getCaptureTimeNanos();
+        framePixels = frame.getPixels();
+        if (tiersChanged) {
+            assignTiers();
+        }
+        for (Receiver receiver : active) {
+            receiver.beginFrame();
+        }
+
+        long start = System.nanoTime();
+        long hashNanos;
+        long passNanos;
+        if (pool == null) {
+            hashNanos = encodeTiles(0, grid.getTileCount(), codec, -1);
+            passNanos = System.nanoTime() - start;
+        } else {
+            for (TileChunk chunk : chunks) {
+                chunk.reinitialize();
+            }
+            frameTask.reinitialize();
+            pool.invoke(frameTask);
+            hashNanos = 0;
+            passNanos = 0;
+            for (TileChunk chunk : chunks) {
+                hashNanos += chunk.hashNanos;
+                passNanos += chunk.passNanos;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        lastDiffNanos = passNanos > 0 ? (long) (elapsed * ((double) hashNanos / passNanos)) : 0;
+        lastEncodeNanos = elapsed - lastDiffNanos;
+        framePixels = null;
+    }
+
+    /**
+     * Распределяет получателей по ступеням кэша их качества. Ступень с тем же
+     * качеством, что и раньше, сохраняет закодированные плитки; освободившаяся
+     * ступень отдает свой буфер новому качеству, чтобы смена ступени
+     * получателем не выделяла память заново.
+     */
+    private void assignTiers() {
+        List<Tier> next = new ArrayList<>();
+        List<Tier> unused = new ArrayList<>(Arrays.asList(tiers));
+        for (Tier tier : tiers) {
+            tier.members.clear();
+        }
+        for (Receiver receiver : active) {
+            Tier tier = find(next, receiver.quality);
+            if (tier == null) {
+                tier = find(unused, receiver.quality);
+                if (tier != null) {
+                    unused.remove(tier);
+                    next.add(tier);
+                }
+            }
+            if (tier == null) {
+                continue;
+            }
+            tier.members.add(receiver);
+            receiver.tier = tier;
+        }
+        for (Receiver receiver : active) {
+            if (receiver.tier != null && receiver.tier.members.contains(receiver)) {
+                continue;
+            }
+            Tier tier = find(next, receiver.quality);
+            if (tier == null) {
+                tier = unused.isEmpty() ? new Tier() : unused.remove(unused.size() - 1);
+                tier.reset(receiver.quality);
+                next.add(tier);
+            }
+            tier.members.add(receiver);
+            receiver.tier = tier;
+        }
+        for (Tier tier : next) {
+            tier.active = tier.members.toArray(NO_RECEIVERS);
+        }
+        tiers = next.toArray(NO_TIERS);
+        tiersChanged = false;
+    }
+
+    private static Tier find(List<Tier> tiers, TileQuality quality) {
+        for (Tier tier : tiers) {
+            if (tier.quality.equals(quality)) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return время сравнения плиток с кэшем в последнем {@link #update(Frame)}, в наносекундах
+     */
+    public synchronized long getLastDiffNanos() {
+        return lastDiffNanos;
+    }
+
+    /**
+     * @return время кодирования плиток в последнем {@link #update(Frame)}, в наносекундах
+     */
+    public synchronized long getLastEncodeNanos() {
+        return lastEncodeNanos;
+    }
+
+    /**
+     * Считает отпечатки плиток участка и кодирует в ячейки каждой ступени кэша
+     * плитки, которые нужны ее получателям и закодированы в ней не по текущей
+     * версии. Выполняется параллельно для разных участков: пишет только
+     * в элементы своих плиток, состояние получателей только читает.
+     *
+     * @param chunk номер участка или -1 без пула
+     * @return время подсчета отпечатков в наносекундах
+     */
+    private long encodeTiles(int from, int to, TileCodec tileCodec, int chunk) {
+        long start = System.nanoTime();
+        int stride = grid.getWidth();
+        for (int tile = from; tile < to; tile++) {
+            long hash = TileHasher.hash(framePixels, stride, grid.tileX(tile), grid.tileY(tile),
+                grid.tileWidth(tile), grid.tileHeight(tile));
+            if (tileVersion[tile] == NEVER || hash != tileHash[tile]) {
+                tileHash[tile] = hash;
+                tileVersion[tile] = frameId;
+            }
+        }
+        long hashed = System.nanoTime() - start;
+        for (Tier tier : tiers) {
+            ByteBuffer dst = chunk < 0 ? tier.slots : tier.views[chunk];
+            for (int tile = from; tile < to; tile++) {
+                if (tier.encodedVersion[tile] == tileVersion[tile] || !tier.isNeeded(tile)) {
+                    continue;
+                }
+                int slot = tile * slotSize;
+                dst.limit(slot + slotSize).position(slot);
+                tier.encodedLength[tile] = tileCodec.encode(framePixels, stride, grid.tileX(tile), grid.tileY(tile),
+                    grid.tileWidth(tile), grid.tileHeight(tile), tier.quality, dst);
+                tier.encodedVersion[tile] = tileVersion[tile];
+            }
+        }
+        return hashed;
+    }
+
+    /**
+     * Отмечает кадр как полученный зрителем по умолчанию.
+     * Подтверждение не накопительное: при потере кадров подтверждение более
+     * позднего кадра не должно засчитывать плитки потерянного.
+     *
+     * @param frameId номер подтвержденного кадра
+     */
+    public synchronized void acknowledge(long frameId) {
+        primary().acknowledge(frameId);
+    }
+
+    /**
+     * Отмечает кадр получателя по умолчанию как не отправленный,
+     * например при переполнении очереди. Его плитки попадут в следующий кадр,
+     * если зритель еще не получил их текущую версию.
+     *
+     * @param frameId номер отброшенного кадра
+     */
+    public synchronized void discard(long frameId) {
+        primary().discard(frameId);
+    }
+
+    /**
+     * Включает в следующий кадр получателя по умолчанию все плитки,
+     * получение которых не подтверждено.
+     */
+    public synchronized void resendUnacknowledged() {
+        primary().resendUnacknowledged();
+    }
+
+    /**
+     * Запрашивает опорный кадр со всеми плитками для получателя по умолчанию.
+     */
+    public synchronized void requestKeyframe() {
+        primary().requestKeyframe();
+    }
+
+    /**
+     * Меняет качество кодирования плиток для всех получателей, в том числе
+     * добавленных позже. Отдельным получателям качество задается через
+     * {@link Receiver#setQuality(TileQuality)}.
+     *
+     * @param quality новое качество
+     */
+    public synchronized void setQuality(TileQuality quality) {
+        this.quality = quality;
+        for (Receiver receiver : receivers) {
+            receiver.setQuality(quality);
+        }
+    }
+
+    /**
+     * @return качество по умолчанию для новых получателей
+     */
+    public synchronized TileQuality getQuality() {
+        return quality;
+    }
+
+    public TileGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return размер сериализованного кадра со всеми плитками наибольшего
+     *     закодированного размера; больше кодировщик не выдает
+     */
+    public int getMaxFrameSize() {
+        long size = EncodedFrame.HEADER_SIZE
+            + (long) grid.getTileCount() * (EncodedFrame.TILE_HEADER_SIZE + slotSize);
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Освобождает кодек однопоточного кодировщика. Пул потоков не закрывается.
+     */
+    @Override
+    public void close() {
+        if (codec != null) {
+            codec.close();
+        }
+    }
+
+    /**
+     * Получатель кадров со своим состоянием отправки и подтверждений.
+     * Методы синхронизированы с кодировщиком.
+     */
+    public final class Receiver {
+        private final long[] sentVersion;
+        private final long[] sentFrame;
+        private final long[] ackedVersion;
+        private long lastKeyframeId = NEVER;
+        private boolean keyframeRequested = true;
+        private long preparedFrameId = NEVER;
+        private boolean keyframe;
+        private TileQuality quality;
+        /**
+         * Ступень кэша, назначенная при последнем обновлении.
+         */
+        private Tier tier;
+        /**
+         * Буфер полезной нагрузки, общий для всех кадров получателя.
+         */
+        private ByteBuffer payload = ByteBuffer.allocate(0);
+
+        private Receiver(TileQuality quality) {
+            this.quality = quality;
+            int tiles = grid.getTileCount();
+            this.sentVersion = new long[tiles];
+            this.sentFrame = new long[tiles];
+            this.ackedVersion = new long[tiles];
+            Arrays.fill(sentVersion, NEVER);
+            Arrays.fill(sentFrame, NEVER);
+            Arrays.fill(ackedVersion, NEVER);
+        }
+
+        private void beginFrame() {
+            preparedFrameId = frameId;
+            keyframe = keyframeRequested
+                || lastKeyframeId == NEVER
+                || frameId - lastKeyframeId >= keyframeInterval;
+        }
+
+        private boolean includes(int tile) {
+            if (keyframe || sentVersion[tile] != tileVersion[tile]) {
+                return true;
+            }
+            // Плитка не менялась с отправки, но получатель ее еще не подтвердил
+            return sentVersion[tile] != ackedVersion[tile] && frameId - sentFrame[tile] >= resendAfterFrames;
+        }
+
+        /**
+         * Собирает кадр из кэша плиток после последнего {@link #update(Frame)}.
+         * Кадры, для которых сборка не вызывалась, пропускаются: их изменения
+         * попадут в следующий собранный кадр.
+         * <p>
+         * Полезная нагрузка кадра лежит в буфере получателя и действительна до
+         * следующей сборки для него: кадр нужно отправить или скопировать сразу.
+         *
+         * @return закодированный кадр, возможно без плиток
+         */
+        public EncodedFrame assemble() {
+            synchronized (DeltaEncoder.this) {
+                Tier current = tier;
+                if (preparedFrameId != frameId || current == null) {
+                    // Получатель добавлен после обновления кэша: ждет следующего кадра
+                    payload.clear().limit(0);
+                    return new EncodedFrame(frameId, captureTimeNanos, grid.getWidth(), grid.getHeight(),
+                        grid.getTileSize(), codecId, false, quality.getScaleShift(), 0, payload);
+                }
+                int size = 0;
+                int tileCount = 0;
+                boolean complete = true;
+                for (int tile = 0; tile < sentVersion.length; tile++) {
+                    if (!includes(tile)) {
+                        continue;
+                    }
+                    if (current.encodedVersion[tile] != tileVersion[tile]) {
+                        // Плитка не закодирована в качестве получателя; она будет в следующем кадре
+                        complete = false;
+                        continue;
+                    }
+                    size += EncodedFrame.TILE_HEADER_SIZE + current.encodedLength[tile];
+                    tileCount++;
+                }
+                if (payload.capacity() < size) {
+                    payload = ByteBuffer.allocate(size + size / 4);
+                }
+                payload.clear();
+                byte[] encoded = current.slots.array();
+                for (int tile = 0; tile < sentVersion.length; tile++) {
+                    if (!includes(tile) || current.encodedVersion[tile] != tileVersion[tile]) {
+                        continue;
+                    }
+                    int length = current.encodedLength[tile];
+                    payload.putShort((short) tile).putInt(length).put(encoded, tile * slotSize, length);
+                    sentVersion[tile] = tileVersion[tile];
+                    sentFrame[tile] = frameId;
+                }
+                payload.flip();
+                boolean sentKeyframe = keyframe && complete;
+                if (sentKeyframe) {
+                    lastKeyframeId = frameId;
+                    keyframeRequested = false;
+                }
+                // Повторная сборка того же кадра не должна снова включать плитки
+                keyframe = false;
+                return new EncodedFrame(frameId, captureTimeNanos, grid.getWidth(), grid.getHeight(),
+                    grid.getTileSize(), codecId, sentKeyframe, current.quality.getScaleShift(), tileCount, payload);
+            }
+        }
+
+        /**
+         * Меняет качество плиток для этого получателя со следующего обновления.
+         * При повышении качества запрашивается опорный кадр, чтобы заменить
+         * плитки, переданные в худшем качестве, даже если они не менялись.
+         *
+         * @param quality новое качество
+         */
+        public void setQuality(TileQuality quality) {
+            synchronized (DeltaEncoder.this) {
+                if (quality.equals(this.quality)) {
+                    return;
+                }
+                if (quality.isAtLeast(this.quality)) {
+                    keyframeRequested = true;
+                }
+                this.quality = quality;
+                tiersChanged = true;
+            }
+        }
+
+        /**
+         * Отмечает кадр как полученный.
+         * Подтверждение не накопительное: при потере кадров подтверждение более
+         * позднего кадра не должно засчитывать плитки потерянного.
+         *
+         * @param frameId номер подтвержденного кадра
+         */
+        public void acknowledge(long frameId) {
+            synchronized (DeltaEncoder.this) {
+                for (int tile = 0; tile < sentFrame.length; tile++) {
+                    if (sentFrame[tile] == frameId) {
+                        ackedVersion[tile] = sentVersion[tile];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Отмечает кадр как не отправленный, например при переполнении очереди.
+         * Его плитки попадут в следующий кадр, если получатель еще не получил
+         * их текущую версию.
+         *
+         * @param frameId номер отброшенного кадра
+         */
+        public void discard(long frameId) {
+            synchronized (DeltaEncoder.this) {
+                for (int tile = 0; tile < sentFrame.length; tile++) {
+                    if (sentFrame[tile] == frameId) {
+                        sentVersion[tile] = ackedVersion[tile];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Включает в следующий кадр все плитки, получение которых не подтверждено.
+         * Используется при возобновлении сессии вместо опорного кадра: изображение
+         * у зрителя сохранилось, и повторять нужно только то, что могло не дойти.
+         */
+        public void resendUnacknowledged() {
+            synchronized (DeltaEncoder.this) {
+                System.arraycopy(ackedVersion, 0, sentVersion, 0, sentVersion.length);
+            }
+        }
+
+        /**
+         * Запрашивает опорный кадр со всеми плитками при следующей сборке.
+         */
+        public void requestKeyframe() {
+            synchronized (DeltaEncoder.this) {
+                keyframeRequested = true;
+            }
+        }
+
+        /**
+         * Отключает получателя от кодировщика.
+         */
+        public void remove() {
+            synchronized (DeltaEncoder.this) {
+                receivers.remove(this);
+                active = receivers.toArray(NO_RECEIVERS);
+                tiersChanged = true;
+                if (primary == this) {
+                    primary = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ступень кэша: плитки, закодированные в одном качестве, и получатели этого качества.
+     */
+    private final class Tier {
+        private TileQuality quality;
+        private final ByteBuffer slots;
+        /**
+         * Версия плитки, закодированная в ячейке, или {@link #NEVER}.
+         */
+        private final long[] encodedVersion;
+        private final int[] encodedLength;
+        /**
+         * Собственные представления буфера для участков пула, чтобы позиция
+         * и предел не разделялись между потоками.
+         */
+        private final ByteBuffer[] views;
+        private final List<Receiver> members = new ArrayList<>();
+        private Receiver[] active = NO_RECEIVERS;
+
+        private Tier() {
+            int tiles = grid.getTileCount();
+            this.slots = ByteBuffer.allocate(tiles * slotSize);
+            this.encodedVersion = new long[tiles];
+            this.encodedLength = new int[tiles];
+            if (chunks == null) {
+                this.views = null;
+            } else {
+                this.views = new ByteBuffer[chunks.length];
+                for (int i = 0; i < views.length; i++) {
+                    views[i] = slots.duplicate();
+                }
+            }
+        }
+
+        /**
+         * Переводит ступень на другое качество; закодированные плитки сбрасываются.
+         */
+        private void reset(TileQuality quality) {
+            this.quality = quality;
+            Arrays.fill(encodedVersion, NEVER);
+        }
+
+        private boolean isNeeded(int tile) {
+            for (Receiver receiver : active) {
+                if (receiver.includes(tile)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Кодирование всех участков кадра в пуле.
+     */
+    @SuppressWarnings("serial")
+    private final class FrameTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(chunks);
+        }
+    }
+
+    /**
+     * Участок плиток, кодируемый одним потоком пула его кодеком.
+     */
+    @SuppressWarnings("serial")
+    private final class TileChunk extends RecursiveAction {
+        private final int index;
+        private final int from;
+        private final int to;
+        private long hashNanos;
+        private long passNanos;
+
+        private TileChunk(int index, int from, int to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            long start = System.nanoTime();
+            hashNanos = encodeTiles(from, to, pool.codec(), index);
+            passNanos = System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.streamapp.streaming.encode;
+
+/**
+ * Изменяемый ограничивающий прямоугольник измененной области кадра.
+ */
+public final class DirtyRegion {
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    /**
+     * Создает пустую область.
+     */
+    public DirtyRegion() {
+        reset();
+    }
+
+    /**
+     * Очищает область.
+     */
+    public void reset() {
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Расширяет область прямоугольником.
+     *
+     * @param x левая граница
+     * @param y верхняя граница
+     * @param width ширина
+     * @param height высота
+     */
+    public void add(int x, int y, int width, int height) {
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x + width);
+        maxY = Math.max(maxY, y + height);
+    }
+
+    /**
+     * Расширяет область другой областью.
+     *
+     * @param other добавляемая область
+     */
+    public void add(DirtyRegion other) {
+        if (!other.isEmpty()) {
+            add(other.getX(), other.getY(), other.getWidth(), other.getHeight());
+        }
+    }
+
+    public boolean isEmpty() {
+        return maxX <= minX || maxY <= minY;
+    }
+
+    public int getX() {
+        return minX;
+    }
+
+    public int getY() {
+        return minY;
+    }
+
+    public int getWidth() {
+        return isEmpty() ? 0 : maxX - minX;
+    }
+
+    public int getHeight() {
+        return isEmpty() ? 0 : maxY - minY;
+    }
+}
@@ -0,0 +1,189 @@
+package com.streamapp.streaming.encode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Закодированный кадр: заголовок и последовательность измененных плиток.
+ * Полезная нагрузка неизменяема и может одновременно читаться несколькими
+ * потоками через {@link #payload()}.
+ *
+ * <p>Формат плитки в полезной нагрузке: номер плитки (uint16),
+ * длина данных (int32), данные кодека.
+ */
+public final class EncodedFrame {
+    /**
+     * Размер заголовка кадра в сериализованном виде.
+     */
+    public static final int HEADER_SIZE = 8 + 8 + 2 + 2 + 2 + 1 + 1 + 2 + 4;
+
+    /**
+     * Размер заголовка одной плитки в полезной нагрузке.
+     */
+    public static final int TILE_HEADER_SIZE = 2 + 4;
+
+    private static final byte FLAG_KEYFRAME = 1;
+    private static final int SCALE_SHIFT_OFFSET = 1;
+    private static final int SCALE_SHIFT_MASK = 0b11;
+
+    private final long frameId;
+    private final long captureTimeNanos;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final byte codecId;
+    private final boolean keyframe;
+    private final int scaleShift;
+    private final int tileCount;
+    private final ByteBuffer payload;
+
+    /**
+     * Создает закодированный кадр.
+     *
+     * @param frameId номер кадра
+     * @param captureTimeNanos время захвата по {@link System#nanoTime()}
+     * @param width ширина кадра
+     * @param height высота кадра
+     * @param tileSize сторона плитки
+     * @param codecId идентификатор кодека плиток
+     * @param keyframe признак опорного кадра
+     * @param scaleShift уменьшение разрешения плиток (см. {@link TileQuality#getScaleShift()})
+     * @param tileCount количество плиток в полезной нагрузке
+     * @param payload полезная нагрузка от позиции до лимита
+     */
+    public EncodedFrame(long frameId, long captureTimeNanos, int width, int height, int tileSize,
+                        byte codecId, boolean keyframe, int scaleShift, int tileCount, ByteBuffer payload) {
+        this.frameId = frameId;
+        this.captureTimeNanos = captureTimeNanos;
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.codecId = codecId;
+        this.keyframe = keyframe;
+        this.scaleShift = scaleShift;
+        this.tileCount = tileCount;
+        this.payload = payload.slice().asReadOnlyBuffer();
+    }
+
+    public long getFrameId() {
+        return frameId;
+    }
+
+    public long getCaptureTimeNanos() {
+        return captureTimeNanos;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public byte getCodecId() {
+        return codecId;
+    }
+
+    public boolean isKeyframe() {
+        return keyframe;
+    }
+
+    public int getScaleShift() {
+        return scaleShift;
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * Проверяет, что кадр не содержит измененных плиток.
+     *
+     * @return true, если плиток нет
+     */
+    public boolean isEmpty() {
+        return tileCount == 0;
+    }
+
+    /**
+     * Возвращает независимое представление полезной нагрузки для чтения.
+     *
+     * @return буфер только для чтения
+     */
+    public ByteBuffer payload() {
+        return payload.duplicate();
+    }
+
+    public int getPayloadSize() {
+        return payload.remaining();
+    }
+
+    /**
+     * Возвращает размер кадра в сериализованном виде.
+     *
+     * @return размер в байтах
+     */
+    public int serializedSize() {
+        return HEADER_SIZE + payload.remaining();
+    }
+
+    /**
+     * Записывает кадр в буфер начиная с текущей позиции.
+     *
+     * @param dst буфер назначения
+     */
+    public void writeTo(ByteBuffer dst) {
+        dst.putLong(frameId);
+        dst.putLong(captureTimeNanos);
+        dst.putShort((short) width);
+        dst.putShort((short) height);
+        dst.putShort((short) tileSize);
+        dst.put(codecId);
+        dst.put((byte) ((keyframe ? FLAG_KEYFRAME : 0) | scaleShift << SCALE_SHIFT_OFFSET));
+        dst.putShort((short) tileCount);
+        dst.putInt(payload.remaining());
+        dst.put(payload.duplicate());
+    }
+
+    /**
+     * Читает кадр из буфера. Полезная нагрузка копируется,
+     * поэтому исходный буфер можно сразу переиспользовать.
+     *
+     * @param src буфер с сериализованным кадром
+     * @return прочитанный кадр
+     */
+    public static EncodedFrame readFrom(ByteBuffer src) {
+        long frameId = src.getLong();
+        long captureTimeNanos = src.getLong();
+        int width = Short.toUnsignedInt(src.getShort());
+        int height = Short.toUnsignedInt(src.getShort());
+        int tileSize = Short.toUnsignedInt(src.getShort());
+        byte codecId = src.get();
+        byte flags = src.get();
+        boolean keyframe = (flags & FLAG_KEYFRAME) != 0;
+        int scaleShift = (flags >> SCALE_SHIFT_OFFSET) & SCALE_SHIFT_MASK;
+        int tileCount = Short.toUnsignedInt(src.getShort());
+        int payloadSize = src.getInt();
+        if (payloadSize < 0 || payloadSize > src.remaining()) {
+            throw new IllegalArgumentException("Некорректный размер полезной нагрузки кадра: " + payloadSize);
+        }
+        byte[] data = new byte[payloadSize];
+        src.get(data);
+        return new EncodedFrame(frameId, captureTimeNanos, width, height, tileSize,
+            codecId, keyframe, scaleShift, tileCount, ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedFrame{" +
+                "frameId=" + frameId +
+                ", keyframe=" + keyframe +
+                ", tiles=" + tileCount +
+                ", bytes=" + payload.remaining() +
+                '}';
+    }
+}
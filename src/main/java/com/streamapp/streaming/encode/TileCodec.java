@@ -0,0 +1,67 @@
+package com.streamapp.streaming.encode;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Кодек одной плитки кадра.
+ * Экземпляры хранят внутренние буферы и не потокобезопасны:
+ * каждому потоку кодирования нужен свой экземпляр.
+ */
+public interface TileCodec extends AutoCloseable {
+
+    /**
+     * Возвращает идентификатор кодека в заголовке кадра.
+     *
+     * @return идентификатор кодека
+     */
+    byte getId();
+
+    /**
+     * Возвращает верхнюю оценку размера закодированной плитки.
+     *
+     * @param width ширина плитки
+     * @param height высота плитки
+     * @return максимальный размер в байтах
+     */
+    int maxEncodedSize(int width, int height);
+
+    /**
+     * Кодирует плитку кадра в буфер начиная с его текущей позиции.
+     *
+     * @param pixels пиксели кадра
+     * @param stride длина строки кадра в пикселях
+     * @param x левая граница плитки
+     * @param y верхняя граница плитки
+     * @param width ширина плитки
+     * @param height высота плитки
+     * @param quality параметры качества
+     * @param dst буфер назначения
+     * @return количество записанных байт
+     */
+    int encode(int[] pixels, int stride, int x, int y, int width, int height, TileQuality quality, ByteBuffer dst);
+
+    /**
+     * Декодирует плитку из буфера и записывает ее в кадр.
+     * Позиция буфера смещается на {@code length} байт. Кадр назначения
+     * адресуется по абсолютным индексам, его позиция не меняется.
+     *
+     * @param src буфер с закодированной плиткой
+     * @param length размер закодированной плитки
+     * @param pixels пиксели кадра назначения; может быть прямым буфером, разделяемым с отрисовкой
+     * @param stride длина строки кадра в пикселях
+     * @param x левая граница плитки
+     * @param y верхняя граница плитки
+     * @param width ширина плитки
+     * @param height высота плитки
+     * @param scaleShift уменьшение разрешения, с которым плитка была закодирована
+     */
+    void decode(ByteBuffer src, int length, IntBuffer pixels, int stride, int x, int y, int width, int height,
+                int scaleShift);
+
+    /**
+     * Освобождает нативные ресурсы кодека.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,161 @@
+package com.streamapp.streaming.encode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Пул потоков для параллельного кодирования плиток.
+ * <p>
+ * Основан на {@link ForkJoinPool}: плитки кадра делятся на участки, и свободные
+ * потоки забирают участки у занятых. У каждого потока свой экземпляр кодека
+ * со своими внутренними буферами, поэтому кодирование не выделяет память
+ * и не требует синхронизации между потоками. Вызывающий поток только ждет
+ * завершения задачи и сам участков не выполняет, поэтому кодеки есть только
+ * у потоков пула и освобождаются вместе с ними.
+ */
+public class TileEncoderPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TileEncoderPool.class);
+
+    /**
+     * Сколько ядер оставить потокам захвата, сети и интерфейса.
+     */
+    private static final int RESERVED_CORES = 2;
+
+    private static TileEncoderPool shared;
+
+    private final ForkJoinPool pool;
+    private final Supplier<TileCodec> codecFactory;
+    private final TileCodec probe;
+
+    /**
+     * Создает пул.
+     *
+     * @param parallelism число потоков кодирования
+     * @param codecFactory фабрика кодеков; вызывается один раз для каждого потока
+     */
+    public TileEncoderPool(int parallelism, Supplier<TileCodec> codecFactory) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Некорректное число потоков кодирования: " + parallelism);
+        }
+        this.codecFactory = codecFactory;
+        this.probe = codecFactory.get();
+        this.pool = new ForkJoinPool(parallelism, Worker::new, null, false);
+        logger.info("Пул кодирования плиток: {} потоков", parallelism);
+    }
+
+    /**
+     * Возвращает общий пул приложения с кодеком Deflate.
+     * Потоки пула — демоны и не мешают завершению приложения.
+     *
+     * @return общий пул
+     */
+    public static synchronized TileEncoderPool shared() {
+        if (shared == null) {
+            shared = new TileEncoderPool(defaultParallelism(), DeflateTileCodec::new);
+        }
+        return shared;
+    }
+
+    /**
+     * Возвращает число потоков кодирования по умолчанию: все ядра,
+     * кроме занятых захватом, сетью и интерфейсом.
+     *
+     * @return число потоков
+     */
+    public static int defaultParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - RESERVED_CORES);
+    }
+
+    /**
+     * Выполняет задачу в пуле и ждет ее завершения.
+     * Задача, отправленная в собственный пул из внешнего потока, не забирается
+     * этим потоком на выполнение, а подзадачи, запущенные из потока пула,
+     * попадают в его очередь, поэтому все участки выполняются потоками пула.
+     *
+     * @param task задача кодирования
+     */
+    void invoke(ForkJoinTask<?> task) {
+        pool.invoke(task);
+    }
+
+    /**
+     * Возвращает кодек текущего потока пула.
+     *
+     * @return кодек потока
+     * @throws IllegalStateException если текущий поток не принадлежит пулу
+     */
+    TileCodec codec() {
+        if (Thread.currentThread() instanceof Worker worker && worker.getPool() == pool) {
+            return worker.codec;
+        }
+        throw new IllegalStateException("Плитки кодируются только в потоках пула: "
+            + Thread.currentThread().getName());
+    }
+
+    /**
+     * Возвращает идентификатор кодека потоков пула.
+     *
+     * @return идентификатор кодека
+     */
+    public byte getCodecId() {
+        return probe.getId();
+    }
+
+    /**
+     * Возвращает верхнюю оценку размера плитки для кодека потоков пула.
+     *
+     * @param width ширина плитки
+     * @param height высота плитки
+     * @return максимальный размер в байтах
+     */
+    public int maxEncodedSize(int width, int height) {
+        return probe.maxEncodedSize(width, height);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Останавливает потоки пула и освобождает их кодеки.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(2, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        probe.close();
+    }
+
+    /**
+     * Поток кодирования со своим кодеком.
+     */
+    private final class Worker extends ForkJoinWorkerThread {
+        private final TileCodec codec;
+
+        private Worker(ForkJoinPool pool) {
+            super(pool);
+            setName("tile-encoder-" + getPoolIndex());
+            setDaemon(true);
+            this.codec = codecFactory.get();
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            codec.close();
+            super.onTermination(exception);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.streamapp.streaming.encode;
+
+/**
+ * Разбиение кадра на квадратные плитки фиксированного размера.
+ * Крайние плитки справа и снизу могут быть меньше основного размера.
+ */
+public final class TileGrid {
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Создает сетку плиток для кадра.
+     *
+     * @param width ширина кадра
+     * @param height высота кадра
+     * @param tileSize сторона плитки в пикселях
+     */
+    public TileGrid(int width, int height, int tileSize) {
+        if (width <= 0 || height <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры сетки плиток");
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+        if (columns * rows > 0xFFFF) {
+            throw new IllegalArgumentException("Слишком много плиток: " + columns * rows);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTileCount() {
+        return columns * rows;
+    }
+
+    public int tileX(int tile) {
+        return (tile % columns) * tileSize;
+    }
+
+    public int tileY(int tile) {
+        return (tile / columns) * tileSize;
+    }
+
+    public int tileWidth(int tile) {
+        return Math.min(tileSize, width - tileX(tile));
+    }
+
+    public int tileHeight(int tile) {
+        return Math.min(tileSize, height - tileY(tile));
+    }
+}
@@ -0,0 +1,51 @@
+package com.streamapp.streaming.encode;
+
+/**
+ * Быстрый некриптографический 64-битный отпечаток плитки.
+ * Используется только для сравнения плитки с ее предыдущим состоянием,
+ * поэтому важна скорость, а не стойкость к подбору коллизий.
+ */
+public final class TileHasher {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+    private TileHasher() {
+        // Запрещаем создание экземпляров
+    }
+
+    /**
+     * Вычисляет отпечаток прямоугольной области кадра.
+     *
+     * @param pixels пиксели кадра
+     * @param stride длина строки кадра в пикселях
+     * @param x левая граница области
+     * @param y верхняя граница области
+     * @param width ширина области
+     * @param height высота области
+     * @return 64-битный отпечаток
+     */
+    public static long hash(int[] pixels, int stride, int x, int y, int width, int height) {
+        long h = PRIME_3 ^ ((long) width << 32 | height);
+        for (int row = 0; row < height; row++) {
+            int offset = (y + row) * stride + x;
+            int end = offset + width;
+            // Два пикселя за шаг: меньше зависимостей по данным между итерациями
+            for (; offset + 1 < end; offset += 2) {
+                long v = ((long) pixels[offset] << 32) | (pixels[offset + 1] & 0xFFFFFFFFL);
+                h ^= Long.rotateLeft(v * PRIME_2, 31) * PRIME_1;
+                h = Long.rotateLeft(h, 27) * PRIME_1 + PRIME_3;
+            }
+            if (offset < end) {
+                h ^= (pixels[offset] & 0xFFFFFFFFL) * PRIME_1;
+                h = Long.rotateLeft(h, 23) * PRIME_2 + PRIME_3;
+            }
+        }
+        h ^= h >>> 33;
+        h *= PRIME_2;
+        h ^= h >>> 29;
+        h *= PRIME_3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
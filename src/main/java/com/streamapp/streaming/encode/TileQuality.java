@@ -0,0 +1,80 @@
+package com.streamapp.streaming.encode;
+
+import java.util.Objects;
+
+/**
+ * Параметры качества кодирования плиток.
+ */
+public final class TileQuality {
+    /**
+     * Максимальное уменьшение разрешения (в 4 раза по каждой оси).
+     */
+    public static final int MAX_SCALE_SHIFT = 2;
+
+    /**
+     * Максимальная квантизация каналов цвета.
+     */
+    public static final int MAX_QUANTIZATION_BITS = 6;
+
+    /**
+     * Качество без потерь в полном разрешении.
+     */
+    public static final TileQuality LOSSLESS = new TileQuality(0, 0);
+
+    private final int quantizationBits;
+    private final int scaleShift;
+
+    /**
+     * Создает параметры качества.
+     *
+     * @param quantizationBits сколько младших бит каждого канала цвета отбрасывается (0 — без потерь)
+     * @param scaleShift уменьшение разрешения плитки в 2^scaleShift раз по каждой оси
+     */
+    public TileQuality(int quantizationBits, int scaleShift) {
+        if (quantizationBits < 0 || quantizationBits > MAX_QUANTIZATION_BITS
+                || scaleShift < 0 || scaleShift > MAX_SCALE_SHIFT) {
+            throw new IllegalArgumentException("Некорректные параметры качества плиток");
+        }
+        this.quantizationBits = quantizationBits;
+        this.scaleShift = scaleShift;
+    }
+
+    public int getQuantizationBits() {
+        return quantizationBits;
+    }
+
+    public int getScaleShift() {
+        return scaleShift;
+    }
+
+    /**
+     * Проверяет, что это качество не хуже другого по обоим параметрам.
+     *
+     * @param other другое качество
+     * @return true, если качество не ниже
+     */
+    public boolean isAtLeast(TileQuality other) {
+        return quantizationBits <= other.quantizationBits && scaleShift <= other.scaleShift;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TileQuality that = (TileQuality) o;
+        return quantizationBits == that.quantizationBits && scaleShift == that.scaleShift;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(quantizationBits, scaleShift);
+    }
+
+    @Override
+    public String toString() {
+        return "TileQuality{" +
+                "quantizationBits=" + quantizationBits +
+                ", scaleShift=" + scaleShift +
+                '}';
+    }
+}
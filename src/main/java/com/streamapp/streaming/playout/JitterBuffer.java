@@ -0,0 +1,217 @@
+package com.streamapp.streaming.playout;
+
+import com.streamapp.streaming.encode.EncodedFrame;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Буфер выравнивания кадров на стороне зрителя.
+ * <p>
+ * Кадры упорядочиваются по номеру и выдаются в момент воспроизведения:
+ * время захвата плюс сдвиг часов отправителя плюс целевая задержка.
+ * Сдвиг часов оценивается как наименьшее время в пути за последние секунды,
+ * поэтому рост задержки в сети не накапливается в буфере бесконечно.
+ * Целевая задержка следует за оценкой джиттера (RFC 3550) в заданных пределах.
+ * <p>
+ * Устаревшие кадры — с номером не больше уже выданного — отбрасываются.
+ * Опоздавшие кадры разностного потока не отбрасываются, а выдаются сразу:
+ * их плитки нужны для восстановления изображения. Исключение — кадры,
+ * полностью перекрытые опорным кадром, стоящим за ними в очереди.
+ * <p>
+ * Время передается явно, все методы синхронизированы.
+ */
+public class JitterBuffer {
+    /**
+     * Наибольшее число кадров в очереди по умолчанию.
+     */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    /**
+     * Наименьшая целевая задержка по умолчанию.
+     */
+    public static final long DEFAULT_MIN_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Наибольшая целевая задержка по умолчанию.
+     */
+    public static final long DEFAULT_MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    /**
+     * Во сколько раз целевая задержка превышает оценку джиттера.
+     */
+    private static final int JITTER_MULTIPLIER = 3;
+
+    /**
+     * Длительность окна, в котором ищется наименьшее время в пути.
+     */
+    private static final long TRANSIT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final TreeMap<Long, EncodedFrame> frames = new TreeMap<>();
+    private final int capacity;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private long lastPlayedId = Long.MIN_VALUE;
+    private boolean hasTransit;
+    private long lastTransit;
+    private long jitterNanos;
+    private long currentWindowMin;
+    private long previousWindowMin;
+    private long windowStart;
+    private long droppedFrames;
+    private long lateFrames;
+
+    /**
+     * Создает буфер с параметрами по умолчанию.
+     */
+    public JitterBuffer() {
+        this(DEFAULT_CAPACITY, DEFAULT_MIN_DELAY_NANOS, DEFAULT_MAX_DELAY_NANOS);
+    }
+
+    /**
+     * Создает буфер.
+     *
+     * @param capacity наибольшее число кадров в очереди
+     * @param minDelayNanos наименьшая целевая задержка
+     * @param maxDelayNanos наибольшая целевая задержка
+     */
+    public JitterBuffer(int capacity, long minDelayNanos, long maxDelayNanos) {
+        if (capacity <= 0 || minDelayNanos < 0 || maxDelayNanos < minDelayNanos) {
+            throw new IllegalArgumentException("Некорректные параметры буфера выравнивания");
+        }
+        this.capacity = capacity;
+        this.minDelayNanos = minDelayNanos;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    /**
+     * Помещает полученный кадр в буфер.
+     *
+     * @param frame кадр
+     * @param arrivalNanos время получения по локальным часам
+     * @return false, если кадр устарел и отброшен
+     */
+    public synchronized boolean offer(EncodedFrame frame, long arrivalNanos) {
+        long frameId = frame.getFrameId();
+        if (frameId <= lastPlayedId || frames.containsKey(frameId)) {
+            droppedFrames++;
+            return false;
+        }
+        updateTransit(arrivalNanos - frame.getCaptureTimeNanos(), arrivalNanos);
+        frames.put(frameId, frame);
+        if (frame.isKeyframe()) {
+            // Опорный кадр содержит все плитки: ожидающие перед ним кадры не нужны
+            Map<Long, EncodedFrame> superseded = frames.headMap(frameId, false);
+            droppedFrames += superseded.size();
+            superseded.clear();
+        }
+        return true;
+    }
+
+    private void updateTransit(long transit, long now) {
+        if (!hasTransit) {
+            hasTransit = true;
+            currentWindowMin = transit;
+            previousWindowMin = transit;
+            windowStart = now;
+        } else {
+            long delta = Math.abs(transit - lastTransit);
+            jitterNanos += (delta - jitterNanos) / 16;
+            if (now - windowStart > TRANSIT_WINDOW_NANOS) {
+                previousWindowMin = currentWindowMin;
+                currentWindowMin = transit;
+                windowStart = now;
+            } else if (transit < currentWindowMin) {
+                currentWindowMin = transit;
+            }
+        }
+        lastTransit = transit;
+    }
+
+    /**
+     * Выдает следующий кадр, если наступило время его воспроизведения.
+     *
+     * @param nowNanos текущее время по локальным часам
+     * @return кадр для воспроизведения или null
+     */
+    public synchronized EncodedFrame poll(long nowNanos) {
+        Map.Entry<Long, EncodedFrame> head = frames.firstEntry();
+        if (head == null) {
+            return null;
+        }
+        long playoutTime = playoutTime(head.getValue());
+        boolean overflow = frames.size() > capacity;
+        if (!overflow && nowNanos - playoutTime < 0) {
+            return null;
+        }
+        if (nowNanos - playoutTime > maxDelayNanos) {
+            lateFrames++;
+        }
+        frames.pollFirstEntry();
+        lastPlayedId = head.getKey();
+        return head.getValue();
+    }
+
+    /**
+     * Возвращает время воспроизведения первого кадра в очереди.
+     *
+     * @return время по локальным часам или {@link Long#MAX_VALUE}, если очередь пуста
+     */
+    public synchronized long nextPlayoutNanos() {
+        Map.Entry<Long, EncodedFrame> head = frames.firstEntry();
+        if (head == null) {
+            return Long.MAX_VALUE;
+        }
+        return frames.size() > capacity ? Long.MIN_VALUE : playoutTime(head.getValue());
+    }
+
+    private long playoutTime(EncodedFrame frame) {
+        return frame.getCaptureTimeNanos() + Math.min(currentWindowMin, previousWindowMin) + getTargetDelayNanos();
+    }
+
+    /**
+     * Очищает очередь, например после переподключения.
+     */
+    public synchronized void clear() {
+        frames.clear();
+        lastPlayedId = Long.MIN_VALUE;
+        hasTransit = false;
+        jitterNanos = 0;
+    }
+
+    /**
+     * @return число кадров в очереди
+     */
+    public synchronized int getDepth() {
+        return frames.size();
+    }
+
+    /**
+     * @return текущая целевая задержка воспроизведения
+     */
+    public synchronized long getTargetDelayNanos() {
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, jitterNanos * JITTER_MULTIPLIER));
+    }
+
+    /**
+     * @return оценка джиттера времени в пути
+     */
+    public synchronized long getJitterNanos() {
+        return jitterNanos;
+    }
+
+    /**
+     * @return число отброшенных устаревших кадров
+     */
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return число кадров, выданных с опозданием больше наибольшей задержки
+     */
+    public synchronized long getLateFrames() {
+        return lateFrames;
+    }
+}
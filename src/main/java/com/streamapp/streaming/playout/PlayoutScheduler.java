@@ -0,0 +1,139 @@
+package com.streamapp.streaming.playout;
+
+import com.streamapp.streaming.encode.EncodedFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Выдача кадров из {@link JitterBuffer} в момент воспроизведения.
+ * Кадры передаются получателю в отдельном потоке "stream-playout".
+ */
+public class PlayoutScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PlayoutScheduler.class);
+
+    private final JitterBuffer buffer;
+    private final Consumer<EncodedFrame> consumer;
+    private final Object lock = new Object();
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Создает планировщик с буфером по умолчанию.
+     *
+     * @param consumer получатель кадров в порядке воспроизведения
+     */
+    public PlayoutScheduler(Consumer<EncodedFrame> consumer) {
+        this(new JitterBuffer(), consumer);
+    }
+
+    /**
+     * Создает планировщик.
+     *
+     * @param buffer буфер выравнивания
+     * @param consumer получатель кадров в порядке воспроизведения
+     */
+    public PlayoutScheduler(JitterBuffer buffer, Consumer<EncodedFrame> consumer) {
+        this.buffer = buffer;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Запускает поток воспроизведения. Повторный вызов ничего не делает.
+     */
+    public synchronized void start() {
+        if (thread != null || closed) {
+            return;
+        }
+        thread = new Thread(this::run, "stream-playout");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Передает полученный кадр в буфер. Вызывается в сетевом потоке.
+     *
+     * @param frame полученный кадр
+     */
+    public void submit(EncodedFrame frame) {
+        if (closed) {
+            return;
+        }
+        if (!buffer.offer(frame, System.nanoTime())) {
+            logger.debug("Устаревший кадр {} отброшен", frame.getFrameId());
+            return;
+        }
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            EncodedFrame frame = buffer.poll(System.nanoTime());
+            if (frame != null) {
+                try {
+                    consumer.accept(frame);
+                } catch (Exception e) {
+                    logger.error("Ошибка при воспроизведении кадра: {}", e.getMessage(), e);
+                }
+                continue;
+            }
+            synchronized (lock) {
+                long next = buffer.nextPlayoutNanos();
+                if (next == Long.MIN_VALUE || closed) {
+                    continue;
+                }
+                try {
+                    if (next == Long.MAX_VALUE) {
+                        lock.wait();
+                    } else {
+                        long waitNanos = next - System.nanoTime();
+                        if (waitNanos > 0) {
+                            TimeUnit.NANOSECONDS.timedWait(lock, waitNanos);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return число кадров, ожидающих воспроизведения
+     */
+    public int getBufferDepth() {
+        return buffer.getDepth();
+    }
+
+    public JitterBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Останавливает поток воспроизведения и очищает буфер.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null && current != Thread.currentThread()) {
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,425 @@
+package com.streamapp.streaming.relay;
+
+import com.streamapp.streaming.StreamFeed;
+import com.streamapp.streaming.control.QualityLevel;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.streaming.encode.TileGrid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Источник кадров ретранслятора: раздает принятую трансляцию без декодирования.
+ *
+ * <p>Плитки входящих кадров хранятся в кэше в закодированном виде вместе
+ * с уменьшением разрешения и версией — номером входящего кадра. Кадры для
+ * каждого получателя собираются из кэша так же, как в {@link DeltaEncoder}:
+ * у получателя свои отправленные и подтвержденные версии плиток, поэтому
+ * опорный кадр для нового зрителя, повтор потерянных плиток и возобновление
+ * сессии обходятся без обращения к источнику трансляции.
+ *
+ * <p>Перекодировать плитки ретранслятор не может, поэтому качество плиток
+ * задает источник, а ступень качества зрителя меняет только частоту кадров.
+ * Плитки в кэше могут быть в разном разрешении (источник понизил качество,
+ * а часть плиток с тех пор не менялась); такие плитки отправляются
+ * несколькими кадрами подряд, по одному на каждое разрешение.
+ *
+ * <p>Кадры передаются получателям в потоке, вызвавшем {@link #offer(EncodedFrame)},
+ * вне блокировки кэша.
+ */
+public class RelayFeed implements StreamFeed {
+    private static final Logger logger = LoggerFactory.getLogger(RelayFeed.class);
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Число возможных значений уменьшения разрешения в заголовке кадра.
+     */
+    private static final int SCALE_SHIFTS = 4;
+
+    private final Runnable upstreamKeyframeRequest;
+    private final int maxFps;
+    private final int keyframeInterval;
+    private final int resendAfterFrames;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private boolean started;
+    // Кэш плиток; защищен блокировкой ретранслятора
+    private TileGrid grid;
+    private byte codecId;
+    private byte[][] tileData;
+    private int[] tileScaleShift;
+    private long[] tileVersion;
+    private int cachedTiles;
+    private boolean upstreamKeyframePending;
+    /**
+     * Номер обработанного входящего кадра: по нему считаются интервалы
+     * опорных кадров и повторов.
+     */
+    private long tick;
+    private long nextFrameId;
+    private long captureTimeNanos = NEVER;
+    private long frameIntervalNanos;
+
+    /**
+     * Создает ретранслятор с параметрами кодировщика по умолчанию.
+     *
+     * @param maxFps наибольшая частота кадров для получателя
+     * @param upstreamKeyframeRequest запрос опорного кадра у источника трансляции
+     */
+    public RelayFeed(int maxFps, Runnable upstreamKeyframeRequest) {
+        this(maxFps, DeltaEncoder.DEFAULT_KEYFRAME_INTERVAL, DeltaEncoder.DEFAULT_RESEND_AFTER_FRAMES,
+            upstreamKeyframeRequest);
+    }
+
+    /**
+     * Создает ретранслятор.
+     *
+     * @param maxFps наибольшая частота кадров для получателя
+     * @param keyframeInterval интервал опорных кадров во входящих кадрах
+     * @param resendAfterFrames через сколько входящих кадров повторять неподтвержденную плитку
+     * @param upstreamKeyframeRequest запрос опорного кадра у источника трансляции
+     */
+    public RelayFeed(int maxFps, int keyframeInterval, int resendAfterFrames, Runnable upstreamKeyframeRequest) {
+        if (maxFps <= 0 || keyframeInterval <= 0 || resendAfterFrames <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры ретранслятора");
+        }
+        this.maxFps = maxFps;
+        this.keyframeInterval = keyframeInterval;
+        this.resendAfterFrames = resendAfterFrames;
+        this.upstreamKeyframeRequest = upstreamKeyframeRequest;
+    }
+
+    @Override
+    public synchronized Subscription subscribe(Predicate<EncodedFrame> sink) {
+        Subscription subscription = new Subscription(sink);
+        if (grid != null) {
+            subscription.reset(grid.getTileCount());
+        }
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    @Override
+    public synchronized void start() {
+        started = true;
+    }
+
+    /**
+     * Отключает всех получателей. Кэш плиток сохраняется, поэтому
+     * ретранслятор можно запустить снова без опорного кадра от источника.
+     */
+    @Override
+    public synchronized void stop() {
+        started = false;
+        subscriptions.clear();
+    }
+
+    /**
+     * Очищает кэш плиток, например при смене источника трансляции:
+     * номера кадров нового источника не сравнимы с версиями плиток в кэше.
+     */
+    public synchronized void clear() {
+        grid = null;
+        captureTimeNanos = NEVER;
+        frameIntervalNanos = 0;
+    }
+
+    /**
+     * Принимает кадр от источника трансляции, обновляет кэш плиток
+     * и отправляет кадры получателям, которым пора их получить.
+     *
+     * @param frame принятый кадр
+     */
+    public void offer(EncodedFrame frame) {
+        long captureTime;
+        synchronized (this) {
+            if (!update(frame)) {
+                return;
+            }
+            if (!started) {
+                return;
+            }
+            captureTime = captureTimeNanos;
+        }
+        long tolerance = frameIntervalNanos / 2;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isDue(captureTime, tolerance)) {
+                subscription.send(captureTime);
+            }
+        }
+    }
+
+    private boolean update(EncodedFrame frame) {
+        if (grid == null || grid.getWidth() != frame.getWidth() || grid.getHeight() != frame.getHeight()
+                || grid.getTileSize() != frame.getTileSize() || codecId != frame.getCodecId()) {
+            reset(frame);
+        }
+        ByteBuffer payload = frame.payload();
+        long version = frame.getFrameId();
+        for (int i = 0; i < frame.getTileCount(); i++) {
+            int tile = Short.toUnsignedInt(payload.getShort());
+            int length = payload.getInt();
+            if (tile >= tileData.length || length < 0 || length > payload.remaining()) {
+                logger.warn("Некорректная плитка в кадре {}, запрошен опорный кадр", frame.getFrameId());
+                requestUpstreamKeyframe();
+                return false;
+            }
+            if (tileVersion[tile] != NEVER && tileVersion[tile] >= version) {
+                // Кадр пришел не по порядку: в кэше уже более новая версия плитки
+                payload.position(payload.position() + length);
+                continue;
+            }
+            if (tileVersion[tile] == NEVER) {
+                cachedTiles++;
+            }
+            byte[] data = tileData[tile].length == length ? tileData[tile] : new byte[length];
+            payload.get(data);
+            tileData[tile] = data;
+            tileScaleShift[tile] = frame.getScaleShift();
+            tileVersion[tile] = version;
+        }
+        if (cachedTiles == tileData.length) {
+            upstreamKeyframePending = false;
+        }
+        long captureTime = frame.getCaptureTimeNanos();
+        if (captureTimeNanos != NEVER && captureTime > captureTimeNanos) {
+            frameIntervalNanos = captureTime - captureTimeNanos;
+        }
+        captureTimeNanos = Math.max(captureTimeNanos, captureTime);
+        tick++;
+        return true;
+    }
+
+    private void reset(EncodedFrame frame) {
+        if (grid != null) {
+            logger.info("Изменились параметры трансляции: {}x{}, плитка {}", frame.getWidth(), frame.getHeight(),
+                frame.getTileSize());
+        }
+        grid = new TileGrid(frame.getWidth(), frame.getHeight(), frame.getTileSize());
+        codecId = frame.getCodecId();
+        int tiles = grid.getTileCount();
+        tileData = new byte[tiles][];
+        Arrays.fill(tileData, new byte[0]);
+        tileScaleShift = new int[tiles];
+        tileVersion = new long[tiles];
+        Arrays.fill(tileVersion, NEVER);
+        cachedTiles = 0;
+        upstreamKeyframePending = false;
+        for (Subscription subscription : subscriptions) {
+            subscription.reset(tiles);
+        }
+        if (!frame.isKeyframe()) {
+            requestUpstreamKeyframe();
+        }
+    }
+
+    private void requestUpstreamKeyframe() {
+        if (!upstreamKeyframePending) {
+            upstreamKeyframePending = true;
+            upstreamKeyframeRequest.run();
+        }
+    }
+
+    /**
+     * Проверяет, что в кэше есть все плитки изображения.
+     *
+     * @return true, если опорный кадр можно собрать из кэша
+     */
+    public synchronized boolean isComplete() {
+        return grid != null && cachedTiles == tileData.length;
+    }
+
+    /**
+     * @return число получателей, включая приостановленных
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Получатель кадров ретранслятора со своим состоянием отправки и подтверждений.
+     * Состояние защищено блокировкой ретранслятора.
+     */
+    public final class Subscription implements StreamFeed.Subscription {
+        private final Predicate<EncodedFrame> sink;
+        private long[] sentVersion;
+        private long[] sentFrame;
+        private long[] sentTick;
+        private long[] ackedVersion;
+        private long lastKeyframeTick = NEVER;
+        private boolean keyframeRequested = true;
+        private volatile boolean paused;
+        private volatile int fps = maxFps;
+        // Только поток, передающий кадры
+        private long lastSentNanos = NEVER;
+
+        private Subscription(Predicate<EncodedFrame> sink) {
+            this.sink = sink;
+        }
+
+        private void reset(int tiles) {
+            sentVersion = new long[tiles];
+            sentFrame = new long[tiles];
+            sentTick = new long[tiles];
+            ackedVersion = new long[tiles];
+            Arrays.fill(sentVersion, NEVER);
+            Arrays.fill(sentFrame, NEVER);
+            Arrays.fill(sentTick, NEVER);
+            Arrays.fill(ackedVersion, NEVER);
+            keyframeRequested = true;
+        }
+
+        private boolean isDue(long captureTime, long tolerance) {
+            if (paused) {
+                return false;
+            }
+            if (lastSentNanos == NEVER) {
+                return true;
+            }
+            long period = TimeUnit.SECONDS.toNanos(1) / fps;
+            return captureTime - lastSentNanos >= period - tolerance;
+        }
+
+        private void send(long captureTime) {
+            lastSentNanos = captureTime;
+            for (EncodedFrame frame : assemble()) {
+                if (!sink.test(frame)) {
+                    // Кадр не ушел в сеть: его плитки войдут в следующий кадр
+                    discard(frame.getFrameId());
+                }
+            }
+        }
+
+        private boolean includes(int tile, boolean keyframe) {
+            if (tileVersion[tile] == NEVER) {
+                return false;
+            }
+            if (keyframe || sentVersion[tile] != tileVersion[tile]) {
+                return true;
+            }
+            // Плитка не менялась с отправки, но получатель ее еще не подтвердил
+            return sentVersion[tile] != ackedVersion[tile] && tick - sentTick[tile] >= resendAfterFrames;
+        }
+
+        /**
+         * Собирает кадры из кэша: по одному на каждое разрешение плиток.
+         */
+        private List<EncodedFrame> assemble() {
+            synchronized (RelayFeed.this) {
+                boolean keyframe = keyframeRequested
+                    || lastKeyframeTick == NEVER
+                    || tick - lastKeyframeTick >= keyframeInterval;
+                if (keyframe && cachedTiles < tileData.length) {
+                    // Собрать опорный кадр пока не из чего: отправляем то, что есть
+                    requestUpstreamKeyframe();
+                    keyframe = false;
+                    keyframeRequested = true;
+                }
+                int[] sizes = new int[SCALE_SHIFTS];
+                int[] counts = new int[SCALE_SHIFTS];
+                for (int tile = 0; tile < tileData.length; tile++) {
+                    if (includes(tile, keyframe)) {
+                        sizes[tileScaleShift[tile]] += EncodedFrame.TILE_HEADER_SIZE + tileData[tile].length;
+                        counts[tileScaleShift[tile]]++;
+                    }
+                }
+                List<EncodedFrame> frames = new ArrayList<>(1);
+                for (int shift = 0; shift < SCALE_SHIFTS; shift++) {
+                    if (counts[shift] == 0) {
+                        continue;
+                    }
+                    long frameId = nextFrameId++;
+                    ByteBuffer payload = ByteBuffer.allocate(sizes[shift]);
+                    for (int tile = 0; tile < tileData.length; tile++) {
+                        if (tileScaleShift[tile] != shift || !includes(tile, keyframe)) {
+                            continue;
+                        }
+                        payload.putShort((short) tile).putInt(tileData[tile].length).put(tileData[tile]);
+                        sentVersion[tile] = tileVersion[tile];
+                        sentFrame[tile] = frameId;
+                        sentTick[tile] = tick;
+                    }
+                    payload.flip();
+                    // Опорным отмечается первый кадр: следующие за ним дополняют изображение
+                    frames.add(new EncodedFrame(frameId, captureTimeNanos, grid.getWidth(), grid.getHeight(),
+                        grid.getTileSize(), codecId, keyframe && frames.isEmpty(), shift, counts[shift], payload));
+                }
+                if (keyframe) {
+                    lastKeyframeTick = tick;
+                    keyframeRequested = false;
+                }
+                return frames;
+            }
+        }
+
+        @Override
+        public void acknowledge(long frameId) {
+            synchronized (RelayFeed.this) {
+                if (sentFrame == null) {
+                    return;
+                }
+                for (int tile = 0; tile < sentFrame.length; tile++) {
+                    if (sentFrame[tile] == frameId) {
+                        ackedVersion[tile] = sentVersion[tile];
+                    }
+                }
+            }
+        }
+
+        private void discard(long frameId) {
+            synchronized (RelayFeed.this) {
+                for (int tile = 0; tile < sentFrame.length; tile++) {
+                    if (sentFrame[tile] == frameId) {
+                        sentVersion[tile] = ackedVersion[tile];
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void requestKeyframe() {
+            synchronized (RelayFeed.this) {
+                keyframeRequested = true;
+            }
+        }
+
+        /**
+         * Применяет ступень качества получателя. Качество плиток задает
+         * источник трансляции, поэтому меняется только частота кадров.
+         *
+         * @param level новая ступень качества
+         */
+        @Override
+        public void applyQuality(QualityLevel level) {
+            fps = Math.min(level.getFps(), maxFps);
+        }
+
+        @Override
+        public void pause() {
+            paused = true;
+        }
+
+        @Override
+        public void resume() {
+            synchronized (RelayFeed.this) {
+                if (sentVersion != null) {
+                    System.arraycopy(ackedVersion, 0, sentVersion, 0, sentVersion.length);
+                }
+            }
+            paused = false;
+        }
+
+        @Override
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.streamapp.streaming.relay;
+
+import com.streamapp.network.mdns.MDNSConstants;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jmdns.JmDNS;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Запуск ретранслятора без интерфейса.
+ *
+ * <p>Аргументы: {@code [имя владельца экрана] [порт]}. Без имени ретранслируется
+ * первая найденная трансляция, порт по умолчанию — {@link MDNSConstants#DEFAULT_PORT}.
+ */
+public final class RelayMain {
+    private static final Logger logger = LoggerFactory.getLogger(RelayMain.class);
+
+    private RelayMain() {
+        // Запрещаем создание экземпляров
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String sourceName = args.length > 0 ? args[0] : null;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : MDNSConstants.DEFAULT_PORT;
+        String name = "Relay-" + InetAddress.getLocalHost().getHostName();
+
+        NioReactor reactor = new NioReactor("relay-reactor");
+        reactor.start();
+        JmDNS jmdns = JmDNS.create();
+        RelayNode node = new RelayNode(reactor, DirectBufferPool.shared(), name, RelayNode.DEFAULT_MAX_VIEWERS);
+        node.start(port);
+        node.startDiscovery(jmdns, sourceName);
+
+        CountDownLatch shutdown = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            logger.info("Завершение работы ретранслятора");
+            node.close();
+            try {
+                jmdns.close();
+            } catch (IOException e) {
+                logger.error("Ошибка при закрытии JmDNS: {}", e.getMessage());
+            }
+            reactor.close();
+            shutdown.countDown();
+        }, "relay-shutdown"));
+        shutdown.await();
+    }
+}
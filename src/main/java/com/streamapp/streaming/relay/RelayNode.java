@@ -0,0 +1,343 @@
+package com.streamapp.streaming.relay;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.network.mdns.MDNSConstants;
+import com.streamapp.network.model.PeerCapabilities;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.streaming.StreamHost;
+import com.streamapp.streaming.StreamViewerClient;
+import com.streamapp.streaming.StreamingConstants;
+import com.streamapp.streaming.cursor.CursorState;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceInfo;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Узел-ретранслятор без интерфейса: подписывается на трансляцию одного
+ * владельца экрана и раздает ее своим зрителям, снимая нагрузку с канала
+ * владельца экрана.
+ *
+ * <p>Источник находится через mDNS по типу сервиса {@link MDNSConstants#SERVICE_TYPE}.
+ * Кадры принимаются без буфера воспроизведения и без декодирования передаются
+ * в {@link RelayFeed}, а зрители подключаются к ретранслятору так же, как
+ * к владельцу экрана, и одобряются автоматически: разрешение на трансляцию
+ * владелец экрана уже дал ретранслятору. Пока трансляция идет, узел объявляет
+ * себя в mDNS с ролью {@link MDNSConstants#ROLE_RELAY}, именем источника
+ * и своими возможностями ({@link PeerCapabilities}).
+ * Положение указателя источника раздается зрителям так же, как собственный указатель.
+ */
+public class RelayNode implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RelayNode.class);
+
+    /**
+     * Наибольшее число зрителей ретранслятора по умолчанию.
+     */
+    public static final int DEFAULT_MAX_VIEWERS = 64;
+
+    /**
+     * Интервал поиска источника, пока трансляция не идет.
+     */
+    private static final long DISCOVERY_INTERVAL_MS = 5000;
+
+    private final NioReactor reactor;
+    private final DirectBufferPool pool;
+    private final String name;
+    private final int maxViewers;
+    private final RelayFeed feed;
+    private final StreamHost host;
+    private ScheduledExecutorService discoveryExecutor;
+    private ExecutorService advertiseExecutor;
+    private JmDNS jmdns;
+    private ServiceInfo advertised;
+    private Upstream upstream;
+    private volatile CursorState upstreamCursor = CursorState.HIDDEN;
+
+    /**
+     * Создает ретранслятор.
+     *
+     * @param reactor сетевой реактор
+     * @param pool пул буферов
+     * @param name имя ретранслятора в запросах и объявлении mDNS
+     * @param maxViewers наибольшее число одновременных зрителей
+     */
+    public RelayNode(NioReactor reactor, DirectBufferPool pool, String name, int maxViewers) {
+        this.reactor = reactor;
+        this.pool = pool;
+        this.name = name;
+        this.maxViewers = maxViewers;
+        this.feed = new RelayFeed(StreamingConstants.DEFAULT_FPS, this::requestUpstreamKeyframe);
+        this.host = new StreamHost(reactor, pool, StreamingConstants.DEFAULT_FPS, maxViewers, () -> feed,
+            (viewerName, address) -> CompletableFuture.completedFuture(true));
+        this.host.setCursorSource(() -> upstreamCursor);
+    }
+
+    /**
+     * Начинает принимать запросы зрителей.
+     *
+     * @param port порт сервера сессий
+     * @throws IOException если порт недоступен
+     */
+    public void start(int port) throws IOException {
+        host.start(port);
+        logger.info("Ретранслятор {} принимает зрителей на порту {}", name, host.getPort());
+    }
+
+    public int getPort() {
+        return host.getPort();
+    }
+
+    /**
+     * Запускает периодический поиск источника через mDNS и объявление ретранслятора.
+     *
+     * @param jmdns экземпляр JmDNS
+     * @param sourceName имя владельца экрана; null — первый найденный владелец экрана
+     */
+    public synchronized void startDiscovery(JmDNS jmdns, String sourceName) {
+        if (discoveryExecutor != null) {
+            logger.warn("Поиск источника уже запущен");
+            return;
+        }
+        this.jmdns = jmdns;
+        this.advertiseExecutor = Executors.newSingleThreadExecutor();
+        this.discoveryExecutor = Executors.newSingleThreadScheduledExecutor();
+        discoveryExecutor.scheduleWithFixedDelay(() -> discover(sourceName), 0, DISCOVERY_INTERVAL_MS,
+            TimeUnit.MILLISECONDS);
+        logger.info("Поиск источника трансляции {}", sourceName != null ? sourceName : "(любой)");
+    }
+
+    private void discover(String sourceName) {
+        if (isRelaying()) {
+            return;
+        }
+        try {
+            for (ServiceInfo info : jmdns.list(MDNSConstants.SERVICE_TYPE)) {
+                PeerCapabilities capabilities = PeerCapabilities.fromProperties(info::getPropertyString,
+                    info.getPort());
+                if (name.equals(info.getName())
+                        || capabilities.getRelaySource() != null
+                        || (sourceName != null && !sourceName.equals(info.getName()))
+                        || !capabilities.hasCapacity()
+                        || !capabilities.supportsCodec(DeflateTileCodec.ID)) {
+                    continue;
+                }
+                InetAddress[] addresses = info.getInet4Addresses().length > 0
+                    ? info.getInet4Addresses()
+                    : info.getInetAddresses();
+                if (addresses.length == 0) {
+                    continue;
+                }
+                InetSocketAddress address = new InetSocketAddress(addresses[0], info.getPort());
+                try {
+                    connect(info.getName(), address).get(DISCOVERY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (Exception e) {
+                    logger.debug("Источник {} ({}) недоступен: {}", info.getName(), address, e.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при поиске источника: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Подписывается на трансляцию владельца экрана.
+     *
+     * @param sourceName имя владельца экрана
+     * @param address адрес сервера сессий владельца экрана
+     * @return завершается после отправки запроса
+     */
+    public CompletableFuture<Void> connect(String sourceName, InetSocketAddress address) {
+        Upstream current;
+        synchronized (this) {
+            if (upstream != null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Ретранслятор уже подключен"));
+            }
+            current = new Upstream(sourceName);
+            upstream = current;
+        }
+        feed.clear();
+        logger.info("Подключение к источнику {} ({})", sourceName, address);
+        return current.client.request(address).whenComplete((ignored, error) -> {
+            if (error != null) {
+                onUpstreamStopped(current);
+            }
+        });
+    }
+
+    /**
+     * @return true, если ретранслятор подключен к источнику или подключается
+     */
+    public synchronized boolean isRelaying() {
+        return upstream != null;
+    }
+
+    /**
+     * @return число зрителей ретранслятора
+     */
+    public int getViewerCount() {
+        return host.getViewerCount();
+    }
+
+    private void requestUpstreamKeyframe() {
+        Upstream current;
+        synchronized (this) {
+            current = upstream;
+        }
+        if (current != null) {
+            current.client.requestKeyframe();
+        }
+    }
+
+    private void onUpstreamStopped(Upstream stopped) {
+        synchronized (this) {
+            if (upstream != stopped) {
+                return;
+            }
+            upstream = null;
+        }
+        upstreamCursor = CursorState.HIDDEN;
+        logger.info("Трансляция источника {} завершена, зрители отключаются", stopped.sourceName);
+        host.stopCurrentStream();
+        withdraw();
+    }
+
+    /**
+     * Объявляет ретранслятор в mDNS. Регистрация выполняется в отдельном потоке,
+     * поскольку JmDNS ожидает ответа сети.
+     */
+    private synchronized void advertise(String sourceName) {
+        if (advertiseExecutor == null) {
+            return;
+        }
+        advertiseExecutor.execute(() -> {
+            PeerCapabilities capabilities = new PeerCapabilities(PeerCapabilities.codecBit(DeflateTileCodec.ID),
+                EnumSet.allOf(TransportType.class), 0, 0, StreamingConstants.DEFAULT_FPS, host.getViewerCount(),
+                maxViewers, 0, host.getPort(), sourceName);
+            ServiceInfo info = ServiceInfo.create(MDNSConstants.SERVICE_TYPE, name, host.getPort(), 0, 0,
+                capabilities.toProperties());
+            try {
+                jmdns.registerService(info);
+                synchronized (this) {
+                    advertised = info;
+                }
+                logger.info("Ретранслятор {} объявлен для трансляции {}", name, sourceName);
+            } catch (IOException e) {
+                logger.error("Не удалось объявить ретранслятор: {}", e.getMessage());
+            }
+        });
+    }
+
+    private synchronized void withdraw() {
+        if (advertiseExecutor == null) {
+            return;
+        }
+        advertiseExecutor.execute(() -> {
+            ServiceInfo info;
+            synchronized (this) {
+                info = advertised;
+                advertised = null;
+            }
+            if (info != null) {
+                jmdns.unregisterService(info);
+                logger.info("Объявление ретранслятора {} отозвано", name);
+            }
+        });
+    }
+
+    /**
+     * Отключается от источника, завершает трансляцию для зрителей
+     * и отзывает объявление.
+     */
+    @Override
+    public void close() {
+        Upstream current;
+        ScheduledExecutorService discovery;
+        ExecutorService advertising;
+        synchronized (this) {
+            current = upstream;
+            upstream = null;
+            discovery = discoveryExecutor;
+            discoveryExecutor = null;
+        }
+        if (discovery != null) {
+            discovery.shutdownNow();
+        }
+        if (current != null) {
+            current.client.stop();
+        }
+        host.close();
+        withdraw();
+        synchronized (this) {
+            advertising = advertiseExecutor;
+            advertiseExecutor = null;
+        }
+        if (advertising != null) {
+            advertising.shutdown();
+            try {
+                if (!advertising.awaitTermination(5, TimeUnit.SECONDS)) {
+                    advertising.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                advertising.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("Ретранслятор {} остановлен", name);
+    }
+
+    /**
+     * Подписка на трансляцию источника.
+     */
+    private final class Upstream implements StreamViewerClient.Listener {
+        private final String sourceName;
+        private final StreamViewerClient client;
+
+        private Upstream(String sourceName) {
+            this.sourceName = sourceName;
+            this.client = new StreamViewerClient(new SessionClient(reactor, pool), name, TransportType.UDP,
+                this, false);
+        }
+
+        @Override
+        public void onAccepted() {
+            logger.info("Источник {} принял ретранслятор", sourceName);
+            advertise(sourceName);
+        }
+
+        @Override
+        public void onRejected(String reason) {
+            logger.info("Источник {} отклонил ретранслятор: {}", sourceName, reason);
+            onUpstreamStopped(this);
+        }
+
+        @Override
+        public void onFrame(EncodedFrame frame) {
+            feed.offer(frame);
+        }
+
+        @Override
+        public void onCursor(CursorState state) {
+            upstreamCursor = state;
+        }
+
+        @Override
+        public void onStopped() {
+            onUpstreamStopped(this);
+        }
+    }
+}
@@ -1,11 +1,41 @@
 package com.streamapp.ui;
 
+import com.streamapp.network.mdns.DiscoveryMetrics;
+import com.streamapp.network.mdns.MDNSConstants;
+import com.streamapp.network.model.UserStatus;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.streaming.StreamHost;
+import com.streamapp.streaming.StreamingConstants;
+import com.streamapp.streaming.capture.FrameSource;
+import com.streamapp.streaming.capture.RobotFrameSource;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.control.StreamQuality;
+import com.streamapp.streaming.cursor.CursorSource;
+import com.streamapp.streaming.cursor.PointerCursorSource;
+import com.streamapp.ui.controller.UserListController;
+import com.streamapp.ui.viewmodel.UserListViewModel;
+import com.streamapp.util.DirectBufferPool;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
+import javafx.scene.control.TitledPane;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.AWTException;
+import java.awt.HeadlessException;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Контроллер главного окна приложения
  */
@@ -21,21 +51,154 @@ public class MainController {
     @FXML
     private Button stopStreamButton;
 
+    @FXML
+    private Label streamQualityLabel;
+
+    @FXML
+    private UserListController userListController;
+
+    @FXML
+    private TitledPane discoveryDebugPane;
+
+    @FXML
+    private Label discoveryDebugLabel;
+
+    private NioReactor reactor;
+    private StreamHost streamHost;
+    private Timeline discoveryDebugTimeline;
+
     @FXML
     public void initialize() {
         logger.info("Инициализация главного окна");
         setupEventHandlers();
     }
 
+    /**
+     * @return контроллер списка пользователей главного окна
+     */
+    public UserListController getUserListController() {
+        return userListController;
+    }
+
+    /**
+     * Подключает показатели обнаружения к панели диагностики. Панель
+     * обновляется раз в секунду, пока она раскрыта.
+     *
+     * @param metrics показатели запущенного сервиса обнаружения
+     */
+    public void attachDiscoveryMetrics(DiscoveryMetrics metrics) {
+        if (discoveryDebugTimeline != null) {
+            discoveryDebugTimeline.stop();
+        }
+        discoveryDebugTimeline = new Timeline(new KeyFrame(Duration.seconds(1), event -> {
+            if (discoveryDebugPane.isExpanded()) {
+                discoveryDebugLabel.setText(describe(metrics));
+            }
+        }));
+        discoveryDebugTimeline.setCycleCount(Timeline.INDEFINITE);
+        discoveryDebugTimeline.play();
+        discoveryDebugLabel.setText(describe(metrics));
+    }
+
+    private static String describe(DiscoveryMetrics metrics) {
+        return String.format(Locale.ROOT,
+            "События mDNS: %.1f/с (обнаружено %d, разрешено %d, удалено %d)%n"
+                + "Разрешение: p50 %.0f мс, p99 %.0f мс, макс. %.0f мс, ждут %d, ошибок %d%n"
+                + "Выборка интерфейсом: p99 %.0f мс%n"
+                + "Регистрация: повторных %d, повторных попыток %d, неудачных %d",
+            metrics.getEventsPerSecond(), metrics.getServicesAdded(), metrics.getServicesResolved(),
+            metrics.getServicesRemoved(),
+            metrics.getResolveLatencyP50Millis(), metrics.getResolveLatencyP99Millis(),
+            metrics.getResolveLatencyMaxMillis(), metrics.getPendingResolves(), metrics.getResolveFailures(),
+            metrics.getUiDeliveryP99Millis(),
+            metrics.getReRegistrations(), metrics.getRegistrationRetries(), metrics.getRegistrationFailures());
+    }
+
     private void setupEventHandlers() {
         startStreamButton.setOnAction(event -> {
             logger.info("Нажата кнопка начала трансляции");
-            // TODO: Реализовать логику начала трансляции
+            startStreaming();
         });
 
         stopStreamButton.setOnAction(event -> {
             logger.info("Нажата кнопка остановки трансляции");
-            // TODO: Реализовать логику остановки трансляции
+            stopStreaming();
+        });
+    }
+
+    /**
+     * Открывает порт сессий и начинает принимать запросы трансляции.
+     */
+    private void startStreaming() {
+        if (streamHost != null) {
+            return;
+        }
+        try {
+            if (reactor == null) {
+                reactor = new NioReactor("session-reactor");
+                reactor.start();
+            }
+            StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(), this::createFrameSource,
+                StreamingConstants.DEFAULT_FPS, this::confirmRequest);
+            host.setQualityListener(quality -> Platform.runLater(() -> showQuality(quality)));
+            host.setCursorSource(createCursorSource());
+            // Статус и число зрителей объявляются обновлением TXT записи
+            UserListViewModel userList = userListController.getViewModel();
+            host.setViewerCountListener(viewers -> userList.publishLocalStatus(UserStatus.STREAMING, viewers));
+            host.start(MDNSConstants.DEFAULT_PORT);
+            userList.publishLocalStatus(UserStatus.STREAMING, 0);
+            streamHost = host;
+            startStreamButton.setDisable(true);
+            stopStreamButton.setDisable(false);
+        } catch (IOException e) {
+            logger.error("Не удалось открыть порт трансляции: {}", e.getMessage(), e);
+        }
+    }
+
+    private void stopStreaming() {
+        if (streamHost == null) {
+            return;
+        }
+        streamHost.setViewerCountListener(viewers -> { });
+        streamHost.close();
+        streamHost = null;
+        userListController.getViewModel().publishLocalStatus(UserStatus.ONLINE, 0);
+        showQuality(null);
+        startStreamButton.setDisable(false);
+        stopStreamButton.setDisable(true);
+    }
+
+    private void showQuality(StreamQuality quality) {
+        streamQualityLabel.setText("Качество: " + (quality == null ? "—" : quality.getDisplayName()));
+    }
+
+    private CompletionStage<Boolean> confirmRequest(String viewerName, String address) {
+        CompletableFuture<Boolean> decision = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+            alert.setTitle("Запрос трансляции");
+            alert.setHeaderText("Пользователь " + viewerName + " запрашивает трансляцию экрана");
+            alert.setContentText("Адрес: " + address);
+            decision.complete(alert.showAndWait().filter(ButtonType.OK::equals).isPresent());
         });
+        return decision;
+    }
+
+    private CursorSource createCursorSource() {
+        try {
+            return new PointerCursorSource(RobotFrameSource.primaryScreenArea());
+        } catch (AWTException | HeadlessException e) {
+            logger.warn("Положение указателя недоступно, указатель не передается: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private FrameSource createFrameSource() {
+        try {
+            return new RobotFrameSource();
+        } catch (AWTException | SecurityException e) {
+            logger.warn("Захват экрана недоступен, используется тестовая таблица: {}", e.getMessage());
+            return new TestPatternFrameSource(StreamingConstants.FRAME_WIDTH, StreamingConstants.FRAME_HEIGHT);
+        }
     }
-} 
\ No newline at end of file
+}
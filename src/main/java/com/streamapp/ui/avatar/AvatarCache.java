@@ -0,0 +1,192 @@
+package com.streamapp.ui.avatar;
+
+import com.streamapp.network.avatar.AvatarData;
+import com.streamapp.network.avatar.AvatarFetcher;
+import com.streamapp.util.LruCache;
+import javafx.scene.image.Image;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Общий кэш изображений профиля для списка пользователей.
+ * <p>
+ * Изображения декодируются в фоновом потоке сразу в размере
+ * {@link #DISPLAY_SIZE} и хранятся в памяти по отпечатку с вытеснением
+ * давно не показанных. Полученные по сети файлы сохраняются на диск,
+ * поэтому изображение каждого узла скачивается один раз и переживает
+ * перезапуск приложения. Стандартное изображение декодируется один раз
+ * и используется всеми пользователями без своего изображения.
+ */
+public class AvatarCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarCache.class);
+
+    /**
+     * Размер изображения профиля в ячейке списка.
+     */
+    public static final int DISPLAY_SIZE = 40;
+
+    /**
+     * Предел памяти декодированных изображений.
+     */
+    private static final long MAX_DECODED_BYTES = 4L * 1024 * 1024;
+
+    private static final String DEFAULT_AVATAR = "/images/default_avatar.png";
+
+    private final AvatarFetcher fetcher;
+    private final Path directory;
+    private final LruCache<String, Image> images;
+    private final Map<String, CompletableFuture<Image>> loading = new ConcurrentHashMap<>();
+    private final ExecutorService decoder;
+    private volatile Image defaultAvatar;
+
+    /**
+     * Создает кэш.
+     *
+     * @param fetcher получение изображений у других узлов
+     * @param directory каталог файлов изображений на диске
+     */
+    public AvatarCache(AvatarFetcher fetcher, Path directory) {
+        this.fetcher = fetcher;
+        this.directory = directory;
+        this.images = new LruCache<>(MAX_DECODED_BYTES,
+            image -> (long) image.getWidth() * (long) image.getHeight() * 4);
+        this.decoder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "avatar-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return каталог кэша изображений в домашнем каталоге пользователя
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".streamapp", "avatars");
+    }
+
+    /**
+     * Декодирует стандартное изображение профиля заранее, в вызывающем
+     * потоке, чтобы первые ячейки списка показали его сразу.
+     */
+    public void warmUp() {
+        if (defaultAvatar == null) {
+            defaultAvatar = new Image(DEFAULT_AVATAR, DISPLAY_SIZE, DISPLAY_SIZE, true, true, false);
+        }
+    }
+
+    /**
+     * Возвращает стандартное изображение профиля. Вызывается в потоке JavaFX;
+     * изображение загружается в фоне и появляется в ячейках по готовности.
+     *
+     * @return общее стандартное изображение
+     */
+    public Image getDefault() {
+        if (defaultAvatar == null) {
+            defaultAvatar = new Image(DEFAULT_AVATAR, DISPLAY_SIZE, DISPLAY_SIZE, true, true, true);
+        }
+        return defaultAvatar;
+    }
+
+    /**
+     * @param hash отпечаток изображения
+     * @return декодированное изображение из памяти или null
+     */
+    public Image getIfPresent(String hash) {
+        return images.get(hash);
+    }
+
+    /**
+     * Загружает изображение профиля: из памяти, с диска или с узла-владельца.
+     * Одновременные запросы одного отпечатка объединяются.
+     *
+     * @param hash объявленный отпечаток изображения
+     * @param server адрес сервера изображения узла
+     * @return декодированное изображение; завершается в фоновом потоке
+     */
+    public CompletableFuture<Image> load(String hash, InetSocketAddress server) {
+        if (!AvatarData.isValidHash(hash)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Недопустимый отпечаток: " + hash));
+        }
+        Image cached = images.get(hash);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Image> result = new CompletableFuture<>();
+        CompletableFuture<Image> pending = loading.putIfAbsent(hash, result);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture.supplyAsync(() -> readStored(hash), decoder)
+            .thenCompose(stored -> stored != null
+                ? CompletableFuture.completedFuture(stored)
+                : fetcher.fetch(server, hash).thenApplyAsync(this::store, decoder))
+            .thenApplyAsync(AvatarCache::decode, decoder)
+            .whenComplete((image, error) -> {
+                if (image != null) {
+                    images.put(hash, image);
+                }
+                loading.remove(hash);
+                if (image != null) {
+                    result.complete(image);
+                } else {
+                    logger.debug("Изображение профиля {} недоступно: {}", hash, error.getMessage());
+                    result.completeExceptionally(error);
+                }
+            });
+        return result;
+    }
+
+    private AvatarData readStored(String hash) {
+        Path file = directory.resolve(hash);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return AvatarData.read(file, hash);
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать изображение профиля {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private AvatarData store(AvatarData avatar) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, avatar.getHash(), ".tmp");
+            Files.write(temp, avatar.getBytes());
+            Files.move(temp, directory.resolve(avatar.getHash()), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Не удалось сохранить изображение профиля {}: {}", avatar.getHash(), e.getMessage());
+        }
+        return avatar;
+    }
+
+    private static Image decode(AvatarData avatar) {
+        Image image = new Image(new ByteArrayInputStream(avatar.getBytes()), DISPLAY_SIZE, DISPLAY_SIZE, true, true);
+        if (image.isError()) {
+            throw new UncheckedIOException(new IOException("Не удалось декодировать изображение профиля",
+                image.getException()));
+        }
+        return image;
+    }
+
+    @Override
+    public void close() {
+        decoder.shutdownNow();
+    }
+}
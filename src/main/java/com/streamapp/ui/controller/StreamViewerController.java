@@ -0,0 +1,233 @@
+package com.streamapp.ui.controller;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.streaming.StreamLatency;
+import com.streamapp.streaming.StreamViewerClient;
+import com.streamapp.streaming.cursor.CursorState;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.ui.viewer.CursorOverlay;
+import com.streamapp.ui.viewer.FrameSurface;
+import com.streamapp.ui.viewer.LatencyOverlay;
+import com.streamapp.util.DirectBufferPool;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Контроллер окна просмотра трансляции
+ */
+public class StreamViewerController implements StreamViewerClient.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(StreamViewerController.class);
+
+    /**
+     * Задержка закрытия реактора, чтобы успело уйти сообщение о завершении.
+     */
+    private static final long REACTOR_CLOSE_DELAY_MS = 500;
+
+    /**
+     * Через сколько обновлений строки состояния обновляется таблица задержек.
+     */
+    private static final int LATENCY_REFRESH_TICKS = 4;
+
+    @FXML
+    private StackPane surfacePane;
+
+    @FXML
+    private ImageView frameView;
+
+    @FXML
+    private ImageView cursorView;
+
+    @FXML
+    private Label waitingLabel;
+
+    @FXML
+    private Label statusLabel;
+
+    @FXML
+    private Label bufferLabel;
+
+    @FXML
+    private Label latencyLabel;
+
+    @FXML
+    private ToggleButton latencyToggle;
+
+    @FXML
+    private Button stopButton;
+
+    private NioReactor reactor;
+    private StreamViewerClient client;
+    private FrameSurface surface;
+    private CursorOverlay cursorOverlay;
+    private LatencyOverlay latencyOverlay;
+    private Timeline statusTimeline;
+    private int statusTicks;
+    private volatile boolean firstFrameShown;
+
+    /**
+     * Открывает окно просмотра и запрашивает трансляцию.
+     *
+     * @param viewerName имя зрителя, передаваемое владельцу экрана
+     * @param hostName имя владельца экрана для заголовка окна
+     * @param address адрес сервера сессий владельца экрана
+     */
+    public static void open(String viewerName, String hostName, InetSocketAddress address) {
+        open(viewerName, hostName, address, TransportType.UDP);
+    }
+
+    /**
+     * Открывает окно просмотра и запрашивает трансляцию.
+     *
+     * @param viewerName имя зрителя, передаваемое владельцу экрана
+     * @param hostName имя владельца экрана для заголовка окна
+     * @param address адрес сервера сессий владельца экрана или ретранслятора
+     * @param transport транспорт кадров, выбранный по возможностям узла
+     */
+    public static void open(String viewerName, String hostName, InetSocketAddress address, TransportType transport) {
+        try {
+            FXMLLoader loader = new FXMLLoader(StreamViewerController.class.getResource("/fxml/StreamViewerView.fxml"));
+            Parent root = loader.load();
+            StreamViewerController controller = loader.getController();
+
+            Stage stage = new Stage();
+            stage.setTitle("Трансляция: " + hostName);
+            stage.setScene(new Scene(root));
+            stage.setOnHidden(event -> controller.close());
+            stage.show();
+            controller.connect(viewerName, address, transport);
+        } catch (IOException e) {
+            logger.error("Не удалось открыть окно просмотра: {}", e.getMessage(), e);
+        }
+    }
+
+    @FXML
+    public void initialize() {
+        frameView.fitWidthProperty().bind(surfacePane.widthProperty());
+        frameView.fitHeightProperty().bind(surfacePane.heightProperty());
+        surface = new FrameSurface(frameView, this::requestKeyframe);
+        cursorOverlay = new CursorOverlay(frameView, cursorView);
+        latencyOverlay = new LatencyOverlay(latencyLabel, StreamLatency.shared());
+        latencyToggle.selectedProperty().addListener((observable, previous, selected) ->
+            latencyOverlay.setVisible(selected));
+        stopButton.setOnAction(event -> {
+            logger.info("Нажата кнопка завершения просмотра");
+            stopButton.getScene().getWindow().hide();
+        });
+        statusTimeline = new Timeline(new KeyFrame(Duration.millis(250), event -> {
+            updateBufferLabel();
+            if (++statusTicks % LATENCY_REFRESH_TICKS == 0) {
+                latencyOverlay.refresh();
+            }
+        }));
+        statusTimeline.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    private void connect(String viewerName, InetSocketAddress address, TransportType transport) throws IOException {
+        reactor = new NioReactor("viewer-reactor");
+        reactor.start();
+        client = new StreamViewerClient(new SessionClient(reactor, DirectBufferPool.shared()), viewerName,
+            transport, this);
+        client.request(address).exceptionally(error -> {
+            logger.warn("Не удалось подключиться к {}: {}", address, error.getMessage());
+            Platform.runLater(() -> showStatus("Не удалось подключиться"));
+            return null;
+        });
+        statusTimeline.play();
+    }
+
+    private void requestKeyframe() {
+        StreamViewerClient current = client;
+        if (current != null) {
+            current.requestKeyframe();
+        }
+    }
+
+    @Override
+    public void onAccepted() {
+        Platform.runLater(() -> {
+            statusLabel.setText("Трансляция идет");
+            waitingLabel.setText("Ожидание первого кадра...");
+        });
+    }
+
+    @Override
+    public void onRejected(String reason) {
+        Platform.runLater(() -> showStatus("Запрос отклонен: " + reason));
+    }
+
+    @Override
+    public void onFrame(EncodedFrame frame) {
+        surface.apply(frame);
+        if (!firstFrameShown) {
+            firstFrameShown = true;
+            Platform.runLater(() -> waitingLabel.setVisible(false));
+        }
+    }
+
+    @Override
+    public void onCursor(CursorState state) {
+        cursorOverlay.update(state);
+    }
+
+    @Override
+    public void onReconnecting() {
+        Platform.runLater(() -> statusLabel.setText("Соединение потеряно, переподключение..."));
+    }
+
+    @Override
+    public void onResumed() {
+        Platform.runLater(() -> statusLabel.setText("Трансляция идет"));
+    }
+
+    @Override
+    public void onStopped() {
+        Platform.runLater(() -> showStatus("Трансляция завершена"));
+    }
+
+    private void showStatus(String text) {
+        statusLabel.setText(text);
+        waitingLabel.setText(text);
+    }
+
+    private void updateBufferLabel() {
+        StreamViewerClient current = client;
+        if (current == null) {
+            return;
+        }
+        bufferLabel.setText(String.format("Буфер: %d кадр., задержка %d мс, %dx%d",
+            current.getBufferDepth(), current.getPlayoutDelayMillis(), surface.getWidth(), surface.getHeight()));
+    }
+
+    private void close() {
+        statusTimeline.stop();
+        if (client != null) {
+            client.stop();
+        }
+        surface.close();
+        if (reactor != null) {
+            NioReactor current = reactor;
+            current.schedule(current::close, REACTOR_CLOSE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        logger.info("Окно просмотра закрыто");
+    }
+}
@@ -1,6 +1,10 @@
 package com.streamapp.ui.controller;
 
 import com.streamapp.core.model.User;
+import com.streamapp.network.mdns.MDNSConstants;
+import com.streamapp.network.model.PeerCapabilities;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.ui.avatar.AvatarCache;
 import com.streamapp.ui.viewmodel.UserListViewModel;
 import javafx.fxml.FXML;
 import javafx.scene.control.ListView;
@@ -13,6 +17,9 @@ import javafx.geometry.Pos;
 import javafx.scene.layout.Priority;
 import javafx.animation.FadeTransition;
 import javafx.util.Duration;
+import javafx.scene.input.MouseButton;
+
+import java.net.InetSocketAddress;
 
 /**
  * Контроллер для управления списком пользователей
@@ -28,6 +35,32 @@ public class UserListController {
         viewModel = new UserListViewModel();
         userListView.setItems(viewModel.getUsers());
         userListView.setCellFactory(lv -> new UserListCell());
+        userListView.setOnMouseClicked(event -> {
+            User selected = userListView.getSelectionModel().getSelectedItem();
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2 && selected != null) {
+                openStream(selected);
+            }
+        });
+    }
+
+    public UserListViewModel getViewModel() {
+        return viewModel;
+    }
+
+    /**
+     * Открывает окно просмотра трансляции выбранного пользователя
+     */
+    private void openStream(User user) {
+        if (user.getAddress() == null) {
+            return;
+        }
+        // Узел и транспорт выбираются по TXT записям, без пробного подключения
+        User source = viewModel.chooseSource(user, DeflateTileCodec.ID);
+        PeerCapabilities capabilities = source.getCapabilities();
+        int port = capabilities.getSessionPort() > 0 ? capabilities.getSessionPort() : MDNSConstants.DEFAULT_PORT;
+        String viewerName = System.getProperty("user.name", "StreamUser");
+        StreamViewerController.open(viewerName, user.getUsername(),
+            new InetSocketAddress(source.getAddress(), port), capabilities.preferredTransport());
     }
 
     /**
@@ -45,8 +78,8 @@ public class UserListController {
             content.setAlignment(Pos.CENTER_LEFT);
             
             avatarView = new ImageView();
-            avatarView.setFitHeight(40);
-            avatarView.setFitWidth(40);
+            avatarView.setFitHeight(AvatarCache.DISPLAY_SIZE);
+            avatarView.setFitWidth(AvatarCache.DISPLAY_SIZE);
             avatarView.setPreserveRatio(true);
             
             textContainer = new VBox(5);
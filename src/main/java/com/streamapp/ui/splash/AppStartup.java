@@ -0,0 +1,198 @@
+package com.streamapp.ui.splash;
+
+import com.streamapp.network.avatar.AvatarData;
+import com.streamapp.network.avatar.AvatarFetcher;
+import com.streamapp.network.avatar.AvatarServer;
+import com.streamapp.network.mdns.MDNSConstants;
+import com.streamapp.network.mdns.MulticastInterfaces;
+import com.streamapp.network.mdns.PeerLiveness;
+import com.streamapp.network.mdns.UserDiscoveryService;
+import com.streamapp.network.model.PeerCapabilities;
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.network.session.SessionHeartbeat;
+import com.streamapp.streaming.StreamHost;
+import com.streamapp.streaming.StreamLatency;
+import com.streamapp.streaming.capture.RobotFrameSource;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.ui.MainController;
+import com.streamapp.ui.avatar.AvatarCache;
+import com.streamapp.ui.viewmodel.UserListViewModel;
+import com.streamapp.util.DirectBufferPool;
+import com.streamapp.util.StartupGraph;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jmdns.JmDNS;
+import java.awt.HeadlessException;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Запуск приложения: задачи выполняются параллельно в фоне по графу
+ * зависимостей, а не последовательно в потоке JavaFX.
+ * <pre>
+ * JmDNS на интерфейсах ───────┐
+ * изображения профиля ────────┴─> регистрация и поиск ─┐
+ * главное окно (FXML) ─────────────────────────────────┴─> подключение к списку
+ * прогрев кодировщика
+ * </pre>
+ * Окно показывается, как только загружен FXML; сеть и изображения профиля
+ * подключаются к списку пользователей по готовности.
+ */
+public final class AppStartup {
+    private static final Logger logger = LoggerFactory.getLogger(AppStartup.class);
+
+    private static final String MAIN_VIEW = "/fxml/main.fxml";
+
+    /**
+     * Системное свойство со сроком молчания узла в миллисекундах, после
+     * которого он убирается из списка пользователей.
+     */
+    public static final String PEER_TIMEOUT_PROPERTY = "streamapp.peerTimeout";
+
+    private final ExecutorService executor;
+    private final StartupGraph graph;
+    private final CompletableFuture<Parent> mainView;
+
+    /**
+     * Строит граф запуска. Задачи начинают выполняться после {@link #start()}.
+     *
+     * @param listener получатель прогресса; вызывается в фоновых потоках
+     */
+    public AppStartup(StartupGraph.ProgressListener listener) {
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "startup-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.graph = new StartupGraph(executor, listener);
+
+        FXMLLoader loader = new FXMLLoader(getClass().getResource(MAIN_VIEW));
+        CompletableFuture<List<JmDNS>> jmdns = graph.task("Сетевые интерфейсы", MulticastInterfaces::open);
+        CompletableFuture<Avatars> avatars = graph.task("Изображения профиля", AppStartup::startAvatars);
+        CompletableFuture<Discovery> discovery = graph.task("Регистрация в сети",
+            () -> startDiscovery(jmdns.join(), avatars.join()), jmdns, avatars);
+        this.mainView = graph.task("Главное окно", loader::<Parent>load);
+        graph.task("Кодировщик", () -> {
+            DeltaEncoder.warmUp();
+            StreamLatency.shared().register();
+            return null;
+        });
+
+        // Список пользователей работает и без сети: сервисы подключаются по готовности
+        mainView.thenAcceptBoth(avatars, (view, ready) -> Platform.runLater(
+            () -> viewModel(loader).attachAvatars(ready.cache)));
+        mainView.thenAcceptBoth(discovery, (view, ready) -> Platform.runLater(() -> {
+            viewModel(loader).attachDiscovery(ready.service, ready.capabilities);
+            loader.<MainController>getController().attachDiscoveryMetrics(ready.service.getMetrics());
+        }));
+        graph.whenDone().thenRun(executor::shutdown);
+    }
+
+    /**
+     * Запускает задачи.
+     */
+    public void start() {
+        graph.start();
+    }
+
+    /**
+     * @return корневой узел главного окна, загруженный в фоне
+     */
+    public CompletableFuture<Parent> mainView() {
+        return mainView;
+    }
+
+    private static UserListViewModel viewModel(FXMLLoader loader) {
+        return loader.<MainController>getController().getUserListController().getViewModel();
+    }
+
+    /**
+     * Запускает кэш изображений профиля и раздачу собственного изображения.
+     */
+    private static Avatars startAvatars() throws IOException {
+        NioReactor reactor = new NioReactor("avatar-reactor");
+        reactor.start();
+        AvatarCache cache = new AvatarCache(new AvatarFetcher(new SessionClient(reactor, DirectBufferPool.shared())),
+            AvatarCache.defaultDirectory());
+        cache.warmUp();
+        AvatarData local = AvatarData.loadLocal();
+        AvatarServer server = null;
+        if (local != null) {
+            try {
+                server = new AvatarServer(reactor, DirectBufferPool.shared(), local);
+                server.start(0);
+            } catch (IOException e) {
+                logger.error("Не удалось запустить раздачу изображения профиля: {}", e.getMessage(), e);
+                server = null;
+            }
+        }
+        return new Avatars(cache, local, server);
+    }
+
+    /**
+     * Регистрирует этот узел и начинает поиск пользователей.
+     */
+    private static Discovery startDiscovery(List<JmDNS> interfaces, Avatars avatars) throws IOException {
+        Rectangle area;
+        try {
+            area = RobotFrameSource.primaryScreenArea();
+        } catch (HeadlessException e) {
+            area = new Rectangle(0, 0);
+        }
+        PeerCapabilities capabilities = StreamHost.localCapabilities(area.width, area.height,
+            MDNSConstants.DEFAULT_PORT);
+        // Свойства TXT записи: возможности этого узла и изображение профиля
+        Map<String, String> properties = new HashMap<>(capabilities.toProperties());
+        if (avatars.server != null) {
+            properties.put(MDNSConstants.TXT_AVATAR, avatars.local.getHash());
+            properties.put(MDNSConstants.TXT_AVATAR_PORT, String.valueOf(avatars.server.getPort()));
+        }
+        // Здесь можно получить имя пользователя из настроек приложения
+        String username = System.getProperty("user.name", "StreamUser");
+        long deadline = Long.getLong(PEER_TIMEOUT_PROPERTY, PeerLiveness.DEFAULT_DEADLINE_MS);
+        NioReactor reactor = new NioReactor("heartbeat-reactor");
+        reactor.start();
+        SessionHeartbeat heartbeat = new SessionHeartbeat(new SessionClient(reactor, DirectBufferPool.shared()),
+            deadline / 3);
+        UserDiscoveryService service = new UserDiscoveryService(interfaces, username, properties, heartbeat::ping,
+            deadline);
+        service.getMetrics().register();
+        service.startDiscovery();
+        return new Discovery(service, capabilities);
+    }
+
+    private static final class Avatars {
+        private final AvatarCache cache;
+        private final AvatarData local;
+        private final AvatarServer server;
+
+        private Avatars(AvatarCache cache, AvatarData local, AvatarServer server) {
+            this.cache = cache;
+            this.local = local;
+            this.server = server;
+        }
+    }
+
+    private static final class Discovery {
+        private final UserDiscoveryService service;
+        private final PeerCapabilities capabilities;
+
+        private Discovery(UserDiscoveryService service, PeerCapabilities capabilities) {
+            this.service = service;
+            this.capabilities = capabilities;
+        }
+    }
+}
@@ -3,10 +3,14 @@ package com.streamapp.ui.splash;
 import javafx.animation.FadeTransition;
 import javafx.animation.RotateTransition;
 import javafx.animation.ScaleTransition;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.image.ImageView;
+import javafx.stage.Stage;
 import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +34,8 @@ public class SplashScreenController {
     @FXML
     private Label statusLabel;
 
+    private RotateTransition rotateTransition;
+
     /**
      * Инициализация контроллера и запуск анимаций.
      */
@@ -60,8 +66,8 @@ public class SplashScreenController {
         fadeTransition.setCycleCount(1);
         fadeTransition.play();
 
-        // Анимация индикатора загрузки
-        RotateTransition rotateTransition = new RotateTransition(Duration.seconds(2), loadingIndicator);
+        // Анимация индикатора загрузки до первой завершенной задачи
+        rotateTransition = new RotateTransition(Duration.seconds(2), loadingIndicator);
         rotateTransition.setFromAngle(0);
         rotateTransition.setToAngle(360);
         rotateTransition.setCycleCount(RotateTransition.INDEFINITE);
@@ -69,31 +75,28 @@ public class SplashScreenController {
     }
 
     /**
-     * Запуск процесса загрузки приложения.
+     * Запуск процесса загрузки приложения: задачи запуска выполняются
+     * параллельно, а экран показывает их действительный прогресс.
+     * Главное окно открывается, как только загружен его FXML.
      */
     private void startLoadingProcess() {
-        // Здесь будет логика загрузки приложения
         updateStatus("Инициализация компонентов...");
-        
-        // Имитация загрузки (в реальном приложении здесь будет реальная логика)
-        new Thread(() -> {
-            try {
-                Thread.sleep(1000);
-                updateStatus("Загрузка сетевых компонентов...");
-                Thread.sleep(1000);
-                updateStatus("Подготовка интерфейса...");
-                Thread.sleep(1000);
-                updateStatus("Запуск приложения...");
-                Thread.sleep(500);
-                
-                // Здесь будет переход к основному окну приложения
+        AppStartup startup = new AppStartup((name, completed, total, error) -> Platform.runLater(() -> {
+            rotateTransition.stop();
+            loadingIndicator.setRotate(0);
+            loadingIndicator.setProgress((double) completed / total);
+            statusLabel.setText(error == null ? name + ": готово" : name + ": ошибка");
+        }));
+        startup.mainView().whenComplete((root, error) -> Platform.runLater(() -> {
+            if (root != null) {
                 logger.info("Загрузка завершена");
-                javafx.application.Platform.runLater(this::showMainScreen);
-            } catch (InterruptedException e) {
-                logger.error("Ошибка при загрузке", e);
-                Thread.currentThread().interrupt();
+                showMainScreen(root);
+            } else {
+                logger.error("Ошибка при загрузке главного окна", error);
+                updateStatus("Не удалось загрузить главное окно");
             }
-        }).start();
+        }));
+        startup.start();
     }
 
     /**
@@ -101,7 +104,7 @@ public class SplashScreenController {
      * @param status новый статус
      */
     private void updateStatus(String status) {
-        javafx.application.Platform.runLater(() -> {
+        Platform.runLater(() -> {
             statusLabel.setText(status);
             logger.info("Статус загрузки: {}", status);
         });
@@ -109,17 +112,11 @@ public class SplashScreenController {
 
     /**
      * Переход к основному окну приложения.
+     * @param root загруженный корневой узел главного окна
      */
-    private void showMainScreen() {
-        try {
-            javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(getClass().getResource("/fxml/main.fxml"));
-            javafx.scene.Parent root = loader.load();
-            javafx.stage.Stage stage = (javafx.stage.Stage) statusLabel.getScene().getWindow();
-            javafx.scene.Scene scene = new javafx.scene.Scene(root);
-            stage.setScene(scene);
-            stage.show();
-        } catch (Exception e) {
-            logger.error("Ошибка при переходе к основному окну", e);
-        }
+    private void showMainScreen(Parent root) {
+        Stage stage = (Stage) statusLabel.getScene().getWindow();
+        stage.setScene(new Scene(root));
+        stage.show();
     }
-} 
\ No newline at end of file
+}
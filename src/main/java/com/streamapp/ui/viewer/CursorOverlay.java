@@ -0,0 +1,88 @@
+package com.streamapp.ui.viewer;
+
+import com.streamapp.streaming.cursor.CursorShape;
+import com.streamapp.streaming.cursor.CursorState;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Указатель мыши владельца экрана поверх изображения трансляции.
+ * <p>
+ * Положения приходят в сетевом потоке чаще импульсов отрисовки; между
+ * импульсами сохраняется только последнее, и поток JavaFX лишь переставляет
+ * элемент с изображением указателя. Изображения указателя кэшируются по отпечатку.
+ */
+public class CursorOverlay {
+    private final ImageView frameView;
+    private final ImageView cursorView;
+    private final AtomicReference<CursorState> pending = new AtomicReference<>();
+    /**
+     * Используются только в потоке JavaFX.
+     */
+    private final Map<Long, Image> images = new HashMap<>();
+    private CursorState current = CursorState.HIDDEN;
+
+    /**
+     * Создает слой указателя.
+     *
+     * @param frameView элемент с изображением трансляции
+     * @param cursorView элемент для указателя в том же контейнере, вне раскладки
+     */
+    public CursorOverlay(ImageView frameView, ImageView cursorView) {
+        this.frameView = frameView;
+        this.cursorView = cursorView;
+        cursorView.setManaged(false);
+        cursorView.setMouseTransparent(true);
+        cursorView.setVisible(false);
+        frameView.boundsInParentProperty().addListener((observable, previous, bounds) -> layout());
+    }
+
+    /**
+     * Передает новое положение указателя. Может вызываться из любого потока.
+     *
+     * @param state положение указателя в координатах кадра
+     */
+    public void update(CursorState state) {
+        if (pending.getAndSet(state) == null) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        CursorState state = pending.getAndSet(null);
+        if (state != null) {
+            current = state;
+            layout();
+        }
+    }
+
+    private void layout() {
+        Image frame = frameView.getImage();
+        CursorShape shape = current.getShape();
+        if (shape == null || frame == null || frame.getWidth() == 0) {
+            cursorView.setVisible(false);
+            return;
+        }
+        Bounds bounds = frameView.getBoundsInParent();
+        double scale = bounds.getWidth() / frame.getWidth();
+        cursorView.setImage(images.computeIfAbsent(shape.getHash(), hash -> toImage(shape)));
+        cursorView.relocate(bounds.getMinX() + current.getX() * scale - shape.getHotspotX(),
+            bounds.getMinY() + current.getY() * scale - shape.getHotspotY());
+        cursorView.setVisible(true);
+    }
+
+    private static Image toImage(CursorShape shape) {
+        WritableImage image = new WritableImage(shape.getWidth(), shape.getHeight());
+        image.getPixelWriter().setPixels(0, 0, shape.getWidth(), shape.getHeight(),
+            PixelFormat.getIntArgbInstance(), shape.getPixels(), 0, shape.getWidth());
+        return image;
+    }
+}
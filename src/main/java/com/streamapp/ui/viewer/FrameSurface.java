@@ -0,0 +1,230 @@
+package com.streamapp.ui.viewer;
+
+import com.streamapp.streaming.StreamLatency;
+import com.streamapp.streaming.encode.DeltaDecoder;
+import com.streamapp.streaming.encode.DirtyRegion;
+import com.streamapp.streaming.encode.EncodedFrame;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Scene;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Поверхность отображения трансляции без промежуточных копий.
+ * <p>
+ * Кадры декодируются в потоке воспроизведения прямо в прямой буфер,
+ * разделяемый с {@link PixelBuffer}. Поток JavaFX только сообщает
+ * о грязной области через {@link PixelBuffer#updateBuffer}, после чего
+ * Prism загружает в текстуру лишь измененный прямоугольник. Несколько кадров,
+ * декодированных между импульсами отрисовки, объединяются в одно обновление.
+ * <p>
+ * Отрисовка может прочитать буфер во время декодирования следующего кадра;
+ * такое частичное обновление исправляется следующим импульсом.
+ * <p>
+ * В {@link StreamLatency} учитываются декодирование, ожидание потока JavaFX
+ * до передачи грязной области и ожидание импульса, на котором она будет
+ * отрисована; по этим импульсам считается частота показанных кадров.
+ */
+public class FrameSurface implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FrameSurface.class);
+
+    private final ImageView view;
+    private final Runnable keyframeRequest;
+    private final DeltaDecoder decoder = new DeltaDecoder();
+    private final DirtyRegion pending = new DirtyRegion();
+    private final Object decodeLock = new Object();
+    private final StreamLatency latency = StreamLatency.shared();
+    private final Runnable pulseListener = this::onPulse;
+    private IntBuffer pixels;
+    private int width;
+    private int height;
+    private boolean updateScheduled;
+    private long decodedNanos;
+    private long decodedFrameId;
+    private boolean closed;
+    /**
+     * Используется только в потоке JavaFX.
+     */
+    private PixelBuffer<IntBuffer> pixelBuffer;
+    /**
+     * Время передачи грязной области JavaFX, ожидающей импульса; 0 — нет.
+     * Используется только в потоке JavaFX.
+     */
+    private long flushedNanos;
+    private long flushedFrameId;
+
+    /**
+     * Создает поверхность.
+     *
+     * @param view элемент, в котором отображается трансляция
+     * @param keyframeRequest запрос опорного кадра после ошибки декодирования
+     */
+    public FrameSurface(ImageView view, Runnable keyframeRequest) {
+        this.view = view;
+        this.keyframeRequest = keyframeRequest;
+        view.sceneProperty().addListener((observable, previous, scene) -> {
+            if (previous != null) {
+                previous.removePostLayoutPulseListener(pulseListener);
+            }
+            if (scene != null) {
+                scene.addPostLayoutPulseListener(pulseListener);
+            }
+        });
+        Scene scene = view.getScene();
+        if (scene != null) {
+            scene.addPostLayoutPulseListener(pulseListener);
+        }
+    }
+
+    /**
+     * Накладывает кадр на изображение. Вызывается в потоке воспроизведения.
+     *
+     * @param frame закодированный кадр
+     */
+    public void apply(EncodedFrame frame) {
+        IntBuffer target;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (pixels == null || width != frame.getWidth() || height != frame.getHeight()) {
+                // Новый буфер: старый остается за текущим PixelBuffer до замены изображения
+                width = frame.getWidth();
+                height = frame.getHeight();
+                pixels = ByteBuffer.allocateDirect(width * height * Integer.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asIntBuffer();
+                pending.reset();
+                logger.info("Размер трансляции: {}x{}", width, height);
+                if (!frame.isKeyframe()) {
+                    keyframeRequest.run();
+                }
+            }
+            target = pixels;
+        }
+
+        synchronized (decodeLock) {
+            DirtyRegion dirty;
+            try {
+                if (isClosed()) {
+                    return;
+                }
+                long start = System.nanoTime();
+                dirty = decoder.decode(frame, target);
+                latency.record(StreamLatency.Stage.DECODE, frame.getFrameId(), System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                logger.warn("Ошибка декодирования кадра {}: {}", frame.getFrameId(), e.getMessage());
+                keyframeRequest.run();
+                return;
+            }
+            if (dirty.isEmpty() || !schedule(target, dirty, frame.getFrameId())) {
+                return;
+            }
+        }
+        Platform.runLater(this::flush);
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private synchronized boolean schedule(IntBuffer target, DirtyRegion dirty, long frameId) {
+        if (target != pixels) {
+            return false;
+        }
+        pending.add(dirty);
+        decodedFrameId = frameId;
+        if (updateScheduled) {
+            return false;
+        }
+        updateScheduled = true;
+        decodedNanos = System.nanoTime();
+        return true;
+    }
+
+    private void flush() {
+        IntBuffer buffer;
+        int w;
+        int h;
+        Rectangle2D dirty;
+        long decoded;
+        long frameId;
+        synchronized (this) {
+            updateScheduled = false;
+            if (closed || pending.isEmpty()) {
+                return;
+            }
+            dirty = new Rectangle2D(pending.getX(), pending.getY(), pending.getWidth(), pending.getHeight());
+            pending.reset();
+            buffer = pixels;
+            w = width;
+            h = height;
+            decoded = decodedNanos;
+            frameId = decodedFrameId;
+        }
+        if (pixelBuffer == null || pixelBuffer.getBuffer() != buffer) {
+            pixelBuffer = new PixelBuffer<>(w, h, buffer, PixelFormat.getIntArgbPreInstance());
+            view.setImage(new WritableImage(pixelBuffer));
+        } else {
+            pixelBuffer.updateBuffer(b -> dirty);
+        }
+        long now = System.nanoTime();
+        // Несколько кадров между импульсами объединяются: учитывается последний
+        latency.record(StreamLatency.Stage.UPLOAD, frameId, now - decoded);
+        if (flushedNanos == 0) {
+            flushedNanos = now;
+        }
+        flushedFrameId = frameId;
+    }
+
+    /**
+     * Импульс отрисовки после раскладки: переданное изображение будет отрисовано в нем.
+     */
+    private void onPulse() {
+        if (flushedNanos == 0) {
+            return;
+        }
+        latency.record(StreamLatency.Stage.PRESENT, flushedFrameId, System.nanoTime() - flushedNanos);
+        latency.framePresented();
+        flushedNanos = 0;
+    }
+
+    /**
+     * @return ширина изображения или 0, если кадров еще не было
+     */
+    public synchronized int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return высота изображения или 0, если кадров еще не было
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * Прекращает обновление изображения и освобождает декодер.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        synchronized (decodeLock) {
+            decoder.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.streamapp.ui.viewer;
+
+import com.streamapp.streaming.StreamLatency;
+import com.streamapp.util.LatencyHistogram;
+import javafx.scene.control.Label;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таблица задержек этапов трансляции поверх изображения.
+ * <p>
+ * Показывает медиану и 99-й процентиль каждого этапа за последние
+ * {@value #WINDOW_REFRESHES} обновлений и частоту захваченных и показанных
+ * кадров. Снимки гистограмм делаются только пока таблица видна.
+ * Используется только в потоке JavaFX.
+ */
+public class LatencyOverlay {
+    /**
+     * Сколько обновлений охватывает окно процентилей.
+     */
+    private static final int WINDOW_REFRESHES = 5;
+
+    private final Label label;
+    private final StreamLatency latency;
+    /**
+     * Снимки гистограмм по этапам за последние обновления, кольцом.
+     */
+    private final LatencyHistogram.Snapshot[][] history =
+        new LatencyHistogram.Snapshot[WINDOW_REFRESHES][StreamLatency.Stage.values().length];
+    private int refreshes;
+
+    /**
+     * Создает таблицу.
+     *
+     * @param label элемент поверх изображения трансляции
+     * @param latency учет задержек
+     */
+    public LatencyOverlay(Label label, StreamLatency latency) {
+        this.label = label;
+        this.latency = latency;
+        label.setMouseTransparent(true);
+        label.setVisible(false);
+    }
+
+    /**
+     * Показывает или скрывает таблицу.
+     *
+     * @param visible true — показать
+     */
+    public void setVisible(boolean visible) {
+        label.setVisible(visible);
+        if (visible) {
+            refreshes = 0;
+            refresh();
+        }
+    }
+
+    public boolean isVisible() {
+        return label.isVisible();
+    }
+
+    /**
+     * Обновляет таблицу, если она видна.
+     */
+    public void refresh() {
+        if (!label.isVisible()) {
+            return;
+        }
+        StreamLatency.Stage[] stages = StreamLatency.Stage.values();
+        LatencyHistogram.Snapshot[] current = history[refreshes % WINDOW_REFRESHES];
+        LatencyHistogram.Snapshot[] oldest = refreshes >= WINDOW_REFRESHES - 1
+            ? history[(refreshes + 1) % WINDOW_REFRESHES]
+            : history[0];
+        StringBuilder text = new StringBuilder(String.format("%-17s %7s %7s%n", "Этап, мс", "p50", "p99"));
+        for (StreamLatency.Stage stage : stages) {
+            LatencyHistogram.Snapshot snapshot = latency.histogram(stage).snapshot();
+            LatencyHistogram.Snapshot window = refreshes == 0 ? snapshot : snapshot.since(oldest[stage.ordinal()]);
+            current[stage.ordinal()] = snapshot;
+            text.append(String.format("%-17s %7s %7s%n", stage.getDisplayName(),
+                millis(window, 50), millis(window, 99)));
+        }
+        text.append(String.format("Кадров/с: захват %.1f, показ %.1f",
+            latency.getCapturedFps(), latency.getPresentedFps()));
+        label.setText(text.toString());
+        refreshes++;
+    }
+
+    private static String millis(LatencyHistogram.Snapshot window, double percentile) {
+        if (window.getCount() == 0) {
+            return "—";
+        }
+        return String.format("%.1f", window.percentileNanos(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,185 @@
+package com.streamapp.ui.viewmodel;
+
+import com.streamapp.core.model.User;
+import com.streamapp.network.model.PeerKey;
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Индекс пользователей списка по идентификатору и по ключу узла в сети.
+ * <p>
+ * Поиск, добавление, замена, удаление и смена статуса находят пользователя
+ * по хэш-таблице, без прохода по списку. Наблюдаемый список остается
+ * единственным источником порядка для интерфейса; внутри пачки
+ * ({@link #beginBatch()} — {@link #endBatch()}) его изменения откладываются
+ * и применяются одним удалением и одним добавлением. Вне пачки удаление
+ * из самого списка остается сдвигом массива после поиска по ссылке.
+ * <p>
+ * Используется только в потоке JavaFX.
+ */
+public class PeerRegistry {
+    private final ObservableList<User> users;
+    private final Map<String, User> byId = new HashMap<>();
+    private final Map<PeerKey, User> byPeer = new HashMap<>();
+    private final Map<String, PeerKey> peerOf = new HashMap<>();
+    private final Set<User> pendingRemoved = new LinkedHashSet<>();
+    private final Set<User> pendingAdded = new LinkedHashSet<>();
+    private boolean batching;
+
+    /**
+     * Создает индекс над списком. Пользователи, уже находящиеся в списке, индексируются.
+     *
+     * @param users список для интерфейса
+     */
+    public PeerRegistry(ObservableList<User> users) {
+        this.users = users;
+        for (User user : users) {
+            byId.put(user.getUserId(), user);
+        }
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return пользователь или null
+     */
+    public User get(String userId) {
+        return byId.get(userId);
+    }
+
+    /**
+     * @param key ключ узла
+     * @return пользователь, обнаруженный в сети под этим ключом, или null
+     */
+    public User getPeer(PeerKey key) {
+        return byPeer.get(key);
+    }
+
+    /**
+     * Добавляет пользователя или заменяет пользователя с тем же идентификатором.
+     *
+     * @param user пользователь
+     */
+    public void put(User user) {
+        User previous = byId.put(user.getUserId(), user);
+        if (previous != null) {
+            unlinkPeer(previous.getUserId(), previous);
+            listRemove(previous);
+        }
+        listAdd(user);
+    }
+
+    /**
+     * Добавляет пользователя, обнаруженного в сети, или заменяет прежнего
+     * пользователя этого узла.
+     *
+     * @param key ключ узла
+     * @param user пользователь
+     */
+    public void putPeer(PeerKey key, User user) {
+        User previous = byPeer.get(key);
+        if (previous != null) {
+            remove(previous.getUserId());
+        }
+        put(user);
+        byPeer.put(key, user);
+        peerOf.put(user.getUserId(), key);
+    }
+
+    /**
+     * Удаляет пользователя по идентификатору.
+     *
+     * @param userId идентификатор пользователя
+     * @return удаленный пользователь или null
+     */
+    public User remove(String userId) {
+        User user = byId.remove(userId);
+        if (user != null) {
+            unlinkPeer(userId, user);
+            listRemove(user);
+        }
+        return user;
+    }
+
+    /**
+     * Удаляет пользователя, обнаруженного в сети.
+     *
+     * @param key ключ узла
+     * @return удаленный пользователь или null
+     */
+    public User removePeer(PeerKey key) {
+        User user = byPeer.get(key);
+        return user != null ? remove(user.getUserId()) : null;
+    }
+
+    /**
+     * Меняет статус пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @param status новый статус
+     * @return true, если пользователь найден
+     */
+    public boolean updateStatus(String userId, String status) {
+        User user = byId.get(userId);
+        if (user == null) {
+            return false;
+        }
+        user.setStatus(status);
+        return true;
+    }
+
+    /**
+     * @return число пользователей в индексе
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Начинает пачку изменений: до {@link #endBatch()} список не меняется.
+     */
+    public void beginBatch() {
+        batching = true;
+    }
+
+    /**
+     * Применяет отложенные изменения к списку: сначала одно удаление, затем одно добавление.
+     */
+    public void endBatch() {
+        batching = false;
+        if (!pendingRemoved.isEmpty()) {
+            users.removeAll(pendingRemoved);
+            pendingRemoved.clear();
+        }
+        if (!pendingAdded.isEmpty()) {
+            users.addAll(pendingAdded);
+            pendingAdded.clear();
+        }
+    }
+
+    private void unlinkPeer(String userId, User user) {
+        PeerKey key = peerOf.remove(userId);
+        if (key != null && byPeer.get(key) == user) {
+            byPeer.remove(key);
+        }
+    }
+
+    private void listAdd(User user) {
+        if (batching) {
+            pendingAdded.add(user);
+        } else {
+            users.add(user);
+        }
+    }
+
+    private void listRemove(User user) {
+        if (!batching) {
+            users.remove(user);
+        } else if (!pendingAdded.remove(user)) {
+            pendingRemoved.add(user);
+        }
+    }
+}
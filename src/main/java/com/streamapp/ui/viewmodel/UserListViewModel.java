@@ -1,108 +1,263 @@
 package com.streamapp.ui.viewmodel;
 
 import com.streamapp.core.model.User;
+import com.streamapp.network.mdns.DiscoveryChangeLog;
+import com.streamapp.network.mdns.MDNSConstants;
+import com.streamapp.network.mdns.StatusPublisher;
 import com.streamapp.network.mdns.UserDiscoveryService;
+import com.streamapp.network.model.PeerCapabilities;
 import com.streamapp.network.model.UserStatus;
+import com.streamapp.ui.avatar.AvatarCache;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.image.Image;
-import javax.jmdns.JmDNS;
-import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * ViewModel для управления списком пользователей
  */
 public class UserListViewModel {
+    private static final Logger logger = LoggerFactory.getLogger(UserListViewModel.class);
+
     private final ObservableList<User> users;
+    private final PeerRegistry registry;
+    private AvatarCache avatars;
+    private PeerCapabilities localCapabilities = PeerCapabilities.UNKNOWN;
     private UserDiscoveryService discoveryService;
 
+    /**
+     * Создает список с тестовыми пользователями. Кэш изображений профиля и
+     * сервис обнаружения подключаются позже, по мере готовности при запуске
+     * приложения: {@link #attachAvatars(AvatarCache)}, {@link #attachDiscovery}.
+     */
     public UserListViewModel() {
         this.users = FXCollections.observableArrayList();
+        this.registry = new PeerRegistry(users);
         // Добавляем тестовых пользователей для демонстрации
         addTestUsers();
-        // Инициализируем сервис обнаружения пользователей
-        initDiscovery();
+    }
+
+    /**
+     * Создает пустой список без тестовых пользователей и сетевого поиска,
+     * например для тестов и замеров производительности.
+     *
+     * @param discoveryService сервис обнаружения или null
+     */
+    public UserListViewModel(UserDiscoveryService discoveryService) {
+        this(discoveryService, null);
+    }
+
+    /**
+     * Создает пустой список с заданными сервисом обнаружения и кэшем изображений профиля.
+     *
+     * @param discoveryService сервис обнаружения или null
+     * @param avatars кэш изображений профиля или null
+     */
+    public UserListViewModel(UserDiscoveryService discoveryService, AvatarCache avatars) {
+        this.users = FXCollections.observableArrayList();
+        this.registry = new PeerRegistry(users);
+        this.avatars = avatars;
+        if (discoveryService != null) {
+            bindDiscovery(discoveryService);
+        }
     }
 
     private void addTestUsers() {
         // В реальном приложении эти данные будут приходить с сервера
-        users.add(new User(
+        addUser(new User(
             UUID.randomUUID().toString(),
             "Иван Петров",
             "Онлайн",
-            new Image("/images/default_avatar.png")
+            defaultAvatar()
         ));
-        users.add(new User(
+        addUser(new User(
             UUID.randomUUID().toString(),
             "Мария Сидорова",
             "Не беспокоить",
-            new Image("/images/default_avatar.png")
+            defaultAvatar()
         ));
     }
 
-    private void initDiscovery() {
+    private Image defaultAvatar() {
+        return avatars != null ? avatars.getDefault() : null;
+    }
+
+    /**
+     * Подключает кэш изображений профиля. Вызывается в потоке JavaFX;
+     * пользователи без изображения получают стандартное.
+     *
+     * @param avatars кэш изображений профиля
+     */
+    public void attachAvatars(AvatarCache avatars) {
+        this.avatars = avatars;
+        for (User user : users) {
+            if (user.getAvatar() == null) {
+                user.setAvatar(avatars.getDefault());
+            }
+        }
+    }
+
+    /**
+     * Подключает запущенный сервис обнаружения. Вызывается в потоке JavaFX.
+     *
+     * @param service сервис обнаружения
+     * @param capabilities возможности этого узла, объявленные при регистрации
+     */
+    public void attachDiscovery(UserDiscoveryService service, PeerCapabilities capabilities) {
+        localCapabilities = capabilities;
+        bindDiscovery(service);
+    }
+
+    private void bindDiscovery(UserDiscoveryService service) {
+        discoveryService = service;
+        // Изменения из потоков JmDNS применяются пачкой: не чаще одного раза за импульс JavaFX
+        discoveryService.getChangeLog().setListener(() -> Platform.runLater(this::applyDiscoveryChanges));
+    }
+
+    /**
+     * Применяет накопленные изменения сети к списку одним удалением и одним добавлением.
+     */
+    private void applyDiscoveryChanges() {
+        List<DiscoveryChangeLog.Change> changes = discoveryService.getChangeLog().drain();
+        if (changes.isEmpty()) {
+            return;
+        }
+        registry.beginBatch();
         try {
-            // Здесь можно получить имя пользователя из настроек приложения
-            String username = System.getProperty("user.name", "StreamUser");
-            JmDNS jmdns = JmDNS.create();
-            discoveryService = new UserDiscoveryService(jmdns, username);
-            discoveryService.startDiscovery();
-            // Слушаем изменения в списке обнаруженных пользователей
-            discoveryService.getDiscoveredUsers().addListener((ListChangeListener<com.streamapp.network.model.User>) change -> {
-                while (change.next()) {
-                    if (change.wasAdded()) {
-                        for (com.streamapp.network.model.User netUser : change.getAddedSubList()) {
-                            Platform.runLater(() -> addOrUpdateUserFromNetwork(netUser));
-                        }
-                    }
-                    if (change.wasRemoved()) {
-                        for (com.streamapp.network.model.User netUser : change.getRemoved()) {
-                            Platform.runLater(() -> removeUserByNetwork(netUser));
-                        }
-                    }
+            for (DiscoveryChangeLog.Change change : changes) {
+                if (change.isRemoved()) {
+                    registry.removePeer(change.getKey());
+                } else {
+                    addOrUpdateUserFromNetwork(change.getUser());
                 }
-            });
-        } catch (IOException e) {
-            e.printStackTrace();
+            }
+        } finally {
+            registry.endBatch();
         }
     }
 
     private void addOrUpdateUserFromNetwork(com.streamapp.network.model.User netUser) {
-        // Проверяем, есть ли уже такой пользователь по username и ip
-        boolean exists = users.stream().anyMatch(u -> u.getUsername().equals(netUser.getUsername()) && u.getUserId().equals(netUser.getIpAddress()));
-        if (!exists) {
-            users.add(new User(
-                netUser.getIpAddress(), // userId
-                netUser.getUsername(),
-                netUser.getStatus() == UserStatus.ONLINE ? "Онлайн" : "Оффлайн",
-                new Image("/images/default_avatar.png")
-            ));
+        String status = statusLabel(netUser.getStatus());
+        User known = registry.getPeer(netUser.getKey());
+        if (known != null && netUser.getIpAddress().equals(known.getAddress())) {
+            known.setStatus(status);
+            known.setCapabilities(netUser.getCapabilities());
+            requestAvatar(known, netUser);
+            return;
+        }
+        User user = new User(
+            netUser.getId().toString(), // userId
+            netUser.getUsername(),
+            status,
+            defaultAvatar(),
+            netUser.getIpAddress()
+        );
+        user.setCapabilities(netUser.getCapabilities());
+        registry.putPeer(netUser.getKey(), user);
+        requestAvatar(user, netUser);
+    }
+
+    private static String statusLabel(UserStatus status) {
+        switch (status) {
+            case ONLINE:
+                return "Онлайн";
+            case STREAMING:
+                return "Транслирует";
+            case BUSY:
+                return "Не беспокоить";
+            default:
+                return "Оффлайн";
+        }
+    }
+
+    /**
+     * Сообщает другим узлам собственный статус и число зрителей обновлением
+     * TXT записи; частые изменения объединяются.
+     *
+     * @param status собственный статус
+     * @param viewers текущее число зрителей
+     */
+    public void publishLocalStatus(UserStatus status, int viewers) {
+        if (discoveryService == null) {
+            return;
         }
+        int maxViewers = localCapabilities.getMaxViewers();
+        int load = maxViewers > 0 ? viewers * 100 / maxViewers : 0;
+        Map<String, String> properties = new HashMap<>(localCapabilities.withLoad(viewers, load).toProperties());
+        properties.put(MDNSConstants.TXT_STATUS, StatusPublisher.statusValue(status));
+        discoveryService.publishProperties(properties);
     }
 
-    private void removeUserByNetwork(com.streamapp.network.model.User netUser) {
-        users.removeIf(u -> u.getUsername().equals(netUser.getUsername()) && u.getUserId().equals(netUser.getIpAddress()));
+    /**
+     * Показывает объявленное изображение профиля: сразу, если оно уже
+     * декодировано, иначе после фоновой загрузки.
+     */
+    private void requestAvatar(User user, com.streamapp.network.model.User netUser) {
+        String hash = netUser.getAvatarHash();
+        if (avatars == null || hash == null) {
+            return;
+        }
+        Image cached = avatars.getIfPresent(hash);
+        if (cached != null) {
+            user.setAvatar(cached);
+            return;
+        }
+        InetSocketAddress server = new InetSocketAddress(netUser.getIpAddress(), netUser.getAvatarPort());
+        avatars.load(hash, server).thenAccept(image -> Platform.runLater(() -> {
+            // Пользователь мог уйти или смениться, пока изображение загружалось
+            if (registry.get(user.getUserId()) == user) {
+                user.setAvatar(image);
+            }
+        }));
+    }
+
+    /**
+     * Выбирает узел для просмотра трансляции пользователя по объявленным
+     * возможностям, без пробного подключения: сам пользователь или
+     * ретранслятор его трансляции со свободными местами и наименьшей загрузкой.
+     *
+     * @param user пользователь, трансляцию которого нужно открыть
+     * @param codecId кодек плиток, который умеет декодировать зритель
+     * @return выбранный узел; сам пользователь, если лучшего нет
+     */
+    public User chooseSource(User user, byte codecId) {
+        User best = user;
+        for (User candidate : users) {
+            PeerCapabilities capabilities = candidate.getCapabilities();
+            if (candidate != user && user.getUsername().equals(capabilities.getRelaySource())
+                    && candidate.getAddress() != null && capabilities.supportsCodec(codecId)
+                    && (!best.getCapabilities().supportsCodec(codecId)
+                        || PeerCapabilities.BEST_FIRST.compare(capabilities, best.getCapabilities()) < 0)) {
+                best = candidate;
+            }
+        }
+        return best;
     }
 
     public ObservableList<User> getUsers() {
         return users;
     }
 
+    /**
+     * Добавляет пользователя или заменяет пользователя с тем же идентификатором.
+     */
     public void addUser(User user) {
-        users.add(user);
+        registry.put(user);
     }
 
     public void removeUser(String userId) {
-        users.removeIf(user -> user.getUserId().equals(userId));
+        registry.remove(userId);
     }
 
     public void updateUserStatus(String userId, String newStatus) {
-        users.stream()
-            .filter(user -> user.getUserId().equals(userId))
-            .findFirst()
-            .ifPresent(user -> user.setStatus(newStatus));
+        registry.updateStatus(userId, newStatus);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,102 @@
+package com.streamapp.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул прямых {@link ByteBuffer} с классами размеров по степеням двойки.
+ * Прямые буферы дорого выделять и освобождать, поэтому сетевой код
+ * берет их из пула и возвращает после записи в канал.
+ */
+public final class DirectBufferPool {
+    /**
+     * Минимальный размер буфера (4 КБ).
+     */
+    public static final int MIN_BUFFER_SIZE = 1 << 12;
+
+    /**
+     * Максимальный размер буфера (32 МБ).
+     */
+    public static final int MAX_BUFFER_SIZE = 1 << 25;
+
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 25;
+    private static final int DEFAULT_MAX_PER_CLASS = 32;
+    private static final DirectBufferPool SHARED = new DirectBufferPool(DEFAULT_MAX_PER_CLASS);
+
+    private final ConcurrentLinkedQueue<ByteBuffer>[] classes;
+    private final AtomicInteger[] pooled;
+    private final int maxPerClass;
+
+    /**
+     * Создает пул.
+     *
+     * @param maxPerClass сколько свободных буферов хранить в каждом классе размеров
+     */
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(int maxPerClass) {
+        this.maxPerClass = maxPerClass;
+        int count = MAX_SHIFT - MIN_SHIFT + 1;
+        this.classes = new ConcurrentLinkedQueue[count];
+        this.pooled = new AtomicInteger[count];
+        for (int i = 0; i < count; i++) {
+            classes[i] = new ConcurrentLinkedQueue<>();
+            pooled[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Возвращает общий пул приложения.
+     *
+     * @return общий пул
+     */
+    public static DirectBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Выдает очищенный буфер емкостью не меньше запрошенной.
+     *
+     * @param minCapacity минимальная емкость
+     * @return прямой буфер в режиме записи
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > MAX_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Слишком большой буфер: " + minCapacity);
+        }
+        int index = classIndex(minCapacity);
+        ByteBuffer buffer = classes[index].poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(1 << (index + MIN_SHIFT));
+        }
+        pooled[index].decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Возвращает буфер в пул. Буферы не из пула игнорируются.
+     *
+     * @param buffer освобождаемый буфер
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || buffer.isReadOnly() || Integer.bitCount(capacity) != 1
+                || capacity < MIN_BUFFER_SIZE || capacity > MAX_BUFFER_SIZE) {
+            return;
+        }
+        int index = Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT;
+        if (pooled[index].incrementAndGet() > maxPerClass) {
+            pooled[index].decrementAndGet();
+            return;
+        }
+        classes[index].offer(buffer);
+    }
+
+    private static int classIndex(int capacity) {
+        if (capacity <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+}
@@ -0,0 +1,86 @@
+package com.streamapp.util;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Запись JFR с профилем приложения {@value #PROFILE}.
+ * <p>
+ * Профиль включает события StreamApp и события JVM, нужные для разбора
+ * рывков: паузы GC, блокировки, выборку стеков. Запись запускается при
+ * старте, если задано свойство {@value #RECORDING_PROPERTY}, хранит
+ * последние {@link #MAX_AGE} и сохраняется в файл при выходе. Тот же
+ * профиль можно передать в {@code jcmd <pid> JFR.start settings=<файл>}.
+ */
+public final class FlightRecording {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecording.class);
+
+    /**
+     * Ресурс профиля записи.
+     */
+    public static final String PROFILE = "/jfr/streamapp.jfc";
+
+    /**
+     * Системное свойство с путем к файлу записи.
+     */
+    public static final String RECORDING_PROPERTY = "streamapp.recording";
+
+    /**
+     * Сколько последних минут работы хранит запись.
+     */
+    private static final Duration MAX_AGE = Duration.ofMinutes(15);
+
+    private FlightRecording() {
+        // Запрещаем создание экземпляров
+    }
+
+    /**
+     * @return профиль записи приложения
+     * @throws IOException если профиль не удалось прочитать
+     * @throws ParseException если профиль поврежден
+     */
+    public static Configuration profile() throws IOException, ParseException {
+        try (InputStream in = FlightRecording.class.getResourceAsStream(PROFILE)) {
+            if (in == null) {
+                throw new IOException("Профиль записи не найден: " + PROFILE);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return Configuration.create(reader);
+            }
+        }
+    }
+
+    /**
+     * Запускает запись, если задано свойство {@value #RECORDING_PROPERTY}.
+     * Ошибки записи не мешают запуску приложения.
+     */
+    public static void startIfRequested() {
+        String destination = System.getProperty(RECORDING_PROPERTY);
+        if (destination == null || destination.isBlank()) {
+            return;
+        }
+        try {
+            Recording recording = new Recording(profile());
+            recording.setName("StreamApp");
+            recording.setToDisk(true);
+            recording.setMaxAge(MAX_AGE);
+            recording.setDestination(Path.of(destination));
+            recording.setDumpOnExit(true);
+            recording.start();
+            logger.info("Запись JFR запущена, файл при выходе: {}", destination);
+        } catch (IOException | ParseException | RuntimeException e) {
+            logger.warn("Не удалось запустить запись JFR: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.streamapp.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек с логарифмическими корзинами.
+ * <p>
+ * Значения хранятся в микросекундах: каждая степень двойки делится на
+ * {@value #SUB_BUCKETS} корзин, поэтому ошибка процентиля не больше 1/16
+ * значения. Запись не блокирует и не создает объектов, ее можно вызывать
+ * из потоков захвата, сети и JavaFX на каждом кадре. Чтение копирует
+ * корзины в {@link Snapshot}; разность двух снимков дает распределение
+ * за прошедший между ними интервал.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Наибольший учитываемый показатель степени двойки (около 19 часов в микросекундах).
+     */
+    private static final int MAX_EXPONENT = 36;
+    private static final long MAX_VALUE_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Учитывает одно значение.
+     *
+     * @param nanos задержка в наносекундах; отрицательные значения считаются нулем
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.min(Math.max(nanos, 0) / 1000, MAX_VALUE_MICROS);
+        counts.incrementAndGet(bucket(micros));
+        sumMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @return наибольшее учтенное значение в наносекундах
+     */
+    public long getMaxNanos() {
+        return TimeUnit.MICROSECONDS.toNanos(maxMicros.get());
+    }
+
+    /**
+     * @return копия текущего распределения
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sumMicros.get());
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return наибольшее значение корзины в микросекундах
+     */
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Неизменяемая копия распределения.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sumMicros;
+
+        private Snapshot(long[] counts, long count, long sumMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.sumMicros = sumMicros;
+        }
+
+        /**
+         * @return число учтенных значений
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return среднее значение в наносекундах или 0, если значений нет
+         */
+        public long getMeanNanos() {
+            return count == 0 ? 0 : TimeUnit.MICROSECONDS.toNanos(sumMicros / count);
+        }
+
+        /**
+         * @param percentile процентиль от 0 до 100
+         * @return значение, не меньше которого заданная доля значений, в наносекундах;
+         *         0, если значений нет
+         */
+        public long percentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return TimeUnit.MICROSECONDS.toNanos(bucketUpperBound(i));
+                }
+            }
+            return TimeUnit.MICROSECONDS.toNanos(bucketUpperBound(counts.length - 1));
+        }
+
+        /**
+         * @param earlier более ранний снимок той же гистограммы
+         * @return распределение значений, учтенных после {@code earlier}
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            long total = 0;
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = Math.max(0, counts[i] - earlier.counts[i]);
+                total += delta[i];
+            }
+            return new Snapshot(delta, total, Math.max(0, sumMicros - earlier.sumMicros));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.streamapp.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потокобезопасный кэш с ограничением суммарного веса записей.
+ * При превышении предела вытесняются давно не использовавшиеся записи.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public final class LruCache<K, V> {
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToLongFunction<? super V> weigher;
+    private final long maxWeight;
+    private long weight;
+
+    /**
+     * Создает кэш.
+     *
+     * @param maxWeight наибольший суммарный вес записей
+     * @param weigher вес одной записи, например размер в байтах
+     */
+    public LruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Недопустимый предел кэша: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @param key ключ
+     * @return значение или null; найденная запись становится самой свежей
+     */
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Добавляет или заменяет запись и вытесняет старые записи сверх предела.
+     * Запись тяжелее всего предела не сохраняется.
+     *
+     * @param key ключ
+     * @param value значение
+     */
+    public synchronized void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        V previous = entries.remove(key);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        entries.put(key, value);
+        weight += valueWeight;
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight) {
+            weight -= weigher.applyAsLong(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @return число записей
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return суммарный вес записей
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+}
@@ -0,0 +1,71 @@
+package com.streamapp.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Частота событий за последние секунды.
+ * <p>
+ * События считаются в кольце посекундных ячеек без блокировок и без
+ * создания объектов. При переходе ячейки на новую секунду одновременное
+ * событие может потеряться; для диагностической частоты это допустимо.
+ */
+public final class RateMeter {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final int windowSeconds;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray seconds;
+
+    /**
+     * @param windowSeconds число полных секунд, по которым считается частота
+     */
+    public RateMeter(int windowSeconds) {
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("Недопустимое окно: " + windowSeconds);
+        }
+        this.windowSeconds = windowSeconds;
+        // Еще одна ячейка — для текущей, неполной секунды
+        this.counts = new AtomicLongArray(windowSeconds + 1);
+        this.seconds = new AtomicLongArray(windowSeconds + 1);
+        for (int i = 0; i < seconds.length(); i++) {
+            seconds.set(i, -1);
+        }
+    }
+
+    /**
+     * Учитывает одно событие.
+     */
+    public void mark() {
+        mark(System.nanoTime());
+    }
+
+    void mark(long nowNanos) {
+        long second = nowNanos / NANOS_PER_SECOND;
+        int slot = (int) Math.floorMod(second, (long) counts.length());
+        long stamp = seconds.get(slot);
+        if (stamp != second && seconds.compareAndSet(slot, stamp, second)) {
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+    }
+
+    /**
+     * @return среднее число событий в секунду за последние полные секунды окна
+     */
+    public double perSecond() {
+        return perSecond(System.nanoTime());
+    }
+
+    double perSecond(long nowNanos) {
+        long current = nowNanos / NANOS_PER_SECOND;
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long second = seconds.get(i);
+            if (second < current && second >= current - windowSeconds) {
+                total += counts.get(i);
+            }
+        }
+        return (double) total / windowSeconds;
+    }
+}
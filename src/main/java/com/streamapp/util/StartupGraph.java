@@ -0,0 +1,135 @@
+package com.streamapp.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Граф задач запуска приложения.
+ * <p>
+ * Задачи добавляются до вызова {@link #start()}. После него каждая задача
+ * запускается в пуле, как только успешно завершились задачи,
+ * от которых она зависит, поэтому независимые задачи выполняются параллельно.
+ * Ошибка задачи передается зависящим от нее задачам, и они не запускаются.
+ * О завершении каждой задачи сообщается получателю прогресса.
+ */
+public final class StartupGraph {
+    private static final Logger logger = LoggerFactory.getLogger(StartupGraph.class);
+
+    /**
+     * Получатель прогресса запуска.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Вызывается в потоке завершившейся задачи.
+         *
+         * @param name имя завершившейся задачи
+         * @param completed число завершившихся задач, в том числе с ошибкой
+         * @param total число задач в графе
+         * @param error ошибка задачи или null
+         */
+        void onProgress(String name, int completed, int total, Throwable error);
+    }
+
+    private final Executor executor;
+    private final ProgressListener listener;
+    private final List<CompletableFuture<?>> tasks = new ArrayList<>();
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+    private long startNanos;
+    private int completed;
+
+    /**
+     * Создает граф.
+     *
+     * @param executor пул выполнения задач
+     * @param listener получатель прогресса
+     */
+    public StartupGraph(Executor executor, ProgressListener listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Добавляет задачу. Результаты зависимостей внутри задачи доступны через
+     * {@link CompletableFuture#join()} без ожидания.
+     *
+     * @param name имя задачи для прогресса и журнала
+     * @param action задача
+     * @param dependencies задачи, которые должны успешно завершиться раньше
+     * @param <T> тип результата
+     * @return результат задачи
+     */
+    public synchronized <T> CompletableFuture<T> task(String name, Callable<T> action,
+                                                      CompletableFuture<?>... dependencies) {
+        if (started.isDone()) {
+            throw new IllegalStateException("Запуск уже начат");
+        }
+        CompletableFuture<?>[] gates = new CompletableFuture<?>[dependencies.length + 1];
+        gates[0] = started;
+        System.arraycopy(dependencies, 0, gates, 1, dependencies.length);
+        CompletableFuture<T> task = CompletableFuture.allOf(gates)
+            .thenApplyAsync(ignored -> run(name, action), executor);
+        tasks.add(task.whenComplete((result, error) -> completed(name, error)));
+        return task;
+    }
+
+    /**
+     * Запускает задачи без зависимостей.
+     */
+    public void start() {
+        synchronized (this) {
+            startNanos = System.nanoTime();
+        }
+        started.complete(null);
+    }
+
+    private <T> T run(String name, Callable<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.call();
+            logger.debug("Задача запуска \"{}\" выполнена за {} мс", name,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void completed(String name, Throwable error) {
+        int done;
+        int total;
+        long elapsed;
+        synchronized (this) {
+            done = ++completed;
+            total = tasks.size();
+            elapsed = System.nanoTime() - startNanos;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause()
+            : error;
+        if (cause != null) {
+            logger.warn("Задача запуска \"{}\" не выполнена: {}", name, cause.toString());
+        }
+        logger.info("Запуск: \"{}\" ({} из {}), {} мс от начала", name, done, total,
+            TimeUnit.NANOSECONDS.toMillis(elapsed));
+        listener.onProgress(name, done, total, cause);
+    }
+
+    /**
+     * @return завершение всех добавленных задач, в том числе с ошибкой,
+     *         после сообщения о нем получателю прогресса
+     */
+    public synchronized CompletableFuture<Void> whenDone() {
+        return CompletableFuture.allOf(tasks.stream()
+            .map(task -> task.handle((result, error) -> null))
+            .toArray(CompletableFuture[]::new));
+    }
+}
@@ -0,0 +1,69 @@
+package com.streamapp.network.avatar;
+
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.util.DirectBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarFetcherTest {
+    private NioReactor reactor;
+    private AvatarServer server;
+    private AvatarFetcher fetcher;
+    private AvatarData avatar;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reactor = new NioReactor("test-reactor");
+        reactor.start();
+        byte[] bytes = new byte[20_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        avatar = AvatarData.of(bytes);
+        server = new AvatarServer(reactor, DirectBufferPool.shared(), avatar);
+        server.start(0);
+        fetcher = new AvatarFetcher(new SessionClient(reactor, DirectBufferPool.shared()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        reactor.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testFetchesAdvertisedAvatar() throws Exception {
+        assertTrue(AvatarData.isValidHash(avatar.getHash()));
+
+        AvatarData fetched = fetcher.fetch(address(), avatar.getHash()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(avatar.getHash(), fetched.getHash());
+        assertArrayEquals(avatar.getBytes(), fetched.getBytes());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testUnknownHashFails() {
+        String unknown = AvatarData.hashOf(new byte[]{1, 2, 3});
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+            () -> fetcher.fetch(address(), unknown).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, error.getCause());
+        assertFalse(AvatarData.isValidHash("../" + unknown.substring(3)), "Отпечаток не должен содержать путь");
+    }
+
+    private InetSocketAddress address() {
+        return new InetSocketAddress("127.0.0.1", server.getPort());
+    }
+}
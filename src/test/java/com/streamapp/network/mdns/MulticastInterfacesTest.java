@@ -0,0 +1,31 @@
+package com.streamapp.network.mdns;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MulticastInterfacesTest {
+
+    @Test
+    void testSameSubnet() throws UnknownHostException {
+        InetAddress wired = InetAddress.getByName("192.168.1.10");
+        InetAddress wireless = InetAddress.getByName("192.168.1.77");
+        InetAddress vpn = InetAddress.getByName("10.8.0.2");
+
+        assertTrue(MulticastInterfaces.sameSubnet(wired, wireless, 24));
+        assertFalse(MulticastInterfaces.sameSubnet(wired, wireless, 26));
+        assertFalse(MulticastInterfaces.sameSubnet(wired, vpn, 8));
+        assertTrue(MulticastInterfaces.sameSubnet(wired, vpn, 0));
+        assertFalse(MulticastInterfaces.sameSubnet(wired, InetAddress.getByName("fe80::1"), 0));
+    }
+
+    @Test
+    void testDiscoveryAddressesExcludeLoopback() {
+        for (InetAddress address : MulticastInterfaces.discoveryAddresses()) {
+            assertFalse(address.isLoopbackAddress(), "Петлевой адрес не должен выбираться: " + address);
+        }
+    }
+}
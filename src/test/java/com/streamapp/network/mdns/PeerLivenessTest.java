@@ -0,0 +1,161 @@
+package com.streamapp.network.mdns;
+
+import com.streamapp.network.model.PeerKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerLivenessTest {
+    private static final PeerKey STREAMER = new PeerKey("streamer", "host-a.local.");
+    private static final PeerKey IDLE = new PeerKey("idle", "host-b.local.");
+    private static final InetSocketAddress SESSION = new InetSocketAddress("127.0.0.1", 8080);
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private volatile boolean answering = true;
+    private PeerLiveness liveness;
+
+    @AfterEach
+    void tearDown() {
+        liveness.close();
+    }
+
+    private void create(long deadlineMillis) {
+        create(deadlineMillis, address -> answering
+            ? CompletableFuture.completedFuture(null)
+            : CompletableFuture.failedFuture(new IOException("нет ответа")));
+    }
+
+    private void create(long deadlineMillis, PeerLiveness.Probe probe) {
+        liveness = new PeerLiveness(deadlineMillis, probe,
+            new PeerLiveness.Listener() {
+                @Override
+                public void onExpired(PeerKey key) {
+                    events.add("expired " + key.getServiceName());
+                }
+
+                @Override
+                public void onRevived(PeerKey key) {
+                    events.add("revived " + key.getServiceName());
+                }
+
+                @Override
+                public void onPreferredChanged(PeerKey key, InetSocketAddress address) {
+                    events.add("preferred " + address.getPort());
+                }
+            });
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAnsweringPeerStaysAlive() throws InterruptedException {
+        create(300);
+        liveness.seen(STREAMER, List.of(SESSION));
+
+        Thread.sleep(1000);
+
+        assertTrue(events.isEmpty());
+        assertFalse(liveness.isExpired(STREAMER));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSilentPeerExpiresWithinDeadlineAndRevives() throws InterruptedException {
+        create(300);
+        answering = false;
+        liveness.seen(STREAMER, List.of(SESSION));
+        // Узел без порта сессий живет по более длинному сроку объявлений mDNS
+        liveness.seen(IDLE, List.of());
+
+        long start = System.nanoTime();
+        while (events.isEmpty()) {
+            Thread.sleep(10);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(List.of("expired streamer"), events);
+        assertTrue(elapsedMillis < 300 * 2, "Узел объявлен недоступным через " + elapsedMillis + " мс");
+        assertTrue(liveness.isExpired(STREAMER));
+        assertFalse(liveness.isExpired(IDLE));
+
+        answering = true;
+        while (events.size() < 2) {
+            Thread.sleep(10);
+        }
+        assertEquals("revived streamer", events.get(1));
+        assertFalse(liveness.isExpired(STREAMER));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testIdlePeerExpiresAfterMdnsSilence() throws InterruptedException {
+        List<InetSocketAddress> probed = new CopyOnWriteArrayList<>();
+        liveness = new PeerLiveness(3000, 300, address -> {
+            probed.add(address);
+            return CompletableFuture.completedFuture(null);
+        }, new PeerLiveness.Listener() {
+            @Override
+            public void onExpired(PeerKey key) {
+                events.add("expired " + key.getServiceName());
+            }
+
+            @Override
+            public void onRevived(PeerKey key) {
+                events.add("revived " + key.getServiceName());
+            }
+        });
+        liveness.seen(IDLE, List.of());
+
+        long start = System.nanoTime();
+        while (events.isEmpty()) {
+            Thread.sleep(10);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(List.of("expired idle"), events);
+        assertTrue(elapsedMillis < 300 * 2, "Узел объявлен недоступным через " + elapsedMillis + " мс");
+        assertTrue(probed.isEmpty(), "Узел без порта сессий не проверяется");
+
+        // Очередное объявление mDNS возвращает узел
+        liveness.seen(IDLE, List.of());
+        assertFalse(liveness.isExpired(IDLE));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testForgottenPeerIsNotExpired() throws InterruptedException {
+        create(200);
+        answering = false;
+        liveness.seen(STREAMER, List.of(SESSION));
+        liveness.forget(STREAMER);
+
+        Thread.sleep(600);
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testFastestAddressIsPreferred() throws InterruptedException {
+        // Адрес с портом 9001 отвечает с задержкой, 9002 — сразу
+        InetSocketAddress slow = new InetSocketAddress("127.0.0.1", 9001);
+        InetSocketAddress fast = new InetSocketAddress("127.0.0.1", 9002);
+        create(3000, address -> address.equals(slow)
+            ? CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS))
+            : CompletableFuture.completedFuture(null));
+
+        liveness.seen(STREAMER, List.of(slow, fast));
+
+        while (liveness.preferred(STREAMER) == null || events.isEmpty()) {
+            Thread.sleep(10);
+        }
+        assertEquals(fast, liveness.preferred(STREAMER));
+        assertEquals(List.of("preferred 9002"), events);
+    }
+}
@@ -3,11 +3,13 @@ package com.streamapp.network.mdns;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceInfo;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -92,4 +94,62 @@ class ServiceRegistrationManagerTest {
         // Assert
         assertFalse(result);
     }
-} 
\ No newline at end of file
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testLostRegistrationIsRestoredByPeriodicCheck() throws IOException {
+        DiscoveryMetrics metrics = new DiscoveryMetrics();
+        ServiceRegistrationManager monitored = new ServiceRegistrationManager(jmDNS, metrics, 20);
+        when(serviceInfo.getName()).thenReturn("me");
+        when(serviceInfo.getType()).thenReturn(MDNSConstants.SERVICE_TYPE);
+        ServiceInfo other = mock(ServiceInfo.class);
+        when(other.getName()).thenReturn("other");
+        // Сначала сервис виден в сети, затем пропадает без события удаления
+        when(jmDNS.list(anyString(), anyLong()))
+            .thenReturn(new ServiceInfo[] {serviceInfo, other})
+            .thenReturn(new ServiceInfo[] {serviceInfo})
+            .thenReturn(new ServiceInfo[] {other});
+
+        assertTrue(monitored.registerService(serviceInfo));
+
+        verify(jmDNS, timeout(2000).times(2)).registerService(serviceInfo);
+        verify(jmDNS).unregisterService(serviceInfo);
+        assertEquals(1, metrics.getReRegistrations());
+        assertTrue(monitored.isRegistered());
+        monitored.close();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testVisibleRegistrationIsKept() throws IOException, InterruptedException {
+        DiscoveryMetrics metrics = new DiscoveryMetrics();
+        ServiceRegistrationManager monitored = new ServiceRegistrationManager(jmDNS, metrics, 20);
+        when(serviceInfo.getName()).thenReturn("me");
+        when(serviceInfo.getType()).thenReturn(MDNSConstants.SERVICE_TYPE);
+        when(jmDNS.list(anyString(), anyLong())).thenReturn(new ServiceInfo[] {serviceInfo});
+
+        monitored.registerService(serviceInfo);
+        Thread.sleep(200);
+
+        verify(jmDNS, atLeast(3)).list(MDNSConstants.SERVICE_TYPE, 0);
+        verify(jmDNS, times(1)).registerService(serviceInfo);
+        assertEquals(0, metrics.getReRegistrations());
+        monitored.close();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testRemovedOwnServiceIsRegisteredAgain() throws IOException {
+        DiscoveryMetrics metrics = new DiscoveryMetrics();
+        ServiceRegistrationManager monitored = new ServiceRegistrationManager(jmDNS, metrics, 60_000);
+        when(serviceInfo.getName()).thenReturn("me");
+        monitored.registerService(serviceInfo);
+
+        monitored.onServiceRemoved("someone-else");
+        monitored.onServiceRemoved("me");
+
+        verify(jmDNS, timeout(2000).times(2)).registerService(serviceInfo);
+        assertEquals(1, metrics.getReRegistrations());
+        monitored.close();
+    }
+}
@@ -0,0 +1,86 @@
+package com.streamapp.network.mdns;
+
+import com.streamapp.network.model.UserStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusPublisherTest {
+    private final List<Map<String, String>> published = new CopyOnWriteArrayList<>();
+    private StatusPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        publisher.close();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testRapidChangesArePublishedOnceWithLatestValues() throws InterruptedException {
+        publisher = new StatusPublisher(Map.of("name", "host", MDNSConstants.TXT_STATUS, "online"),
+            published::add, 50, 200);
+
+        publisher.publishStatus(UserStatus.STREAMING);
+        for (int viewers = 1; viewers <= 10; viewers++) {
+            publisher.publish(Map.of(MDNSConstants.TXT_VIEWERS, viewers + "/16"));
+        }
+        Thread.sleep(400);
+
+        assertEquals(1, published.size());
+        assertEquals("streaming", published.get(0).get(MDNSConstants.TXT_STATUS));
+        assertEquals("10/16", published.get(0).get(MDNSConstants.TXT_VIEWERS));
+        assertEquals("host", published.get(0).get("name"));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testUnchangedPropertiesAreNotPublished() throws InterruptedException {
+        publisher = new StatusPublisher(Map.of(MDNSConstants.TXT_STATUS, "online"), published::add, 20, 50);
+
+        publisher.publishStatus(UserStatus.ONLINE);
+        publisher.publishStatus(UserStatus.BUSY);
+        publisher.publishStatus(UserStatus.ONLINE);
+        Thread.sleep(200);
+
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testPublicationsKeepMinimumInterval() throws InterruptedException {
+        publisher = new StatusPublisher(Map.of(MDNSConstants.TXT_STATUS, "online"), published::add, 10, 300);
+
+        publisher.publishStatus(UserStatus.STREAMING);
+        Thread.sleep(100);
+        assertEquals(1, published.size());
+
+        publisher.publishStatus(UserStatus.ONLINE);
+        Thread.sleep(100);
+        assertEquals(1, published.size());
+        Thread.sleep(400);
+        assertEquals(2, published.size());
+        assertEquals(UserStatus.ONLINE, StatusPublisher.parseStatus(published.get(1).get(MDNSConstants.TXT_STATUS)));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testBeatKeepsPublishingUnchangedStatus() throws InterruptedException {
+        publisher = new StatusPublisher(Map.of(MDNSConstants.TXT_STATUS, "online"), published::add, 10, 50);
+
+        publisher.startBeat(60);
+        while (published.size() < 3) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("1", published.get(0).get(MDNSConstants.TXT_BEAT));
+        assertEquals("3", published.get(2).get(MDNSConstants.TXT_BEAT));
+        assertEquals("online", published.get(2).get(MDNSConstants.TXT_STATUS));
+    }
+}
@@ -1,8 +1,9 @@
 package com.streamapp.network.mdns;
 
+import com.streamapp.network.TransportType;
+import com.streamapp.network.model.PeerCapabilities;
 import com.streamapp.network.model.User;
 import com.streamapp.network.model.UserStatus;
-import javafx.collections.ObservableList;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,10 +16,16 @@ import javax.jmdns.ServiceEvent;
 import javax.jmdns.ServiceInfo;
 import javax.jmdns.ServiceListener;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -82,7 +89,7 @@ class UserDiscoveryServiceTest {
         when(serviceEvent.getName()).thenReturn("discoveredUser");
 
         // Получаем список пользователей
-        ObservableList<User> users = userDiscoveryService.getDiscoveredUsers();
+        Collection<User> users = userDiscoveryService.getDiscoveredUsers();
         assertTrue(users.isEmpty(), "Список пользователей должен быть пустым в начале");
 
         // Симулируем события обнаружения сервиса
@@ -96,7 +103,7 @@ class UserDiscoveryServiceTest {
 
         // Проверяем, что пользователь был добавлен в список
         assertEquals(1, users.size(), "Должен быть обнаружен один пользователь");
-        User discoveredUser = users.get(0);
+        User discoveredUser = users.iterator().next();
         assertEquals("discoveredUser", discoveredUser.getUsername());
         assertEquals(UserStatus.ONLINE, discoveredUser.getStatus());
     }
@@ -122,7 +129,7 @@ class UserDiscoveryServiceTest {
         when(removeEvent.getName()).thenReturn("discoveredUser");
 
         // Получаем список пользователей
-        ObservableList<User> users = userDiscoveryService.getDiscoveredUsers();
+        Collection<User> users = userDiscoveryService.getDiscoveredUsers();
 
         // Симулируем события
         userDiscoveryService.startDiscovery();
@@ -183,7 +190,7 @@ class UserDiscoveryServiceTest {
         }
 
         // Получаем список пользователей
-        ObservableList<User> users = userDiscoveryService.getDiscoveredUsers();
+        Collection<User> users = userDiscoveryService.getDiscoveredUsers();
 
         // Симулируем события
         userDiscoveryService.startDiscovery();
@@ -205,6 +212,230 @@ class UserDiscoveryServiceTest {
         }
     }
 
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testAnnouncementFloodIsCoalesced() throws IOException {
+        userDiscoveryService.startDiscovery();
+        ServiceListener listener = getServiceListener();
+        DiscoveryChangeLog changeLog = userDiscoveryService.getChangeLog();
+        int[] notifications = new int[1];
+        changeLog.setListener(() -> notifications[0]++);
+
+        // Сотни повторных объявлений одних и тех же узлов и один ушедший узел
+        ServiceEvent[] events = new ServiceEvent[50];
+        for (int i = 0; i < events.length; i++) {
+            ServiceInfo serviceInfo = mock(ServiceInfo.class);
+            when(serviceInfo.getName()).thenReturn("peer-" + i);
+            when(serviceInfo.getInetAddresses()).thenReturn(new java.net.InetAddress[]{java.net.InetAddress.getLocalHost()});
+            events[i] = mock(ServiceEvent.class);
+            when(events[i].getInfo()).thenReturn(serviceInfo);
+            when(events[i].getName()).thenReturn("peer-" + i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (ServiceEvent event : events) {
+                listener.serviceResolved(event);
+            }
+        }
+        listener.serviceRemoved(events[0]);
+
+        assertEquals(1, notifications[0], "Получатель должен быть уведомлен один раз до выборки");
+        List<DiscoveryChangeLog.Change> changes = changeLog.drain();
+        assertEquals(events.length, changes.size(), "Изменения должны схлопываться по имени");
+        assertTrue(changes.get(0).isRemoved(), "Должно остаться последнее изменение узла");
+        assertFalse(changes.get(1).isRemoved());
+        assertEquals(events.length - 1, userDiscoveryService.getDiscoveredUsers().size());
+
+        listener.serviceRemoved(events[1]);
+        assertEquals(2, notifications[0], "После выборки новое изменение снова уведомляет получателя");
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testCapabilitiesAreParsedFromTxtRecord() throws IOException {
+        Map<String, String> txt = new PeerCapabilities(PeerCapabilities.codecBit((byte) 1),
+            EnumSet.of(TransportType.TCP), 1280, 720, 15, 4, 16, 25, 0, null).toProperties();
+        ServiceInfo serviceInfo = mock(ServiceInfo.class);
+        when(serviceInfo.getName()).thenReturn("capable");
+        when(serviceInfo.getPort()).thenReturn(9090);
+        when(serviceInfo.getInetAddresses()).thenReturn(new java.net.InetAddress[]{java.net.InetAddress.getLocalHost()});
+        when(serviceInfo.getPropertyString(anyString())).thenAnswer(invocation -> txt.get(invocation.getArgument(0)));
+        ServiceEvent event = mock(ServiceEvent.class);
+        when(event.getInfo()).thenReturn(serviceInfo);
+        when(event.getName()).thenReturn("capable");
+
+        userDiscoveryService.startDiscovery();
+        getServiceListener().serviceResolved(event);
+
+        PeerCapabilities capabilities = userDiscoveryService.getDiscoveredUsers().iterator().next().getCapabilities();
+        assertEquals(9090, capabilities.getSessionPort());
+        assertEquals(TransportType.TCP, capabilities.preferredTransport());
+        assertEquals(1280, capabilities.getMaxWidth());
+        assertEquals(15, capabilities.getMaxFps());
+        assertEquals(4, capabilities.getViewers());
+        assertEquals(25, capabilities.getLoad());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testStatusChangeUpdatesKnownUserInPlace() throws IOException {
+        Map<String, String> txt = new java.util.HashMap<>();
+        ServiceInfo serviceInfo = mock(ServiceInfo.class);
+        when(serviceInfo.getName()).thenReturn("streamer");
+        when(serviceInfo.getInetAddresses()).thenReturn(new java.net.InetAddress[]{java.net.InetAddress.getLocalHost()});
+        when(serviceInfo.getPropertyString(anyString())).thenAnswer(invocation -> txt.get(invocation.getArgument(0)));
+        ServiceEvent event = mock(ServiceEvent.class);
+        when(event.getInfo()).thenReturn(serviceInfo);
+        when(event.getName()).thenReturn("streamer");
+
+        userDiscoveryService.startDiscovery();
+        getServiceListener().serviceResolved(event);
+        User online = userDiscoveryService.getChangeLog().drain().get(0).getUser();
+        assertEquals(UserStatus.ONLINE, online.getStatus());
+
+        // Обновление TXT записи приходит повторным разрешением того же сервиса
+        txt.put(MDNSConstants.TXT_STATUS, StatusPublisher.statusValue(UserStatus.STREAMING));
+        getServiceListener().serviceResolved(event);
+
+        List<DiscoveryChangeLog.Change> changes = userDiscoveryService.getChangeLog().drain();
+        assertEquals(1, changes.size());
+        assertFalse(changes.get(0).isRemoved());
+        assertEquals(online.getKey(), changes.get(0).getKey());
+        assertEquals(online.getId(), changes.get(0).getUser().getId());
+        assertEquals(UserStatus.STREAMING, changes.get(0).getUser().getStatus());
+        assertEquals(1, userDiscoveryService.getDiscoveredUsers().size());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testPeerSeenOnTwoInterfacesIsOneUser() throws IOException {
+        JmDNS wired = mock(JmDNS.class);
+        JmDNS wireless = mock(JmDNS.class);
+        UserDiscoveryService service = new UserDiscoveryService(List.of(wired, wireless), TEST_USERNAME, Map.of(),
+            null, PeerLiveness.DEFAULT_DEADLINE_MS);
+        try {
+            verify(wired, times(1)).registerService(any(ServiceInfo.class));
+            verify(wireless, times(1)).registerService(any(ServiceInfo.class));
+            service.startDiscovery();
+            ServiceListener wiredListener = (ServiceListener) getLastArgument(wired, "addServiceListener");
+            ServiceListener wirelessListener = (ServiceListener) getLastArgument(wireless, "addServiceListener");
+
+            // Один и тот же узел с одним именем хоста, но разными адресами в двух сетях
+            ServiceEvent overWire = resolvedEvent("peer", "peer-host.local.", "192.168.1.20");
+            ServiceEvent overAir = resolvedEvent("peer", "peer-host.local.", "10.0.0.20");
+            wiredListener.serviceResolved(overWire);
+            wirelessListener.serviceResolved(overAir);
+
+            assertEquals(1, service.getDiscoveredUsers().size(), "Узел должен быть одним пользователем");
+            assertEquals(1, service.getChangeLog().drain().size());
+            assertEquals("192.168.1.20", service.getDiscoveredUsers().iterator().next().getIpAddress());
+
+            // Пропав из одной сети, узел остается доступным по адресу другой
+            wiredListener.serviceRemoved(overWire);
+            assertEquals(1, service.getDiscoveredUsers().size());
+            assertEquals("10.0.0.20", service.getDiscoveredUsers().iterator().next().getIpAddress());
+
+            wirelessListener.serviceRemoved(overAir);
+            assertTrue(service.getDiscoveredUsers().isEmpty());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testHostsWithSameServiceNameAreDifferentUsers() throws IOException {
+        userDiscoveryService.startDiscovery();
+        ServiceListener listener = getServiceListener();
+
+        // Два компьютера с одинаковым именем пользователя
+        ServiceEvent first = resolvedEvent("alice", "alice-laptop.local.", "192.168.1.40");
+        ServiceEvent second = resolvedEvent("alice", "alice-desktop.local.", "192.168.1.41");
+        listener.serviceResolved(first);
+        listener.serviceResolved(second);
+        listener.serviceResolved(first);
+
+        Collection<User> users = userDiscoveryService.getDiscoveredUsers();
+        assertEquals(2, users.size(), "Одинаковое имя сервиса не должно вытеснять другой хост");
+        List<DiscoveryChangeLog.Change> changes = userDiscoveryService.getChangeLog().drain();
+        assertEquals(2, changes.size());
+        assertTrue(changes.stream().noneMatch(DiscoveryChangeLog.Change::isRemoved));
+
+        // Прощание одного хоста не убирает другой
+        listener.serviceRemoved(first);
+        assertEquals(1, users.size());
+        assertEquals("192.168.1.41", users.iterator().next().getIpAddress());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testSilentIdlePeerIsRemovedAndReturnsWithNextAnnouncement() throws IOException, InterruptedException {
+        JmDNS jmdns = mock(JmDNS.class);
+        UserDiscoveryService service = new UserDiscoveryService(List.of(jmdns), TEST_USERNAME, Map.of(),
+            address -> CompletableFuture.completedFuture(null), 3000, 300);
+        try {
+            service.startDiscovery();
+            ServiceListener listener = (ServiceListener) getLastArgument(jmdns, "addServiceListener");
+            // Узел не транслирует: порта сессий нет, проверять его нечем
+            ServiceEvent idle = resolvedEvent("idle", "idle-host.local.", "192.168.1.30");
+            listener.serviceResolved(idle);
+            assertEquals(1, service.getDiscoveredUsers().size());
+
+            // Узел пропал из сети без прощального пакета
+            while (!service.getDiscoveredUsers().isEmpty()) {
+                Thread.sleep(10);
+            }
+
+            listener.serviceResolved(idle);
+            assertEquals(1, service.getDiscoveredUsers().size());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testMetricsTrackResolveLatencyAndFailures() throws IOException {
+        userDiscoveryService.startDiscovery();
+        ServiceListener listener = getServiceListener();
+        DiscoveryMetrics metrics = userDiscoveryService.getMetrics();
+
+        ServiceEvent resolvedPeer = resolvedEvent("peer", "peer-host.local.", "192.168.1.20");
+        listener.serviceAdded(resolvedPeer);
+        assertEquals(1, metrics.getPendingResolves());
+        listener.serviceResolved(resolvedPeer);
+
+        // Сервис, пропавший до разрешения, и разрешение без адресов — ошибки
+        ServiceEvent vanished = resolvedEvent("vanished", "vanished.local.", "192.168.1.21");
+        listener.serviceAdded(vanished);
+        listener.serviceRemoved(vanished);
+        ServiceEvent empty = resolvedEvent("empty", "empty.local.", "192.168.1.22");
+        when(empty.getInfo().getInetAddresses()).thenReturn(new java.net.InetAddress[0]);
+        listener.serviceResolved(empty);
+
+        assertEquals(2, metrics.getServicesAdded());
+        assertEquals(2, metrics.getServicesResolved());
+        assertEquals(1, metrics.getServicesRemoved());
+        assertEquals(2, metrics.getResolveFailures());
+        assertEquals(0, metrics.getPendingResolves());
+        assertEquals(1, metrics.getResolveLatency().snapshot().getCount());
+        assertEquals(1, userDiscoveryService.getDiscoveredUsers().size());
+
+        userDiscoveryService.getChangeLog().drain();
+        assertEquals(1, metrics.getUiDelivery().snapshot().getCount());
+    }
+
+    private static ServiceEvent resolvedEvent(String name, String server, String address) throws IOException {
+        ServiceInfo serviceInfo = mock(ServiceInfo.class);
+        when(serviceInfo.getName()).thenReturn(name);
+        when(serviceInfo.getServer()).thenReturn(server);
+        when(serviceInfo.getInetAddresses()).thenReturn(new java.net.InetAddress[]{
+            java.net.InetAddress.getByName(address)});
+        ServiceEvent event = mock(ServiceEvent.class);
+        when(event.getInfo()).thenReturn(serviceInfo);
+        when(event.getName()).thenReturn(name);
+        return event;
+    }
+
     @Test
     @Timeout(value = 5, unit = TimeUnit.SECONDS)
     void testDoubleStartDiscovery() throws IOException {
@@ -0,0 +1,80 @@
+package com.streamapp.network.model;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.network.mdns.MDNSConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerCapabilitiesTest {
+
+    @Test
+    void testPropertiesRoundTrip() {
+        PeerCapabilities capabilities = new PeerCapabilities(PeerCapabilities.codecBit((byte) 1),
+            EnumSet.of(TransportType.TCP, TransportType.UDP), 1920, 1080, 30, 3, 16, 42, 8080, null);
+
+        Map<String, String> properties = capabilities.toProperties();
+        assertEquals("1", properties.get(MDNSConstants.TXT_CODECS));
+        assertEquals("1920x1080", properties.get(MDNSConstants.TXT_MAX_RESOLUTION));
+        assertEquals("3/16", properties.get(MDNSConstants.TXT_VIEWERS));
+        assertFalse(properties.containsKey(MDNSConstants.TXT_ROLE));
+
+        PeerCapabilities parsed = PeerCapabilities.fromProperties(properties::get, 8080);
+        assertEquals(capabilities, parsed);
+        assertTrue(parsed.supportsCodec((byte) 1));
+        assertFalse(parsed.supportsCodec((byte) 2));
+        assertEquals(TransportType.UDP, parsed.preferredTransport());
+    }
+
+    @Test
+    void testMissingOrMalformedPropertiesAreUnknown() {
+        PeerCapabilities legacy = PeerCapabilities.fromProperties(key -> null, 8080);
+        assertEquals(8080, legacy.getSessionPort());
+        assertTrue(legacy.supportsCodec((byte) 1), "Кодеки старого узла неизвестны и не ограничивают выбор");
+        assertTrue(legacy.hasCapacity());
+        assertEquals(TransportType.UDP, legacy.preferredTransport());
+
+        Map<String, String> malformed = Map.of(
+            MDNSConstants.TXT_TRANSPORTS, "tcp,carrier-pigeon",
+            MDNSConstants.TXT_MAX_RESOLUTION, "wide",
+            MDNSConstants.TXT_VIEWERS, "x/y",
+            MDNSConstants.TXT_LOAD, "250");
+        PeerCapabilities parsed = PeerCapabilities.fromProperties(malformed::get, 0);
+        assertEquals(EnumSet.of(TransportType.TCP), parsed.getTransports());
+        assertEquals(TransportType.TCP, parsed.preferredTransport());
+        assertEquals(0, parsed.getMaxWidth());
+        assertEquals(0, parsed.getViewers());
+        assertEquals(100, parsed.getLoad());
+    }
+
+    @Test
+    void testBestFirstPrefersFreeAndLightlyLoadedPeers() {
+        PeerCapabilities full = capabilities(16, 16, 0);
+        PeerCapabilities busy = capabilities(2, 16, 80);
+        PeerCapabilities idle = capabilities(5, 16, 10);
+
+        List<PeerCapabilities> sorted = new java.util.ArrayList<>(List.of(full, busy, idle));
+        sorted.sort(PeerCapabilities.BEST_FIRST);
+
+        assertEquals(List.of(idle, busy, full), sorted);
+        assertFalse(full.hasCapacity());
+    }
+
+    @Test
+    void testRelaySourceIsPublished() {
+        PeerCapabilities relay = new PeerCapabilities(0, EnumSet.allOf(TransportType.class), 0, 0, 0, 0, 64, 0,
+            9000, "alice");
+        Map<String, String> properties = relay.toProperties();
+        assertEquals(MDNSConstants.ROLE_RELAY, properties.get(MDNSConstants.TXT_ROLE));
+        assertEquals("alice", PeerCapabilities.fromProperties(properties::get, 9000).getRelaySource());
+    }
+
+    private static PeerCapabilities capabilities(int viewers, int maxViewers, int load) {
+        return new PeerCapabilities(PeerCapabilities.codecBit((byte) 1), EnumSet.allOf(TransportType.class),
+            1920, 1080, 30, viewers, maxViewers, load, 8080, null);
+    }
+}
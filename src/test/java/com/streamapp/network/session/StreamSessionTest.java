@@ -0,0 +1,369 @@
+package com.streamapp.network.session;
+
+import com.streamapp.network.TransportType;
+import com.streamapp.streaming.StreamHost;
+import com.streamapp.streaming.StreamLatency;
+import com.streamapp.streaming.StreamRequest;
+import com.streamapp.streaming.StreamViewerClient;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.cursor.CursorShape;
+import com.streamapp.streaming.cursor.CursorState;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamSessionTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+
+    private NioReactor reactor;
+    private SessionClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reactor = new NioReactor("test-reactor");
+        reactor.start();
+        client = new SessionClient(reactor, DirectBufferPool.shared());
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactor.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testLargeMessagesAreFramedIntact() throws Exception {
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        SessionServer server = new SessionServer(reactor, DirectBufferPool.shared(), (connection, type, payload) -> {
+            byte[] data = new byte[payload.remaining()];
+            payload.get(data);
+            received.add(data);
+        });
+        server.bind(0);
+
+        SessionConnection connection = client.connect(new InetSocketAddress("127.0.0.1", server.getPort()),
+            (c, type, payload) -> { }).get(5, TimeUnit.SECONDS);
+
+        // Сообщение больше начального буфера чтения и короткое сообщение следом
+        byte[] large = new byte[300_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        connection.send(MessageType.FRAME, large.length, buffer -> buffer.put(large));
+        connection.sendAck(42);
+
+        assertArrayEquals(large, received.poll(5, TimeUnit.SECONDS));
+        assertEquals(42, ByteBuffer.wrap(received.poll(5, TimeUnit.SECONDS)).getLong());
+        server.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testUnsentBuffersReturnToPool() throws Exception {
+        SessionServer server = new SessionServer(reactor, DirectBufferPool.shared(), (connection, type, payload) -> { });
+        server.bind(0);
+        DirectBufferPool pool = new DirectBufferPool(4);
+        SessionConnection connection = new SessionClient(reactor, pool)
+            .connect(new InetSocketAddress("127.0.0.1", server.getPort()), (c, type, payload) -> { })
+            .get(5, TimeUnit.SECONDS);
+
+        // Ошибка записи полезной нагрузки
+        ByteBuffer[] used = new ByteBuffer[1];
+        assertThrows(IllegalStateException.class, () -> connection.send(MessageType.FRAME_ACK, Long.BYTES, buffer -> {
+            used[0] = buffer;
+            throw new IllegalStateException("Сбой записи");
+        }));
+        ByteBuffer reused = pool.acquire(Long.BYTES);
+        assertSame(used[0], reused, "Буфер должен вернуться в пул");
+        pool.release(reused);
+
+        // Соединение закрывается, пока сообщение кодируется
+        connection.send(MessageType.FRAME_ACK, Long.BYTES, buffer -> {
+            used[0] = buffer;
+            reactor.submit(() -> {
+                connection.close();
+                return null;
+            }).join();
+            buffer.putLong(1);
+        });
+        assertFalse(connection.isOpen());
+        assertEquals(0, connection.getQueuedBytes());
+        assertSame(used[0], pool.acquire(Long.BYTES), "Буфер, поставленный после закрытия, должен вернуться в пул");
+        server.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testApprovedViewerReceivesFrames() throws Exception {
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(true));
+        host.start(0);
+
+        CountDownLatch accepted = new CountDownLatch(1);
+        BlockingQueue<EncodedFrame> frames = new LinkedBlockingQueue<>();
+        StreamViewerClient viewer = new StreamViewerClient(client, "viewer", new RecordingListener() {
+            @Override
+            public void onAccepted() {
+                accepted.countDown();
+            }
+
+            @Override
+            public void onFrame(EncodedFrame frame) {
+                frames.add(frame);
+            }
+        });
+        StreamLatency latency = StreamLatency.shared();
+        long[] before = stageCounts(latency);
+        viewer.request(new InetSocketAddress("127.0.0.1", host.getPort())).get(5, TimeUnit.SECONDS);
+
+        assertTrue(accepted.await(5, TimeUnit.SECONDS));
+        EncodedFrame first = frames.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertTrue(first.isKeyframe());
+        assertEquals(WIDTH, first.getWidth());
+        assertNotNull(frames.poll(5, TimeUnit.SECONDS), "Должны приходить разностные кадры");
+        assertTrue(host.isStreaming());
+        // Владелец экрана и зритель в одном процессе: видны этапы обеих сторон
+        long[] after = stageCounts(latency);
+        for (StreamLatency.Stage stage : new StreamLatency.Stage[] {StreamLatency.Stage.CAPTURE,
+                StreamLatency.Stage.DIFF, StreamLatency.Stage.ENCODE, StreamLatency.Stage.SEND_QUEUE,
+                StreamLatency.Stage.RECEIVE}) {
+            assertTrue(after[stage.ordinal()] > before[stage.ordinal()], "Этап " + stage);
+        }
+
+        viewer.stop();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (host.isStreaming() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(host.isStreaming());
+        host.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testViewerReceivesFramesOverUdpFromAnnouncedPort() throws Exception {
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(true));
+        host.start(0);
+
+        BlockingQueue<EncodedFrame> frames = new LinkedBlockingQueue<>();
+        StreamViewerClient viewer = new StreamViewerClient(client, "viewer", TransportType.UDP,
+            new RecordingListener() {
+                @Override
+                public void onFrame(EncodedFrame frame) {
+                    frames.add(frame);
+                }
+            }, false);
+        viewer.request(new InetSocketAddress("127.0.0.1", host.getPort())).get(5, TimeUnit.SECONDS);
+
+        // Кадры продолжают приходить и после того, как зритель закрепил порт отправителя
+        EncodedFrame first = frames.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertTrue(first.isKeyframe());
+        assertNotNull(frames.poll(5, TimeUnit.SECONDS));
+        frames.clear();
+        assertNotNull(frames.poll(5, TimeUnit.SECONDS));
+
+        viewer.stop();
+        host.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testViewersShareOneStream() throws Exception {
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(true));
+        host.start(0);
+
+        List<BlockingQueue<EncodedFrame>> received = new ArrayList<>();
+        List<StreamViewerClient> viewers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            BlockingQueue<EncodedFrame> frames = new LinkedBlockingQueue<>();
+            StreamViewerClient viewer = new StreamViewerClient(client, "viewer-" + i, new RecordingListener() {
+                @Override
+                public void onFrame(EncodedFrame frame) {
+                    frames.add(frame);
+                }
+            });
+            viewer.request(new InetSocketAddress("127.0.0.1", host.getPort())).get(5, TimeUnit.SECONDS);
+            received.add(frames);
+            viewers.add(viewer);
+        }
+        for (BlockingQueue<EncodedFrame> frames : received) {
+            EncodedFrame first = frames.poll(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertTrue(first.isKeyframe(), "Каждый зритель начинает с опорного кадра");
+        }
+        assertEquals(3, host.getViewerCount());
+
+        // Уход одного зрителя не прерывает трансляцию для остальных
+        viewers.get(0).stop();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (host.getViewerCount() > 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, host.getViewerCount());
+        received.get(1).clear();
+        assertNotNull(received.get(1).poll(5, TimeUnit.SECONDS));
+        host.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testCursorIsSentSeparatelyFromFrames() throws Exception {
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(true));
+        AtomicInteger position = new AtomicInteger();
+        host.setCursorSource(() -> new CursorState(position.get(), 10, CursorShape.ARROW));
+        host.start(0);
+
+        BlockingQueue<CursorState> cursors = new LinkedBlockingQueue<>();
+        StreamViewerClient viewer = new StreamViewerClient(client, "viewer", new RecordingListener() {
+            @Override
+            public void onCursor(CursorState state) {
+                cursors.add(state);
+            }
+        });
+        viewer.request(new InetSocketAddress("127.0.0.1", host.getPort())).get(5, TimeUnit.SECONDS);
+
+        CursorState first = cursors.poll(5, TimeUnit.SECONDS);
+        while (first != null && !first.isVisible()) {
+            // Зритель подключился раньше первого опроса указателя
+            first = cursors.poll(5, TimeUnit.SECONDS);
+        }
+        assertNotNull(first);
+        assertEquals(CursorShape.ARROW, first.getShape());
+        // Неподвижный указатель не порождает сообщений, сдвиг доходит без кадра
+        assertNull(cursors.poll(100, TimeUnit.MILLISECONDS));
+        position.set(42);
+        CursorState moved = cursors.poll(5, TimeUnit.SECONDS);
+        assertNotNull(moved);
+        assertEquals(42, moved.getX());
+
+        viewer.stop();
+        host.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testRejectedRequest() throws Exception {
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(false));
+        host.start(0);
+
+        CompletableFuture<String> rejection = new CompletableFuture<>();
+        StreamViewerClient viewer = new StreamViewerClient(client, "viewer", new RecordingListener() {
+            @Override
+            public void onRejected(String reason) {
+                rejection.complete(reason);
+            }
+        });
+        viewer.request(new InetSocketAddress("127.0.0.1", host.getPort())).get(5, TimeUnit.SECONDS);
+
+        assertEquals("Запрос отклонен", rejection.get(5, TimeUnit.SECONDS));
+        assertFalse(host.isStreaming());
+        host.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testRepeatedRequestOnOneConnectionIsRejected() throws Exception {
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(true));
+        host.start(0);
+
+        CountDownLatch accepted = new CountDownLatch(1);
+        CompletableFuture<String> rejection = new CompletableFuture<>();
+        SessionConnection connection = client.connect(new InetSocketAddress("127.0.0.1", host.getPort()),
+            (conn, type, payload) -> {
+                if (type == MessageType.STREAM_ACCEPT) {
+                    accepted.countDown();
+                } else if (type == MessageType.STREAM_REJECT) {
+                    rejection.complete(SessionProtocol.readString(payload));
+                }
+            }).get(5, TimeUnit.SECONDS);
+        StreamRequest request = new StreamRequest("viewer", TransportType.TCP, 0);
+        connection.send(MessageType.STREAM_REQUEST, request.serializedSize(), request::writeTo);
+        assertTrue(accepted.await(5, TimeUnit.SECONDS));
+
+        // Второй запрос по тому же соединению не должен создать второго зрителя
+        connection.send(MessageType.STREAM_REQUEST, request.serializedSize(), request::writeTo);
+        assertNotNull(rejection.get(5, TimeUnit.SECONDS));
+        assertEquals(1, host.getViewerCount());
+        assertTrue(host.isStreaming());
+
+        connection.close();
+        host.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testHeartbeatReachesHostWithoutStreaming() throws Exception {
+        StreamHost host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(false));
+        host.start(0);
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", host.getPort());
+        SessionHeartbeat heartbeat = new SessionHeartbeat(client, 2000);
+
+        // Проверки идут через одно соединение и не создают зрителей
+        heartbeat.ping(address).get(5, TimeUnit.SECONDS);
+        heartbeat.ping(address).get(5, TimeUnit.SECONDS);
+        assertEquals(0, host.getViewerCount());
+
+        host.close();
+        heartbeat.close();
+        assertThrows(Exception.class, () -> heartbeat.ping(address).get(5, TimeUnit.SECONDS));
+    }
+
+    private static long[] stageCounts(StreamLatency latency) {
+        long[] counts = new long[StreamLatency.Stage.values().length];
+        for (StreamLatency.Stage stage : StreamLatency.Stage.values()) {
+            counts[stage.ordinal()] = latency.histogram(stage).snapshot().getCount();
+        }
+        return counts;
+    }
+
+    private static class RecordingListener implements StreamViewerClient.Listener {
+        @Override
+        public void onAccepted() {
+        }
+
+        @Override
+        public void onRejected(String reason) {
+        }
+
+        @Override
+        public void onFrame(EncodedFrame frame) {
+        }
+
+        @Override
+        public void onStopped() {
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.streamapp.network.udp;
+
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UdpFrameTransportTest {
+    private NioReactor reactor;
+    private LossyProxy proxy;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reactor = new NioReactor("udp-test-reactor");
+        reactor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (proxy != null) {
+            proxy.close();
+        }
+        reactor.close();
+    }
+
+    @Test
+    void testSingleLostFragmentRecoveredByParity() {
+        byte[] data = randomBytes(UdpProtocol.MAX_FRAGMENT_PAYLOAD * 3 + 100, 1);
+        FrameAssembly assembly = new FrameAssembly(1, 4, 4, 0);
+        byte[] parity = new byte[UdpProtocol.MAX_FRAGMENT_PAYLOAD];
+        int lengthXor = 0;
+        for (int i = 0; i < 4; i++) {
+            int offset = i * UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+            int length = Math.min(UdpProtocol.MAX_FRAGMENT_PAYLOAD, data.length - offset);
+            for (int j = 0; j < length; j++) {
+                parity[j] ^= data[offset + j];
+            }
+            lengthXor ^= length;
+            // Второй фрагмент теряется
+            if (i != 1) {
+                assembly.addData(i, ByteBuffer.wrap(data, offset, length), length);
+            }
+        }
+        assertFalse(assembly.isComplete());
+
+        assembly.addParity(0, lengthXor, ByteBuffer.wrap(parity), parity.length);
+        assertTrue(assembly.tryRecover(0));
+        assertTrue(assembly.isComplete());
+        assertEquals(ByteBuffer.wrap(data), assembly.assembled());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testFramesDeliveredOverLossyLink() throws Exception {
+        BlockingQueue<EncodedFrame> received = new LinkedBlockingQueue<>();
+        UdpFrameReceiver receiver = new UdpFrameReceiver(reactor, UdpProtocol.DEFAULT_FEC_GROUP_SIZE,
+            InetAddress.getLoopbackAddress(), received::add);
+        int receiverPort = receiver.bind(0);
+
+        // Теряется каждая седьмая датаграмма от отправителя: часть восстановит паритет, остальное NACK
+        AtomicInteger counter = new AtomicInteger();
+        proxy = new LossyProxy(receiverPort, n -> counter.incrementAndGet() % 7 == 0);
+        BlockingQueue<Long> acks = new LinkedBlockingQueue<>();
+        UdpFrameSender sender = new UdpFrameSender(reactor, DirectBufferPool.shared(),
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), proxy.getPort()),
+            UdpProtocol.DEFAULT_FEC_GROUP_SIZE, acks::add, Long.MAX_VALUE);
+
+        EncodedFrame frame = frame(5, 200_000);
+        assertTrue(sender.sendFrame(frame));
+
+        EncodedFrame delivered = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delivered, "Кадр должен быть собран несмотря на потери");
+        assertEquals(5, delivered.getFrameId());
+        assertEquals(frame.payload(), delivered.payload());
+        assertEquals(5L, acks.poll(5, TimeUnit.SECONDS));
+        assertTrue(receiver.getRecoveredFragments() > 0 || sender.getRetransmittedPackets() > 0);
+
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testOlderFrameNotDeliveredAfterNewer() throws Exception {
+        BlockingQueue<EncodedFrame> received = new LinkedBlockingQueue<>();
+        UdpFrameReceiver receiver = new UdpFrameReceiver(reactor, UdpProtocol.DEFAULT_FEC_GROUP_SIZE,
+            InetAddress.getLoopbackAddress(), received::add);
+        int receiverPort = receiver.bind(0);
+        UdpFrameSender sender = new UdpFrameSender(reactor, DirectBufferPool.shared(),
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), receiverPort),
+            UdpProtocol.DEFAULT_FEC_GROUP_SIZE, id -> { }, Long.MAX_VALUE);
+
+        sender.sendFrame(frame(10, 1000));
+        assertEquals(10, received.poll(5, TimeUnit.SECONDS).getFrameId());
+        sender.sendFrame(frame(9, 1000));
+        sender.sendFrame(frame(11, 1000));
+        assertEquals(11, received.poll(5, TimeUnit.SECONDS).getFrameId());
+        assertTrue(received.isEmpty());
+
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    void testAssemblySpanningSeveralBlocks() {
+        int count = 150;
+        byte[] data = randomBytes(UdpProtocol.MAX_FRAGMENT_PAYLOAD * (count - 1) + 77, 3);
+        FrameAssembly assembly = new FrameAssembly(1, count, UdpProtocol.DEFAULT_FEC_GROUP_SIZE, 0);
+        for (int i = count - 1; i >= 0; i--) {
+            int offset = i * UdpProtocol.MAX_FRAGMENT_PAYLOAD;
+            int length = Math.min(UdpProtocol.MAX_FRAGMENT_PAYLOAD, data.length - offset);
+            assembly.addData(i, ByteBuffer.wrap(data, offset, length), length);
+        }
+        assertTrue(assembly.isComplete());
+        assertEquals(ByteBuffer.wrap(data), assembly.assembled());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testForgedDatagramsAreDropped() throws Exception {
+        BlockingQueue<EncodedFrame> received = new LinkedBlockingQueue<>();
+        UdpFrameReceiver receiver = new UdpFrameReceiver(reactor, UdpProtocol.DEFAULT_FEC_GROUP_SIZE,
+            InetAddress.getLoopbackAddress(), received::add);
+        InetSocketAddress receiverAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), receiver.bind(0));
+        UdpFrameSender sender = new UdpFrameSender(reactor, DirectBufferPool.shared(), receiverAddress,
+            UdpProtocol.DEFAULT_FEC_GROUP_SIZE, id -> { }, Long.MAX_VALUE);
+
+        try (DatagramSocket forger = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            // До подтверждения трансляции: адрес верный, но кадр больше любого допустимого
+            forger.send(dataPacket(receiverAddress, 101, UdpProtocol.MAX_FRAGMENTS + 1, new byte[16]));
+            receiver.setMaxFrameSize(4096);
+            forger.send(dataPacket(receiverAddress, 102, UdpProtocol.fragmentCount(4096) + 1, new byte[16]));
+            awaitRejected(receiver, 2);
+
+            // После подтверждения принимается только порт отправителя
+            receiver.expectSender(new InetSocketAddress(InetAddress.getLoopbackAddress(), sender.getLocalPort()));
+            EncodedFrame forged = frame(100, 100);
+            ByteBuffer serialized = ByteBuffer.allocate(forged.serializedSize());
+            forged.writeTo(serialized);
+            forger.send(dataPacket(receiverAddress, 100, 1, serialized.array()));
+            awaitRejected(receiver, 3);
+        }
+
+        assertTrue(sender.sendFrame(frame(5, 1000)));
+        EncodedFrame delivered = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delivered);
+        assertEquals(5, delivered.getFrameId(), "Чужой кадр не должен быть выдан");
+        assertTrue(received.isEmpty());
+
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testBacklogReportedAndFramesRefusedOverLimit() throws Exception {
+        BlockingQueue<EncodedFrame> received = new LinkedBlockingQueue<>();
+        UdpFrameReceiver receiver = new UdpFrameReceiver(reactor, UdpProtocol.DEFAULT_FEC_GROUP_SIZE,
+            InetAddress.getLoopbackAddress(), received::add);
+        int receiverPort = receiver.bind(0);
+        UdpFrameSender sender = new UdpFrameSender(reactor, DirectBufferPool.shared(),
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), receiverPort),
+            UdpProtocol.DEFAULT_FEC_GROUP_SIZE, id -> { }, 50_000);
+        BlockingQueue<Long> written = new LinkedBlockingQueue<>();
+        sender.setQueueLatencyListener((frameId, nanos) -> written.add(frameId));
+
+        // Пока реактор занят, датаграммы копятся в очереди отправки
+        CountDownLatch release = new CountDownLatch(1);
+        reactor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(sender.sendFrame(frame(1, 30_000)));
+        assertTrue(sender.getQueuedBytes() >= 30_000);
+        assertTrue(sender.sendFrame(frame(2, 30_000)));
+        assertFalse(sender.sendFrame(frame(3, 30_000)), "Кадр сверх предела очереди не должен приниматься");
+
+        release.countDown();
+        assertEquals(1L, written.poll(5, TimeUnit.SECONDS));
+        assertEquals(2L, written.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, received.poll(5, TimeUnit.SECONDS).getFrameId());
+        assertEquals(2, received.poll(5, TimeUnit.SECONDS).getFrameId());
+        assertEquals(0, sender.getQueuedBytes());
+        assertTrue(sender.sendFrame(frame(4, 30_000)));
+
+        sender.close();
+        receiver.close();
+    }
+
+    private static void awaitRejected(UdpFrameReceiver receiver, long expected) throws InterruptedException {
+        while (receiver.getRejectedDatagrams() < expected) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static DatagramPacket dataPacket(InetSocketAddress target, long frameId, int count, byte[] data) {
+        ByteBuffer datagram = ByteBuffer.allocate(UdpProtocol.DATA_HEADER_SIZE + data.length);
+        datagram.put(UdpProtocol.TYPE_DATA).putLong(frameId).putShort((short) 0).putShort((short) count)
+            .putShort((short) data.length).put(data);
+        return new DatagramPacket(datagram.array(), datagram.position(), target);
+    }
+
+    private static EncodedFrame frame(long frameId, int payloadSize) {
+        return new EncodedFrame(frameId, System.nanoTime(), 1920, 1080, 64, (byte) 1, false, 0, 1,
+            ByteBuffer.wrap(randomBytes(payloadSize, frameId)));
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Пересылает датаграммы между отправителем и получателем, теряя часть пакетов
+     * в сторону получателя.
+     */
+    private static final class LossyProxy implements AutoCloseable {
+        private final DatagramSocket socket;
+        private final Thread thread;
+        private final InetSocketAddress target;
+        private volatile SocketAddress senderAddress;
+
+        LossyProxy(int targetPort, IntPredicate drop) throws IOException {
+            this.socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            this.target = new InetSocketAddress(InetAddress.getLoopbackAddress(), targetPort);
+            this.thread = new Thread(() -> {
+                byte[] buffer = new byte[UdpProtocol.MAX_DATAGRAM_SIZE];
+                while (!socket.isClosed()) {
+                    try {
+                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                        socket.receive(packet);
+                        if (packet.getSocketAddress().equals(target)) {
+                            packet.setSocketAddress(senderAddress);
+                        } else {
+                            senderAddress = packet.getSocketAddress();
+                            if (drop.test(packet.getLength())) {
+                                continue;
+                            }
+                            packet.setSocketAddress(target);
+                        }
+                        socket.send(packet);
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }, "lossy-proxy");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+        }
+    }
+}
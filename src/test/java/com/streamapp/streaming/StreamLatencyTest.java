@@ -0,0 +1,64 @@
+package com.streamapp.streaming;
+
+import com.streamapp.util.FlightRecording;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamLatencyTest {
+
+    @Test
+    void testStagesAreExportedInPipelineOrder() {
+        StreamLatency latency = new StreamLatency();
+        for (int i = 1; i <= 100; i++) {
+            latency.record(StreamLatency.Stage.DECODE, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        latency.record(StreamLatency.Stage.NETWORK, TimeUnit.MILLISECONDS.toNanos(3));
+
+        Map<String, Double> p50 = latency.getP50Millis();
+        Map<String, Double> p99 = latency.getP99Millis();
+        assertEquals(StreamLatency.Stage.values().length, p50.size());
+        assertEquals("CAPTURE", p50.keySet().iterator().next());
+        // Ошибка корзины не больше 1/16 значения
+        assertEquals(50, p50.get("DECODE"), 50 / 16.0);
+        assertEquals(99, p99.get("DECODE"), 99 / 16.0);
+        assertEquals(3, p99.get("NETWORK"), 3 / 16.0);
+        assertEquals(0.0, p50.get("PRESENT"));
+        assertEquals(100L, latency.getSamples().get("DECODE"));
+    }
+
+    @Test
+    void testStagesAreRecordedAsFlightRecorderEvents(@TempDir Path directory) throws Exception {
+        StreamLatency latency = new StreamLatency();
+        Path file = directory.resolve("stages.jfr");
+        try (Recording recording = new Recording(FlightRecording.profile())) {
+            recording.start();
+            latency.record(StreamLatency.Stage.ENCODE, 42, TimeUnit.MILLISECONDS.toNanos(7));
+            latency.record(StreamLatency.Stage.NETWORK, TimeUnit.MILLISECONDS.toNanos(2));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().equals("com.streamapp.FrameStage"))
+            .toList();
+        RecordedEvent encode = events.stream()
+            .filter(event -> event.getString("stage").equals("ENCODE"))
+            .findFirst()
+            .orElseThrow();
+        assertEquals(42, encode.getLong("frameId"));
+        assertEquals(Duration.ofMillis(7), encode.getDuration("latency"));
+        assertTrue(events.stream().anyMatch(event -> event.getString("stage").equals("NETWORK")
+            && event.getLong("frameId") == StreamLatency.NO_FRAME));
+    }
+}
@@ -0,0 +1,103 @@
+package com.streamapp.streaming;
+
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.network.session.SessionConnection;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamResumeTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+
+    private NioReactor reactor;
+    private SessionClient client;
+    private StreamHost host;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reactor = new NioReactor("test-reactor");
+        reactor.start();
+        client = new SessionClient(reactor, DirectBufferPool.shared());
+        AtomicInteger approvals = new AtomicInteger();
+        host = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(approvals.incrementAndGet() == 1));
+        host.start(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        host.close();
+        reactor.close();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testViewerResumesAfterConnectionDrop() throws Exception {
+        CountDownLatch accepted = new CountDownLatch(1);
+        CountDownLatch resumed = new CountDownLatch(1);
+        BlockingQueue<EncodedFrame> frames = new LinkedBlockingQueue<>();
+        StreamViewerClient viewer = new StreamViewerClient(client, "viewer", new StreamViewerClient.Listener() {
+            @Override
+            public void onAccepted() {
+                accepted.countDown();
+            }
+
+            @Override
+            public void onRejected(String reason) {
+            }
+
+            @Override
+            public void onFrame(EncodedFrame frame) {
+                frames.add(frame);
+            }
+
+            @Override
+            public void onStopped() {
+            }
+
+            @Override
+            public void onResumed() {
+                resumed.countDown();
+            }
+        });
+        viewer.request(new InetSocketAddress("127.0.0.1", host.getPort())).get(5, TimeUnit.SECONDS);
+        assertTrue(accepted.await(5, TimeUnit.SECONDS));
+        assertTrue(frames.poll(5, TimeUnit.SECONDS).isKeyframe());
+        assertNotNull(frames.poll(5, TimeUnit.SECONDS));
+
+        SessionConnection dropped = viewer.getConnection();
+        long droppedAt = System.nanoTime();
+        dropped.close();
+
+        // Повторное подтверждение не требуется: второй запрос одобрения был бы отклонен
+        assertTrue(resumed.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - droppedAt < TimeUnit.MILLISECONDS.toNanos(500),
+            "Трансляция должна возобновляться быстрее 500 мс");
+        assertNotSame(dropped, viewer.getConnection());
+        assertTrue(host.isStreaming());
+
+        frames.clear();
+        EncodedFrame next = frames.poll(5, TimeUnit.SECONDS);
+        assertNotNull(next, "После возобновления должны приходить кадры");
+        assertFalse(next.isKeyframe(), "Возобновление не должно требовать опорного кадра");
+        viewer.stop();
+    }
+}
@@ -0,0 +1,91 @@
+package com.streamapp.streaming.capture;
+
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.DeltaDecoder;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.streaming.encode.TileGrid;
+import com.streamapp.streaming.encode.TileQuality;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarkerFrameSourceTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 200;
+
+    private FrameRing ring;
+    private DeltaEncoder encoder;
+    private DeltaDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        ring = new FrameRing(1, WIDTH, HEIGHT);
+        encoder = new DeltaEncoder(new TileGrid(WIDTH, HEIGHT, 64), new DeflateTileCodec(), 100, 5);
+        decoder = new DeltaDecoder();
+    }
+
+    @AfterEach
+    void tearDown() {
+        encoder.close();
+        decoder.close();
+    }
+
+    @Test
+    void testMarkerIsReadFromCapturedPixels() {
+        MarkerFrameSource source = new MarkerFrameSource(WIDTH, HEIGHT);
+        source.setPhase(7, MarkerFrameSource.Workload.TYPING);
+        long before = System.nanoTime();
+        Frame frame = ring.acquire();
+        source.capture(frame);
+
+        MarkerFrameSource.Marker marker = MarkerFrameSource.read(IntBuffer.wrap(frame.getPixels()), WIDTH);
+        assertNotNull(marker);
+        assertEquals(0, marker.getSequence());
+        assertEquals(7, marker.getPhase());
+        assertTrue(marker.getCaptureTimeNanos() - before >= 0);
+        frame.release();
+    }
+
+    @Test
+    void testMarkerSurvivesLossyEncoding() {
+        encoder.setQuality(new TileQuality(TileQuality.MAX_QUANTIZATION_BITS, TileQuality.MAX_SCALE_SHIFT));
+        MarkerFrameSource source = new MarkerFrameSource(WIDTH, HEIGHT);
+        int[] decoded = new int[WIDTH * HEIGHT];
+        int phase = 0;
+        for (MarkerFrameSource.Workload workload : MarkerFrameSource.Workload.values()) {
+            source.setPhase(phase, workload);
+            for (int i = 0; i < 3; i++) {
+                Frame frame = ring.acquire();
+                source.capture(frame);
+                frame.stamp(phase * 3L + i, System.nanoTime());
+                decoder.decode(encoder.encode(frame), decoded);
+                frame.release();
+
+                MarkerFrameSource.Marker marker = MarkerFrameSource.read(IntBuffer.wrap(decoded), WIDTH);
+                assertNotNull(marker, "Метка кадра " + workload + " #" + i);
+                assertEquals(phase * 3L + i, marker.getSequence());
+                assertEquals(phase, marker.getPhase());
+            }
+            phase++;
+        }
+    }
+
+    @Test
+    void testDamagedMarkerIsRejected() {
+        MarkerFrameSource source = new MarkerFrameSource(WIDTH, HEIGHT);
+        Frame frame = ring.acquire();
+        source.capture(frame);
+        // Переворачиваем одну клетку строки времени
+        int[] pixels = frame.getPixels();
+        int cell = (MarkerFrameSource.CELL_SIZE + MarkerFrameSource.CELL_SIZE / 2) * WIDTH + MarkerFrameSource.CELL_SIZE / 2;
+        pixels[cell] = ~pixels[cell];
+
+        assertNull(MarkerFrameSource.read(IntBuffer.wrap(pixels), WIDTH));
+        assertNull(MarkerFrameSource.read(IntBuffer.wrap(new int[WIDTH * HEIGHT]), WIDTH), "Черный кадр без метки");
+        frame.release();
+    }
+}
@@ -0,0 +1,94 @@
+package com.streamapp.streaming.capture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScreenCaptureServiceTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    @Test
+    void testRingReusesBuffers() {
+        FrameRing ring = new FrameRing(2, WIDTH, HEIGHT);
+        Frame first = ring.acquire();
+        Frame second = ring.acquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        // Все буферы заняты
+        assertNull(ring.acquire());
+
+        first.release();
+        assertSame(first, ring.acquire());
+    }
+
+    @Test
+    void testDoubleReleaseRejected() {
+        FrameRing ring = new FrameRing(1, WIDTH, HEIGHT);
+        Frame frame = ring.acquire();
+        frame.release();
+        assertThrows(IllegalStateException.class, frame::release);
+    }
+
+    @Test
+    void testDoubleReleaseRejectedWhenRingIsNotFull() {
+        FrameRing ring = new FrameRing(3, WIDTH, HEIGHT);
+        Frame first = ring.acquire();
+        Frame second = ring.acquire();
+        first.release();
+        // В очереди есть место, но буфер уже свободен
+        assertThrows(IllegalStateException.class, first::release);
+        assertEquals(2, ring.available());
+
+        second.release();
+        assertEquals(3, ring.available());
+        assertThrows(IllegalStateException.class, () -> new FrameRing(3, WIDTH, HEIGHT).release(second));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testCaptureCyclesThroughFixedBuffers() throws InterruptedException {
+        FrameRing ring = new FrameRing(3, WIDTH, HEIGHT);
+        Set<int[]> seenBuffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        CountDownLatch latch = new CountDownLatch(10);
+
+        ScreenCaptureService service = new ScreenCaptureService(
+            new TestPatternFrameSource(WIDTH, HEIGHT), ring, 120, frame -> {
+                seenBuffers.add(frame.getPixels());
+                frame.release();
+                latch.countDown();
+            });
+        service.start();
+        assertTrue(latch.await(4, TimeUnit.SECONDS), "Должно быть захвачено 10 кадров");
+        service.stop();
+
+        // Новые буферы не выделяются: используются только буферы кольца
+        assertTrue(seenBuffers.size() <= 3);
+        assertEquals(3, ring.available());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testTickSkippedWhenConsumerHoldsAllBuffers() throws InterruptedException {
+        FrameRing ring = new FrameRing(1, WIDTH, HEIGHT);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        // Потребитель не возвращает буфер, поэтому следующие тики пропускаются
+        ScreenCaptureService service = new ScreenCaptureService(
+            new TestPatternFrameSource(WIDTH, HEIGHT), ring, 120, frame -> latch.countDown());
+        service.start();
+        assertTrue(latch.await(4, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        service.stop();
+
+        assertEquals(1, service.getCapturedFrames());
+        assertTrue(service.getDroppedFrames() > 0);
+    }
+}
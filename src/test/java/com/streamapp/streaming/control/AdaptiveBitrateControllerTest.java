@@ -0,0 +1,140 @@
+package com.streamapp.streaming.control;
+
+import com.streamapp.streaming.encode.TileQuality;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBitrateControllerTest {
+    private final List<QualityLevel> levels = new ArrayList<>();
+    private final List<StreamQuality> qualities = new ArrayList<>();
+    private AdaptiveBitrateController controller;
+    private SessionStats stats;
+    private long nextFrameId;
+
+    @BeforeEach
+    void setUp() {
+        controller = new AdaptiveBitrateController(AdaptiveBitrateConfig.defaults().withMaxFps(30),
+            levels::add, qualities::add);
+        stats = new SessionStats();
+        stats.recordRtt(TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    @Test
+    void testStartsAtBestLevel() {
+        QualityLevel level = controller.getLevel();
+        assertEquals(30, level.getFps());
+        assertEquals(TileQuality.LOSSLESS, level.getTileQuality());
+        assertEquals(StreamQuality.GOOD, controller.getQuality());
+    }
+
+    @Test
+    void testStepsDownWhenSendQueueGrows() {
+        QualityLevel level = controller.evaluate(stats, 64L * 1024 * 1024);
+        assertEquals(controller.getLadder().get(1), level);
+        assertEquals(List.of(level), levels);
+        assertEquals(List.of(StreamQuality.FAIR), qualities);
+    }
+
+    @Test
+    void testStepsDownWhenRttGrowsOverBaseline() {
+        for (int i = 0; i < 20; i++) {
+            stats.recordRtt(TimeUnit.MILLISECONDS.toNanos(400));
+        }
+        controller.evaluate(stats, 0);
+        controller.evaluate(stats, 0);
+        assertEquals(controller.getLadder().get(2), controller.getLevel());
+    }
+
+    @Test
+    void testRecoversWhenBaseRttStepsUp() {
+        SessionStats routed = new SessionStats();
+        long second = TimeUnit.SECONDS.toNanos(1);
+        routed.recordRtt(TimeUnit.MILLISECONDS.toNanos(2), 0);
+        // Маршрут сменился: задержка пустого канала выросла до 200 мс и больше не меняется
+        long now = 0;
+        for (int i = 0; i < 3; i++) {
+            now += second;
+            routed.recordRtt(TimeUnit.MILLISECONDS.toNanos(200), now);
+            controller.evaluate(routed, 0);
+        }
+        assertTrue(controller.getLadder().indexOf(controller.getLevel()) > 0,
+            "Пока старый минимум в окне, прибавка похожа на очередь");
+
+        for (int i = 0; i < 40; i++) {
+            now += second;
+            routed.recordRtt(TimeUnit.MILLISECONDS.toNanos(200), now);
+            controller.evaluate(routed, 0);
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), routed.getMinRttNanos());
+        assertEquals(controller.getLadder().get(0), controller.getLevel());
+        assertEquals(StreamQuality.GOOD, controller.getQuality());
+    }
+
+    @Test
+    void testStepsDownWhenDeliveryFallsBehind() {
+        sendFrames(100, 10_000, false);
+        controller.evaluate(stats, 0);
+        assertEquals(controller.getLadder().get(1), controller.getLevel());
+    }
+
+    @Test
+    void testReachesLowestLevelAndReportsPoorQuality() {
+        int steps = controller.getLadder().size();
+        for (int i = 0; i < steps + 2; i++) {
+            controller.evaluate(stats, Long.MAX_VALUE);
+        }
+        QualityLevel lowest = controller.getLevel();
+        assertEquals(controller.getLadder().get(steps - 1), lowest);
+        assertEquals(5, lowest.getFps());
+        assertEquals(StreamQuality.POOR, controller.getQuality());
+    }
+
+    @Test
+    void testRecoversOnlyAfterSustainedGoodSamples() {
+        controller.evaluate(stats, Long.MAX_VALUE);
+        controller.evaluate(stats, Long.MAX_VALUE);
+        assertEquals(controller.getLadder().get(2), controller.getLevel());
+
+        for (int i = 0; i < AdaptiveBitrateController.UPGRADE_AFTER_GOOD_SAMPLES - 1; i++) {
+            sendFrames(10, 10_000, true);
+            controller.evaluate(stats, 0);
+            assertEquals(controller.getLadder().get(2), controller.getLevel());
+        }
+        sendFrames(10, 10_000, true);
+        controller.evaluate(stats, 0);
+        assertEquals(controller.getLadder().get(1), controller.getLevel());
+
+        for (int i = 0; i < AdaptiveBitrateController.UPGRADE_AFTER_GOOD_SAMPLES; i++) {
+            controller.evaluate(stats, 0);
+        }
+        assertEquals(controller.getLadder().get(0), controller.getLevel());
+        assertEquals(StreamQuality.GOOD, controller.getQuality());
+    }
+
+    @Test
+    void testLadderRespectsConfiguredBounds() {
+        AdaptiveBitrateController bounded = new AdaptiveBitrateController(
+            new AdaptiveBitrateConfig(10, 15, 2, 0, 50, 1024, 500), level -> { }, quality -> { });
+        for (QualityLevel level : bounded.getLadder()) {
+            assertTrue(level.getFps() >= 10 && level.getFps() <= 15);
+            assertTrue(level.getTileQuality().getQuantizationBits() <= 2);
+            assertEquals(0, level.getTileQuality().getScaleShift());
+        }
+    }
+
+    private void sendFrames(int count, int size, boolean acknowledged) {
+        for (int i = 0; i < count; i++) {
+            long frameId = nextFrameId++;
+            stats.recordSent(frameId, size);
+            if (acknowledged) {
+                stats.recordAck(frameId);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.streamapp.streaming.cursor;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorShapeTest {
+
+    @Test
+    void testShapeRoundTrip() {
+        CursorShape shape = CursorShape.ARROW;
+        ByteBuffer buffer = ByteBuffer.allocate(shape.serializedSize());
+        shape.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        CursorShape read = CursorShape.readFrom(buffer);
+        assertEquals(shape, read);
+        assertEquals(shape.getHash(), read.getHash());
+    }
+
+    @Test
+    void testHashDependsOnHotspot() {
+        int[] pixels = new int[4 * 4];
+        CursorShape corner = new CursorShape(4, 4, 0, 0, pixels);
+        CursorShape center = new CursorShape(4, 4, 2, 2, pixels);
+        assertNotEquals(corner.getHash(), center.getHash());
+        assertNotEquals(0, corner.getHash());
+    }
+
+    @Test
+    void testPositionRefersToShapeByHash() {
+        CursorState state = new CursorState(-3, 700, CursorShape.ARROW);
+        ByteBuffer buffer = ByteBuffer.allocate(CursorState.POSITION_SIZE);
+        state.writePosition(buffer);
+        buffer.flip();
+
+        Map<Long, CursorShape> shapes = new HashMap<>();
+        assertNull(CursorState.readPosition(buffer.duplicate(), shapes), "Изображение еще не получено");
+        shapes.put(CursorShape.ARROW.getHash(), CursorShape.ARROW);
+        CursorState read = CursorState.readPosition(buffer, shapes);
+        assertTrue(read.sameAs(state));
+        assertEquals(-3, read.getX());
+
+        ByteBuffer hidden = ByteBuffer.allocate(CursorState.POSITION_SIZE);
+        CursorState.HIDDEN.writePosition(hidden);
+        hidden.flip();
+        assertFalse(CursorState.readPosition(hidden, shapes).isVisible());
+    }
+}
@@ -0,0 +1,394 @@
+package com.streamapp.streaming.encode;
+
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameRing;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaEncoderTest {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 130;
+    private static final int TILE_SIZE = 32;
+
+    private FrameRing ring;
+    private DeltaEncoder encoder;
+    private DeltaDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        ring = new FrameRing(1, WIDTH, HEIGHT);
+        encoder = new DeltaEncoder(new TileGrid(WIDTH, HEIGHT, TILE_SIZE), new DeflateTileCodec(), 100, 5);
+        decoder = new DeltaDecoder();
+    }
+
+    @AfterEach
+    void tearDown() {
+        encoder.close();
+        decoder.close();
+    }
+
+    @Test
+    void testFirstFrameIsKeyframeWithAllTiles() {
+        Frame frame = capture(0, new TestPatternFrameSource(WIDTH, HEIGHT));
+        EncodedFrame encoded = encoder.encode(frame);
+
+        assertTrue(encoded.isKeyframe());
+        assertEquals(encoder.getGrid().getTileCount(), encoded.getTileCount());
+        frame.release();
+    }
+
+    @Test
+    void testRoundTripRestoresPixels() {
+        Frame frame = capture(0, new TestPatternFrameSource(WIDTH, HEIGHT));
+        int[] decoded = new int[WIDTH * HEIGHT];
+        DirtyRegion dirty = decoder.decode(encoder.encode(frame), decoded);
+
+        for (int i = 0; i < decoded.length; i++) {
+            assertEquals(frame.getPixels()[i] & 0xFFFFFF, decoded[i] & 0xFFFFFF, "Пиксель " + i);
+        }
+        assertEquals(WIDTH, dirty.getWidth());
+        assertEquals(HEIGHT, dirty.getHeight());
+        frame.release();
+    }
+
+    @Test
+    void testUpdateTimeIsSplitBetweenDiffAndEncode() {
+        TestPatternFrameSource source = new TestPatternFrameSource(WIDTH, HEIGHT);
+        Frame frame = capture(0, source);
+        encoder.encode(frame);
+        frame.release();
+
+        assertTrue(encoder.getLastDiffNanos() > 0);
+        assertTrue(encoder.getLastEncodeNanos() > 0, "Первый кадр кодирует все плитки");
+    }
+
+    @Test
+    void testParallelEncodingMatchesSequential() {
+        try (TileEncoderPool pool = new TileEncoderPool(4, DeflateTileCodec::new)) {
+            DeltaEncoder parallel = new DeltaEncoder(new TileGrid(WIDTH, HEIGHT, TILE_SIZE), pool, 100, 5);
+            TestPatternFrameSource source = new TestPatternFrameSource(WIDTH, HEIGHT);
+            for (long frameId = 0; frameId < 4; frameId++) {
+                Frame frame = capture(frameId, source);
+                EncodedFrame expected = encoder.encode(frame);
+                EncodedFrame actual = parallel.encode(frame);
+                frame.release();
+
+                assertEquals(expected.isKeyframe(), actual.isKeyframe());
+                assertEquals(expected.getTileCount(), actual.getTileCount());
+                assertEquals(expected.payload(), actual.payload(), "Кадр " + frameId);
+                encoder.acknowledge(frameId);
+                parallel.acknowledge(frameId);
+            }
+            parallel.close();
+        }
+    }
+
+    @Test
+    void testTilesEncodedOnlyByPoolThreads() {
+        try (TileEncoderPool pool = new TileEncoderPool(2, DeflateTileCodec::new)) {
+            assertThrows(IllegalStateException.class, pool::codec, "У вызывающего потока нет своего кодека");
+            ForkJoinTask<TileCodec> inside = ForkJoinTask.adapt(pool::codec);
+            pool.invoke(inside);
+            assertNotNull(inside.join());
+
+            // Участок, выполненный вызывающим потоком, завершился бы исключением
+            DeltaEncoder parallel = new DeltaEncoder(new TileGrid(WIDTH, HEIGHT, TILE_SIZE), pool, 100, 5);
+            TestPatternFrameSource source = new TestPatternFrameSource(WIDTH, HEIGHT);
+            for (long frameId = 0; frameId < 8; frameId++) {
+                Frame frame = capture(frameId, source);
+                assertTrue(parallel.encode(frame).getTileCount() > 0 || frameId > 0);
+                frame.release();
+                parallel.acknowledge(frameId);
+            }
+            parallel.close();
+        }
+    }
+
+    @Test
+    void testDecodesIntoDirectBuffer() {
+        Frame frame = capture(0, new TestPatternFrameSource(WIDTH, HEIGHT));
+        encoder.setQuality(new TileQuality(0, 1));
+        encoder.requestKeyframe();
+        EncodedFrame encoded = encoder.encode(frame);
+        int[] expected = new int[WIDTH * HEIGHT];
+        decoder.decode(encoded, expected);
+
+        IntBuffer direct = ByteBuffer.allocateDirect(WIDTH * HEIGHT * Integer.BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asIntBuffer();
+        DeltaDecoder directDecoder = new DeltaDecoder();
+        directDecoder.decode(encoded, direct);
+        directDecoder.close();
+
+        assertEquals(0, direct.position());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], direct.get(i), "Пиксель " + i);
+        }
+        frame.release();
+    }
+
+    @Test
+    void testReducedQualityApproximatesPixelsWithSmallerPayload() {
+        Frame frame = ring.acquire();
+        int[] pixels = frame.getPixels();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                pixels[y * WIDTH + x] = (x & 0xFF) << 16 | (y & 0xFF) << 8 | ((x + y) / 2 & 0xFF);
+            }
+        }
+        frame.stamp(0, 0);
+        int losslessSize = encoder.encode(frame).payload().remaining();
+
+        encoder.setQuality(new TileQuality(3, 1));
+        frame.stamp(1, 0);
+        encoder.requestKeyframe();
+        EncodedFrame reduced = encoder.encode(frame);
+        assertEquals(1, reduced.getScaleShift());
+        assertTrue(reduced.payload().remaining() < losslessSize);
+
+        int[] decoded = new int[WIDTH * HEIGHT];
+        decoder.decode(reduced, decoded);
+        for (int i = 0; i < decoded.length; i++) {
+            for (int shift = 0; shift < 24; shift += 8) {
+                int expected = (pixels[i] >> shift) & 0xFF;
+                int actual = (decoded[i] >> shift) & 0xFF;
+                assertTrue(Math.abs(expected - actual) <= 8, "Пиксель " + i);
+            }
+        }
+        frame.release();
+    }
+
+    @Test
+    void testOnlyChangedTilesAreEncoded() {
+        Frame frame = ring.acquire();
+        frame.stamp(0, 0);
+        encoder.encode(frame);
+        encoder.acknowledge(0);
+
+        // Меняем один пиксель во второй плитке
+        frame.getPixels()[TILE_SIZE + 1] = 0x123456;
+        frame.stamp(1, 0);
+        EncodedFrame delta = encoder.encode(frame);
+        assertFalse(delta.isKeyframe());
+        assertEquals(1, delta.getTileCount());
+        assertEquals(1, delta.payload().getShort());
+
+        // Без изменений плиток нет
+        frame.stamp(2, 0);
+        assertTrue(encoder.encode(frame).isEmpty());
+        frame.release();
+    }
+
+    @Test
+    void testUnacknowledgedTilesAreResent() {
+        Frame frame = ring.acquire();
+        frame.stamp(0, 0);
+        encoder.encode(frame);
+
+        frame.stamp(3, 0);
+        assertTrue(encoder.encode(frame).isEmpty());
+
+        // Кадр 0 так и не подтвержден: через 5 кадров плитки уходят повторно
+        frame.stamp(5, 0);
+        assertEquals(encoder.getGrid().getTileCount(), encoder.encode(frame).getTileCount());
+
+        encoder.acknowledge(5);
+        frame.stamp(20, 0);
+        assertTrue(encoder.encode(frame).isEmpty());
+        frame.release();
+    }
+
+    @Test
+    void testDiscardedFrameTilesAreReencoded() {
+        Frame frame = ring.acquire();
+        frame.stamp(0, 0);
+        encoder.encode(frame);
+        encoder.acknowledge(0);
+
+        frame.getPixels()[0] = 0x654321;
+        frame.stamp(1, 0);
+        assertEquals(1, encoder.encode(frame).getTileCount());
+        encoder.discard(1);
+
+        // Кадр 1 не ушел в сеть: плитка снова попадает в следующий кадр,
+        // а подтверждение следующего кадра не засчитывает потерянный
+        frame.stamp(2, 0);
+        assertEquals(1, encoder.encode(frame).getTileCount());
+        encoder.acknowledge(2);
+        frame.stamp(40, 0);
+        assertTrue(encoder.encode(frame).isEmpty());
+        frame.release();
+    }
+
+    @Test
+    void testResendUnacknowledgedSkipsAcknowledgedTiles() {
+        Frame frame = ring.acquire();
+        frame.stamp(0, 0);
+        encoder.encode(frame);
+        encoder.acknowledge(0);
+
+        frame.getPixels()[0] = 0x102030;
+        frame.stamp(1, 0);
+        assertEquals(1, encoder.encode(frame).getTileCount());
+
+        // Кадр 1 ушел, но подтверждение потеряно вместе с соединением
+        encoder.resendUnacknowledged();
+        frame.stamp(2, 0);
+        EncodedFrame resumed = encoder.encode(frame);
+        assertFalse(resumed.isKeyframe());
+        assertEquals(1, resumed.getTileCount());
+        assertEquals(0, resumed.payload().getShort());
+        frame.release();
+    }
+
+    @Test
+    void testReceiversShareEncodingWithIndependentState() {
+        DeltaEncoder.Receiver fast = encoder.newReceiver();
+        DeltaEncoder.Receiver slow = encoder.newReceiver();
+        Frame frame = ring.acquire();
+        frame.stamp(0, 0);
+        encoder.update(frame);
+        int tiles = encoder.getGrid().getTileCount();
+        assertEquals(tiles, fast.assemble().getTileCount());
+        assertEquals(tiles, slow.assemble().getTileCount());
+        fast.acknowledge(0);
+        slow.acknowledge(0);
+
+        // Медленный получатель пропускает кадр 1: изменения доходят до него в кадре 2
+        frame.getPixels()[0] = 0x010203;
+        frame.stamp(1, 0);
+        encoder.update(frame);
+        assertEquals(1, fast.assemble().getTileCount());
+        fast.acknowledge(1);
+
+        frame.getPixels()[TILE_SIZE] = 0x040506;
+        frame.stamp(2, 0);
+        encoder.update(frame);
+        EncodedFrame fastFrame = fast.assemble();
+        EncodedFrame slowFrame = slow.assemble();
+        assertEquals(1, fastFrame.getTileCount());
+        assertEquals(1, fastFrame.payload().getShort());
+        assertEquals(2, slowFrame.getTileCount());
+        assertFalse(slowFrame.isKeyframe());
+
+        // Потеря кадра у одного получателя не затрагивает другого
+        slow.discard(2);
+        fast.acknowledge(2);
+        frame.stamp(3, 0);
+        encoder.update(frame);
+        assertTrue(fast.assemble().isEmpty());
+        assertEquals(2, slow.assemble().getTileCount());
+        frame.release();
+    }
+
+    @Test
+    void testSlowReceiverGetsTilesInItsOwnQuality() {
+        DeltaEncoder.Receiver fast = encoder.newReceiver();
+        DeltaEncoder.Receiver slow = encoder.newReceiver();
+        slow.setQuality(new TileQuality(4, 1));
+        Frame frame = capture(0, new TestPatternFrameSource(WIDTH, HEIGHT));
+        encoder.update(frame);
+        int tiles = encoder.getGrid().getTileCount();
+        EncodedFrame fastFrame = fast.assemble();
+        EncodedFrame slowFrame = slow.assemble();
+        assertEquals(tiles, fastFrame.getTileCount());
+        assertEquals(tiles, slowFrame.getTileCount());
+        assertEquals(0, fastFrame.getScaleShift());
+        assertEquals(1, slowFrame.getScaleShift());
+        assertTrue(slowFrame.payload().remaining() < fastFrame.payload().remaining() / 2,
+            "Медленный получатель должен получать меньше байт");
+
+        int[] decoded = new int[WIDTH * HEIGHT];
+        decoder.decode(fastFrame, decoded);
+        int[] pixels = frame.getPixels();
+        for (int i = 0; i < decoded.length; i++) {
+            assertEquals(pixels[i] & 0xFFFFFF, decoded[i] & 0xFFFFFF, "Пиксель " + i);
+        }
+
+        // Повышение качества медленного получателя заменяет его плитки опорным кадром
+        slow.setQuality(TileQuality.LOSSLESS);
+        frame.stamp(1, 0);
+        encoder.update(frame);
+        assertTrue(fast.assemble().isEmpty());
+        EncodedFrame upgraded = slow.assemble();
+        assertTrue(upgraded.isKeyframe());
+        assertEquals(0, upgraded.getScaleShift());
+        frame.release();
+    }
+
+    @Test
+    void testReceiverReusesPayloadBuffer() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        DeltaEncoder.Receiver receiver = encoder.newReceiver();
+        Frame frame = capture(0, new TestPatternFrameSource(WIDTH, HEIGHT));
+        int size = 0;
+        long allocated = 0;
+        for (int i = 0; i < 20; i++) {
+            receiver.requestKeyframe();
+            frame.stamp(i, 0);
+            encoder.update(frame);
+            long before = allocation.getCurrentThreadAllocatedBytes();
+            EncodedFrame keyframe = receiver.assemble();
+            long after = allocation.getCurrentThreadAllocatedBytes();
+            size = keyframe.payload().remaining();
+            if (i > 0) {
+                allocated += after - before;
+            }
+        }
+        // Кроме первого кадра, выделяются только объекты кадра, но не полезная нагрузка
+        assertTrue(allocated / 19 < size / 4, "Выделено " + allocated / 19 + " байт на кадр из " + size);
+        frame.release();
+    }
+
+    @Test
+    void testRequestedKeyframe() {
+        Frame frame = ring.acquire();
+        frame.stamp(0, 0);
+        encoder.encode(frame);
+        encoder.acknowledge(0);
+
+        encoder.requestKeyframe();
+        frame.stamp(1, 0);
+        EncodedFrame encoded = encoder.encode(frame);
+        assertTrue(encoded.isKeyframe());
+        assertEquals(encoder.getGrid().getTileCount(), encoded.getTileCount());
+        frame.release();
+    }
+
+    @Test
+    void testSerializationRoundTrip() {
+        Frame frame = capture(7, new TestPatternFrameSource(WIDTH, HEIGHT));
+        EncodedFrame encoded = encoder.encode(frame);
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.serializedSize());
+        encoded.writeTo(buffer);
+        buffer.flip();
+
+        EncodedFrame restored = EncodedFrame.readFrom(buffer);
+        assertEquals(encoded.getFrameId(), restored.getFrameId());
+        assertEquals(encoded.getTileCount(), restored.getTileCount());
+        assertEquals(encoded.payload(), restored.payload());
+        assertFalse(buffer.hasRemaining());
+        frame.release();
+    }
+
+    private Frame capture(long frameId, TestPatternFrameSource source) {
+        Frame frame = ring.acquire();
+        source.capture(frame);
+        frame.stamp(frameId, System.nanoTime());
+        return frame;
+    }
+}
@@ -0,0 +1,107 @@
+package com.streamapp.streaming.playout;
+
+import com.streamapp.streaming.encode.EncodedFrame;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JitterBufferTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MIN_DELAY = 10 * MS;
+    private static final long MAX_DELAY = 200 * MS;
+    /**
+     * Сдвиг часов отправителя относительно часов зрителя.
+     */
+    private static final long CLOCK_OFFSET = 1_000_000 * MS;
+
+    private final JitterBuffer buffer = new JitterBuffer(8, MIN_DELAY, MAX_DELAY);
+
+    @Test
+    void testFrameIsHeldUntilPlayoutTime() {
+        assertTrue(buffer.offer(frame(0, 0, false), arrival(0, 5)));
+        assertEquals(1, buffer.getDepth());
+        assertNull(buffer.poll(arrival(0, 5)));
+
+        EncodedFrame played = buffer.poll(arrival(0, 5) + MIN_DELAY);
+        assertNotNull(played);
+        assertEquals(0, played.getFrameId());
+        assertEquals(0, buffer.getDepth());
+    }
+
+    @Test
+    void testReordersFramesBySequence() {
+        buffer.offer(frame(0, 0, false), arrival(0, 5));
+        buffer.offer(frame(2, 66, false), arrival(66, 5));
+        buffer.offer(frame(1, 33, false), arrival(33, 40));
+
+        long late = arrival(200, 0);
+        assertEquals(0, buffer.poll(late).getFrameId());
+        assertEquals(1, buffer.poll(late).getFrameId());
+        assertEquals(2, buffer.poll(late).getFrameId());
+        assertNull(buffer.poll(late));
+    }
+
+    @Test
+    void testDropsFramesOlderThanPlayed() {
+        buffer.offer(frame(5, 0, false), arrival(0, 5));
+        assertEquals(5, buffer.poll(arrival(100, 0)).getFrameId());
+
+        assertFalse(buffer.offer(frame(4, -33, false), arrival(100, 0)));
+        assertFalse(buffer.offer(frame(5, 0, false), arrival(100, 0)));
+        assertEquals(0, buffer.getDepth());
+        assertEquals(2, buffer.getDroppedFrames());
+    }
+
+    @Test
+    void testKeyframeSupersedesQueuedFrames() {
+        buffer.offer(frame(0, 0, false), arrival(0, 5));
+        buffer.offer(frame(1, 33, false), arrival(33, 5));
+        buffer.offer(frame(2, 66, true), arrival(66, 5));
+
+        assertEquals(1, buffer.getDepth());
+        assertEquals(2, buffer.getDroppedFrames());
+        assertTrue(buffer.poll(arrival(200, 0)).isKeyframe());
+    }
+
+    @Test
+    void testTargetDelayFollowsJitter() {
+        for (int i = 0; i < 50; i++) {
+            buffer.offer(frame(i, i * 33L, false), arrival(i * 33L, 5));
+            buffer.poll(Long.MAX_VALUE);
+        }
+        assertEquals(MIN_DELAY, buffer.getTargetDelayNanos());
+
+        for (int i = 50; i < 150; i++) {
+            long transit = i % 2 == 0 ? 5 : 65;
+            buffer.offer(frame(i, i * 33L, false), arrival(i * 33L, transit));
+            buffer.poll(Long.MAX_VALUE);
+        }
+        long delay = buffer.getTargetDelayNanos();
+        assertTrue(delay > 60 * MS, "Задержка " + delay);
+        assertTrue(delay <= MAX_DELAY);
+    }
+
+    @Test
+    void testOverflowReleasesFramesImmediately() {
+        for (int i = 0; i < 9; i++) {
+            buffer.offer(frame(i, i * 33L, false), arrival(i * 33L, 5));
+        }
+        long now = arrival(0, 5);
+        assertEquals(Long.MIN_VALUE, buffer.nextPlayoutNanos());
+        assertEquals(0, buffer.poll(now).getFrameId());
+        assertNull(buffer.poll(now));
+        assertEquals(8, buffer.getDepth());
+    }
+
+    private static long arrival(long captureMillis, long transitMillis) {
+        return CLOCK_OFFSET + (captureMillis + transitMillis) * MS;
+    }
+
+    private static EncodedFrame frame(long frameId, long captureMillis, boolean keyframe) {
+        return new EncodedFrame(frameId, captureMillis * MS, 64, 64, 64, (byte) 1, keyframe, 0, 0,
+            ByteBuffer.allocate(0));
+    }
+}
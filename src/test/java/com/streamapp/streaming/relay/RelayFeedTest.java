@@ -0,0 +1,152 @@
+package com.streamapp.streaming.relay;
+
+import com.streamapp.streaming.capture.Frame;
+import com.streamapp.streaming.capture.FrameRing;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.encode.DeflateTileCodec;
+import com.streamapp.streaming.encode.DeltaDecoder;
+import com.streamapp.streaming.encode.DeltaEncoder;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.streaming.encode.TileGrid;
+import com.streamapp.streaming.encode.TileQuality;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelayFeedTest {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 130;
+    private static final int TILE_SIZE = 32;
+    private static final long FRAME_INTERVAL = TimeUnit.MILLISECONDS.toNanos(33);
+
+    private FrameRing ring;
+    private TestPatternFrameSource source;
+    private DeltaEncoder encoder;
+    private DeltaDecoder decoder;
+    private AtomicInteger upstreamKeyframes;
+    private RelayFeed feed;
+    private long frameId;
+
+    @BeforeEach
+    void setUp() {
+        ring = new FrameRing(1, WIDTH, HEIGHT);
+        source = new TestPatternFrameSource(WIDTH, HEIGHT);
+        encoder = new DeltaEncoder(new TileGrid(WIDTH, HEIGHT, TILE_SIZE), new DeflateTileCodec(), 100, 5);
+        decoder = new DeltaDecoder();
+        upstreamKeyframes = new AtomicInteger();
+        feed = new RelayFeed(30, 100, 5, upstreamKeyframes::incrementAndGet);
+        feed.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        encoder.close();
+        decoder.close();
+    }
+
+    @Test
+    void testLateSubscriberGetsKeyframeFromCache() {
+        List<EncodedFrame> early = new ArrayList<>();
+        feed.subscribe(early::add);
+        relayNext();
+        relayNext();
+        assertTrue(early.get(0).isKeyframe());
+        assertEquals(encoder.getGrid().getTileCount(), early.get(0).getTileCount());
+        assertTrue(early.get(1).getTileCount() < encoder.getGrid().getTileCount(),
+            "Следующий кадр содержит только измененные плитки");
+
+        // Новый зритель получает опорный кадр из кэша, источник об этом не знает
+        List<EncodedFrame> late = new ArrayList<>();
+        feed.subscribe(late::add);
+        Frame frame = relayNext();
+        assertEquals(1, late.size());
+        assertTrue(late.get(0).isKeyframe());
+        assertEquals(encoder.getGrid().getTileCount(), late.get(0).getTileCount());
+        assertEquals(0, upstreamKeyframes.get());
+
+        int[] decoded = new int[WIDTH * HEIGHT];
+        decoder.decode(late.get(0), decoded);
+        for (int i = 0; i < decoded.length; i++) {
+            assertEquals(frame.getPixels()[i] & 0xFFFFFF, decoded[i] & 0xFFFFFF, "Пиксель " + i);
+        }
+    }
+
+    @Test
+    void testIncompleteCacheRequestsUpstreamKeyframe() {
+        relayNext();
+        // Ретранслятор подключился посреди трансляции: опорный кадр от источника потерян
+        feed.clear();
+        relayNext();
+        assertFalse(feed.isComplete());
+        assertEquals(1, upstreamKeyframes.get());
+
+        List<EncodedFrame> received = new ArrayList<>();
+        feed.subscribe(received::add);
+        relayNext();
+        assertFalse(received.get(0).isKeyframe());
+        assertEquals(1, upstreamKeyframes.get(), "Повторный запрос не отправляется, пока ждем опорный кадр");
+
+        encoder.requestKeyframe();
+        relayNext();
+        assertTrue(feed.isComplete());
+        assertTrue(received.get(received.size() - 1).isKeyframe());
+    }
+
+    @Test
+    void testUnacknowledgedTilesAreResent() {
+        List<EncodedFrame> received = new ArrayList<>();
+        RelayFeed.Subscription subscription = feed.subscribe(received::add);
+        relayNext();
+        subscription.acknowledge(received.get(0).getFrameId());
+        relayNext();
+        int changed = received.get(1).getTileCount();
+
+        // Кадр с изменениями потерян: после паузы возобновление повторяет его плитки
+        subscription.pause();
+        subscription.resume();
+        Frame frame = ring.acquire();
+        frame.getPixels()[0] = 0x102030;
+        frame.stamp(frameId, frameId * FRAME_INTERVAL);
+        feed.offer(encoder.encode(frame));
+        frame.release();
+        EncodedFrame resumed = received.get(received.size() - 1);
+        assertFalse(resumed.isKeyframe());
+        assertTrue(resumed.getTileCount() >= changed);
+    }
+
+    @Test
+    void testTilesOfDifferentScaleAreSentSeparately() {
+        relayNext();
+        encoder.setQuality(new TileQuality(0, 1));
+        relayNext();
+
+        List<EncodedFrame> received = new ArrayList<>();
+        feed.subscribe(received::add);
+        relayNext();
+        assertEquals(2, received.size());
+        assertTrue(received.get(0).isKeyframe());
+        assertFalse(received.get(1).isKeyframe());
+        assertNotEquals(received.get(0).getScaleShift(), received.get(1).getScaleShift());
+        assertTrue(received.get(0).getFrameId() < received.get(1).getFrameId());
+        assertEquals(encoder.getGrid().getTileCount(),
+            received.get(0).getTileCount() + received.get(1).getTileCount());
+    }
+
+    private Frame relayNext() {
+        Frame frame = ring.acquire();
+        frame.stamp(frameId, frameId * FRAME_INTERVAL);
+        source.capture(frame);
+        EncodedFrame encoded = encoder.encode(frame);
+        encoder.acknowledge(frameId++);
+        frame.release();
+        feed.offer(encoded);
+        return frame;
+    }
+}
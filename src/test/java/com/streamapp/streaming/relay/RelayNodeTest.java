@@ -0,0 +1,104 @@
+package com.streamapp.streaming.relay;
+
+import com.streamapp.network.session.NioReactor;
+import com.streamapp.network.session.SessionClient;
+import com.streamapp.streaming.StreamHost;
+import com.streamapp.streaming.StreamViewerClient;
+import com.streamapp.streaming.capture.TestPatternFrameSource;
+import com.streamapp.streaming.encode.EncodedFrame;
+import com.streamapp.util.DirectBufferPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelayNodeTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+
+    private NioReactor reactor;
+    private SessionClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reactor = new NioReactor("test-reactor");
+        reactor.start();
+        client = new SessionClient(reactor, DirectBufferPool.shared());
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactor.close();
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.SECONDS)
+    void testRelayServesViewersFromSingleUpstream() throws Exception {
+        StreamHost source = new StreamHost(reactor, DirectBufferPool.shared(),
+            () -> new TestPatternFrameSource(WIDTH, HEIGHT), 30,
+            (viewer, address) -> CompletableFuture.completedFuture(true));
+        source.start(0);
+        RelayNode relay = new RelayNode(reactor, DirectBufferPool.shared(), "relay", RelayNode.DEFAULT_MAX_VIEWERS);
+        relay.start(0);
+        relay.connect("source", new InetSocketAddress("127.0.0.1", source.getPort())).get(5, TimeUnit.SECONDS);
+
+        List<BlockingQueue<EncodedFrame>> received = new ArrayList<>();
+        List<CountDownLatch> stopped = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            BlockingQueue<EncodedFrame> frames = new LinkedBlockingQueue<>();
+            CountDownLatch done = new CountDownLatch(1);
+            StreamViewerClient viewer = new StreamViewerClient(client, "viewer-" + i, new StreamViewerClient.Listener() {
+                @Override
+                public void onAccepted() {
+                }
+
+                @Override
+                public void onRejected(String reason) {
+                }
+
+                @Override
+                public void onFrame(EncodedFrame frame) {
+                    frames.add(frame);
+                }
+
+                @Override
+                public void onStopped() {
+                    done.countDown();
+                }
+            });
+            viewer.request(new InetSocketAddress("127.0.0.1", relay.getPort())).get(5, TimeUnit.SECONDS);
+            received.add(frames);
+            stopped.add(done);
+        }
+        for (BlockingQueue<EncodedFrame> frames : received) {
+            EncodedFrame first = frames.poll(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertTrue(first.isKeyframe(), "Зритель ретранслятора начинает с опорного кадра");
+            assertEquals(WIDTH, first.getWidth());
+            assertNotNull(frames.poll(5, TimeUnit.SECONDS), "Должны приходить разностные кадры");
+        }
+        assertEquals(3, relay.getViewerCount());
+        assertEquals(1, source.getViewerCount(), "Источник отправляет кадры только ретранслятору");
+
+        // Завершение трансляции источником завершает ее и для зрителей ретранслятора
+        source.stopCurrentStream();
+        for (CountDownLatch done : stopped) {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        assertFalse(relay.isRelaying());
+        relay.close();
+        source.close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.streamapp.ui.viewmodel;
+
+import com.streamapp.core.model.User;
+import com.streamapp.network.model.PeerKey;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerRegistryTest {
+    private ObservableList<User> users;
+    private PeerRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        users = FXCollections.observableArrayList();
+        registry = new PeerRegistry(users);
+    }
+
+    @Test
+    void testPeerKeyIgnoresHostCaseAndTrailingDot() {
+        PeerKey key = new PeerKey("alice", "Alice-PC.local.");
+        assertEquals(key, new PeerKey("alice", "alice-pc.local"));
+        assertEquals(key.toUuid(), new PeerKey("alice", "alice-pc.local").toUuid());
+        assertNotEquals(key, new PeerKey("alice", "bob-pc.local"));
+
+        com.streamapp.network.model.User first = new com.streamapp.network.model.User("alice", "alice-pc.local", "10.0.0.1");
+        com.streamapp.network.model.User again = new com.streamapp.network.model.User("alice", "alice-pc.local", "10.0.0.1");
+        assertEquals(first, again, "Повторное разрешение должно давать того же пользователя");
+        assertEquals(first.getId(), again.getId());
+    }
+
+    @Test
+    void testPutPeerReplacesPreviousEntry() {
+        PeerKey key = new PeerKey("alice", "alice-pc.local");
+        registry.putPeer(key, user("a1", "10.0.0.1"));
+        registry.putPeer(key, user("a1", "10.0.0.2"));
+
+        assertEquals(1, users.size(), "Узел не должен дублироваться");
+        assertEquals("10.0.0.2", users.get(0).getAddress());
+        assertSame(users.get(0), registry.getPeer(key));
+        assertSame(users.get(0), registry.get("a1"));
+
+        assertNotNull(registry.removePeer(key));
+        assertTrue(users.isEmpty());
+        assertNull(registry.getPeer(key));
+        assertNull(registry.get("a1"));
+    }
+
+    @Test
+    void testRemoveAndStatusUpdateById() {
+        registry.put(user("a", null));
+        registry.put(user("b", null));
+
+        assertTrue(registry.updateStatus("b", "Не беспокоить"));
+        assertEquals("Не беспокоить", registry.get("b").getStatus());
+        assertFalse(registry.updateStatus("missing", "Онлайн"));
+
+        assertNotNull(registry.remove("a"));
+        assertNull(registry.remove("a"));
+        assertEquals(1, users.size());
+        assertEquals("b", users.get(0).getUserId());
+    }
+
+    @Test
+    void testBatchAppliesSingleRemovalAndAddition() {
+        for (int i = 0; i < 10; i++) {
+            registry.putPeer(new PeerKey("peer-" + i, "host"), user("id-" + i, "10.0.0." + i));
+        }
+        int[] changes = new int[1];
+        users.addListener((ListChangeListener<User>) change -> changes[0]++);
+
+        registry.beginBatch();
+        for (int i = 0; i < 5; i++) {
+            registry.removePeer(new PeerKey("peer-" + i, "host"));
+        }
+        for (int i = 10; i < 15; i++) {
+            registry.putPeer(new PeerKey("peer-" + i, "host"), user("id-" + i, "10.0.0." + i));
+        }
+        // Появился и ушел внутри одной пачки
+        registry.putPeer(new PeerKey("transient", "host"), user("transient", "10.0.1.1"));
+        registry.removePeer(new PeerKey("transient", "host"));
+        assertEquals(0, changes[0], "Внутри пачки список не должен меняться");
+        registry.endBatch();
+
+        assertEquals(2, changes[0], "Пачка должна давать одно удаление и одно добавление");
+        assertEquals(10, users.size());
+        assertEquals(10, registry.size());
+        assertEquals(List.of("id-5", "id-14"), List.of(users.get(0).getUserId(), users.get(9).getUserId()));
+    }
+
+    private static User user(String id, String address) {
+        return new User(id, id, "Онлайн", null, address);
+    }
+}
@@ -0,0 +1,23 @@
+package com.streamapp.util;
+
+import jdk.jfr.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingTest {
+
+    @Test
+    void testProfileEnablesApplicationAndGcEvents() throws Exception {
+        Configuration profile = FlightRecording.profile();
+        Map<String, String> settings = profile.getSettings();
+
+        assertEquals("StreamApp", profile.getLabel());
+        for (String event : new String[] {"com.streamapp.Discovery", "com.streamapp.Registration",
+                "com.streamapp.Handshake", "com.streamapp.FrameStage", "jdk.GarbageCollection"}) {
+            assertEquals("true", settings.get(event + "#enabled"), event);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.streamapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.getCount());
+        assertClose(TimeUnit.MILLISECONDS.toNanos(50), snapshot.percentileNanos(50));
+        assertClose(TimeUnit.MILLISECONDS.toNanos(99), snapshot.percentileNanos(99));
+        assertClose(TimeUnit.MICROSECONDS.toNanos(50_500), snapshot.getMeanNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), histogram.getMaxNanos());
+    }
+
+    @Test
+    void testSnapshotDifferenceCoversOnlyNewValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        LatencyHistogram.Snapshot before = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+
+        LatencyHistogram.Snapshot window = histogram.snapshot().since(before);
+
+        assertEquals(10, window.getCount());
+        assertClose(TimeUnit.MILLISECONDS.toNanos(2), window.percentileNanos(99));
+        assertEquals(0, new LatencyHistogram().snapshot().percentileNanos(50));
+    }
+
+    @Test
+    void testBucketsAreContiguous() {
+        long previousUpper = -1;
+        for (int bucket = 0; bucket < 200; bucket++) {
+            long upper = LatencyHistogram.bucketUpperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(upper));
+            assertEquals(bucket, LatencyHistogram.bucket(previousUpper + 1));
+            previousUpper = upper;
+        }
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16,
+            "Ожидалось около " + expected + ", получено " + actual);
+    }
+}
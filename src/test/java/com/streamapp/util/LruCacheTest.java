@@ -0,0 +1,36 @@
+package com.streamapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void testEvictsLeastRecentlyUsedOverWeightLimit() {
+        LruCache<String, byte[]> cache = new LruCache<>(100, value -> value.length);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        // Обращение к "a" делает самой старой запись "b"
+        assertNotNull(cache.get("a"));
+        cache.put("c", new byte[40]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(80, cache.weight());
+    }
+
+    @Test
+    void testReplaceAndOversizedEntries() {
+        LruCache<String, byte[]> cache = new LruCache<>(100, value -> value.length);
+        cache.put("a", new byte[60]);
+        cache.put("a", new byte[30]);
+        assertEquals(1, cache.size());
+        assertEquals(30, cache.weight());
+
+        cache.put("huge", new byte[101]);
+        assertNull(cache.get("huge"), "Запись тяжелее предела не должна сохраняться");
+        assertEquals(30, cache.weight());
+    }
+}
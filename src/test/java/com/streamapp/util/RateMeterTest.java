@@ -0,0 +1,32 @@
+package com.streamapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateMeterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testRateCountsOnlyFullSecondsOfWindow() {
+        RateMeter meter = new RateMeter(2);
+        long start = 100 * SECOND;
+        // 10 событий за секунду, вне окна, затем по 4 и 6 в секундах окна
+        for (int i = 0; i < 10; i++) {
+            meter.mark(start);
+        }
+        for (int i = 0; i < 4; i++) {
+            meter.mark(start + SECOND);
+        }
+        for (int i = 0; i < 6; i++) {
+            meter.mark(start + 2 * SECOND);
+        }
+        // Текущая неполная секунда не учитывается
+        meter.mark(start + 3 * SECOND);
+
+        assertEquals(5.0, meter.perSecond(start + 3 * SECOND), 1e-9);
+        assertEquals(0.0, meter.perSecond(start + 10 * SECOND), 1e-9);
+    }
+}
@@ -0,0 +1,85 @@
+package com.streamapp.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupGraphTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> progress = new CopyOnWriteArrayList<>();
+    private final StartupGraph graph = new StartupGraph(executor,
+        (name, completed, total, error) -> progress.add(name + " " + completed + "/" + total
+            + (error != null ? " " + error.getClass().getSimpleName() : "")));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testIndependentTasksRunInParallel() throws Exception {
+        // Каждая задача ждет другую: последовательный запуск завис бы
+        CountDownLatch both = new CountDownLatch(2);
+        CompletableFuture<String> first = graph.task("a", () -> {
+            both.countDown();
+            return both.await(2, TimeUnit.SECONDS) ? "a" : null;
+        });
+        CompletableFuture<String> second = graph.task("b", () -> {
+            both.countDown();
+            return both.await(2, TimeUnit.SECONDS) ? "b" : null;
+        });
+        graph.start();
+
+        assertEquals("a", first.get());
+        assertEquals("b", second.get());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testTaskRunsAfterDependenciesWithTheirResults() throws Exception {
+        CompletableFuture<Integer> left = graph.task("left", () -> 2);
+        CompletableFuture<Integer> right = graph.task("right", () -> 3);
+        CompletableFuture<Integer> sum = graph.task("sum", () -> left.join() + right.join(), left, right);
+        assertFalse(sum.isDone());
+
+        graph.start();
+
+        assertEquals(5, sum.get());
+        graph.whenDone().get();
+        assertEquals(3, progress.size());
+        assertEquals("sum 3/3", progress.get(2));
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testFailureSkipsDependentTasksAndIsReported() throws Exception {
+        CompletableFuture<Object> broken = graph.task("broken", () -> {
+            throw new IOException("нет сети");
+        });
+        CompletableFuture<Boolean> dependent = graph.task("dependent", () -> true, broken);
+        CompletableFuture<String> independent = graph.task("independent", () -> "ok");
+        graph.start();
+
+        ExecutionException error = assertThrows(ExecutionException.class, dependent::get);
+        assertInstanceOf(IOException.class, error.getCause());
+        assertEquals("ok", independent.get());
+        graph.whenDone().get();
+        assertEquals(3, progress.size());
+        assertTrue(progress.stream().anyMatch(line -> line.startsWith("broken ") && line.endsWith("IOException")));
+        assertTrue(progress.stream().anyMatch(line -> line.startsWith("dependent ") && line.endsWith("IOException")));
+        assertThrows(IllegalStateException.class, () -> graph.task("late", () -> null));
+    }
+}